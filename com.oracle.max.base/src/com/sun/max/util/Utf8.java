@@ -110,9 +110,24 @@ public final class Utf8 {
      * @return the decoded string
      */
     public static String utf8ToString(boolean zeroIsEncodedIn2Bytes, byte[] utf8Data) throws Utf8Exception {
-        final int length = utf8Data.length;
+        final char[] chars = new char[utf8Data.length];
+        // The number of chars produced may be less than utflen
+        final int n = utf8ToChars(zeroIsEncodedIn2Bytes, utf8Data, utf8Data.length, chars);
+        return new String(chars, 0, n);
+    }
+
+    /**
+     * Decodes the first {@code length} bytes of an array of UTF-8 data into a given char array without allocating.
+     *
+     * @param zeroIsEncodedIn2Bytes if true, then 0 is decoded from two bytes as opposed to one
+     * @param utf8Data the data
+     * @param length the number of bytes in {@code utf8Data} to decode
+     * @param chars the destination for the decoded chars which must have a length of at least {@code length}
+     * @return the number of chars decoded into {@code chars}
+     */
+    public static int utf8ToChars(boolean zeroIsEncodedIn2Bytes, byte[] utf8Data, int length, char[] chars) throws Utf8Exception {
         int count = 0;
-        final StringBuilder sb = new StringBuilder(length);
+        int n = 0;
 
         while (count < length) {
             final int c = utf8Data[count] & 0xff;
@@ -123,7 +138,7 @@ public final class Utf8 {
                 case 0: case 1: case 2: case 3: case 4: case 5: case 6: case 7: {
                     /* 0xxxxxxx*/
                     count++;
-                    sb.append((char) c);
+                    chars[n++] = (char) c;
                     break;
                 }
                 case 12: case 13: {
@@ -136,7 +151,7 @@ public final class Utf8 {
                     if ((char2 & 0xC0) != 0x80) {
                         throw new Utf8Exception();
                     }
-                    sb.append((char) (((c & 0x1F) << 6) | (char2 & 0x3F)));
+                    chars[n++] = (char) (((c & 0x1F) << 6) | (char2 & 0x3F));
                     break;
                 }
                 case 14: {
@@ -150,9 +165,9 @@ public final class Utf8 {
                     if (((char2 & 0xC0) != 0x80) || ((char3 & 0xC0) != 0x80)) {
                         throw new Utf8Exception();
                     }
-                    sb.append((char) (((c & 0x0F) << 12) |
-                                      ((char2 & 0x3F) << 6)  |
-                                      ((char3 & 0x3F) << 0)));
+                    chars[n++] = (char) (((c & 0x0F) << 12) |
+                                         ((char2 & 0x3F) << 6)  |
+                                         ((char3 & 0x3F) << 0));
                     break;
                 }
                 default: {
@@ -161,8 +176,7 @@ public final class Utf8 {
                 }
             }
         }
-        // The number of chars produced may be less than utflen
-        return new String(sb);
+        return n;
     }
 
     private static byte[] readZeroTerminatedBytes(InputStream inputStream) throws IOException {
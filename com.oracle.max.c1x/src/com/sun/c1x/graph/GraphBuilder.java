@@ -2367,6 +2367,7 @@ public final class GraphBuilder {
             case INVOKESPECIAL  : cpi = s.readCPI(); genInvokeSpecial(constantPool().lookupMethod(cpi, opcode), null, cpi, constantPool()); break;
             case INVOKESTATIC   : cpi = s.readCPI(); genInvokeStatic(constantPool().lookupMethod(cpi, opcode), cpi, constantPool()); break;
             case INVOKEINTERFACE: cpi = s.readCPI(); genInvokeInterface(constantPool().lookupMethod(cpi, opcode), cpi, constantPool()); break;
+            case INVOKEDYNAMIC  : cpi = s.readCPI(); genInvokeStatic(constantPool().lookupMethod(cpi, opcode), cpi, constantPool()); break;
             case NEW            : genNewInstance(s.readCPI()); break;
             case NEWARRAY       : genNewTypeArray(s.readLocalIndex()); break;
             case ANEWARRAY      : genNewObjectArray(s.readCPI()); break;
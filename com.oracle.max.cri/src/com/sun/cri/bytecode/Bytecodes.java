@@ -228,7 +228,7 @@ public class Bytecodes {
     public static final int INVOKESPECIAL        = 183; // 0xB7
     public static final int INVOKESTATIC         = 184; // 0xB8
     public static final int INVOKEINTERFACE      = 185; // 0xB9
-    public static final int XXXUNUSEDXXX         = 186; // 0xBA
+    public static final int INVOKEDYNAMIC        = 186; // 0xBA
     public static final int NEW                  = 187; // 0xBB
     public static final int NEWARRAY             = 188; // 0xBC
     public static final int ANEWARRAY            = 189; // 0xBD
@@ -342,7 +342,7 @@ public class Bytecodes {
          */
         static final int STORE       = 0x00000800;
         /**
-         * Denotes the 4 INVOKE* instructions.
+         * Denotes the 5 INVOKE* instructions.
          */
         static final int INVOKE       = 0x00001000;
     }
@@ -570,7 +570,7 @@ public class Bytecodes {
         def(INVOKESPECIAL       , "invokespecial"   , "bjj"  , TRAP | INVOKE);
         def(INVOKESTATIC        , "invokestatic"    , "bjj"  , TRAP | INVOKE);
         def(INVOKEINTERFACE     , "invokeinterface" , "bjja_", TRAP | INVOKE);
-        def(XXXUNUSEDXXX        , "xxxunusedxxx"    , ""     );
+        def(INVOKEDYNAMIC       , "invokedynamic"   , "bjj__", TRAP | INVOKE);
         def(NEW                 , "new"             , "bii"  , TRAP);
         def(NEWARRAY            , "newarray"        , "bc"   , TRAP);
         def(ANEWARRAY           , "anewarray"       , "bii"  , TRAP);
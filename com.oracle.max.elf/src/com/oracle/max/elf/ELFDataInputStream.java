@@ -140,6 +140,21 @@ public class ELFDataInputStream {
         return read_8();
     }
 
+    /**
+     * Skips over {@code n} bytes, e.g. the padding at the end of a table entry that is larger than the entry
+     * layout known to this reader.
+     */
+    public void skip(int n) throws IOException {
+        if (n <= 0) {
+            return;
+        }
+        if (file == null) {
+            buffer.position(buffer.position() + n);
+        } else {
+            file.seek(file.getFilePointer() + n);
+        }
+    }
+
     private int read_1() throws IOException {
         if (file == null) {
             return buffer.get() & 0xff;
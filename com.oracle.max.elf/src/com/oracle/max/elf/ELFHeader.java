@@ -56,6 +56,7 @@ package com.oracle.max.elf;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 
 /**
  * The <code>ELFHeader</code> class represents the header of an ELF file.
@@ -158,7 +159,24 @@ public class ELFHeader {
         }
 
         checkIdent();
-        final ELFDataInputStream is = new ELFDataInputStream(this, fs);
+        readHeader(new ELFDataInputStream(this, fs));
+    }
+
+    /**
+     * Reads the header from a buffer positioned at the start of an ELF file.
+     * @param buffer the buffer from which to read the ELF header
+     * @throws IOException if there is a problem reading from the buffer
+     */
+    public void read(ByteBuffer buffer) throws IOException, FormatError {
+        if (buffer.remaining() < EI_NIDENT) {
+            throw new FormatError();
+        }
+        buffer.get(e_ident, 0, EI_NIDENT);
+        checkIdent();
+        readHeader(new ELFDataInputStream(this, buffer));
+    }
+
+    private void readHeader(ELFDataInputStream is) throws IOException {
         if (is32Bit()) {
             // read a 32-bit header.
             readHeader32(is);
@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.max.elf;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+import com.oracle.max.elf.ELFHeader.*;
+
+/**
+ * A read-only view of an ELF file that is memory-mapped rather than read through a {@link RandomAccessFile}.
+ * Only the ELF header is decoded when the file is opened; the program header table, the section header table
+ * and the symbol tables are decoded from the mapping the first time they are requested. Files too large for
+ * a single {@link MappedByteBuffer} (e.g. core dumps) are mapped in fixed size windows on demand.
+ */
+public final class ELFMappedFile implements Closeable {
+
+    /**
+     * Windows are 1GB, well within the 2GB limit on the size of a single mapping.
+     */
+    private static final int WINDOW_SHIFT = 30;
+    private static final long WINDOW_SIZE = 1L << WINDOW_SHIFT;
+
+    public static final int SHT_GNU_HASH = 0x6ffffff6;
+
+    public final File file;
+    public final ELFHeader header;
+
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final long size;
+    private final MappedByteBuffer[] windows;
+
+    private ELFProgramHeaderTable programHeaderTable;
+    private ELFSectionHeaderTable sectionHeaderTable;
+    private List<ELFSymbolTable> symbolTables;
+    private ELFSymbolLookup symbolLookup;
+
+    /**
+     * The contents of the {@code .gnu.hash} or {@code .hash} section, if any, in the byte order of the file.
+     */
+    private ByteBuffer hashTable;
+    private boolean isGnuHash;
+    private ELFSymbolTable hashedSymbolTable;
+    private boolean hashTableInitialized;
+
+    public ELFMappedFile(File file) throws IOException, FormatError {
+        this.file = file;
+        raf = new RandomAccessFile(file, "r");
+        boolean opened = false;
+        try {
+            channel = raf.getChannel();
+            size = channel.size();
+            windows = new MappedByteBuffer[(int) ((size + WINDOW_SIZE - 1) >>> WINDOW_SHIFT)];
+            header = new ELFHeader();
+            header.read(buffer(0, Math.min(size, WINDOW_SIZE)));
+            opened = true;
+        } finally {
+            if (!opened) {
+                raf.close();
+            }
+        }
+    }
+
+    /**
+     * Gets the size of the file in bytes.
+     */
+    public long size() {
+        return size;
+    }
+
+    private synchronized MappedByteBuffer window(int index) throws IOException {
+        MappedByteBuffer window = windows[index];
+        if (window == null) {
+            final long start = (long) index << WINDOW_SHIFT;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, size - start));
+            windows[index] = window;
+        }
+        return window;
+    }
+
+    /**
+     * Gets a buffer for a range of the file. The returned buffer is positioned at zero, has its limit set to
+     * {@code length} and uses the byte order of the file.
+     *
+     * @param offset the file offset of the first byte in the range
+     * @param length the number of bytes in the range
+     */
+    public ByteBuffer buffer(long offset, long length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > size) {
+            throw new EOFException("range [" + offset + ", " + (offset + length) + ") is outside of " + file);
+        }
+        final long windowOffset = offset & (WINDOW_SIZE - 1);
+        ByteBuffer buffer;
+        if (windowOffset + length <= WINDOW_SIZE) {
+            buffer = window((int) (offset >>> WINDOW_SHIFT)).duplicate();
+            buffer.limit((int) (windowOffset + length));
+            buffer.position((int) windowOffset);
+            buffer = buffer.slice();
+        } else {
+            // the range straddles two windows so it gets a mapping of its own
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("range of " + length + " bytes is too large to map");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        }
+        return buffer.order(header == null || !header.isBigEndian() ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Copies bytes from the file into an array.
+     *
+     * @param offset the file offset of the first byte to copy
+     * @param dst the destination array
+     * @param dstOffset the index in {@code dst} of the first byte copied
+     * @param length the maximum number of bytes to copy
+     * @return the number of bytes copied, which is less than {@code length} only if the end of the file was reached
+     */
+    public int read(long offset, byte[] dst, int dstOffset, int length) throws IOException {
+        if (offset < 0 || offset >= size) {
+            return 0;
+        }
+        final int n = (int) Math.min(length, size - offset);
+        int done = 0;
+        while (done < n) {
+            final long position = offset + done;
+            final ByteBuffer window = window((int) (position >>> WINDOW_SHIFT)).duplicate();
+            final int windowOffset = (int) (position & (WINDOW_SIZE - 1));
+            final int chunk = Math.min(n - done, window.capacity() - windowOffset);
+            window.position(windowOffset);
+            window.get(dst, dstOffset + done, chunk);
+            done += chunk;
+        }
+        return n;
+    }
+
+    /**
+     * Creates a stream for decoding ELF values from a range of the file.
+     */
+    public ELFDataInputStream dataInputStream(long offset, long length) throws IOException {
+        return new ELFDataInputStream(header, buffer(offset, length));
+    }
+
+    public synchronized ELFProgramHeaderTable programHeaderTable() throws IOException {
+        if (programHeaderTable == null) {
+            final ELFProgramHeaderTable pht = new ELFProgramHeaderTable(header);
+            if (pht.entries.length != 0) {
+                pht.read(buffer(header.e_phoff, (long) pht.entries.length * header.e_phentsize));
+            }
+            programHeaderTable = pht;
+        }
+        return programHeaderTable;
+    }
+
+    public synchronized ELFSectionHeaderTable sectionHeaderTable() throws IOException {
+        if (sectionHeaderTable == null) {
+            final ELFSectionHeaderTable sht = new ELFSectionHeaderTable(header);
+            if (sht.entries.length != 0) {
+                sht.read(buffer(header.e_shoff, (long) sht.entries.length * header.e_shentsize));
+                // read the ELF string table that contains the section names
+                if (header.e_shstrndx < sht.entries.length) {
+                    sht.setStringTable(readStringTable(sht.entries[header.e_shstrndx]));
+                }
+            }
+            sectionHeaderTable = sht;
+        }
+        return sectionHeaderTable;
+    }
+
+    private ELFStringTable readStringTable(ELFSectionHeaderTable.Entry e) throws IOException {
+        final ELFStringTable strtab = new ELFStringTable(header, e);
+        strtab.read(buffer(e.getOffset(), e.getSize()));
+        return strtab;
+    }
+
+    /**
+     * Gets the symbol tables in this file, in section header table order.
+     */
+    public synchronized List<ELFSymbolTable> symbolTables() throws IOException {
+        if (symbolTables == null) {
+            final ELFSectionHeaderTable sht = sectionHeaderTable();
+            final List<ELFSymbolTable> tables = new ArrayList<ELFSymbolTable>();
+            for (ELFSectionHeaderTable.Entry e : sht.entries) {
+                if (e.isSymbolTable()) {
+                    tables.add(readSymbolTable(sht, e));
+                }
+            }
+            symbolTables = tables;
+        }
+        return symbolTables;
+    }
+
+    private ELFSymbolTable readSymbolTable(ELFSectionHeaderTable sht, ELFSectionHeaderTable.Entry e) throws IOException {
+        final ELFSymbolTable stab = new ELFSymbolTable(header, e);
+        stab.read(buffer(e.getOffset(), e.getSize()));
+        final ELFSectionHeaderTable.Entry strent = sht.entries[e.getLink()];
+        if (strent.isStringTable()) {
+            stab.setStringTable(readStringTable(strent));
+        }
+        return stab;
+    }
+
+    public synchronized ELFSymbolLookup symbolLookup() throws IOException {
+        if (symbolLookup == null) {
+            symbolLookup = new ELFSymbolLookup(symbolTables());
+        }
+        return symbolLookup;
+    }
+
+    /**
+     * Looks up a symbol in the dynamic symbol table using the file's {@code .gnu.hash} or {@code .hash} section.
+     * Unlike {@link #symbolLookup()}, this only decodes the names of the symbols in the hash chain of {@code name}.
+     *
+     * @return the matching entry or {@code null} if there is no such symbol or the file has no hash section
+     */
+    public synchronized ELFSymbolTable.Entry lookupDynamicSymbol(String name) throws IOException {
+        if (!hashTableInitialized) {
+            initializeHashTable();
+        }
+        if (hashTable == null) {
+            return null;
+        }
+        return isGnuHash ? lookupGnuHash(name) : lookupSysVHash(name);
+    }
+
+    private void initializeHashTable() throws IOException {
+        hashTableInitialized = true;
+        final ELFSectionHeaderTable sht = sectionHeaderTable();
+        ELFSectionHeaderTable.Entry hashSection = null;
+        for (ELFSectionHeaderTable.Entry e : sht.entries) {
+            if (e.getType() == SHT_GNU_HASH) {
+                hashSection = e;
+                break;
+            }
+            if (e.getType() == ELFSectionHeaderTable.SHT_HASH && hashSection == null) {
+                hashSection = e;
+            }
+        }
+        if (hashSection == null) {
+            return;
+        }
+        // the hash section indexes the dynamic symbol table (.dynsym), which is not one of the symbolTables()
+        final ELFSectionHeaderTable.Entry symbolSection = sht.entries[hashSection.getLink()];
+        hashedSymbolTable = readSymbolTable(sht, symbolSection);
+        hashTable = buffer(hashSection.getOffset(), hashSection.getSize());
+        isGnuHash = hashSection.getType() == SHT_GNU_HASH;
+    }
+
+    private ELFSymbolTable.Entry symbolIfNamed(int index, String name) {
+        if (index < 0 || index >= hashedSymbolTable.entries.length) {
+            return null;
+        }
+        final ELFSymbolTable.Entry e = hashedSymbolTable.entries[index];
+        return name.equals(e.getName()) ? e : null;
+    }
+
+    private ELFSymbolTable.Entry lookupSysVHash(String name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            h = (h << 4) + (name.charAt(i) & 0xff);
+            final int g = h & 0xf0000000;
+            if (g != 0) {
+                h ^= g >>> 24;
+            }
+            h &= ~g;
+        }
+        final int nbucket = hashTable.getInt(0);
+        final int nchain = hashTable.getInt(4);
+        if (nbucket == 0) {
+            return null;
+        }
+        final int chainBase = 8 + nbucket * 4;
+        int index = hashTable.getInt(8 + (int) ((h & 0xffffffffL) % nbucket) * 4);
+        // bound the walk by the chain length in case the section is corrupt
+        for (int steps = 0; index != 0 && index < nchain && steps < nchain; steps++) {
+            final ELFSymbolTable.Entry e = symbolIfNamed(index, name);
+            if (e != null) {
+                return e;
+            }
+            index = hashTable.getInt(chainBase + index * 4);
+        }
+        return null;
+    }
+
+    private ELFSymbolTable.Entry lookupGnuHash(String name) {
+        int h = 5381;
+        for (int i = 0; i < name.length(); i++) {
+            h = h * 33 + (name.charAt(i) & 0xff);
+        }
+        final int nbuckets = hashTable.getInt(0);
+        final int symoffset = hashTable.getInt(4);
+        final int bloomSize = hashTable.getInt(8);
+        final int bloomShift = hashTable.getInt(12);
+        if (nbuckets == 0 || bloomSize == 0) {
+            return null;
+        }
+        final long uh = h & 0xffffffffL;
+
+        // the Bloom filter rejects most absent names without touching the symbol table
+        final int wordBits = header.is64Bit() ? 64 : 32;
+        final int wordIndex = (int) ((uh / wordBits) % bloomSize);
+        final long word = header.is64Bit() ? hashTable.getLong(16 + wordIndex * 8) : hashTable.getInt(16 + wordIndex * 4) & 0xffffffffL;
+        final long mask = (1L << (uh % wordBits)) | (1L << ((uh >>> bloomShift) % wordBits));
+        if ((word & mask) != mask) {
+            return null;
+        }
+
+        final int bucketBase = 16 + bloomSize * (wordBits / 8);
+        final int chainBase = bucketBase + nbuckets * 4;
+        int index = hashTable.getInt(bucketBase + (int) (uh % nbuckets) * 4);
+        if (index == 0 || index < symoffset) {
+            return null;
+        }
+        while (chainBase + (index - symoffset) * 4 < hashTable.limit()) {
+            final int chainHash = hashTable.getInt(chainBase + (index - symoffset) * 4);
+            if ((chainHash | 1) == (h | 1)) {
+                final ELFSymbolTable.Entry e = symbolIfNamed(index, name);
+                if (e != null) {
+                    return e;
+                }
+            }
+            if ((chainHash & 1) != 0) {
+                // end of the chain
+                break;
+            }
+            index++;
+        }
+        return null;
+    }
+
+    public void close() throws IOException {
+        raf.close();
+    }
+}
@@ -57,6 +57,7 @@ package com.oracle.max.elf;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 
 /**
  * The <code>ELFProgramHeaderTable</code> class represents a program header table
@@ -200,23 +201,35 @@ public class ELFProgramHeaderTable {
         }
         // seek to the beginning of the table
         fis.seek(header.e_phoff);
-        final ELFDataInputStream is = new ELFDataInputStream(header, fis);
+        readEntries(new ELFDataInputStream(header, fis));
+    }
+
+    /**
+     * Reads the program header table from a buffer positioned at the start of the table.
+     * @param buffer the buffer from which to read the program header table
+     * @throws IOException if there is a problem reading the header table
+     */
+    public void read(ByteBuffer buffer) throws IOException {
+        readEntries(new ELFDataInputStream(header, buffer));
+    }
+
+    private void readEntries(ELFDataInputStream is) throws IOException {
         // read each entry
         for (int cntr = 0; cntr < entries.length; cntr++) {
-            entries[cntr] = readEntry(fis, is);
+            entries[cntr] = readEntry(is);
         }
     }
 
-    private Entry readEntry(RandomAccessFile fis, ELFDataInputStream is) throws IOException {
+    private Entry readEntry(ELFDataInputStream is) throws IOException {
         if (header.is32Bit()) {
-            return readEntry32(fis, is);
+            return readEntry32(is);
         } else if (header.is64Bit()) {
-            return readEntry64(fis, is);
+            return readEntry64(is);
         }
         throw new Error("unknown bit size for ELF header");
     }
 
-    public Entry32 readEntry32(RandomAccessFile fis, ELFDataInputStream is) throws IOException {
+    public Entry32 readEntry32(ELFDataInputStream is) throws IOException {
         final Entry32 e = new Entry32();
         e.p_type   = is.read_Elf32_Word();
         e.p_offset = is.read_Elf32_Off();
@@ -226,17 +239,11 @@ public class ELFProgramHeaderTable {
         e.p_memsz  = is.read_Elf32_Word();
         e.p_flags  = is.read_Elf32_Word();
         e.p_align  = is.read_Elf32_Word();
-        readPadding(fis, ELF32_PHTENT_SIZE, header.e_phentsize);
+        is.skip(header.e_phentsize - ELF32_PHTENT_SIZE);
         return e;
     }
 
-    private void readPadding(RandomAccessFile fis, int read, short goal) throws IOException {
-        for (int pad = read; pad < goal; pad++) {
-            fis.read();
-        }
-    }
-
-    public Entry64 readEntry64(RandomAccessFile fis, ELFDataInputStream is) throws IOException {
+    public Entry64 readEntry64(ELFDataInputStream is) throws IOException {
         final Entry64 e = new Entry64();
         // note the order of these fields is different between 32 and 64 bit versions.
         e.p_type   = is.read_Elf64_Word();
@@ -248,7 +255,7 @@ public class ELFProgramHeaderTable {
         e.p_memsz  = is.read_Elf64_XWord();
         e.p_align  = is.read_Elf64_XWord();
         // read the rest of the entry (padding)
-        readPadding(fis, ELF64_PHTENT_SIZE, header.e_phentsize);
+        is.skip(header.e_phentsize - ELF64_PHTENT_SIZE);
         return e;
     }
 
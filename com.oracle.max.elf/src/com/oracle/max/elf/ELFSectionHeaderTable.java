@@ -57,6 +57,7 @@ package com.oracle.max.elf;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 
 /**
  * The <code>ELFSectionHeaderTable</code> class represents a cleaned-up view
@@ -315,23 +316,35 @@ public class ELFSectionHeaderTable {
         }
         // seek to the beginning of the section header table
         fis.seek(header.e_shoff);
-        final ELFDataInputStream is = new ELFDataInputStream(header, fis);
+        readEntries(new ELFDataInputStream(header, fis));
+    }
+
+    /**
+     * Reads the section header table from a buffer positioned at the start of the table.
+     * @param buffer the buffer that contains the section header table
+     * @throws IOException if there is a problem reading the data from the buffer
+     */
+    public void read(ByteBuffer buffer) throws IOException {
+        readEntries(new ELFDataInputStream(header, buffer));
+    }
+
+    private void readEntries(ELFDataInputStream is) throws IOException {
         // load each of the section header entries
         for (int cntr = 0; cntr < entries.length; cntr++) {
-            entries[cntr] = readEntry(fis, is);
+            entries[cntr] = readEntry(is);
         }
     }
 
-    private Entry readEntry(RandomAccessFile fis, ELFDataInputStream is) throws IOException {
+    private Entry readEntry(ELFDataInputStream is) throws IOException {
         if (header.is32Bit()) {
-            return readEntry32(fis, is);
+            return readEntry32(is);
         } else if (header.is64Bit()) {
-            return readEntry64(fis, is);
+            return readEntry64(is);
         }
         throw new Error("unknown bit size");
     }
 
-    private Entry32 readEntry32(RandomAccessFile fis, ELFDataInputStream is) throws IOException {
+    private Entry32 readEntry32(ELFDataInputStream is) throws IOException {
         final Entry32 e = new Entry32();
         e.sh_name      = is.read_Elf32_Word();
         e.sh_type      = is.read_Elf32_Word();
@@ -344,13 +357,11 @@ public class ELFSectionHeaderTable {
         e.sh_addralign = is.read_Elf32_Word();
         e.sh_entsize   = is.read_Elf32_Word();
 
-        for (int pad = ELF32_SHTENT_SIZE; pad < header.e_shentsize; pad++) {
-            fis.read();
-        }
+        is.skip(header.e_shentsize - ELF32_SHTENT_SIZE);
         return e;
     }
 
-    private Entry64 readEntry64(RandomAccessFile fis, ELFDataInputStream is) throws IOException {
+    private Entry64 readEntry64(ELFDataInputStream is) throws IOException {
         final Entry64 e = new Entry64();
         e.sh_name      = is.read_Elf64_Word();   // 4
         e.sh_type      = is.read_Elf64_Word();   // 4
@@ -363,10 +374,7 @@ public class ELFSectionHeaderTable {
         e.sh_addralign = is.read_Elf64_XWord();  // 8
         e.sh_entsize   = is.read_Elf64_XWord();  // 8
 
-
-        for (int pad = ELF64_SHTENT_SIZE; pad < header.e_shentsize; pad++) {
-            fis.read();
-        }
+        is.skip(header.e_shentsize - ELF64_SHTENT_SIZE);
         return e;
     }
 
@@ -56,6 +56,7 @@
 package com.oracle.max.elf;
 
 import java.io.*;
+import java.nio.*;
 import java.util.*;
 
 /**
@@ -121,6 +122,14 @@ public class ELFStringTable {
         }
     }
 
+    /**
+     * Reads this string table from a buffer positioned at the start of the section.
+     * @param buffer the buffer to read the data from
+     */
+    public void read(ByteBuffer buffer) {
+        buffer.get(data);
+    }
+
     /**
      * The <code>getString()</code> method gets a string in this section corresponding
      * to the specified index. Since Java strings are not null-terminated as the
@@ -30,18 +30,38 @@ import com.oracle.max.elf.ELFSymbolTable.*;
 
 /**
  * Builds a lookup table given the symbol table by arranging the symbols as name,entry pairs.
- *
+ * The table is built on the first {@linkplain #lookupSymbolValue(String) lookup} of a name, and an index of the function
+ * and object symbols sorted by address is built on demand by {@link #lookupAddress(long)}.
  */
 public class ELFSymbolLookup {
 
-    public final  Map<String, List<Entry>> symbolMap = new HashMap<String, List<Entry>>();
+    /**
+     * The symbol tables from which {@link #symbolMap} is built. Cleared once the map has been built.
+     */
+    private List<ELFSymbolTable> symbolTables;
+
+    private Map<String, List<Entry>> symbolMap;
+
+    /**
+     * The sized function and object symbols sorted by {@linkplain Entry#getValue() value}.
+     */
+    private Entry[] addressIndex;
+
+    /**
+     * {@code maxEnds[i]} is the highest end address of the symbols in {@code addressIndex[0 .. i]}.
+     */
+    private long[] maxEnds;
+
+    public ELFSymbolLookup(ELFMappedFile elfFile) throws IOException {
+        this.symbolTables = elfFile.symbolTables();
+    }
 
     public ELFSymbolLookup(File elfFile) throws IOException, FormatError {
         RandomAccessFile raf = null;
         try {
             raf = new RandomAccessFile(elfFile, "r");
             ELFHeader header = ELFLoader.readELFHeader(raf);
-            buildSymbolMap(raf, header, ELFLoader.readSHT(raf, header));
+            this.symbolTables = ELFLoader.readSymbolTables(raf, header, ELFLoader.readSHT(raf, header));
         } finally {
             if (raf != null) {
                 try {
@@ -54,24 +74,32 @@ public class ELFSymbolLookup {
     }
 
     public ELFSymbolLookup(List<ELFSymbolTable> symbolTables) {
-        buildSymbolMap(symbolTables);
+        this.symbolTables = symbolTables;
     }
 
     public ELFSymbolLookup(RandomAccessFile raf, ELFHeader header) throws IOException {
-        buildSymbolMap(raf, header, ELFLoader.readSHT(raf, header));
+        this.symbolTables = ELFLoader.readSymbolTables(raf, header, ELFLoader.readSHT(raf, header));
     }
 
     public ELFSymbolLookup(RandomAccessFile raf, ELFHeader header, ELFSectionHeaderTable sht) throws IOException {
-        buildSymbolMap(raf, header, sht);
+        this.symbolTables = ELFLoader.readSymbolTables(raf, header, sht);
     }
 
-    private void buildSymbolMap(RandomAccessFile raf, ELFHeader header, ELFSectionHeaderTable sht) throws IOException {
-        buildSymbolMap(ELFLoader.readSymbolTables(raf, header, sht));
+    /**
+     * Gets the map from symbol names to the symbols with that name, building it first if necessary.
+     */
+    public synchronized Map<String, List<Entry>> symbolMap() {
+        if (symbolMap == null) {
+            symbolMap = buildSymbolMap(symbolTables);
+            symbolTables = null;
+        }
+        return symbolMap;
     }
 
-    private void buildSymbolMap(List<ELFSymbolTable> symbolTables) {
+    private static Map<String, List<Entry>> buildSymbolMap(List<ELFSymbolTable> symbolTables) {
+        final Map<String, List<Entry>> symbolMap = new HashMap<String, List<Entry>>();
         if (symbolTables == null || symbolTables.isEmpty()) {
-            return;
+            return symbolMap;
         }
         for (ELFSymbolTable symbolTable : symbolTables) {
             Entry[] symbolTableEntries = symbolTable.entries;
@@ -80,13 +108,14 @@ public class ELFSymbolLookup {
                 if (symbolTableEntry.getName() != null && !symbolTableEntry.getName().equals("")) {
                     List<Entry> oldEntryList = symbolMap.get(symbolTableEntry.getName());
                     if (oldEntryList == null) {
-                        oldEntryList = new LinkedList<Entry>();
+                        oldEntryList = new ArrayList<Entry>(1);
                         symbolMap.put(symbolTableEntry.getName(), oldEntryList);
                     }
                     oldEntryList.add(symbolTableEntry);
                 }
             }
         }
+        return symbolMap;
     }
 
     /** Get the value associated with a symbol.
@@ -96,9 +125,69 @@ public class ELFSymbolLookup {
      *         Integer if the ELF file is 32 bit, its a Long if the file is 64 bit
      */
     public Number lookupSymbolValue(String name) {
-        List<Entry> symbolTableEntryList = symbolMap.get(name);
+        List<Entry> symbolTableEntryList = symbolMap().get(name);
+        if (symbolTableEntryList == null) {
+            return null;
+        }
         Entry symbolTableEntry = symbolTableEntryList.get(0);
         return symbolTableEntry != null ? symbolTableEntry.is32Bit() ? ((Entry32) symbolTableEntry).st_value : ((Entry64) symbolTableEntry).st_value : null;
     }
 
+    /**
+     * Finds the function or object symbol whose extent contains a given address.
+     *
+     * @param address the address to look up
+     * @return the innermost symbol containing {@code address} or {@code null} if there is none
+     */
+    public synchronized Entry lookupAddress(long address) {
+        if (addressIndex == null) {
+            buildAddressIndex();
+        }
+        // find the last symbol starting at or below address
+        int low = 0;
+        int high = addressIndex.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (addressIndex[mid].getValue() <= address) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        // walk back over the symbols that may still extend past address
+        for (int i = high; i >= 0 && maxEnds[i] > address; i--) {
+            final Entry entry = addressIndex[i];
+            if (address < entry.getValue() + entry.getSize()) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private void buildAddressIndex() {
+        final ArrayList<Entry> entries = new ArrayList<Entry>();
+        for (List<Entry> list : symbolMap().values()) {
+            for (Entry entry : list) {
+                if ((entry.isFunction() || entry.isObject()) && entry.getSectionHeaderIndex() != 0 && entry.getSize() != 0) {
+                    entries.add(entry);
+                }
+            }
+        }
+        final Entry[] index = entries.toArray(new Entry[entries.size()]);
+        Arrays.sort(index, new Comparator<Entry>() {
+            public int compare(Entry e1, Entry e2) {
+                final long v1 = e1.getValue();
+                final long v2 = e2.getValue();
+                return v1 < v2 ? -1 : v1 == v2 ? 0 : 1;
+            }
+        });
+        maxEnds = new long[index.length];
+        long maxEnd = Long.MIN_VALUE;
+        for (int i = 0; i < index.length; i++) {
+            maxEnd = Math.max(maxEnd, index[i].getValue() + index[i].getSize());
+            maxEnds[i] = maxEnd;
+        }
+        addressIndex = index;
+    }
+
 }
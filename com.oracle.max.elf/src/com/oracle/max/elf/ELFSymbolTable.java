@@ -57,6 +57,7 @@ package com.oracle.max.elf;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 
 /**
  * The <code>ELFSymbolTable</code> class represents a symbol table within
@@ -145,6 +146,10 @@ public class ELFSymbolTable {
         }
 
         public abstract short getSectionHeaderIndex();
+
+        public abstract long getValue();
+
+        public abstract long getSize();
     }
 
     public class Entry32 extends Entry {
@@ -169,6 +174,16 @@ public class ELFSymbolTable {
         public short getSectionHeaderIndex() {
             return st_shndx;
         }
+
+        @Override
+        public long getValue() {
+            return st_value & 0xffffffffL;
+        }
+
+        @Override
+        public long getSize() {
+            return st_size & 0xffffffffL;
+        }
     }
 
     public class Entry64 extends Entry {
@@ -193,6 +208,16 @@ public class ELFSymbolTable {
         public short getSectionHeaderIndex() {
             return st_shndx;
         }
+
+        @Override
+        public long getValue() {
+            return st_value;
+        }
+
+        @Override
+        public long getSize() {
+            return st_size;
+        }
     }
 
     public final ELFHeader header;
@@ -225,10 +250,22 @@ public class ELFSymbolTable {
         // seek to the beginning of the section
         f.seek(entry.getOffset());
         // create the elf data input stream
-        final ELFDataInputStream is = new ELFDataInputStream(header, f);
+        readEntries(new ELFDataInputStream(header, f));
+    }
+
+    /**
+     * Reads this symbol table from a buffer positioned at the start of the section.
+     * @param buffer the buffer from which to read the symbol table
+     * @throws IOException if there is a problem reading from the buffer
+     */
+    public void read(ByteBuffer buffer) throws IOException {
+        readEntries(new ELFDataInputStream(header, buffer));
+    }
+
+    private void readEntries(ELFDataInputStream is) throws IOException {
         // read each of the entries
         for (int cntr = 0; cntr < entries.length; cntr++) {
-            entries[cntr] = readEntry(f, is);
+            entries[cntr] = readEntry(is);
         }
     }
 
@@ -288,16 +325,16 @@ public class ELFSymbolTable {
         return e;
     }
 
-    private ELFSymbolTable.Entry readEntry(RandomAccessFile f, ELFDataInputStream is) throws IOException {
+    private ELFSymbolTable.Entry readEntry(ELFDataInputStream is) throws IOException {
         if (header.is32Bit()) {
-            return readEntry32(f, is);
+            return readEntry32(is);
         } else if (header.is64Bit()) {
-            return readEntry64(f, is);
+            return readEntry64(is);
         }
         throw new Error("unknown bit size");
     }
 
-    private Entry32 readEntry32(RandomAccessFile f, ELFDataInputStream is) throws IOException {
+    private Entry32 readEntry32(ELFDataInputStream is) throws IOException {
         final Entry32 e = new Entry32();
         e.st_name = is.read_Elf32_Word();
         e.st_value = is.read_Elf32_Addr();
@@ -305,13 +342,11 @@ public class ELFSymbolTable {
         e.st_info = is.read_Elf32_uchar();
         e.st_other = is.read_Elf32_uchar();
         e.st_shndx = is.read_Elf32_Half();
-        for (int pad = ELF32_STENT_SIZE; pad < entry.getEntrySize(); pad++) {
-            f.read();
-        }
+        is.skip(entry.getEntrySize() - ELF32_STENT_SIZE);
         return e;
     }
 
-    private Entry64 readEntry64(RandomAccessFile f, ELFDataInputStream is) throws IOException {
+    private Entry64 readEntry64(ELFDataInputStream is) throws IOException {
         final Entry64 e = new Entry64();
         // note the order of fields is different in the 64 bit version.
         e.st_name  = is.read_Elf64_Word();
@@ -320,9 +355,7 @@ public class ELFSymbolTable {
         e.st_shndx = is.read_Elf64_Half();
         e.st_value = is.read_Elf64_Addr();
         e.st_size  = is.read_Elf64_XWord();
-        for (int pad = ELF64_STENT_SIZE; pad < entry.getEntrySize(); pad++) {
-            f.read();
-        }
+        is.skip(entry.getEntrySize() - ELF64_STENT_SIZE);
         return e;
     }
 
@@ -0,0 +1,392 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.max.elf;
+
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+
+import junit.framework.*;
+
+/**
+ * Tests for the symbol lookups of {@link ELFMappedFile} and {@link ELFSymbolLookup}. The tests build small
+ * 64-bit little endian ELF files with a {@code .dynsym}, a {@code .hash} or {@code .gnu.hash} section and a
+ * {@code .symtab}, and check the lookups against a linear search of the symbols that were written.
+ */
+public class ELFMappedFileTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(ELFMappedFileTest.class);
+    }
+
+    public ELFMappedFileTest(String name) {
+        super(name);
+    }
+
+    private static final int SYMBOL_SIZE = 24;
+    private static final int SECTION_HEADER_SIZE = 64;
+
+    private final List<File> files = new ArrayList<File>();
+
+    @Override
+    protected void tearDown() {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    /**
+     * A symbol to be written to a test file.
+     */
+    static class Symbol {
+        final String name;
+        final int type;
+        final short section;
+        final long value;
+        final long size;
+
+        Symbol(String name, int type, int section, long value, long size) {
+            this.name = name;
+            this.type = type;
+            this.section = (short) section;
+            this.value = value;
+            this.size = size;
+        }
+    }
+
+    static Symbol function(String name, long value, long size) {
+        return new Symbol(name, ELFSymbolTable.STT_FUNC, 1, value, size);
+    }
+
+    static Symbol object(String name, long value, long size) {
+        return new Symbol(name, ELFSymbolTable.STT_OBJECT, 1, value, size);
+    }
+
+    static int sysvHash(String name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            h = (h << 4) + name.charAt(i);
+            final int g = h & 0xf0000000;
+            if (g != 0) {
+                h ^= g >>> 24;
+            }
+            h &= ~g;
+        }
+        return h;
+    }
+
+    static int gnuHash(String name) {
+        int h = 5381;
+        for (int i = 0; i < name.length(); i++) {
+            h = h * 33 + name.charAt(i);
+        }
+        return h;
+    }
+
+    static long unsigned(int h) {
+        return h & 0xffffffffL;
+    }
+
+    /**
+     * Accumulates the string table and the symbol table of one symbol section.
+     */
+    static class SymbolSection {
+        final ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        final ByteBuffer symbols;
+
+        SymbolSection(List<Symbol> list) {
+            strings.write(0);
+            symbols = ByteBuffer.allocate((list.size() + 1) * SYMBOL_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            // entry 0 is the undefined symbol
+            symbols.position(SYMBOL_SIZE);
+            for (Symbol s : list) {
+                symbols.putInt(strings.size());
+                symbols.put((byte) ((ELFSymbolTable.STB_GLOBAL << 4) | s.type));
+                symbols.put((byte) 0);
+                symbols.putShort(s.section);
+                symbols.putLong(s.value);
+                symbols.putLong(s.size);
+                for (int i = 0; i < s.name.length(); i++) {
+                    strings.write(s.name.charAt(i));
+                }
+                strings.write(0);
+            }
+        }
+    }
+
+    /**
+     * Builds a {@code .hash} section for symbols 1 .. {@code names.size()} of a symbol table.
+     */
+    static byte[] sysvHashSection(List<String> names, int nbucket) {
+        final int nchain = names.size() + 1;
+        final int[] buckets = new int[nbucket];
+        final int[] chains = new int[nchain];
+        for (int i = 1; i < nchain; i++) {
+            final int b = (int) (unsigned(sysvHash(names.get(i - 1))) % nbucket);
+            chains[i] = buckets[b];
+            buckets[b] = i;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(4 * (2 + nbucket + nchain)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(nbucket).putInt(nchain);
+        for (int b : buckets) {
+            buffer.putInt(b);
+        }
+        for (int c : chains) {
+            buffer.putInt(c);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Builds a {@code .gnu.hash} section for symbols 1 .. {@code names.size()} of a symbol table, which
+     * must already be ordered by bucket.
+     */
+    static byte[] gnuHashSection(List<String> names, int nbuckets, int bloomSize, int bloomShift) {
+        final int symoffset = 1;
+        final long[] bloom = new long[bloomSize];
+        final int[] buckets = new int[nbuckets];
+        final int[] chains = new int[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            final int h = gnuHash(names.get(i));
+            final long uh = unsigned(h);
+            bloom[(int) ((uh / 64) % bloomSize)] |= (1L << (uh % 64)) | (1L << ((uh >>> bloomShift) % 64));
+            final int b = (int) (uh % nbuckets);
+            if (buckets[b] == 0) {
+                buckets[b] = i + symoffset;
+            }
+            final boolean last = i == names.size() - 1 || unsigned(gnuHash(names.get(i + 1))) % nbuckets != b;
+            chains[i] = last ? h | 1 : h & ~1;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(16 + 8 * bloomSize + 4 * (nbuckets + chains.length)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(nbuckets).putInt(symoffset).putInt(bloomSize).putInt(bloomShift);
+        for (long word : bloom) {
+            buffer.putLong(word);
+        }
+        for (int b : buckets) {
+            buffer.putInt(b);
+        }
+        for (int c : chains) {
+            buffer.putInt(c);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Writes an ELF file with a dynamic symbol table, a hash section for it and a static symbol table.
+     */
+    private File writeELF(List<Symbol> dynamic, byte[] hash, boolean isGnuHash, List<Symbol> statics) throws IOException {
+        final SymbolSection dynsym = new SymbolSection(dynamic);
+        final SymbolSection symtab = new SymbolSection(statics);
+        final ByteArrayOutputStream shstrtab = new ByteArrayOutputStream();
+        shstrtab.write(0);
+
+        // name, type, link, info, entry size and contents of sections 1 .. 6
+        final String[] names = {".dynsym", ".dynstr", isGnuHash ? ".gnu.hash" : ".hash", ".symtab", ".strtab", ".shstrtab"};
+        final int[] types = {ELFSectionHeaderTable.SHT_DYNSYM, ELFSectionHeaderTable.SHT_STRTAB,
+            isGnuHash ? ELFMappedFile.SHT_GNU_HASH : ELFSectionHeaderTable.SHT_HASH,
+            ELFSectionHeaderTable.SHT_SYMTAB, ELFSectionHeaderTable.SHT_STRTAB, ELFSectionHeaderTable.SHT_STRTAB};
+        final int[] links = {2, 0, 1, 5, 0, 0};
+        // the info of a symbol table is the index of its first non-local symbol
+        final int[] infos = {1, 0, 0, 1, 0, 0};
+        final int[] entrySizes = {SYMBOL_SIZE, 0, isGnuHash ? 0 : 4, SYMBOL_SIZE, 0, 0};
+        final int[] nameOffsets = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            nameOffsets[i] = shstrtab.size();
+            shstrtab.write(names[i].getBytes("US-ASCII"));
+            shstrtab.write(0);
+        }
+        final byte[][] contents = {dynsym.symbols.array(), dynsym.strings.toByteArray(), hash,
+            symtab.symbols.array(), symtab.strings.toByteArray(), shstrtab.toByteArray()};
+
+        final long[] offsets = new long[contents.length];
+        long offset = 64;
+        for (int i = 0; i < contents.length; i++) {
+            offset = (offset + 7) & ~7;
+            offsets[i] = offset;
+            offset += contents[i].length;
+        }
+        final long shoff = (offset + 7) & ~7;
+        final int shnum = contents.length + 1;
+
+        final ByteBuffer buffer = ByteBuffer.allocate((int) shoff + shnum * SECTION_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(new byte[] {0x7f, 'E', 'L', 'F', 2, 1, 1});
+        buffer.position(16);
+        buffer.putShort((short) 3).putShort((short) 62).putInt(1);
+        buffer.putLong(0).putLong(0).putLong(shoff);
+        buffer.putInt(0).putShort((short) 64).putShort((short) 56).putShort((short) 0);
+        buffer.putShort((short) SECTION_HEADER_SIZE).putShort((short) shnum).putShort((short) (shnum - 1));
+        for (int i = 0; i < contents.length; i++) {
+            buffer.position((int) offsets[i]);
+            buffer.put(contents[i]);
+        }
+        buffer.position((int) shoff + SECTION_HEADER_SIZE);
+        for (int i = 0; i < contents.length; i++) {
+            buffer.putInt(nameOffsets[i]).putInt(types[i]).putLong(0).putLong(0);
+            buffer.putLong(offsets[i]).putLong(contents[i].length);
+            buffer.putInt(links[i]).putInt(infos[i]).putLong(8).putLong(entrySizes[i]);
+        }
+
+        final File file = File.createTempFile("elftest", ".so");
+        files.add(file);
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(buffer.array());
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static List<Symbol> dynamicSymbols(int count) {
+        final List<Symbol> list = new ArrayList<Symbol>();
+        for (int i = 0; i < count; i++) {
+            list.add(function("function_" + i, 0x1000 + i * 0x10, 0x10));
+        }
+        list.add(object("environ", 0x9000, 8));
+        list.add(function("JNI_CreateJavaVM", 0x9100, 0x100));
+        return list;
+    }
+
+    private static final String[] ABSENT = {"", "function_", "function_1000", "Function_1", "environ2", "JNI_CreateJavaVm", "nosuchsymbol"};
+
+    private static void checkDynamicLookups(ELFMappedFile elf, List<Symbol> symbols) throws IOException {
+        for (Symbol s : symbols) {
+            final ELFSymbolTable.Entry e = elf.lookupDynamicSymbol(s.name);
+            assertNotNull(s.name, e);
+            assertEquals(s.name, e.getName());
+            assertEquals(s.value, e.getValue());
+            assertEquals(s.size, e.getSize());
+        }
+        for (String name : ABSENT) {
+            assertNull(name, elf.lookupDynamicSymbol(name));
+        }
+    }
+
+    public void test_sysvHash() throws Exception {
+        final List<Symbol> symbols = dynamicSymbols(300);
+        final List<String> names = new ArrayList<String>();
+        for (Symbol s : symbols) {
+            names.add(s.name);
+        }
+        final File file = writeELF(symbols, sysvHashSection(names, 17), false, Collections.<Symbol>emptyList());
+        final ELFMappedFile elf = new ELFMappedFile(file);
+        try {
+            checkDynamicLookups(elf, symbols);
+        } finally {
+            elf.close();
+        }
+    }
+
+    public void test_gnuHash() throws Exception {
+        final int nbuckets = 17;
+        final List<Symbol> symbols = dynamicSymbols(300);
+        // .gnu.hash requires the hashed symbols to be grouped by bucket
+        Collections.sort(symbols, new Comparator<Symbol>() {
+            public int compare(Symbol s1, Symbol s2) {
+                final long b1 = unsigned(gnuHash(s1.name)) % nbuckets;
+                final long b2 = unsigned(gnuHash(s2.name)) % nbuckets;
+                return b1 < b2 ? -1 : b1 == b2 ? 0 : 1;
+            }
+        });
+        final List<String> names = new ArrayList<String>();
+        for (Symbol s : symbols) {
+            names.add(s.name);
+        }
+        final File file = writeELF(symbols, gnuHashSection(names, nbuckets, 4, 6), true, Collections.<Symbol>emptyList());
+        final ELFMappedFile elf = new ELFMappedFile(file);
+        try {
+            checkDynamicLookups(elf, symbols);
+        } finally {
+            elf.close();
+        }
+    }
+
+    public void test_lookupAddress() throws Exception {
+        final List<Symbol> statics = new ArrayList<Symbol>();
+        statics.add(function("outer", 0x1000, 0x100));
+        statics.add(object("inner", 0x1040, 0x20));
+        statics.add(function("other", 0x2000, 0x10));
+        statics.add(function("empty", 0x3000, 0));
+        statics.add(new Symbol("undefined", ELFSymbolTable.STT_FUNC, 0, 0x4000, 0x10));
+        statics.add(new Symbol("notype", ELFSymbolTable.STT_NOTYPE, 1, 0x5000, 0x10));
+        final File file = writeELF(Collections.<Symbol>emptyList(), sysvHashSection(Collections.<String>emptyList(), 1), false, statics);
+        final ELFMappedFile elf = new ELFMappedFile(file);
+        try {
+            final ELFSymbolLookup lookup = elf.symbolLookup();
+            assertEquals(0x2000L, lookup.lookupSymbolValue("other").longValue());
+            assertNull(lookup.lookupSymbolValue("absent"));
+            assertNull(lookup.lookupAddress(0xfff));
+            assertEquals("outer", lookup.lookupAddress(0x1000).getName());
+            assertEquals("outer", lookup.lookupAddress(0x103f).getName());
+            assertEquals("inner", lookup.lookupAddress(0x1040).getName());
+            assertEquals("inner", lookup.lookupAddress(0x105f).getName());
+            assertEquals("outer", lookup.lookupAddress(0x1060).getName());
+            assertEquals("outer", lookup.lookupAddress(0x10ff).getName());
+            assertNull(lookup.lookupAddress(0x1100));
+            assertEquals("other", lookup.lookupAddress(0x2008).getName());
+            assertNull(lookup.lookupAddress(0x3000));
+            assertNull(lookup.lookupAddress(0x4000));
+            assertNull(lookup.lookupAddress(0x5000));
+        } finally {
+            elf.close();
+        }
+    }
+
+    /**
+     * Compares {@link ELFSymbolLookup#lookupAddress} with a linear search for the latest starting symbol that
+     * contains an address, over randomly placed and possibly overlapping symbols.
+     */
+    public void test_lookupAddressRandom() throws Exception {
+        final Random random = new Random(46);
+        final List<Symbol> statics = new ArrayList<Symbol>();
+        final Set<Long> starts = new HashSet<Long>();
+        while (statics.size() < 500) {
+            final long value = 0x10000 + random.nextInt(0x10000);
+            if (starts.add(value)) {
+                statics.add(function("f" + statics.size(), value, 1 + random.nextInt(random.nextBoolean() ? 0x20 : 0x400)));
+            }
+        }
+        final File file = writeELF(Collections.<Symbol>emptyList(), sysvHashSection(Collections.<String>emptyList(), 1), false, statics);
+        final ELFMappedFile elf = new ELFMappedFile(file);
+        try {
+            final ELFSymbolLookup lookup = elf.symbolLookup();
+            for (long address = 0xff00; address < 0x20500; address += 3) {
+                Symbol expected = null;
+                for (Symbol s : statics) {
+                    if (s.value <= address && address < s.value + s.size && (expected == null || s.value > expected.value)) {
+                        expected = s;
+                    }
+                }
+                final ELFSymbolTable.Entry e = lookup.lookupAddress(address);
+                if (expected == null) {
+                    assertNull(Long.toHexString(address), e);
+                } else {
+                    assertNotNull(Long.toHexString(address), e);
+                    assertEquals(Long.toHexString(address), expected.name, e.getName());
+                }
+            }
+        } finally {
+            elf.close();
+        }
+    }
+}
@@ -85,6 +85,16 @@ public interface TeleChannelDataIOProtocol {
      * @return the number of bytes actually read
      */
     int readBytes(long src, byte[] dst, int dstOffset, int length);
+    /**
+     * Reads a number of discontiguous ranges of bytes from the target VM in a single request,
+     * placing them consecutively in a byte array.
+     * @param srcs virtual addresses of the ranges
+     * @param lengths lengths of the ranges
+     * @param count number of ranges
+     * @param dst byte array to write to, of length at least the sum of the lengths, {@link ArrayMode#OUT} parameter
+     * @return the number of bytes actually read, which is less than the sum of the lengths if a range could not be read
+     */
+    int readBytesVectored(long[] srcs, int[] lengths, int count, byte[] dst);
     /**
      * Writes bytes from a byte array to the target VM.
      * @param dst virtual address to write to
@@ -73,6 +73,62 @@ public class TeleChannelTransferBytes {
         return length;
     }
 
+    /**
+     * Reads a number of discontiguous ranges into consecutive locations of {@code dst}, in as few
+     * {@linkplain TeleChannelDataIOProtocol#readBytesVectored vectored requests} as {@link TeleChannelDataIOProtocol#maxByteBufferSize()}
+     * allows. Each range must itself be no larger than that size.
+     *
+     * @return the number of bytes read, which is less than the sum of {@code lengths} if a range could not be read
+     */
+    public static int readBytesVectored(TeleChannelProtocol protocol, long[] srcs, int[] lengths, int count, byte[] dst) {
+        checkMaxByteBufferSize(protocol);
+        int total = 0;
+        int first = 0;
+        while (first < count) {
+            int batchLength = 0;
+            int last = first;
+            while (last < count && (long) batchLength + lengths[last] <= maxByteBufferSize) {
+                batchLength += lengths[last];
+                last++;
+            }
+            if (last == first) {
+                return total;
+            }
+            final int n = last - first;
+            final long[] batchSrcs = new long[n];
+            final int[] batchLengths = new int[n];
+            System.arraycopy(srcs, first, batchSrcs, 0, n);
+            System.arraycopy(lengths, first, batchLengths, 0, n);
+            final byte[] batchDst = first == 0 && last == count ? dst : new byte[batchLength];
+            final int r = protocol.readBytesVectored(batchSrcs, batchLengths, n, batchDst);
+            if (batchDst != dst) {
+                System.arraycopy(batchDst, 0, dst, total, Math.max(r, 0));
+            }
+            if (r != batchLength) {
+                return total + Math.max(r, 0);
+            }
+            total += batchLength;
+            first = last;
+        }
+        return total;
+    }
+
+    /**
+     * Implements {@link TeleChannelDataIOProtocol#readBytesVectored} with one {@link TeleChannelDataIOProtocol#readBytes}
+     * call per range, for channels where a vectored read has no advantage.
+     */
+    public static int readBytesVectoredSerially(TeleChannelDataIOProtocol protocol, long[] srcs, int[] lengths, int count, byte[] dst) {
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            final int r = protocol.readBytes(srcs[i], dst, total, lengths[i]);
+            if (r != lengths[i]) {
+                return total + Math.max(r, 0);
+            }
+            total += r;
+        }
+        return total;
+    }
+
     private static void checkMaxByteBufferSize(TeleChannelProtocol protocol) {
         if (maxByteBufferSize == 0) {
             maxByteBufferSize = protocol.maxByteBufferSize();
@@ -47,6 +47,7 @@ public abstract class AgentProtocolAdaptor extends RemoteInvocationProtocolAdapt
         this.teleProcess = teleProcess;
         setArrayMode("create", 1, ArrayMode.IN);
         setArrayMode("readBytes", 1, ArrayMode.OUT);
+        setArrayMode("readBytesVectored", 3, ArrayMode.OUT);
         setArrayMode("writeBytes", 1, ArrayMode.IN);
         setArrayMode("readRegisters", 1, ArrayMode.OUT);
         setArrayMode("readRegisters", 3, ArrayMode.OUT);
@@ -108,6 +109,11 @@ public abstract class AgentProtocolAdaptor extends RemoteInvocationProtocolAdapt
         return impl.readBytes(src, dst, dstOffset, length);
     }
 
+    @Override
+    public int readBytesVectored(long[] srcs, int[] lengths, int count, byte[] dst) {
+        return impl.readBytesVectored(srcs, lengths, count, dst);
+    }
+
     @Override
     public boolean readRegisters(long threadId, byte[] integerRegisters, int integerRegistersSize, byte[] floatingPointRegisters, int floatingPointRegistersSize, byte[] stateRegisters,
                     int stateRegistersSize) {
@@ -140,6 +140,22 @@ public abstract class RemoteInvocationProtocolAdaptor {
                     in.read(data);
                 }
                 result[index] = data;
+            } else if (klass == long[].class) {
+                // input only
+                final int length = in.readInt();
+                long[] data = new long[length];
+                for (int i = 0; i < length; i++) {
+                    data[i] = in.readLong();
+                }
+                result[index] = data;
+            } else if (klass == int[].class) {
+                // input only
+                final int length = in.readInt();
+                int[] data = new int[length];
+                for (int i = 0; i < length; i++) {
+                    data[i] = in.readInt();
+                }
+                result[index] = data;
             } else if (klass == String[].class) {
                 final int mv = in.readInt();
                 final int length = in.readInt();
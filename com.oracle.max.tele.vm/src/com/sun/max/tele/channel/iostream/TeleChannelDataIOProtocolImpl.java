@@ -185,6 +185,23 @@ public class TeleChannelDataIOProtocolImpl implements TeleChannelDataIOProtocol
         }
     }
 
+    @Override
+    public int readBytesVectored(long[] srcs, int[] lengths, int count, byte[] dst) {
+        try {
+            out.writeUTF("readBytesVectored");
+            outLongArray(srcs);
+            outIntArray(lengths);
+            out.writeInt(count);
+            outByteArray(ArrayMode.OUT, dst);
+            out.flush();
+            in.readFully(dst);
+            return in.readInt();
+        } catch (IOException ex) {
+            TeleError.unexpected(ex);
+            return 0;
+        }
+    }
+
     @Override
     public boolean readRegisters(long threadId, byte[] integerRegisters, int integerRegistersSize, byte[] floatingPointRegisters, int floatingPointRegistersSize, byte[] stateRegisters,
                     int stateRegistersSize) {
@@ -395,6 +412,20 @@ public class TeleChannelDataIOProtocolImpl implements TeleChannelDataIOProtocol
     }
 
 
+    private void outLongArray(long[] array) throws IOException {
+        out.writeInt(array.length);
+        for (long l : array) {
+            out.writeLong(l);
+        }
+    }
+
+    private void outIntArray(int[] array) throws IOException {
+        out.writeInt(array.length);
+        for (int i : array) {
+            out.writeInt(i);
+        }
+    }
+
     private void outStringArray(ArrayMode mode, String[] array) throws IOException {
         out.writeInt(mode.ordinal());
         // write b.length first so callee can allocate
@@ -730,6 +730,24 @@ public abstract class TeleProcess extends AbstractVmHolder implements TeleVMCach
     }
 
     public final int read(Address address, ByteBuffer buffer, int offset, int length) throws DataIOError, TerminatedProcessIOException {
+        checkReadable(address);
+        DataIO.Static.checkRead(buffer, offset, length);
+        final int bytesRead = read0(address, buffer, offset, length);
+        if (bytesRead < 0) {
+            throw new DataIOError(address);
+        }
+        return bytesRead;
+    }
+
+    public final int readVectored(long[] addresses, int[] lengths, int count, byte[] dst) throws DataIOError, TerminatedProcessIOException {
+        if (count == 0) {
+            return 0;
+        }
+        checkReadable(Address.fromLong(addresses[0]));
+        return Math.max(readVectored0(addresses, lengths, count, dst), 0);
+    }
+
+    private void checkReadable(Address address) throws DataIOError, TerminatedProcessIOException {
         if (processState == TERMINATED) {
             final StringBuilder msg = new StringBuilder();
             msg.append("Memory read @ ").append(address.to0xHexString());
@@ -740,12 +758,6 @@ public abstract class TeleProcess extends AbstractVmHolder implements TeleVMCach
             throw new DataIOError(address, "Reading from process memory while processed not stopped [thread: " + Thread.currentThread().getName() + "]");
        //    TeleWarning.message("Reading from process memory while processed not stopped [thread: " + Thread.currentThread().getName() + "]");
         }
-        DataIO.Static.checkRead(buffer, offset, length);
-        final int bytesRead = read0(address, buffer, offset, length);
-        if (bytesRead < 0) {
-            throw new DataIOError(address);
-        }
-        return bytesRead;
     }
 
     public final int write(ByteBuffer buffer, int offset, int length, Address address) throws DataIOError, IndexOutOfBoundsException, TerminatedProcessIOException {
@@ -1054,6 +1066,27 @@ public abstract class TeleProcess extends AbstractVmHolder implements TeleVMCach
      */
     protected abstract int read0(Address address, ByteBuffer buffer, int offset, int length);
 
+    /**
+     * Reads a number of discontiguous ranges from the memory of this process into consecutive locations of {@code dst}.
+     * This default implementation reads each range separately; subclasses whose channel supports vectored reads should
+     * override it to transfer all the ranges at once.
+     *
+     * @return the number of bytes read, which is less than the sum of {@code lengths} if a range could not be read
+     * @see #readVectored(long[], int[], int, byte[])
+     */
+    protected int readVectored0(long[] addresses, int[] lengths, int count, byte[] dst) {
+        final ByteBuffer buffer = ByteBuffer.wrap(dst);
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            final int n = read0(Address.fromLong(addresses[i]), buffer, total, lengths[i]);
+            if (n != lengths[i]) {
+                return total + Math.max(n, 0);
+            }
+            total += n;
+        }
+        return total;
+    }
+
 
     /**
      * Writes bytes to process memory, platform-specific implementation.
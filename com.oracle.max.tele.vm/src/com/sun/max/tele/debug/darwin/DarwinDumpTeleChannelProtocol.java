@@ -27,6 +27,7 @@ import java.util.*;
 
 import com.sun.max.program.*;
 import com.sun.max.tele.*;
+import com.sun.max.tele.channel.*;
 import com.sun.max.tele.channel.iostream.*;
 import com.sun.max.tele.debug.*;
 import com.sun.max.tele.debug.darwin.DarwinMachO.LoadCommand;
@@ -148,6 +149,11 @@ public class DarwinDumpTeleChannelProtocol extends TeleChannelDataIOProtocolAdap
 
     }
 
+    @Override
+    public int readBytesVectored(long[] srcs, int[] lengths, int count, byte[] dst) {
+        return TeleChannelTransferBytes.readBytesVectoredSerially(this, srcs, lengths, count, dst);
+    }
+
     @Override
     public boolean initialize(int tlaSize, boolean bigEndian) {
         this.tlaSize = tlaSize;
@@ -25,6 +25,7 @@ package com.sun.max.tele.debug.dump;
 import static com.oracle.max.elf.ELFProgramHeaderTable.*;
 
 import java.io.*;
+import java.util.*;
 
 import com.oracle.max.elf.*;
 import com.sun.max.program.*;
@@ -41,9 +42,14 @@ public class ELFDumpTeleChannelProtocolAdaptor extends TeleChannelDataIOProtocol
 
     protected int tlaSize;
     public boolean bigEndian;
-    protected RandomAccessFile dumpRaf;
+    protected ELFMappedFile dumpFile;
     protected ELFHeader header;
     protected ELFProgramHeaderTable programHeaderTable;
+
+    /**
+     * The {@code PT_LOAD} segments of the dump that have contents in the file, sorted by virtual address.
+     */
+    private ELFProgramHeaderTable.Entry64[] loadSegments;
     protected ELFSymbolLookup symbolLookup;
     protected MaxVM teleVM;
     protected static final String HEAP_SYMBOL_NAME = "theHeap";  // defined in image.c, holds the base address of the boot heap
@@ -55,9 +61,10 @@ public class ELFDumpTeleChannelProtocolAdaptor extends TeleChannelDataIOProtocol
             // We actually do need the tele library because we use it to access the OS-specific structs
             // that are embedded in the NOTE sections of the dump file.
             Prototype.loadLibrary(TeleVM.TELE_LIBRARY_NAME);
-            dumpRaf = new RandomAccessFile(dump, "r");
-            this.header = ELFLoader.readELFHeader(dumpRaf);
-            this.programHeaderTable = ELFLoader.readPHT(dumpRaf, header);
+            dumpFile = new ELFMappedFile(dump);
+            this.header = dumpFile.header;
+            this.programHeaderTable = dumpFile.programHeaderTable();
+            loadSegments = sortedLoadSegments(programHeaderTable);
             // This is not needed currently as we cannot look up symbols from shared libraries.
             //symbolLookup = new ELFSymbolLookup(new File(vm.getParent(), "libjvm.so"));
         } catch (Exception ex) {
@@ -97,8 +104,7 @@ public class ELFDumpTeleChannelProtocolAdaptor extends TeleChannelDataIOProtocol
             }
         }
         try {
-            dumpRaf.seek(noteSectionEntry.p_offset);
-            final ELFDataInputStream dis = new ELFDataInputStream(header, dumpRaf);
+            final ELFDataInputStream dis = dumpFile.dataInputStream(noteSectionEntry.p_offset, noteSectionEntry.p_filesz);
             final long size = noteSectionEntry.p_filesz;
             long readLength = 0;
             while (readLength < size) {
@@ -146,15 +152,39 @@ public class ELFDumpTeleChannelProtocolAdaptor extends TeleChannelDataIOProtocol
         return arr;
     }
 
-    protected ELFProgramHeaderTable.Entry64 findAddress(long addr) {
-        final Address address = Address.fromLong(addr);
-        for (ELFProgramHeaderTable.Entry entry : programHeaderTable.entries) {
+    private static ELFProgramHeaderTable.Entry64[] sortedLoadSegments(ELFProgramHeaderTable pht) {
+        final ArrayList<ELFProgramHeaderTable.Entry64> segments = new ArrayList<ELFProgramHeaderTable.Entry64>();
+        for (ELFProgramHeaderTable.Entry entry : pht.entries) {
             ELFProgramHeaderTable.Entry64 entry64 = (ELFProgramHeaderTable.Entry64) entry;
             if (entry64.p_type == PT_LOAD && entry64.p_filesz != 0) {
-                final Address end = Address.fromLong(entry64.p_vaddr).plus(entry64.p_memsz);
-                if (address.greaterEqual(Address.fromLong(entry64.p_vaddr)) && address.lessThan(end)) {
-                    return entry64;
-                }
+                segments.add(entry64);
+            }
+        }
+        final ELFProgramHeaderTable.Entry64[] result = segments.toArray(new ELFProgramHeaderTable.Entry64[segments.size()]);
+        Arrays.sort(result, new Comparator<ELFProgramHeaderTable.Entry64>() {
+            public int compare(ELFProgramHeaderTable.Entry64 e1, ELFProgramHeaderTable.Entry64 e2) {
+                return Address.fromLong(e1.p_vaddr).compareTo(Address.fromLong(e2.p_vaddr));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Finds the loadable segment containing a given address by binary search over {@link #loadSegments}.
+     */
+    protected ELFProgramHeaderTable.Entry64 findAddress(long addr) {
+        final Address address = Address.fromLong(addr);
+        int low = 0;
+        int high = loadSegments.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final ELFProgramHeaderTable.Entry64 entry64 = loadSegments[mid];
+            if (address.lessThan(Address.fromLong(entry64.p_vaddr))) {
+                high = mid - 1;
+            } else if (address.greaterEqual(Address.fromLong(entry64.p_vaddr).plus(entry64.p_memsz))) {
+                low = mid + 1;
+            } else {
+                return entry64;
             }
         }
         return null;
@@ -196,8 +226,7 @@ public class ELFDumpTeleChannelProtocolAdaptor extends TeleChannelDataIOProtocol
             final long theHeapAddress = getBootHeapStartSymbolAddress();
             ELFProgramHeaderTable.Entry64 entry64 = findAddress(theHeapAddress);
             try {
-                dumpRaf.seek(entry64.p_offset + (theHeapAddress - entry64.p_vaddr));
-                ELFDataInputStream ds = new ELFDataInputStream(header, dumpRaf);
+                ELFDataInputStream ds = dumpFile.dataInputStream(entry64.p_offset + (theHeapAddress - entry64.p_vaddr), 8);
                 return ds.read_Elf64_Addr();
             } catch (Throwable ex) {
                 TeleError.unexpected("failed to get boot heap address", ex);
@@ -211,7 +240,12 @@ public class ELFDumpTeleChannelProtocolAdaptor extends TeleChannelDataIOProtocol
      * Since this is a static, the name may be mangled (e.g. Solaris).
      */
     protected long getBootHeapStartSymbolAddress() {
-        return symbolLookup.lookupSymbolValue(HEAP_SYMBOL_NAME).longValue();
+        final Number value = symbolLookup == null ? null : symbolLookup.lookupSymbolValue(HEAP_SYMBOL_NAME);
+        if (value == null) {
+            TeleError.unexpected("symbol " + HEAP_SYMBOL_NAME + " giving the start of the boot heap not found" + (symbolLookup == null ? ": no symbol table is loaded" : ""));
+            return 0;
+        }
+        return value.longValue();
     }
 
     @Override
@@ -247,15 +281,28 @@ public class ELFDumpTeleChannelProtocolAdaptor extends TeleChannelDataIOProtocol
         if (entry64 == null) {
             return 0;
         }
+        final long segmentOffset = src - entry64.p_vaddr;
+        if (segmentOffset >= entry64.p_filesz) {
+            // the tail of a segment that was not written to the dump reads as zeros
+            final int n = (int) Math.min(length, entry64.p_memsz - segmentOffset);
+            Arrays.fill(dst, dstOffset, dstOffset + n, (byte) 0);
+            return n;
+        }
         try {
-            dumpRaf.seek(entry64.p_offset + (src - entry64.p_vaddr));
-            return dumpRaf.read(dst, dstOffset, length);
+            // don't read past the segment into the file contents of the next one
+            final int n = (int) Math.min(length, entry64.p_filesz - segmentOffset);
+            return dumpFile.read(entry64.p_offset + segmentOffset, dst, dstOffset, n);
         } catch (IOException ex) {
             return 0;
         }
 
     }
 
+    @Override
+    public int readBytesVectored(long[] srcs, int[] lengths, int count, byte[] dst) {
+        return TeleChannelTransferBytes.readBytesVectoredSerially(this, srcs, lengths, count, dst);
+    }
+
     @Override
     public boolean readRegisters(long threadId, byte[] integerRegisters, int integerRegistersSize, byte[] floatingPointRegisters, int floatingPointRegistersSize, byte[] stateRegisters,
                     int stateRegistersSize) {
@@ -81,6 +81,11 @@ public class LinuxNativeTeleChannelProtocol extends UnixNativeTeleChannelProtoco
         return leaderTask.readBytes(src, dst, false, dstOffset, length);
     }
 
+    @Override
+    public int readBytesVectored(long[] srcs, int[] lengths, int count, byte[] dst) {
+        return leaderTask.readBytesVectored(srcs, lengths, count, dst);
+    }
+
     @Override
     public int readBytes(long src, ByteBuffer dst, int dstOffset, int length) {
         if (dst.isDirect()) {
@@ -180,11 +185,7 @@ public class LinuxNativeTeleChannelProtocol extends UnixNativeTeleChannelProtoco
 
     @Override
     public ProcessState waitUntilStopped() {
-        final ProcessState result = leaderTask.waitUntilStopped(true);
-        if (result != ProcessState.STOPPED) {
-            leaderTask.close();
-        }
-        return result;
+        return leaderTask.waitUntilStopped(true);
     }
 
     @Override
@@ -32,7 +32,6 @@ import com.sun.max.lang.*;
 import com.sun.max.tele.data.*;
 import com.sun.max.tele.debug.*;
 import com.sun.max.tele.util.*;
-import com.sun.max.unsafe.*;
 import com.sun.max.util.*;
 
 /**
@@ -304,13 +303,6 @@ public final class LinuxTask {
         }
     }
 
-    /**
-     * The file in /proc through which the memory of this task can be read. As Linux does not
-     * support writing to the memory of a process via /proc, it's still necessary to use
-     * ptrace for {@linkplain #writeBytes(long, Object, boolean, int, int) writing}.
-     */
-    private RandomAccessFile memory;
-
     /**
      * Copies bytes from the tele process into a given {@linkplain ByteBuffer#isDirect() direct ByteBuffer} or byte
      * array.
@@ -332,23 +324,31 @@ public final class LinuxTask {
         assert src != 0;
         return execute(new Function<Integer>() {
             public Integer call() throws Exception {
-                final long addr = src;
-                if (addr < 0) {
-                    // RandomAccessFile.see() can't handle unsigned long offsets: have to resort to a JNI call
-                    return nativeReadBytes(tgid, tid, addr, dst, isDirectByteBuffer, offset, length);
-                } else {
-                    if (memory == null) {
-                        memory = new RandomAccessFile("/proc/" + tgid() + "/mem", "r");
-                    }
-                    try {
-                        final ByteBuffer dstDup = dst instanceof ByteBuffer ? ((ByteBuffer) dst).duplicate() : ByteBuffer.wrap((byte[]) dst);
-                        final ByteBuffer dstView = (ByteBuffer) dstDup.position(offset).limit(offset + length);
-                        dstView.position(offset);
-                        return memory.getChannel().read(dstView, addr);
-                    } catch (IOException ioException) {
-                        throw new DataIOError(Address.fromLong(src), ioException.toString());
-                    }
-                }
+                return nativeReadBytes(tgid, tid, src, dst, isDirectByteBuffer, offset, length);
+            }
+        });
+    }
+
+    /**
+     * Copies a number of discontiguous ranges from the tele process into consecutive locations of a byte array,
+     * using {@code process_vm_readv} so that all the ranges are transferred with a single system call.
+     *
+     * @param srcs the addresses of the ranges in the tele process
+     * @param lengths the lengths of the ranges
+     * @param count the number of ranges
+     * @param dst the destination of the copy operation
+     * @return the number of bytes copied, which is less than the sum of {@code lengths} if a range could not be read,
+     *         or -1 if there was an error
+     */
+    private static native int nativeReadBytesVectored(int tgid, int tid, long[] srcs, int[] lengths, int count, byte[] dst);
+
+    public int readBytesVectored(final long[] srcs, final int[] lengths, final int count, final byte[] dst) {
+        if (!isLeader()) {
+            return leader().readBytesVectored(srcs, lengths, count, dst);
+        }
+        return execute(new Function<Integer>() {
+            public Integer call() throws Exception {
+                return nativeReadBytesVectored(tgid, tid, srcs, lengths, count, dst);
             }
         });
     }
@@ -401,14 +401,4 @@ public final class LinuxTask {
             }
         });
     }
-
-    public void close() {
-        if (memory != null) {
-            try {
-                memory.close();
-            } catch (IOException ioException) {
-                ioException.printStackTrace();
-            }
-        }
-    }
 }
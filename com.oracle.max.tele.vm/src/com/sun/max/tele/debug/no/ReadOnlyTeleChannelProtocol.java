@@ -75,6 +75,12 @@ public class ReadOnlyTeleChannelProtocol implements TeleChannelProtocol {
         return 0;
     }
 
+    @Override
+    public int readBytesVectored(long[] srcs, int[] lengths, int count, byte[] dst) {
+        unexpected();
+        return 0;
+    }
+
     @Override
     public int writeBytes(long dst, byte[] src, int srcOffset, int length) {
         unexpected();
@@ -201,6 +201,11 @@ public class UnixNativeTeleChannelProtocolAdaptor implements TeleChannelProtocol
         return natives.readBytes(processHandle, src, dst, false, dstOffset, length);
     }
 
+    @Override
+    public int readBytesVectored(long[] srcs, int[] lengths, int count, byte[] dst) {
+        return TeleChannelTransferBytes.readBytesVectoredSerially(this, srcs, lengths, count, dst);
+    }
+
     @Override
     public int writeBytes(long dst, byte[] src, int srcOffset, int length) {
         return natives.writeBytes(processHandle, dst, src, false, srcOffset, length);
@@ -128,6 +128,11 @@ public abstract class UnixTeleProcessAdaptor extends TeleProcess {
         return TeleChannelTransferBytes.readBytes(protocol, dst, offset, length, src);
     }
 
+    @Override
+    protected int readVectored0(long[] addresses, int[] lengths, int count, byte[] dst) {
+        return TeleChannelTransferBytes.readBytesVectored(protocol, addresses, lengths, count, dst);
+    }
+
     @Override
     protected int write0(ByteBuffer src, int offset, int length, Address dst) {
         return TeleChannelTransferBytes.writeBytes(protocol, src, offset, length, dst);
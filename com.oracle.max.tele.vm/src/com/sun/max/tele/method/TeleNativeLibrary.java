@@ -272,15 +272,13 @@ public abstract class TeleNativeLibrary extends AbstractVmHolder implements MaxN
         @Override
         protected long readSymbols(ArrayList<TeleNativeFunction> functionList) throws Exception {
             long sentinelOffset = 0;
-            RandomAccessFile raf = new RandomAccessFile(path, "r");
-            ELFHeader header = ELFLoader.readELFHeader(raf);
-            ELFSectionHeaderTable elfSHT = ELFLoader.readSHT(raf, header);
-            ELFSymbolLookup elfSym = new ELFSymbolLookup(raf, header, elfSHT);
-            for (Map.Entry<String, List<ELFSymbolTable.Entry>> mapEntry : elfSym.symbolMap.entrySet()) {
-                List<ELFSymbolTable.Entry> entryList = mapEntry.getValue();
-                for (ELFSymbolTable.Entry entry : entryList) {
+            ELFMappedFile elfFile = new ELFMappedFile(new File(path));
+            ELFSectionHeaderTable elfSHT = elfFile.sectionHeaderTable();
+            // walk the symbol tables directly; a name keyed map of every symbol is not needed here
+            for (ELFSymbolTable symbolTable : elfFile.symbolTables()) {
+                for (ELFSymbolTable.Entry entry : symbolTable.entries) {
                     ELFSymbolTable.Entry64 entry64 = (ELFSymbolTable.Entry64) entry;
-                    if (entry64.isFunction() && entry64.st_value != 0) {
+                    if (entry64.isFunction() && entry64.st_value != 0 && entry64.getName().length() != 0) {
                         ELFSectionHeaderTable.Entry64 section = getSection(elfSHT, entry64.st_shndx);
                         if (section.getName().equals(".text")) {
                             functionList.add(new TeleNativeFunction(vm(), entry64.getName(), Address.fromLong(entry64.st_value), this));
@@ -293,7 +291,7 @@ public abstract class TeleNativeLibrary extends AbstractVmHolder implements MaxN
                     }
                 }
             }
-            raf.close();
+            elfFile.close();
             // relocate the offsets to be from the start of the .text section
             for (TeleNativeFunction f : functionList) {
                 f.base = f.base.minus(base);
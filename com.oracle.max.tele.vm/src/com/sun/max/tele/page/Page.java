@@ -23,6 +23,7 @@
 package com.sun.max.tele.page;
 
 import java.nio.*;
+import java.util.*;
 
 import com.sun.max.program.*;
 import com.sun.max.tele.*;
@@ -39,6 +40,7 @@ import com.sun.max.unsafe.*;
  * {@linkplain ByteBuffer#isDirect() direct} {@link ByteBuffer}s are used, unless the target VM is remote. The buffer for each page is
  * allocated from a global buffer until the global buffer is exhausted. If the target VM is remote or the
  * global buffer has been exhausted, then the buffer for each page is a heap allocated byte array.
+ * The buffer of a {@linkplain #release() released} page is reused for the next page allocated.
  */
 public class Page extends AbstractVmHolder {
 
@@ -85,12 +87,20 @@ public class Page extends AbstractVmHolder {
 
     private static ByteBuffer globalBuffer;
 
+    /**
+     * Buffers of released pages, available for reuse.
+     */
+    private static final ArrayList<ByteBuffer> freeBuffers = new ArrayList<ByteBuffer>();
+
     /**
      * Allocates the buffer for a page according to whether or not {@linkplain #useDirectBuffers direct buffers}
      * are being used.
      */
     private static synchronized ByteBuffer allocate(TeleIO teleIO, ByteOrder byteOrder, long index) {
         final int pageSize = teleIO.pageSize();
+        if (!freeBuffers.isEmpty()) {
+            return freeBuffers.remove(freeBuffers.size() - 1);
+        }
         if (useDirectBuffers()) {
             if (globalBuffer == null) {
                 globalBuffer = ByteBuffer.allocateDirect(1024 * 1024 * 100).order(byteOrder);
@@ -142,6 +152,35 @@ public class Page extends AbstractVmHolder {
         epoch = -1;
     }
 
+    /**
+     * Returns the buffer of this page for reuse. The page must not be accessed afterwards.
+     */
+    void release() {
+        synchronized (Page.class) {
+            freeBuffers.add(buffer);
+        }
+    }
+
+    /**
+     * @return whether the cached contents reflect the remote memory as of the current epoch
+     */
+    boolean isCurrent() {
+        return epoch >= teleIO.epoch();
+    }
+
+    /**
+     * Sets the contents of this page from bytes that have already been read from remote memory in the current epoch.
+     *
+     * @param src array holding the page contents
+     * @param srcOffset offset in {@code src} of the page contents
+     */
+    void refresh(byte[] src, int srcOffset) {
+        final ByteBuffer dst = buffer.duplicate();
+        dst.clear();
+        dst.put(src, srcOffset, size());
+        epoch = teleIO.epoch();
+    }
+
     /**
      * Reads into the cache the contents of the remote memory page.
      *
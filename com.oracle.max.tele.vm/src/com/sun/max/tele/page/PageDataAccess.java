@@ -34,11 +34,27 @@ import com.sun.max.tele.util.*;
 import com.sun.max.unsafe.*;
 
 /**
+ * Access to remote memory through a cache of {@linkplain Page pages}.
+ *
+ * The cache holds at most {@value #CACHE_SIZE_PROPERTY} bytes of pages (by default the size of the
+ * {@linkplain Page#globalDirectBufferPoolSize direct buffer pool}) and evicts the least recently used page when full.
+ * Pages are fetched with {@linkplain TeleIO#readVectored vectored reads}: a bulk {@link #read} fetches all the missing
+ * pages of the range in one request and a sequence of misses on consecutive pages triggers read-ahead, doubling
+ * up to {@value #READ_AHEAD_PROPERTY} pages. This matters most when the VM is remote, as each request is a round trip.
  */
 public class PageDataAccess extends DataAccessAdapter {
 
     private static final int TRACE_VALUE = 1;
 
+    private static final String CACHE_SIZE_PROPERTY = "max.tele.page.cacheSize";
+    private static final String READ_AHEAD_PROPERTY = "max.tele.page.readAhead";
+    private static final int DEFAULT_MAX_READ_AHEAD = 16;
+
+    /**
+     * Maximum number of pages fetched by one vectored read.
+     */
+    private static final int MAX_FETCH_PAGES = 256;
+
     protected String  tracePrefix() {
         return "[PageDataAccess] ";
     }
@@ -48,6 +64,18 @@ public class PageDataAccess extends DataAccessAdapter {
     private final int indexShift;
     private final int offsetMask;
     private final ByteBuffer writeBuffer;
+    private final int maxPages;
+    private final int maxReadAhead;
+
+    /**
+     * The index of the page following the last fetched range, for detecting sequential access.
+     */
+    private long nextSequentialIndex = -1;
+
+    /**
+     * The number of pages to read ahead on the next sequential miss.
+     */
+    private int readAhead = 1;
 
     public PageDataAccess(TeleVM vm, TeleIO teleProcess, DataModel dataModel) {
         super(dataModel.wordWidth, dataModel.endianness.asByteOrder());
@@ -57,6 +85,9 @@ public class PageDataAccess extends DataAccessAdapter {
         indexShift = Integer.numberOfTrailingZeros(teleProcess.pageSize());
         offsetMask = teleProcess.pageSize() - 1;
         writeBuffer = ByteBuffer.wrap(new byte[Longs.SIZE]).order(byteOrder);
+        final long cacheSize = Long.getLong(CACHE_SIZE_PROPERTY, Page.globalDirectBufferPoolSize);
+        maxPages = (int) Math.max(cacheSize >>> indexShift, 2 * MAX_FETCH_PAGES);
+        maxReadAhead = Math.max(1, Math.min(Integer.getInteger(READ_AHEAD_PROPERTY, DEFAULT_MAX_READ_AHEAD), MAX_FETCH_PAGES));
     }
 
     public int pageSize() {
@@ -71,7 +102,19 @@ public class PageDataAccess extends DataAccessAdapter {
         return address.toInt() & offsetMask;
     }
 
-    private final HashMap<Long, Page> indexToPage = new HashMap<Long, Page>();
+    /**
+     * The cached pages, in least recently used order.
+     */
+    private final LinkedHashMap<Long, Page> indexToPage = new LinkedHashMap<Long, Page>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Page> eldest) {
+            if (size() > maxPages) {
+                eldest.getValue().release();
+                return true;
+            }
+            return false;
+        }
+    };
 
     private static void checkNullPointer(Address address) {
         if (address.isZero()) {
@@ -115,13 +158,88 @@ public class PageDataAccess extends DataAccessAdapter {
     }
 
     private Page getPage(Address address) {
-        return getPage(getIndex(address));
+        final long index = getIndex(address);
+        final Page page = getPage(index);
+        if (!page.isCurrent()) {
+            if (index == nextSequentialIndex) {
+                readAhead = Math.min(readAhead * 2, maxReadAhead);
+            } else {
+                readAhead = 1;
+            }
+            if (readAhead > 1) {
+                fetch(index, readAhead);
+            }
+            nextSequentialIndex = index + readAhead;
+        }
+        return page;
+    }
+
+    /**
+     * Brings the non-current pages in a range up to date, using as few vectored reads as possible.
+     * Pages that cannot be read are left as they are, to be refreshed individually when accessed,
+     * which reports the error.
+     *
+     * @param startIndex index of the first page of the range
+     * @param count number of pages in the range
+     */
+    private void fetch(long startIndex, long count) {
+        final int pageSize = pageSize();
+        long index = startIndex;
+        final long end = startIndex + count;
+        while (index < end) {
+            final int batch = (int) Math.min(end - index, MAX_FETCH_PAGES);
+            final Page[] pages = new Page[batch];
+            final long[] addresses = new long[batch];
+            final int[] lengths = new int[batch];
+            int ranges = 0;
+            int n = 0;
+            for (int i = 0; i < batch; i++) {
+                final Page page = getPage(index + i);
+                if (!page.isCurrent()) {
+                    if (n > 0 && pages[n - 1].address().toLong() + pageSize == page.address().toLong()) {
+                        // coalesce with the previous range
+                        lengths[ranges - 1] += pageSize;
+                    } else {
+                        addresses[ranges] = page.address().toLong();
+                        lengths[ranges] = pageSize;
+                        ranges++;
+                    }
+                    pages[n++] = page;
+                }
+            }
+            index += batch;
+            if (n == 0) {
+                continue;
+            }
+            final byte[] data = new byte[n * pageSize];
+            int bytesRead;
+            try {
+                bytesRead = teleIO.readVectored(addresses, lengths, ranges, data);
+            } catch (DataIOError e) {
+                return;
+            } catch (TerminatedProcessIOException e) {
+                return;
+            }
+            final int pagesRead = bytesRead / pageSize;
+            for (int i = 0; i < pagesRead; i++) {
+                pages[i].refresh(data, i * pageSize);
+            }
+            if (pagesRead < n) {
+                return;
+            }
+        }
     }
 
     public synchronized int read(Address address, ByteBuffer buffer, int offset, int length) {
         final int toRead = Math.min(length, buffer.limit() - offset);
         long pageIndex = getIndex(address);
         int pageOffset = getOffset(address);
+        if (toRead > 0) {
+            final long lastIndex = getIndex(address.plus(toRead - 1));
+            if (lastIndex > pageIndex) {
+                fetch(pageIndex, lastIndex - pageIndex + 1);
+            }
+        }
         int i = 0;
         while (i < toRead) {
             i += getPage(pageIndex).readBytes(pageOffset, buffer, i + offset);
@@ -146,7 +264,7 @@ public class PageDataAccess extends DataAccessAdapter {
         return getPage(address).readInt(getOffset(address));
     }
 
-    public long readLong(Address address) {
+    public synchronized long readLong(Address address) {
         checkNullPointer(address);
         return getPage(address).readLong(getOffset(address));
     }
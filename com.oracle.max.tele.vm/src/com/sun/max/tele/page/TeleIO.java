@@ -40,4 +40,15 @@ public interface TeleIO extends DataIO {
      * @return the number of times the I/O source/destination has been modified.
      */
     long epoch();
+
+    /**
+     * Reads a number of discontiguous ranges in one request, placing them consecutively in {@code dst}.
+     *
+     * @param addresses the start addresses of the ranges
+     * @param lengths the lengths of the ranges
+     * @param count the number of ranges
+     * @param dst the array into which the ranges are read
+     * @return the number of bytes read, which is less than the sum of {@code lengths} if a range could not be read
+     */
+    int readVectored(long[] addresses, int[] lengths, int count, byte[] dst) throws DataIOError;
 }
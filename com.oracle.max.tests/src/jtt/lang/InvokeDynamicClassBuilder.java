@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jtt.lang;
+
+import java.io.*;
+import java.lang.reflect.*;
+
+/**
+ * Assembles the classes used by the {@code InvokeDynamic_*} tests. javac does not emit {@code invokedynamic} at the
+ * source level of these tests, so each class is built by hand. It has a single method, {@code call}, whose body passes
+ * its parameters to an {@code invokedynamic} instruction and returns the result. The bootstrap method is a static
+ * method named {@code bootstrap} in the test class and takes a direct method handle to the call site's target as its
+ * only static argument.
+ */
+final class InvokeDynamicClassBuilder {
+
+    static final int REF_invokeVirtual = 5;
+    static final int REF_invokeStatic = 6;
+    static final int REF_newInvokeSpecial = 8;
+    static final int REF_invokeInterface = 9;
+
+    private static final String BOOTSTRAP_DESCRIPTOR =
+        "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;)Ljava/lang/invoke/CallSite;";
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private int poolCount = 1;
+
+    private InvokeDynamicClassBuilder() {
+    }
+
+    private int utf8(String s) throws IOException {
+        pool.writeByte(1);
+        pool.writeUTF(s);
+        return poolCount++;
+    }
+
+    private int classRef(String internalName) throws IOException {
+        final int name = utf8(internalName);
+        pool.writeByte(7);
+        pool.writeShort(name);
+        return poolCount++;
+    }
+
+    private int nameAndType(String name, String descriptor) throws IOException {
+        final int n = utf8(name);
+        final int d = utf8(descriptor);
+        pool.writeByte(12);
+        pool.writeShort(n);
+        pool.writeShort(d);
+        return poolCount++;
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) throws IOException {
+        final int c = classRef(owner);
+        final int nt = nameAndType(name, descriptor);
+        pool.writeByte(tag);
+        pool.writeShort(c);
+        pool.writeShort(nt);
+        return poolCount++;
+    }
+
+    private int methodHandle(int kind, String owner, String name, String descriptor) throws IOException {
+        final int ref = memberRef(kind == REF_invokeInterface ? 11 : 10, owner, name, descriptor);
+        pool.writeByte(15);
+        pool.writeByte(kind);
+        pool.writeShort(ref);
+        return poolCount++;
+    }
+
+    private int invokeDynamic(int bootstrapIndex, String name, String descriptor) throws IOException {
+        final int nt = nameAndType(name, descriptor);
+        pool.writeByte(18);
+        pool.writeShort(bootstrapIndex);
+        pool.writeShort(nt);
+        return poolCount++;
+    }
+
+    /**
+     * Builds and loads a class whose {@code call} method executes an {@code invokedynamic} instruction.
+     *
+     * @param testClass the class declaring the bootstrap method. The new class is defined by a child of its loader.
+     * @param descriptor the type of the call site, which is also the type of {@code call}
+     * @param targetKind the reference kind of the handle to the target passed to the bootstrap method
+     * @param targetOwner the internal name of the class declaring the target
+     * @return the {@code call} method of the new class
+     */
+    static Method build(Class<?> testClass, String descriptor, int targetKind, String targetOwner, String targetName, String targetDescriptor) throws Exception {
+        final InvokeDynamicClassBuilder b = new InvokeDynamicClassBuilder();
+        final String className = testClass.getName().replace('.', '/') + "$Site";
+        final int thisClass = b.classRef(className);
+        final int superClass = b.classRef("java/lang/Object");
+        final int callName = b.utf8("call");
+        final int callDescriptor = b.utf8(descriptor);
+        final int code = b.utf8("Code");
+        final int bootstrapMethods = b.utf8("BootstrapMethods");
+        final int bootstrap = b.methodHandle(REF_invokeStatic, testClass.getName().replace('.', '/'), "bootstrap", BOOTSTRAP_DESCRIPTOR);
+        final int target = b.methodHandle(targetKind, targetOwner, targetName, targetDescriptor);
+        final int site = b.invokeDynamic(0, targetName, descriptor);
+
+        final ByteArrayOutputStream codeBytes = new ByteArrayOutputStream();
+        int slots = 0;
+        int i = 1;
+        while (descriptor.charAt(i) != ')') {
+            final char c = descriptor.charAt(i);
+            final int start = i;
+            while (descriptor.charAt(i) == '[') {
+                i++;
+            }
+            if (descriptor.charAt(i) == 'L') {
+                i = descriptor.indexOf(';', i);
+            }
+            i++;
+            final int opcode = start != i - 1 ? 0x19 : c == 'J' ? 0x16 : c == 'F' ? 0x17 : c == 'D' ? 0x18 : 0x15;
+            codeBytes.write(opcode);
+            codeBytes.write(slots);
+            slots += c == 'J' || c == 'D' ? 2 : 1;
+        }
+        codeBytes.write(0xba);
+        codeBytes.write(site >> 8);
+        codeBytes.write(site);
+        codeBytes.write(0);
+        codeBytes.write(0);
+        final char r = descriptor.charAt(i + 1);
+        codeBytes.write(r == 'V' ? 0xb1 : r == 'J' ? 0xad : r == 'F' ? 0xae : r == 'D' ? 0xaf : r == 'L' || r == '[' ? 0xb0 : 0xac);
+
+        final ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(classBytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(51);
+        out.writeShort(b.poolCount);
+        b.poolBytes.writeTo(out);
+        out.writeShort(0x0021); // ACC_PUBLIC | ACC_SUPER
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(0); // interfaces
+        out.writeShort(0); // fields
+        out.writeShort(1); // methods
+        out.writeShort(0x0009); // ACC_PUBLIC | ACC_STATIC
+        out.writeShort(callName);
+        out.writeShort(callDescriptor);
+        out.writeShort(1);
+        out.writeShort(code);
+        out.writeInt(12 + codeBytes.size());
+        out.writeShort(Math.max(slots, 2));
+        out.writeShort(slots);
+        out.writeInt(codeBytes.size());
+        codeBytes.writeTo(out);
+        out.writeShort(0); // exception table
+        out.writeShort(0); // code attributes
+        out.writeShort(1); // class attributes
+        out.writeShort(bootstrapMethods);
+        out.writeInt(8);
+        out.writeShort(1);
+        out.writeShort(bootstrap);
+        out.writeShort(1);
+        out.writeShort(target);
+        out.flush();
+
+        final byte[] bytes = classBytes.toByteArray();
+        final ClassLoader loader = new ClassLoader(testClass.getClassLoader()) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                if (name.equals(className.replace('/', '.'))) {
+                    return defineClass(name, bytes, 0, bytes.length);
+                }
+                throw new ClassNotFoundException(name);
+            }
+        };
+        for (Method m : loader.loadClass(className.replace('/', '.')).getDeclaredMethods()) {
+            if (m.getName().equals("call")) {
+                return m;
+            }
+        }
+        throw new InternalError("no call method in " + className);
+    }
+
+    /**
+     * Invokes a {@code call} method, rethrowing any exception it throws.
+     */
+    static Object call(Method call, Object... args) throws Throwable {
+        try {
+            return call.invoke(null, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jtt.lang;
+
+import java.lang.invoke.*;
+import java.lang.reflect.*;
+
+/*
+ * @Harness: java
+ * @Runs: 0 = !java.lang.BootstrapMethodError
+ */
+public class InvokeDynamic_error01 {
+
+    public static int test(int a) throws Throwable {
+        final Method call = InvokeDynamicClassBuilder.build(InvokeDynamic_error01.class, "(I)I",
+            InvokeDynamicClassBuilder.REF_invokeStatic, "jtt/lang/InvokeDynamic_error01", "test", "(I)I");
+        return (Integer) InvokeDynamicClassBuilder.call(call, a);
+    }
+
+    public static CallSite bootstrap(MethodHandles.Lookup lookup, String name, MethodType type, MethodHandle target) {
+        throw new IllegalStateException(name);
+    }
+}
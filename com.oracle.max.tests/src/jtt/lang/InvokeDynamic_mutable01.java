@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jtt.lang;
+
+import java.lang.invoke.*;
+import java.lang.reflect.*;
+
+/*
+ * @Harness: java
+ * @Runs: 0 = 1L; 1 = 3L; 10 = 21L; -1 = -1L
+ */
+public class InvokeDynamic_mutable01 {
+
+    private static Method call;
+
+    public static long test(int a) throws Throwable {
+        if (call == null) {
+            call = InvokeDynamicClassBuilder.build(InvokeDynamic_mutable01.class, "(IJ)J",
+                InvokeDynamicClassBuilder.REF_invokeStatic, "jtt/lang/InvokeDynamic_mutable01", "add", "(IJ)J");
+        }
+        return (Long) InvokeDynamicClassBuilder.call(call, a, a + 1L);
+    }
+
+    public static long add(int a, long b) {
+        return a + b;
+    }
+
+    public static CallSite bootstrap(MethodHandles.Lookup lookup, String name, MethodType type, MethodHandle target) {
+        return new MutableCallSite(target);
+    }
+}
@@ -268,8 +268,9 @@ public class C1X extends RuntimeCompiler.DefaultNameAdapter implements RuntimeCo
                 if (C1XOptions.PrintTimers) {
                     C1XTimers.INSTALL.stop();
                 }
-                if (deps != null) {
-                    Dependencies.registerValidatedTarget(deps, maxTargetMethod);
+                if (deps != null && !Dependencies.registerValidatedTarget(deps, maxTargetMethod)) {
+                    // The dependencies were invalidated before the target method could be installed.
+                    continue;
                 }
                 TTY.Filter filter = new TTY.Filter(C1XOptions.PrintFilter, method);
                 try {
@@ -25,6 +25,7 @@ package com.oracle.max.vm.ext.graal;
 
 import java.util.concurrent.*;
 
+import com.oracle.graal.api.code.*;
 import com.oracle.graal.api.meta.*;
 import com.oracle.max.vm.ext.graal.snippets.MaxReplacementsImpl.MaxSnippetGraphBuilderConfiguration;
 import com.sun.cri.ci.*;
@@ -103,7 +104,13 @@ public class MaxConstantPool implements ConstantPool {
 
     @Override
     public Object lookupConstant(int cpi) {
-        Object result = riConstantPool.lookupConstant(cpi);
+        Object result;
+        try {
+            result = riConstantPool.lookupConstant(cpi);
+        } catch (CiBailout e) {
+            // an unresolved method handle or method type is resolved by the baseline code
+            throw new BailoutException(e.getMessage());
+        }
         if (result instanceof CiConstant) {
             return ConstantMap.toGraal((CiConstant) result);
         } else {
@@ -492,10 +492,10 @@ public class MaxGraal extends RuntimeCompiler.DefaultNameAdapter implements Runt
             Dependencies deps = Dependencies.validateDependencies(MaxAssumptions.toCiAssumptions(methodActor, result.getAssumptions()));
             if (deps != Dependencies.INVALID) {
                 MaxTargetMethod maxTargetMethod = GraalMaxTargetMethod.create(methodActor, MaxCiTargetMethod.create(result), true);
-                if (deps != null) {
-                    Dependencies.registerValidatedTarget(deps, maxTargetMethod);
+                if (deps == null || Dependencies.registerValidatedTarget(deps, maxTargetMethod)) {
+                    return maxTargetMethod;
                 }
-                return maxTargetMethod;
+                // The dependencies were invalidated before the target method could be installed.
             }
             // Loop back and recompile.
             graph = new StructuredGraph(method);
@@ -40,6 +40,7 @@ import com.oracle.max.vm.ext.graal.nodes.*;
 import com.sun.max.annotate.*;
 import com.sun.max.vm.actor.holder.*;
 import com.sun.max.vm.classfile.constant.*;
+import com.sun.max.vm.object.*;
 import com.sun.max.vm.runtime.*;
 import com.sun.max.vm.runtime.Snippets;
 
@@ -76,6 +77,8 @@ public class TypeSnippets extends SnippetLowerings {
     }
 
     protected class CheckCastLowering extends Lowering implements LoweringProvider<CheckCastNode> {
+        private SnippetInfo primarySnippet = snippet(TypeSnippets.class, "checkCastPrimarySnippet");
+
         CheckCastLowering(TypeSnippets typeSnippets) {
             super(typeSnippets, "checkCastSnippet");
         }
@@ -83,15 +86,35 @@ public class TypeSnippets extends SnippetLowerings {
         @Override
         public void lower(CheckCastNode node, LoweringTool tool) {
             ClassActor classActor = (ClassActor) MaxResolvedJavaType.getRiResolvedType(node.type());
-            Arguments args = new Arguments(snippet);
+            Arguments args;
+            if (classActor.primarySuperDepth >= 0) {
+                args = new Arguments(primarySnippet);
+                args.add("classActor", classActor);
+                args.add("id", classActor.id);
+                args.add("depth", classActor.primarySuperDepth);
+            } else {
+                args = new Arguments(snippet);
+                args.add("classActor", classActor);
+            }
             //boolean checkNull = !node.object().stamp().nonNull(); TODO use this
-            args.add("classActor", classActor);
             args.add("object", node.object());
             instantiate(node, args, tool);
         }
 
     }
 
+    /**
+     * Checkcast against a class with a {@linkplain Hub#PRIMARY_SUPERS_LENGTH primary supers display} entry.
+     */
+    @Snippet(inlining = MaxSnippetInliningPolicy.class)
+    private static Object checkCastPrimarySnippet(ClassActor classActor, int id, int depth, Object object) {
+        if (object != null && !ObjectAccess.readHub(object).hasPrimarySuper(depth, id)) {
+            Throw.throwClassCastException(classActor, object);
+            throw UnreachableNode.unreachable();
+        }
+        return UnsafeCastNode.unsafeCast(object, StampFactory.forNodeIntrinsic(), BeginNode.anchor());
+    }
+
     @Snippet(inlining = MaxSnippetInliningPolicy.class)
     private static Object checkCastSnippet(ClassActor classActor, Object object) {
         //Snippets.checkCast(classActor, object);
@@ -132,6 +155,7 @@ public class TypeSnippets extends SnippetLowerings {
 
     protected class InstanceOfLowering extends InstanceOfSnippetsTemplates implements LoweringProvider<FloatingNode> {
         private final SnippetInfo instanceOf = snippet(TypeSnippets.class, "instanceOfSnippet");
+        private final SnippetInfo instanceOfPrimary = snippet(TypeSnippets.class, "instanceOfPrimarySnippet");
 
         InstanceOfLowering(MetaAccessProvider runtime, Replacements replacements, TargetDescription target) {
             super(runtime, replacements, target);
@@ -142,13 +166,25 @@ public class TypeSnippets extends SnippetLowerings {
             InstanceOfNode node = (InstanceOfNode) replacer.instanceOf;
             ClassActor classActor = (ClassActor) MaxResolvedJavaType.getRiResolvedType(node.type());
             ValueNode object = node.object();
-            Arguments args = new Arguments(instanceOf);
-            args.add("classActor", classActor);
+            Arguments args;
+            if (classActor.primarySuperDepth >= 0) {
+                args = new Arguments(instanceOfPrimary);
+                args.add("id", classActor.id);
+                args.add("depth", classActor.primarySuperDepth);
+            } else {
+                args = new Arguments(instanceOf);
+                args.add("classActor", classActor);
+            }
             args.add("object", object);
             return args;
         }
     }
 
+    @Snippet(inlining = MaxSnippetInliningPolicy.class)
+    private static boolean instanceOfPrimarySnippet(int id, int depth, Object object) {
+        return object != null && ObjectAccess.readHub(object).hasPrimarySuper(depth, id);
+    }
+
     @Snippet(inlining = MaxSnippetInliningPolicy.class)
     private static boolean instanceOfSnippet(ClassActor classActor, Object object) {
         return Snippets.instanceOf(classActor, object);
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package demo.jvmti;
+
+import static com.sun.max.vm.ext.jvmti.JVMTIConstants.*;
+import static com.sun.max.vm.ext.jvmti.JVMTIEvents.*;
+
+import java.util.*;
+
+import com.oracle.max.vm.ext.jjvmti.agents.util.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.ext.jvmti.*;
+import com.sun.max.vm.type.*;
+
+/**
+ * Self-checking program for Maxine's field watch implementation when the methods that access
+ * the watched fields have already been compiled, possibly by the optimizing compiler.
+ * The program registers itself as a {@link JJVMTI} agent, so it needs no external agent.
+ * Usage:
+ * <ol>
+ * <li>Run the program; it prints {@code PASSED} or the first failed check and exits with a non-zero status.</li>
+ * </ol>
+ * The checks are:
+ * <ol>
+ * <li>{@link #sum} is compiled with a watch on {@link #a} only and must report every read of {@code a}.</li>
+ * <li>A watch is then added on {@link #b}. {@code sum} already delivers field access events, but its code
+ * only instruments {@code a}, so it has to be recompiled for reads of {@code b} to be reported.</li>
+ * <li>{@link #readLater} refers to a field of a class that has never been loaded. Adding the watches must
+ * not load that class as a side effect of scanning compiled code.</li>
+ * <li>After the watch on {@code a} is cleared, only reads of {@code b} are reported.</li>
+ * </ol>
+ */
+public class FieldWatchTest_01 extends NullJJVMTICallbacks {
+
+    private static final int ITERATIONS = 10000;
+
+    private static FieldWatchTest_01 agent = (FieldWatchTest_01) JJVMTIAgentAdapter.register(new FieldWatchTest_01());
+
+    static int a = 1;
+    static int b = 2;
+    static boolean touchLater;
+
+    static FieldActor fieldA;
+    static FieldActor fieldB;
+    static int readsOfA;
+    static int readsOfB;
+
+    static class Later {
+        static int x;
+    }
+
+    public static void main(String[] args) {
+        ClassActor classActor = ClassActor.fromJava(FieldWatchTest_01.class);
+        fieldA = classActor.findLocalStaticFieldActor("a");
+        fieldB = classActor.findLocalStaticFieldActor("b");
+
+        agent.addCapabilities(EnumSet.of(JVMTICapabilities.E.CAN_GENERATE_FIELD_ACCESS_EVENTS));
+        agent.setEventNotificationMode(JVMTI_ENABLE, E.FIELD_ACCESS, null);
+        readLater();
+
+        agent.setFieldAccessWatch(fieldA);
+        run(ITERATIONS);
+        check("reads of a with only a watched", readsOfA, ITERATIONS);
+        check("reads of b with only a watched", readsOfB, 0);
+
+        agent.setFieldAccessWatch(fieldB);
+        run(100);
+        check("reads of a after watching b", readsOfA, 100);
+        check("reads of b after watching b", readsOfB, 100);
+        // Naming Later.class here would load it, so look it up by name.
+        TypeDescriptor later = JavaTypeDescriptor.getDescriptorForJavaString(FieldWatchTest_01.class.getName() + "$Later");
+        if (ClassRegistry.get(FieldWatchTest_01.class.getClassLoader(), later, false) != null) {
+            fail("watching a field loaded " + later);
+        }
+
+        agent.clearFieldAccessWatch(fieldA);
+        run(100);
+        check("reads of a after clearing a", readsOfA, 0);
+        check("reads of b after clearing a", readsOfB, 100);
+
+        System.out.println("PASSED");
+    }
+
+    private static void run(int n) {
+        readsOfA = 0;
+        readsOfB = 0;
+        int total = 0;
+        for (int i = 0; i < n; i++) {
+            total += sum();
+        }
+        if (total != 3 * n) {
+            fail("sum returned wrong total " + total);
+        }
+    }
+
+    private static void check(String what, int actual, int expected) {
+        if (actual != expected) {
+            fail(what + ": expected " + expected + ", got " + actual);
+        }
+    }
+
+    private static void fail(String message) {
+        System.out.println("FAILED: " + message);
+        System.exit(1);
+    }
+
+    public static int sum() {
+        return a + b;
+    }
+
+    public static int readLater() {
+        return touchLater ? Later.x : 0;
+    }
+
+    @Override
+    public void fieldAccess(Thread thread, MethodActor method, long location, ClassActor classActor, Object object, FieldActor field) {
+        if (field == fieldA) {
+            readsOfA++;
+        } else if (field == fieldB) {
+            readsOfB++;
+        }
+    }
+}
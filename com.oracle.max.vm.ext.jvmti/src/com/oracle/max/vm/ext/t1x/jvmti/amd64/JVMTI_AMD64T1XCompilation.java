@@ -55,15 +55,14 @@ import com.sun.max.vm.profile.*;
  *
  * Some events, e.g., field access/modification events, require that modified templates be used to translate the
  * bytecode. Prior to each bytecode translation, the templates are set appropriately in {@link #setTemplates(boolean)}.
+ * Since field events are specified per field by the agent, the modified templates are only used for the bytecodes
+ * that access a {@linkplain JVMTIFieldWatch watched} field.
  *
  * Breakpoints are handled by checking every bytecode location against the list of set breakpoints and on a match,
  * generating the code for the breakpoint event (via a template for {@link Bytecodes#BREAKPOINT) before the code for the
  * actual bytecode (before advice essentially). There is no compelling need to recompile to remove a breakpoint, we just
  * don't deliver the event.
  *
- * TODO: Since field events are specified per field by the agent, a further optimization would be to determine whether
- * the specific field being accessed is subject to a watch.
- *
  * All per-compilation fields are reset in {@link #initCompile} so no extra {@link #cleanup() cleanup} is needed.
  */
 public class JVMTI_AMD64T1XCompilation extends AMD64T1XCompilation {
@@ -134,7 +133,9 @@ public class JVMTI_AMD64T1XCompilation extends AMD64T1XCompilation {
             Dependencies deps = JVMTI_DependencyProcessor.recordInstrumentation(method.holder(), eventSettings, breakpoints);
             assert deps != null;
             T1XTargetMethod targetMethod = new JVMTI_T1XTargetMethod(comp, install, eventBci);
-            Dependencies.registerValidatedTarget(deps, targetMethod);
+            // instrumentation dependencies are not invalidated by class definitions
+            boolean registered = Dependencies.registerValidatedTarget(deps, targetMethod);
+            assert registered;
             return targetMethod;
         } else {
             return new T1XTargetMethod(comp, install);
@@ -160,8 +161,7 @@ public class JVMTI_AMD64T1XCompilation extends AMD64T1XCompilation {
         methodID = MethodID.fromMethodActor(method);
         checkByteCodeEventNeeded(-1);  // METHOD_ENTRY
         checkByteCodeEventNeeded(-2);  // METHOD_EXIT
-        checkByteCodeEventNeeded(Bytecodes.GETFIELD);
-        checkByteCodeEventNeeded(Bytecodes.PUTFIELD);
+        eventSettings |= JVMTIFieldWatch.fieldEventSettings(method);
         checkByteCodeEventNeeded(Bytecodes.RETURN);
 
         if (JVMTIEvents.isEventSet(JVMTIEvents.E.EXCEPTION_CATCH)) {
@@ -241,11 +241,11 @@ public class JVMTI_AMD64T1XCompilation extends AMD64T1XCompilation {
         switch (opcode) {
             case Bytecodes.GETFIELD:
             case Bytecodes.GETSTATIC:
-                bytecodeEvent = (eventSettings & GETFIELD_EVENT.bit) != 0;
+                bytecodeEvent = (eventSettings & GETFIELD_EVENT.bit) != 0 && JVMTIFieldWatch.isWatchedFieldRef(cp, stream.readCPI(), false);
                 break;
             case Bytecodes.PUTFIELD:
             case Bytecodes.PUTSTATIC:
-                bytecodeEvent = (eventSettings & PUTFIELD_EVENT.bit) != 0;
+                bytecodeEvent = (eventSettings & PUTFIELD_EVENT.bit) != 0 && JVMTIFieldWatch.isWatchedFieldRef(cp, stream.readCPI(), true);
                 break;
             case Bytecodes.IRETURN:
             case Bytecodes.LRETURN:
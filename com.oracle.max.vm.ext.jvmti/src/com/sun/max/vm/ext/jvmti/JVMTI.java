@@ -466,8 +466,11 @@ public class JVMTI {
      * @param classMethodActor the method about to be compiled or {@code null} if none.
      */
     public static synchronized boolean compiledCodeEventsNeeded(ClassMethodActor classMethodActor) {
-        return JVMTIEvents.anyCodeEventsSet() ||
-            (classMethodActor == null ? false : JVMTIBreakpoints.hasBreakpoints(classMethodActor));
+        if (JVMTIEvents.anyCodeEventsSet()) {
+            return true;
+        }
+        return classMethodActor != null &&
+            (JVMTIBreakpoints.hasBreakpoints(classMethodActor) || JVMTIFieldWatch.fieldEventSettings(classMethodActor) != 0);
     }
 
     /**
@@ -30,6 +30,7 @@ import com.sun.cri.bytecode.*;
 import com.sun.max.annotate.*;
 import com.sun.max.unsafe.*;
 import com.sun.max.vm.*;
+import com.sun.max.vm.actor.holder.*;
 import com.sun.max.vm.actor.member.*;
 import com.sun.max.vm.classfile.*;
 import com.sun.max.vm.classfile.constant.*;
@@ -154,6 +155,57 @@ public class JVMTICode {
         }
     }
 
+    /**
+     * A new watch is being set on a field.
+     * Only the compiled methods that access the field, and the methods into which they have been inlined,
+     * are recompiled with field event instrumentation; all other code is unaffected.
+     * Methods that have not been compiled yet will be instrumented when they are compiled.
+     *
+     * @param fieldActor the field being watched
+     * @param isModification {@code true} for a modification watch, {@code false} for an access watch
+     */
+    static void deOptForFieldWatch(FieldActor fieldActor, boolean isModification) {
+        ArrayList<TargetMethod> targetMethods = new ArrayList<TargetMethod>();
+        for (ClassActor classActor : JVMTIClassFunctions.getLoadedClassActors()) {
+            if (classActor == null) {
+                continue;
+            }
+            addFieldAccessors(classActor.localVirtualMethodActors(), fieldActor, isModification, targetMethods);
+            addFieldAccessors(classActor.localStaticMethodActors(), fieldActor, isModification, targetMethods);
+        }
+        if (targetMethods.size() > 0) {
+            compileAndDeopt(targetMethods);
+        }
+    }
+
+    /**
+     * Adds the compiled code of the methods that access a newly watched field. The code is always replaced:
+     * code compiled with field events only instruments the fields that were watched at the time, so the
+     * events it was compiled with say nothing about this field.
+     */
+    private static void addFieldAccessors(ClassMethodActor[] classMethodActors, FieldActor fieldActor, boolean isModification,
+                    ArrayList<TargetMethod> targetMethods) {
+        for (ClassMethodActor classMethodActor : classMethodActors) {
+            if (classMethodActor.isNative() || classMethodActor.isAbstract() || !JVMTIFieldWatch.accessesField(classMethodActor, fieldActor, isModification)) {
+                continue;
+            }
+            TargetMethod targetMethod = classMethodActor.currentTargetMethod();
+            if (targetMethod != null) {
+                targetMethod.finalizeReferenceMaps();
+                addUnique(targetMethods, targetMethod);
+            }
+            for (TargetMethod inliner : InlinedMethodDependencyProcessor.getInliners(classMethodActor)) {
+                addUnique(targetMethods, inliner);
+            }
+        }
+    }
+
+    private static void addUnique(ArrayList<TargetMethod> targetMethods, TargetMethod targetMethod) {
+        if (!targetMethods.contains(targetMethod)) {
+            targetMethods.add(targetMethod);
+        }
+    }
+
     static void resumeThreadNotify(JVMTI.Env jvmtiEnv, VmThread vmThread) {
         checkDeOptForEvent(jvmtiEnv, vmThread);
     }
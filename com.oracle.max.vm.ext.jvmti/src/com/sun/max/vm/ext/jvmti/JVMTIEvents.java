@@ -255,10 +255,11 @@ public class JVMTIEvents {
 
 
     /**
-     * These events require compiler support.
+     * These events require compiler support in every method.
+     * Field access and modification events also require compiler support, but only in the methods
+     * that access a watched field, see {@link JVMTIFieldWatch#fieldEventSettings}.
      */
     static long CODE_EVENTS_SETTING =
-                                   E.FIELD_ACCESS.bit | E.FIELD_MODIFICATION.bit |
                                    E.METHOD_ENTRY.bit | E.METHOD_EXIT.bit |
                                    E.BREAKPOINT.bit | E.SINGLE_STEP.bit |
                                    E.FRAME_POP.bit | E.EXCEPTION_CATCH.bit;
@@ -22,28 +22,31 @@
  */
 package com.sun.max.vm.ext.jvmti;
 
+import java.util.*;
 import java.util.concurrent.*;
 
+import com.sun.cri.bytecode.*;
 import com.sun.max.unsafe.*;
 import com.sun.max.vm.actor.holder.*;
 import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.classfile.*;
+import com.sun.max.vm.classfile.constant.*;
 import com.sun.max.vm.ext.jvmti.JVMTIUtil.*;
 import com.sun.max.vm.jni.*;
 import com.sun.max.vm.object.*;
+import com.sun.max.vm.type.*;
 
 import static com.sun.max.vm.ext.jvmti.JVMTIConstants.*;
 
 /**
  * Support for field watch events.
  *
- * This implementation depends on the current, inefficient, compilation strategy
- * of compiling field access events for every field in every class, whenever an agent has requested
- * the delivery of field events, and assumes that the delivery is not turned on and off
- * during the run. Specific field watches can therefore be turned on/off during as run as
- * that decision is made here and not in the compiled code.
- *
- * A much more efficient strategy would be to deopt on demand when a new watch is added,
- * although that might involve a substantial amount of recompilation.
+ * Field event instrumentation is only compiled into methods that access a watched field,
+ * and only at the bytecodes that access it. When a new watch is set, the methods already
+ * compiled that access the field (and the methods they were inlined into) are recompiled
+ * and deoptimized on demand, see {@link JVMTICode#deOptForFieldWatch}. Clearing a watch does
+ * not cause recompilation; the event is simply no longer delivered, as that decision is
+ * made here and not in the compiled code.
  */
 public class JVMTIFieldWatch {
 
@@ -85,6 +88,7 @@ public class JVMTIFieldWatch {
         } else {
             fieldMap.put(fieldActor, stateToSet);
         }
+        JVMTICode.deOptForFieldWatch(fieldActor, stateToSet == MODIFICATION_STATE);
         return JVMTI_ERROR_NONE;
     }
 
@@ -124,6 +128,118 @@ public class JVMTIFieldWatch {
         }
     }
 
+    /**
+     * Determines if a given field is watched for access or modification.
+     */
+    static boolean isWatched(FieldActor fieldActor, boolean isModification) {
+        WatchState watchState = fieldMap.get(fieldActor);
+        return watchState != null && (watchState.state & (isModification ? MODIFICATION : ACCESS)) != 0;
+    }
+
+    /**
+     * Determines if a field access bytecode refers to a watched field.
+     * If the holder class of the field reference has not been loaded yet, the reference is
+     * conservatively assumed to be watched if any field with the same name is watched.
+     *
+     * @param cp the constant pool of the method containing the bytecode
+     * @param cpi the constant pool index of the field reference
+     * @param isModification {@code true} for {@code PUTFIELD/PUTSTATIC}, {@code false} for {@code GETFIELD/GETSTATIC}
+     */
+    public static boolean isWatchedFieldRef(ConstantPool cp, int cpi, boolean isModification) {
+        if (fieldMap.isEmpty()) {
+            return false;
+        }
+        return refersTo(cp, cpi, null, isModification);
+    }
+
+    /**
+     * Gets the field events that must be compiled into a given method,
+     * i.e., the events for the watched fields that the method accesses.
+     *
+     * @return a {@link JVMTIEvents} bitmask containing at most {@code FIELD_ACCESS} and {@code FIELD_MODIFICATION}
+     */
+    public static long fieldEventSettings(ClassMethodActor classMethodActor) {
+        if (fieldMap.isEmpty()) {
+            return 0;
+        }
+        return fieldEvents(classMethodActor, null);
+    }
+
+    /**
+     * Determines if a given method accesses a given field in the manner specified.
+     */
+    static boolean accessesField(ClassMethodActor classMethodActor, FieldActor fieldActor, boolean isModification) {
+        long eventBit = isModification ? JVMTIEvents.E.FIELD_MODIFICATION.bit : JVMTIEvents.E.FIELD_ACCESS.bit;
+        return (fieldEvents(classMethodActor, fieldActor) & eventBit) != 0;
+    }
+
+    /**
+     * Scans the bytecode of a method for accesses to a given field or, if {@code fieldActor == null},
+     * to any watched field.
+     */
+    private static long fieldEvents(ClassMethodActor classMethodActor, FieldActor fieldActor) {
+        CodeAttribute codeAttribute = classMethodActor.compilee().codeAttribute();
+        if (codeAttribute == null) {
+            return 0;
+        }
+        long settings = 0;
+        BytecodeStream stream = new BytecodeStream(codeAttribute.code());
+        while (stream.currentBCI() < stream.endBCI()) {
+            switch (stream.currentBC()) {
+                case Bytecodes.GETFIELD:
+                case Bytecodes.GETSTATIC:
+                    if (refersTo(codeAttribute.cp, stream.readCPI(), fieldActor, false)) {
+                        settings |= JVMTIEvents.E.FIELD_ACCESS.bit;
+                    }
+                    break;
+                case Bytecodes.PUTFIELD:
+                case Bytecodes.PUTSTATIC:
+                    if (refersTo(codeAttribute.cp, stream.readCPI(), fieldActor, true)) {
+                        settings |= JVMTIEvents.E.FIELD_MODIFICATION.bit;
+                    }
+                    break;
+                default:
+            }
+            stream.next();
+        }
+        return settings;
+    }
+
+    /**
+     * Determines if a field reference denotes a given field or, if {@code fieldActor == null}, a watched field.
+     * The constant pool is not modified: an unresolved reference is looked up in the classes already loaded
+     * and is otherwise matched by name.
+     */
+    private static boolean refersTo(ConstantPool cp, int cpi, FieldActor fieldActor, boolean isModification) {
+        FieldRefConstant fieldRef = cp.fieldAt(cpi);
+        Utf8Constant name = fieldRef.name(cp);
+        FieldActor found = null;
+        if (fieldRef.isResolved()) {
+            found = fieldRef.resolve(cp, cpi);
+        } else {
+            ClassActor holder = ClassRegistry.get(cp.classLoader(), fieldRef.holder(cp), true);
+            if (holder != null) {
+                found = holder.findFieldActor(name, fieldRef.type(cp));
+                if (found == null) {
+                    // the access will fail at runtime, so no event can be delivered
+                    return false;
+                }
+            }
+        }
+        if (found != null) {
+            return fieldActor == null ? isWatched(found, isModification) : found == fieldActor;
+        }
+        if (fieldActor != null) {
+            return name == fieldActor.name;
+        }
+        for (Map.Entry<FieldActor, WatchState> entry : fieldMap.entrySet()) {
+            if (entry.getKey().name == name && (entry.getValue().state & (isModification ? MODIFICATION : ACCESS)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Data handling for field events.
      * We use the {@link TypedData) "union" type to handle the modification values.
@@ -30,6 +30,7 @@ import static com.sun.max.vm.ext.jvmti.JVMTIConstants.*;
 import com.sun.max.memory.*;
 import com.sun.max.unsafe.*;
 import com.sun.max.vm.jni.*;
+import com.sun.max.vm.object.*;
 
 /**
  * JVMTI object tagging support. The tag map is allocated lazily. We cannot use a standard {@link WeakHashMap} because
@@ -38,20 +39,32 @@ import com.sun.max.vm.jni.*;
  *
  * We support {@link Object} (for JJVMTI) and {@code long} values, not via {@link Long} to avoid unnecessary allocation.
  *
+ * The map is split into {@link #SEGMENTS} independently locked segments, selected by the identity hash of the object,
+ * so that tagging from many threads does not contend on a single lock. Entries whose object has been collected
+ * are {@linkplain ReferenceQueue enqueued} by the GC's special reference processing and expunged from their segment
+ * on the next update, rather than found by scanning. N.B. this is still polling: each update of a segment polls its
+ * queue. The entries cannot be removed from a {@link com.sun.max.vm.heap.Heap.GCCallback} because that runs while
+ * mutator threads, which may hold a segment lock, are stopped.
+ *
+ * Since an object header has no spare bit to record that the object is tagged (the misc word is fully used by
+ * the lock and hash code encodings), we record instead which classes have (or have had) tagged instances. Checking
+ * an object of any other class is then just a bit test on its hub, which avoids computing (and installing) an identity
+ * hash for every object visited during a heap iteration. The filter is per class, not per object: once one instance of
+ * a class has been tagged, every instance of that class goes through the hash lookup.
  */
-class JVMTITags {
+public class JVMTITags {
 
     /**
      * A cut down and modified version of {@link WeakHashMap}.
      * The value 0 is not allowed, and used to mean lookup failure.
      */
-    static class Map {
-        static abstract class Entry extends WeakReference<Object> {
+    public static class Map {
+        public abstract static class Entry extends WeakReference<Object> {
             final int hash;
             Entry next;
 
-            Entry(Object object, int hash, Entry next) {
-                super(object);
+            Entry(Object object, int hash, Entry next, ReferenceQueue<Object> queue) {
+                super(object, queue);
                 this.hash = hash;
                 this.next = next;
             }
@@ -60,8 +73,8 @@ class JVMTITags {
 
         static class LongEntry extends Entry {
             long value;
-            LongEntry(Object object, long value, int hash, Entry next) {
-                super(object, hash, next);
+            LongEntry(Object object, long value, int hash, Entry next, ReferenceQueue<Object> queue) {
+                super(object, hash, next, queue);
                 this.value = value;
             }
 
@@ -69,8 +82,8 @@ class JVMTITags {
 
         static class ObjectEntry extends Entry {
             Object value;
-            ObjectEntry(Object object, Object value, int hash, Entry next) {
-                super(object, hash, next);
+            ObjectEntry(Object object, Object value, int hash, Entry next, ReferenceQueue<Object> queue) {
+                super(object, hash, next, queue);
                 this.value = value;
             }
         }
@@ -83,12 +96,20 @@ class JVMTITags {
         private final float loadFactor;
         private Entry[] table;
 
+        /**
+         * Entries whose object has been collected.
+         */
+        private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
         private Entry[] getTable() {
-            // expungeStaleEntries(); TODO
             return table;
         }
 
-        Map(boolean isNative) {
+        public int size() {
+            return size;
+        }
+
+        public Map(boolean isNative) {
             this.loadFactor = DEFAULT_LOAD_FACTOR;
             threshold = DEFAULT_INITIAL_CAPACITY;
             if (isNative) {
@@ -102,17 +123,18 @@ class JVMTITags {
             return h & (length - 1);
         }
 
-        void put(Object key, long value) {
+        public void put(Object key, long value) {
             LongEntry e = (LongEntry) putCommon(key, true);
             e.value = value;
         }
 
-        void put(Object key, Object value) {
+        public void put(Object key, Object value) {
             ObjectEntry e = (ObjectEntry) putCommon(key, false);
             e.value = value;
         }
 
         private Entry putCommon(Object key, boolean isNative) {
+            expungeStaleEntries();
             int h = System.identityHashCode(key);
             Entry[] tab = getTable();
             int i = indexFor(h, tab.length);
@@ -124,7 +146,7 @@ class JVMTITags {
             }
 
             Entry e = tab[i];
-            Entry ne = isNative ? new LongEntry(key, 0, h, e) : new ObjectEntry(key, null, h, e);
+            Entry ne = isNative ? new LongEntry(key, 0, h, e, queue) : new ObjectEntry(key, null, h, e, queue);
             tab[i] = ne;
             if (++size >= threshold) {
                 resize(tab.length * 2);
@@ -132,12 +154,12 @@ class JVMTITags {
             return ne;
         }
 
-        long getLong(Object key) {
+        public long getLong(Object key) {
             LongEntry e = (LongEntry) getCommon(key);
             return e == null ? 0 : e.value;
         }
 
-        Object getObject(Object key) {
+        public Object getObject(Object key) {
             ObjectEntry e = (ObjectEntry) getCommon(key);
             return e == null ? null : e.value;
         }
@@ -157,6 +179,7 @@ class JVMTITags {
         }
 
         public void remove(Object key) {
+            expungeStaleEntries();
             int h = System.identityHashCode(key);
             Entry[] tab = getTable();
             int i = indexFor(h, tab.length);
@@ -179,6 +202,34 @@ class JVMTITags {
             }
         }
 
+        /**
+         * Removes the entries that the GC has cleared and enqueued.
+         */
+        private void expungeStaleEntries() {
+            for (Object x = queue.poll(); x != null; x = queue.poll()) {
+                Entry stale = (Entry) x;
+                Entry[] tab = table;
+                int i = indexFor(stale.hash, tab.length);
+                Entry prev = tab[i];
+                Entry e = prev;
+                while (e != null) {
+                    Entry next = e.next;
+                    if (e == stale) {
+                        if (prev == e) {
+                            tab[i] = next;
+                        } else {
+                            prev.next = next;
+                        }
+                        stale.next = null;  // Help GC
+                        size--;
+                        break;
+                    }
+                    prev = e;
+                    e = next;
+                }
+            }
+        }
+
         void resize(int newCapacity) {
             Entry[] oldTable = getTable();
             int oldCapacity = oldTable.length;
@@ -199,7 +250,7 @@ class JVMTITags {
             if (size >= threshold / 2) {
                 threshold = (int) (newCapacity * loadFactor);
             } else {
-                // expungeStaleEntries();
+                expungeStaleEntries();
                 transfer(newTable, oldTable);
                 table = oldTable;
             }
@@ -225,14 +276,14 @@ class JVMTITags {
             }
         }
 
-        static abstract class Visitor {
-            abstract void visit(Entry e);
+        public abstract static class Visitor {
+            public abstract void visit(Entry e);
             Object getResult() {
                 return null;
             }
         }
 
-        Visitor apply(Visitor visitor) {
+        public Visitor apply(Visitor visitor) {
             for (int t = 0; t < table.length; t++) {
                 Map.Entry e = table[t];
                 while (e != null) {
@@ -247,129 +298,231 @@ class JVMTITags {
 
     }
 
-    private Map tagMap;
+    /**
+     * Number of independently locked segments. Must be a power of two.
+     */
+    private static final int SEGMENTS = 64;
+
+    /**
+     * The tag map segments, each of which is also the lock for its own contents.
+     */
+    private volatile Map[] segments;
+
+    /**
+     * Bit map indexed by {@linkplain com.sun.max.vm.actor.holder.ClassActor#id class id} of the classes
+     * that have had an instance tagged. Bits are never cleared.
+     */
+    private volatile long[] taggedClasses = new long[0];
+
+    private static Map segmentFor(Map[] segments, Object object) {
+        int h = System.identityHashCode(object);
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * Fast check that determines whether an object may be tagged without looking it up in the map.
+     */
+    private boolean mayBeTagged(Object object) {
+        long[] bits = taggedClasses;
+        int id = ObjectAccess.readClassActor(object).id;
+        int word = id >> 6;
+        return word < bits.length && (bits[word] & (1L << id)) != 0;
+    }
+
+    private synchronized void recordTaggedClass(Object object) {
+        long[] bits = taggedClasses;
+        int id = ObjectAccess.readClassActor(object).id;
+        int word = id >> 6;
+        if (word >= bits.length) {
+            bits = Arrays.copyOf(bits, Math.max(word + 1, bits.length * 2));
+        }
+        bits[word] |= 1L << id;
+        // volatile write publishes the bit
+        taggedClasses = bits;
+    }
 
     /*
-     * Next two functions are for use by JVMTIHeapFunctions, where no synchronization is necessary.
+     * Next three functions are for use by JVMTIHeapFunctions, where no synchronization is necessary.
      */
 
     boolean isTagged(Object object) {
-        if (tagMap == null) {
+        Map[] segments = this.segments;
+        if (segments == null || !mayBeTagged(object)) {
             return false;
         } else {
-            return tagMap.getCommon(object) != null;
+            return segmentFor(segments, object).getCommon(object) != null;
         }
     }
 
     long getLongTag(Object object) {
-        return checkMap(true).getLong(object);
+        Map[] segments = this.segments;
+        if (segments == null || !mayBeTagged(object)) {
+            return 0;
+        }
+        return segmentFor(segments, object).getLong(object);
     }
 
     Object getObjectTag(Object object) {
-        return checkMap(false).getObject(object);
+        Map[] segments = this.segments;
+        if (segments == null || !mayBeTagged(object)) {
+            return null;
+        }
+        return segmentFor(segments, object).getObject(object);
     }
 
     /*
      * Implementation of API methods where we need to protect against concurrent access.
      */
 
-    synchronized int getTag(Object object, Pointer tagPtr) {
-        long tag = checkMap(true).getLong(object);
+    int getTag(Object object, Pointer tagPtr) {
+        long tag = 0;
+        if (segments != null && mayBeTagged(object)) {
+            Map segment = segmentFor(checkMap(true), object);
+            synchronized (segment) {
+                tag = segment.getLong(object);
+            }
+        }
         tagPtr.writeLong(0, tag);
         return JVMTI_ERROR_NONE;
     }
 
-    synchronized int setTag(Object object, long tag) {
+    int setTag(Object object, long tag) {
         if (tag == 0) {
-            checkMap(true).remove(object);
+            if (segments != null && mayBeTagged(object)) {
+                Map segment = segmentFor(checkMap(true), object);
+                synchronized (segment) {
+                    segment.remove(object);
+                }
+            }
         } else {
-            checkMap(true).put(object, tag);
+            if (!mayBeTagged(object)) {
+                recordTaggedClass(object);
+            }
+            Map segment = segmentFor(checkMap(true), object);
+            synchronized (segment) {
+                segment.put(object, tag);
+            }
         }
         return JVMTI_ERROR_NONE;
     }
 
-    public synchronized void setTag(Object object, Object tag) {
-        checkMap(false).put(object, tag);
+    public void setTag(Object object, Object tag) {
+        if (!mayBeTagged(object)) {
+            recordTaggedClass(object);
+        }
+        Map segment = segmentFor(checkMap(false), object);
+        synchronized (segment) {
+            segment.put(object, tag);
+        }
     }
 
-    public synchronized Object getTag(Object object) {
-        return checkMap(false).getObject(object);
+    public Object getTag(Object object) {
+        if (segments == null || !mayBeTagged(object)) {
+            return null;
+        }
+        Map segment = segmentFor(checkMap(false), object);
+        synchronized (segment) {
+            return segment.getObject(object);
+        }
     }
 
-    private Map checkMap(boolean isNative) {
-        if (tagMap == null) {
-            tagMap  = new Map(isNative);
+    private Map[] checkMap(boolean isNative) {
+        Map[] result = segments;
+        if (result == null) {
+            synchronized (this) {
+                result = segments;
+                if (result == null) {
+                    result = new Map[SEGMENTS];
+                    for (int i = 0; i < SEGMENTS; i++) {
+                        result[i] = new Map(isNative);
+                    }
+                    segments = result;
+                }
+            }
         }
-        return tagMap;
+        return result;
     }
 
-    synchronized int getObjectsWithTags(final int tagCount, final Pointer tags, Pointer countPtr, Pointer objectResultPtrPtr, Pointer tagResultPtrPtr) {
+    int getObjectsWithTags(final int tagCount, final Pointer tags, Pointer countPtr, Pointer objectResultPtrPtr, Pointer tagResultPtrPtr) {
         if (tagCount < 0) {
             return JVMTI_ERROR_ILLEGAL_ARGUMENT;
         }
         for (int i = 0; i < tagCount; i++) {
-            long givenTag = tags.getInt(i);
+            long givenTag = tags.getLong(i);
             if (givenTag == 0) {
                 return JVMTI_ERROR_ILLEGAL_ARGUMENT;
             }
         }
 
+        final Map[] segments = checkMap(true);
+        final int[] count = {0};
         Map.Visitor counter = new Map.Visitor() {
-            private int count;
-
             @Override
-            void visit(Map.Entry e) {
+            public void visit(Map.Entry e) {
                 for (int i = 0; i < tagCount; i++) {
-                    long givenTag = tags.getInt(i);
+                    long givenTag = tags.getLong(i);
                     if (givenTag == ((Map.LongEntry) e).value) {
-                        count++;
+                        count[0]++;
+                        break;
                     }
                 }
             }
-
-            @Override
-            Object getResult() {
-                return new Integer(count);
-            }
         };
+        for (Map segment : segments) {
+            synchronized (segment) {
+                segment.apply(counter);
+            }
+        }
 
-        final int count = (Integer) tagMap.apply(counter).getResult();
-        // count is an upper bound, entries may disappear through GC actions
-        final Pointer objectResultPtr = objectResultPtrPtr.isZero() ? Pointer.zero() : Memory.allocate(Size.fromInt(count * Word.size()));
-        if (objectResultPtr.isZero()) {
+        // count is an upper bound, entries may disappear through GC actions or concurrent updates
+        final int maxCount = count[0];
+        final Size resultSize = Size.fromInt(Math.max(maxCount, 1) * Word.size());
+        final Pointer objectResultPtr = objectResultPtrPtr.isZero() ? Pointer.zero() : Memory.allocate(resultSize);
+        if (!objectResultPtrPtr.isZero() && objectResultPtr.isZero()) {
             return JVMTI_ERROR_OUT_OF_MEMORY;
         }
-        final Pointer tagResultPtr = tagResultPtrPtr.isZero() ? Pointer.zero() : Memory.allocate(Size.fromInt(count * Word.size()));
-        if (tagResultPtr.isZero()) {
-            Memory.deallocate(objectResultPtr);
+        final Pointer tagResultPtr = tagResultPtrPtr.isZero() ? Pointer.zero() : Memory.allocate(resultSize);
+        if (!tagResultPtrPtr.isZero() && tagResultPtr.isZero()) {
+            if (!objectResultPtr.isZero()) {
+                Memory.deallocate(objectResultPtr);
+            }
             return JVMTI_ERROR_OUT_OF_MEMORY;
         }
 
+        final int[] index = {0};
         Map.Visitor copier = new Map.Visitor() {
             @Override
-            void visit(Map.Entry e) {
-                int index = 0;
+            public void visit(Map.Entry e) {
                 Object key = e.get();
-                if (key != null) {
+                if (key != null && index[0] < maxCount) {
                     for (int i = 0; i < tagCount; i++) {
-                        long givenTag = tags.getInt(i);
+                        long givenTag = tags.getLong(i);
                         if (givenTag == ((Map.LongEntry) e).value) {
-                            assert index < count;
                             if (!objectResultPtr.isZero()) {
-                                objectResultPtr.setWord(index, JniHandles.createLocalHandle(key));
+                                objectResultPtr.setWord(index[0], JniHandles.createLocalHandle(key));
                             }
                             if (!tagResultPtr.isZero()) {
-                                tagResultPtr.setLong(index, givenTag);
+                                tagResultPtr.setLong(index[0], givenTag);
                             }
-                            index++;
+                            index[0]++;
                             break;
                         }
                     }
                 }
             }
         };
-        tagMap.apply(copier);
-        countPtr.setInt(count);
+        for (Map segment : segments) {
+            synchronized (segment) {
+                segment.apply(copier);
+            }
+        }
+        countPtr.setInt(index[0]);
+        if (!objectResultPtrPtr.isZero()) {
+            objectResultPtrPtr.setWord(objectResultPtr);
+        }
+        if (!tagResultPtrPtr.isZero()) {
+            tagResultPtrPtr.setWord(tagResultPtr);
+        }
         return JVMTI_ERROR_NONE;
     }
 }
@@ -185,6 +185,9 @@ public class JVMTI_DependencyProcessor extends DependencyProcessor {
         classHierarchyLock.readLock().lock();
         try {
             DSet dset = ContextDependents.map.get(classMethodActor.holder());
+            if (dset == null) {
+                return false;
+            }
             synchronized (dset) {
                 for (int i = 0; i < dset.size(); i++) {
                     final Dependencies deps = dset.getDeps(i);
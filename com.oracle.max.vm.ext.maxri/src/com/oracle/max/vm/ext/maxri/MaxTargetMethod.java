@@ -716,6 +716,14 @@ public class MaxTargetMethod extends TargetMethod implements Cloneable {
         }
     }
 
+    @Override
+    public boolean isFrameComplete(CodePointer ip) {
+        if (platform().isa == ISA.AMD64) {
+            return AMD64TargetMethodUtil.isFrameComplete(this, ip);
+        }
+        return false;
+    }
+
     @Override
     public int forEachCodePos(CodePosClosure cpc, CodePointer ip) {
         int index = findSafepointIndex(ip);
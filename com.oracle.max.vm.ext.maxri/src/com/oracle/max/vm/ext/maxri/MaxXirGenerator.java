@@ -154,6 +154,9 @@ public class MaxXirGenerator implements RiXirGenerator {
     private XirPair materializedInstanceofForLeafTemplate;
     private XirPair materializedInstanceofForLeafAndNonNullTemplate;
     private XirPair materializedInstanceofForNonLeafTemplate;
+    private XirTemplate checkcastForPrimaryTemplate;
+    private XirTemplate instanceofForPrimaryTemplate;
+    private XirTemplate materializedInstanceofForPrimaryTemplate;
 
     private XirTemplate typeAssertTemplate;
 
@@ -186,6 +189,19 @@ public class MaxXirGenerator implements RiXirGenerator {
         return FieldActor.findInstance(ClassActor.fromJava(Hub.class), "mTableLength").offset();
     }
 
+    /**
+     * Offset of the primary supers display entry for a given depth.
+     */
+    int offsetOfPrimarySuper(int depth) {
+        assert depth >= 0 && depth < Hub.PRIMARY_SUPERS_LENGTH;
+        return offsetOfFirstArrayElement() + Hub.primarySuperIndex(depth) * Word.size();
+    }
+
+    @FOLD
+    int offsetOfSecondarySuperCache() {
+        return offsetOfFirstArrayElement() + Hub.secondarySuperCacheIndex() * Word.size();
+    }
+
     @FOLD
     int offsetOfTupleSize() {
         return FieldActor.findInstance(ClassActor.fromJava(Hub.class), "tupleSize").offset();
@@ -296,6 +312,10 @@ public class MaxXirGenerator implements RiXirGenerator {
         materializedInstanceofForLeafAndNonNullTemplate = buildMaterializeInstanceOf(true, true);
         materializedInstanceofForNonLeafTemplate = buildMaterializeInstanceOf(false, false);
 
+        checkcastForPrimaryTemplate = buildCheckcastForPrimary();
+        instanceofForPrimaryTemplate = buildInstanceofForPrimary();
+        materializedInstanceofForPrimaryTemplate = buildMaterializeInstanceOfForPrimary();
+
         typeAssertTemplate = buildTypeAssert();
 
         exceptionObjectTemplate = buildExceptionObject();
@@ -534,6 +554,13 @@ public class MaxXirGenerator implements RiXirGenerator {
         return new XirSnippet(multiNewArrayTemplate[rank].resolved, Utils.concat(lengths, hub));
     }
 
+    /**
+     * Gets a class id as a word constant, for comparison with and storing into the words of a hub that hold class ids.
+     */
+    private static XirArgument idWord(int id) {
+        return WordUtil.archKind() == CiKind.Long ? XirArgument.forLong(id) : XirArgument.forInt(id);
+    }
+
     @Override
     public XirSnippet genCheckCast(XirSite site, XirArgument object, XirArgument hub, RiType type) {
         if (type instanceof RiResolvedType) {
@@ -544,11 +571,15 @@ public class MaxXirGenerator implements RiXirGenerator {
                 // can use the leaf class test
                 template = checkcastForLeafTemplate.resolved;
             } else {
-                // can use the class test
-                template = checkcastForNonLeafTemplate.resolved;
                 ClassActor classActor = (ClassActor) resolvedType;
                 int typeID = classActor.id;
-                return new XirSnippet(template, object, XirArgument.forInt(typeID), hub);
+                if (classActor.primarySuperDepth >= 0) {
+                    // can use the primary supers display
+                    return new XirSnippet(checkcastForPrimaryTemplate, object, idWord(typeID), XirArgument.forInt(offsetOfPrimarySuper(classActor.primarySuperDepth)), hub);
+                }
+                // can use the class test
+                template = checkcastForNonLeafTemplate.resolved;
+                return new XirSnippet(template, object, XirArgument.forInt(typeID), idWord(typeID), hub);
             }
             return new XirSnippet(template, object, hub);
         }
@@ -566,10 +597,13 @@ public class MaxXirGenerator implements RiXirGenerator {
                 template = instanceofForLeafTemplate.resolved;
                 return new XirSnippet(template, object, hub);
             } else {
-                template = instanceofForNonLeafTemplate.resolved;
                 ClassActor classActor = (ClassActor) type;
                 int typeID = classActor.id;
-                return new XirSnippet(template, object, XirArgument.forInt(typeID), hub);
+                if (classActor.primarySuperDepth >= 0) {
+                    return new XirSnippet(instanceofForPrimaryTemplate, object, idWord(typeID), XirArgument.forInt(offsetOfPrimarySuper(classActor.primarySuperDepth)));
+                }
+                template = instanceofForNonLeafTemplate.resolved;
+                return new XirSnippet(template, object, XirArgument.forInt(typeID), idWord(typeID), hub);
             }
         }
         XirArgument guard = guardFor(type);
@@ -591,10 +625,14 @@ public class MaxXirGenerator implements RiXirGenerator {
                 }
                 return new XirSnippet(template, receiver, hub, trueValue, falseValue);
             } else {
-                template = materializedInstanceofForNonLeafTemplate.resolved;
                 ClassActor classActor = (ClassActor) type;
                 int typeID = classActor.id;
-                return new XirSnippet(template, receiver, hub, trueValue, falseValue, XirArgument.forInt(typeID));
+                if (classActor.primarySuperDepth >= 0) {
+                    return new XirSnippet(materializedInstanceofForPrimaryTemplate, receiver, trueValue, falseValue, idWord(typeID),
+                                    XirArgument.forInt(offsetOfPrimarySuper(classActor.primarySuperDepth)));
+                }
+                template = materializedInstanceofForNonLeafTemplate.resolved;
+                return new XirSnippet(template, receiver, hub, trueValue, falseValue, XirArgument.forInt(typeID), idWord(typeID));
             }
         } else {
             XirArgument guard = guardFor(type);
@@ -1456,10 +1494,12 @@ public class MaxXirGenerator implements RiXirGenerator {
             asm.restart();
             XirParameter object = asm.createInputParameter("object", CiKind.Object);
             XirParameter interfaceID = asm.createConstantInputParameter("interfaceID", CiKind.Int);
+            XirParameter interfaceIDWord = asm.createConstantInputParameter("interfaceIDWord", WordUtil.archKind());
             XirParameter checkedHub = asm.createConstantInputParameter("checkedHub", CiKind.Object);
             XirOperand hub = asm.createTemp("hub", CiKind.Object);
             XirOperand mtableTemp = asm.createTemp("mtableTemp", CiKind.Int);
             XirOperand a = asm.createTemp("a", CiKind.Int);
+            XirOperand cached = asm.createTemp("cached", WordUtil.archKind());
             XirLabel pass = asm.createInlineLabel("pass");
             XirLabel fail = asm.createOutOfLineLabel("fail");
             // XXX: use a cache to check the last successful receiver type
@@ -1469,6 +1509,8 @@ public class MaxXirGenerator implements RiXirGenerator {
             }
             asm.pload(CiKind.Object, hub, object, asm.i(hubOffset()), !nonnull);
             asm.jeq(pass, hub, checkedHub);
+            asm.pload(WordUtil.archKind(), cached, hub, asm.i(offsetOfSecondarySuperCache()), false);
+            asm.jeq(pass, cached, interfaceIDWord);
             asm.pload(CiKind.Int, mtableTemp, hub, asm.i(offsetOfMTableLength()), false);
             asm.mod(a, interfaceID, mtableTemp);
             asm.pload(CiKind.Int, mtableTemp, hub, asm.i(offsetOfMTableStartIndex()), false);
@@ -1476,6 +1518,7 @@ public class MaxXirGenerator implements RiXirGenerator {
             asm.pload(CiKind.Int, a, hub, a, offsetOfFirstArrayElement(), Scale.Times4, false);
             asm.pload(CiKind.Int, a, hub, a, offsetOfFirstArrayElement(), Scale.fromInt(Word.size()), false);
             asm.jneq(fail, a, interfaceID);
+            asm.pstore(WordUtil.archKind(), hub, asm.i(offsetOfSecondarySuperCache()), interfaceIDWord, false);
             asm.bindInline(pass);
             asm.bindOutOfLine(fail);
             callRuntimeThroughStub(asm, "throwClassCastException", null, checkedHub, object);
@@ -1487,6 +1530,28 @@ public class MaxXirGenerator implements RiXirGenerator {
         return new XirPair(resolved, unresolved);
     }
 
+    @HOSTED_ONLY
+    private XirTemplate buildCheckcastForPrimary() {
+        // resolved checkcast against a class with a primary supers display entry
+        asm.restart();
+        XirParameter object = asm.createInputParameter("object", CiKind.Object);
+        XirParameter typeIDWord = asm.createConstantInputParameter("typeIDWord", WordUtil.archKind());
+        XirParameter superOffset = asm.createConstantInputParameter("superOffset", CiKind.Int);
+        XirParameter checkedHub = asm.createConstantInputParameter("checkedHub", CiKind.Object);
+        XirOperand hub = asm.createTemp("hub", CiKind.Object);
+        XirOperand a = asm.createTemp("a", WordUtil.archKind());
+        XirLabel pass = asm.createInlineLabel("pass");
+        XirLabel fail = asm.createOutOfLineLabel("fail");
+        asm.jeq(pass, object, asm.o(null));
+        asm.pload(CiKind.Object, hub, object, asm.i(hubOffset()), true);
+        asm.pload(WordUtil.archKind(), a, hub, superOffset, false);
+        asm.jneq(fail, a, typeIDWord);
+        asm.bindInline(pass);
+        asm.bindOutOfLine(fail);
+        callRuntimeThroughStub(asm, "throwClassCastException", null, checkedHub, object);
+        return finishTemplate(asm, object, "checkcast-primary");
+    }
+
     @HOSTED_ONLY
     private XirTemplate buildUnresolvedCheckcast(boolean nonnull) {
         asm.restart();
@@ -1559,7 +1624,11 @@ public class MaxXirGenerator implements RiXirGenerator {
                 XirOperand mtableTemp = asm.createTemp("mtableTemp", CiKind.Int);
                 XirOperand a = asm.createTemp("a", CiKind.Int);
                 XirParameter typeID = asm.createConstantInputParameter("typeID", CiKind.Int);
+                XirParameter typeIDWord = asm.createConstantInputParameter("typeIDWord", WordUtil.archKind());
+                XirOperand cached = asm.createTemp("cached", WordUtil.archKind());
                 asm.jeq(trueSucc, objHub, checkedHub);
+                asm.pload(WordUtil.archKind(), cached, objHub, asm.i(offsetOfSecondarySuperCache()), false);
+                asm.jeq(trueSucc, cached, typeIDWord);
                 asm.pload(CiKind.Int, mtableTemp, objHub, asm.i(offsetOfMTableLength()), false);
                 asm.mod(a, typeID, mtableTemp);
                 asm.pload(CiKind.Int, mtableTemp, objHub, asm.i(offsetOfMTableStartIndex()), false);
@@ -1567,6 +1636,7 @@ public class MaxXirGenerator implements RiXirGenerator {
                 asm.pload(CiKind.Int, a, objHub, a, offsetOfFirstArrayElement(), Scale.Times4, false);
                 asm.pload(CiKind.Int, a, objHub, a, offsetOfFirstArrayElement(), Scale.fromInt(Word.size()), false);
                 asm.jneq(falseSucc, a, typeID);
+                asm.pstore(WordUtil.archKind(), objHub, asm.i(offsetOfSecondarySuperCache()), typeIDWord, false);
             } else {
                 asm.jneq(falseSucc, objHub, checkedHub);
             }
@@ -1587,6 +1657,34 @@ public class MaxXirGenerator implements RiXirGenerator {
         return new XirPair(resolved, unresolved);
     }
 
+    @HOSTED_ONLY
+    private XirTemplate buildMaterializeInstanceOfForPrimary() {
+        XirOperand result = asm.restart(CiKind.Int);
+        XirParameter object = asm.createInputParameter("object", CiKind.Object);
+        XirOperand trueValue = asm.createConstantInputParameter("trueValue", CiKind.Int);
+        XirOperand falseValue = asm.createConstantInputParameter("falseValue", CiKind.Int);
+        XirParameter typeIDWord = asm.createConstantInputParameter("typeIDWord", WordUtil.archKind());
+        XirParameter superOffset = asm.createConstantInputParameter("superOffset", CiKind.Int);
+        XirOperand objHub = asm.createTemp("objHub", CiKind.Object);
+        XirOperand a = asm.createTemp("a", WordUtil.archKind());
+        XirLabel falseSucc = asm.createInlineLabel("notOk");
+        XirLabel end = asm.createInlineLabel("end");
+
+        // null isn't "instanceof" anything
+        asm.jeq(falseSucc, object, asm.o(null));
+        asm.pload(CiKind.Object, objHub, object, asm.i(hubOffset()), false);
+        asm.pload(WordUtil.archKind(), a, objHub, superOffset, false);
+        asm.jneq(falseSucc, a, typeIDWord);
+        asm.mov(result, trueValue);
+        asm.jmp(end);
+
+        asm.bindInline(falseSucc);
+        asm.mov(result, falseValue);
+
+        asm.bindInline(end);
+        return finishTemplate(asm, "materializeInstanceOf-primary");
+    }
+
     @HOSTED_ONLY
     private XirTemplate buildUnresolvedMaterializeInstanceOf(boolean nonnull) {
         XirTemplate unresolved;
@@ -1646,11 +1744,13 @@ public class MaxXirGenerator implements RiXirGenerator {
             asm.restart(CiKind.Void);
             XirParameter object = asm.createInputParameter("object", CiKind.Object);
             XirParameter typeID = asm.createConstantInputParameter("typeID", CiKind.Int);
+            XirParameter typeIDWord = asm.createConstantInputParameter("typeIDWord", WordUtil.archKind());
             XirParameter checkedHub = asm.createConstantInputParameter("checkedHub", CiKind.Object);
             XirOperand hub = asm.createTemp("hub", CiKind.Object);
             XirOperand mtableLength = asm.createTemp("mtableLength", CiKind.Int);
             XirOperand mtableStartIndex = asm.createTemp("mtableStartIndex", CiKind.Int);
             XirOperand a = asm.createTemp("a", CiKind.Int);
+            XirOperand cached = asm.createTemp("cached", WordUtil.archKind());
 
             XirLabel trueSucc = asm.createInlineLabel(XirLabel.TrueSuccessor);
             XirLabel falseSucc = asm.createInlineLabel(XirLabel.FalseSuccessor);
@@ -1662,15 +1762,18 @@ public class MaxXirGenerator implements RiXirGenerator {
             }
             asm.pload(CiKind.Object, hub, object, asm.i(hubOffset()), !nonnull);
             asm.jeq(trueSucc, hub, checkedHub);
+            asm.pload(WordUtil.archKind(), cached, hub, asm.i(offsetOfSecondarySuperCache()), false);
+            asm.jeq(trueSucc, cached, typeIDWord);
             asm.pload(CiKind.Int, mtableLength, hub, asm.i(offsetOfMTableLength()), false);
             asm.pload(CiKind.Int, mtableStartIndex, hub, asm.i(offsetOfMTableStartIndex()), false);
             asm.mod(a, typeID, mtableLength);
             asm.add(a, a, mtableStartIndex);
             asm.pload(CiKind.Int, a, hub, a, offsetOfFirstArrayElement(), Scale.Times4, false);
             asm.pload(CiKind.Int, a, hub, a, offsetOfFirstArrayElement(), Scale.fromInt(Word.size()), false);
-            asm.jeq(trueSucc, a, typeID);
+            asm.jneq(falseSucc, a, typeID);
+            asm.pstore(WordUtil.archKind(), hub, asm.i(offsetOfSecondarySuperCache()), typeIDWord, false);
 
-            asm.jmp(falseSucc);
+            asm.jmp(trueSucc);
             resolved = finishTemplate(asm, "instanceof-interface<" + nonnull + ">");
         }
         {
@@ -1680,6 +1783,28 @@ public class MaxXirGenerator implements RiXirGenerator {
         return new XirPair(resolved, unresolved);
     }
 
+    @HOSTED_ONLY
+    private XirTemplate buildInstanceofForPrimary() {
+        // resolved instanceof for a class with a primary supers display entry
+        asm.restart(CiKind.Void);
+        XirParameter object = asm.createInputParameter("object", CiKind.Object);
+        XirParameter typeIDWord = asm.createConstantInputParameter("typeIDWord", WordUtil.archKind());
+        XirParameter superOffset = asm.createConstantInputParameter("superOffset", CiKind.Int);
+        XirOperand hub = asm.createTemp("hub", CiKind.Object);
+        XirOperand a = asm.createTemp("a", WordUtil.archKind());
+
+        XirLabel trueSucc = asm.createInlineLabel(XirLabel.TrueSuccessor);
+        XirLabel falseSucc = asm.createInlineLabel(XirLabel.FalseSuccessor);
+
+        asm.jeq(falseSucc, object, asm.o(null));
+        asm.pload(CiKind.Object, hub, object, asm.i(hubOffset()), true);
+        asm.pload(WordUtil.archKind(), a, hub, superOffset, false);
+        asm.jeq(trueSucc, a, typeIDWord);
+
+        asm.jmp(falseSucc);
+        return finishTemplate(asm, "instanceof-primary");
+    }
+
     @HOSTED_ONLY
     private XirTemplate buildUnresolvedInstanceOf(boolean nonnull) {
         XirTemplate unresolved;
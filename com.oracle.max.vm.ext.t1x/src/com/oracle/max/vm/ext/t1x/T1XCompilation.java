@@ -1297,6 +1297,7 @@ public abstract class T1XCompilation {
             case Bytecodes.INVOKESTATIC       : do_invokestatic(stream.readCPI()); break;
             case Bytecodes.INVOKEVIRTUAL      : do_invokevirtual(stream.readCPI()); break;
             case Bytecodes.INVOKEINTERFACE    : do_invokeinterface(stream.readCPI()); break;
+            case Bytecodes.INVOKEDYNAMIC      : do_invokedynamic(stream.readCPI()); break;
             case Bytecodes.NEWARRAY           : do_newarray(stream.readLocalIndex()); break;
             case Bytecodes.LDC                : do_ldc(stream.readCPI()); break;
             case Bytecodes.LDC_W              : do_ldc(stream.readCPI()); break;
@@ -1908,6 +1909,34 @@ public abstract class T1XCompilation {
         finishCall(tag, kind, safepoint, null);
     }
 
+    /**
+     * An {@code invokedynamic} is compiled as an {@code invokestatic} of the method its call site is linked to.
+     * The call site is never linked at compile time as that would run the bootstrap method early.
+     */
+    protected void do_invokedynamic(int index) {
+        InvokeDynamicConstant callSite = cp.invokeDynamicAt(index);
+        Kind kind = invokeKind(callSite.signature(cp));
+        T1XTemplateTag tag = INVOKESTATICS.get(kind.asEnum);
+        do_profileExceptionSeen();
+        if (callSite.isResolved()) {
+            StaticMethodActor staticMethodActor = callSite.resolve(cp, index);
+            if (staticMethodActor.holder().isInitialized()) {
+                do_invokestatic_resolved(tag, staticMethodActor);
+
+                int safepoint = callDirect();
+                finishCall(tag, kind, safepoint, staticMethodActor);
+                return;
+            }
+        }
+        start(tag);
+        CiRegister target = template.sig.out.reg;
+        assignObject(0, "guard", cp.makeResolutionGuard(index));
+        finish();
+
+        int safepoint = callIndirect(target, -1);
+        finishCall(tag, kind, safepoint, null);
+    }
+
     protected boolean processIntrinsic(MethodActor method) {
         String intrinsic = method.intrinsic();
 
@@ -2184,6 +2213,28 @@ public abstract class T1XCompilation {
                 do_oconst(stringConstant.value);
                 break;
             }
+            case METHOD_HANDLE: {
+                MethodHandleConstant methodHandleConstant = (MethodHandleConstant) constant;
+                if (methodHandleConstant.isResolved()) {
+                    do_oconst(methodHandleConstant.resolve(cp));
+                } else {
+                    start(LDC$value);
+                    assignObject(0, "guard", cp.makeResolutionGuard(index));
+                    finish();
+                }
+                break;
+            }
+            case METHOD_TYPE: {
+                MethodTypeConstant methodTypeConstant = (MethodTypeConstant) constant;
+                if (methodTypeConstant.isResolved()) {
+                    do_oconst(methodTypeConstant.resolve(cp));
+                } else {
+                    start(LDC$value);
+                    assignObject(0, "guard", cp.makeResolutionGuard(index));
+                    finish();
+                }
+                break;
+            }
             default: {
                 assert false : "ldc for unexpected constant tag: " + constant.tag();
                 break;
@@ -36,6 +36,31 @@ public class T1XMetrics {
     public static int CodeBytesEmitted;
     public static int Bailouts;
 
+    /**
+     * Number of target methods whose reference maps were computed by interpreting their bytecode.
+     */
+    public static int RefMapsFinalized;
+
+    /**
+     * Number of bytes of reference maps computed by interpreting bytecode.
+     */
+    public static long RefMapBytesFinalized;
+
+    /**
+     * Time spent interpreting bytecode to compute reference maps, in nanoseconds.
+     */
+    public static long RefMapFinalizationNanos;
+
+    /**
+     * Number of T1X frames whose reference map was prepared from already computed reference maps.
+     */
+    public static long RefMapHits;
+
+    /**
+     * Number of T1X frames whose reference map had to be computed first.
+     */
+    public static long RefMapMisses;
+
     public static void print() {
         TTY.printFields(T1XMetrics.class);
 
@@ -64,7 +64,7 @@ public final class T1XOptions {
         map.put("PrintCompilation",
                 "Print message for each T1X compilation.");
         map.put("PrintMetrics",
-                "Print T1X compilation metrics upon VM exit.");
+                "Print T1X compilation and reference map metrics upon VM exit.");
         map.put("PrintTimers",
                 "Print T1X compilation times upon VM exit.");
         map.put("PrintFilter",
@@ -589,7 +589,11 @@ public class T1XTargetMethod extends TargetMethod {
                 // this thread is preparing ref maps during ref map verification (i.e. -XX:+VerifyRefMaps).
                 boolean mustReenableSafepoints = !SafepointPoll.disable();
 
+                long start = System.nanoTime();
                 referenceMapEditor.fillInMaps();
+                T1XMetrics.RefMapFinalizationNanos += System.nanoTime() - start;
+                T1XMetrics.RefMapsFinalized++;
+                T1XMetrics.RefMapBytesFinalized += refMaps.length;
                 this.refMapEditor.set(null);
 
                 if (mustReenableSafepoints) {
@@ -758,7 +762,12 @@ public class T1XTargetMethod extends TargetMethod {
 
     @Override
     public void prepareReferenceMap(StackFrameCursor current, StackFrameCursor callee, FrameReferenceMapVisitor preparer) {
-        finalizeReferenceMaps();
+        if (refMapEditor.get() == null) {
+            T1XMetrics.RefMapHits++;
+        } else {
+            T1XMetrics.RefMapMisses++;
+            finalizeReferenceMaps();
+        }
 
         CiCalleeSaveLayout csl = callee.csl();
         Pointer csa = callee.csa();
@@ -915,9 +924,15 @@ public class T1XTargetMethod extends TargetMethod {
         }
     }
 
+    /**
+     * Computes the state of the frame pointer at a given instruction.
+     *
+     * @param ip an instruction in this method
+     * @param byteAtIP the first byte of the instruction at {@code ip}
+     * @param lastPrologueInstr the last instruction of the prologue (after any adapter prologue)
+     */
     @PLATFORM(cpu = "amd64")
-    @HOSTED_ONLY
-    private FramePointerStateAMD64 computeFramePointerState(StackFrameCursor current, StackFrameWalker stackFrameWalker, CodePointer lastPrologueInstr) {
+    private static FramePointerStateAMD64 computeFramePointerState(CodePointer ip, byte byteAtIP, CodePointer lastPrologueInstr) {
         // Checkstyle: stop
         final byte ENTER = (byte) 0xC8;
         final byte LEAVE = (byte) 0xC9;
@@ -927,9 +942,6 @@ public class T1XTargetMethod extends TargetMethod {
         final byte RET2 = (byte) 0xC2;
         // Checkstyle: resume
 
-
-        CodePointer ip = current.vmIP();
-        byte byteAtIP = stackFrameWalker.readByte(ip.toPointer(), 0);
         if (ip.toPointer().lessThan(lastPrologueInstr.toPointer()) || byteAtIP == ENTER || byteAtIP == RET || byteAtIP == RET2) {
             return FramePointerStateAMD64.CALLER_FRAME_IN_RBP;
         }
@@ -956,7 +968,7 @@ public class T1XTargetMethod extends TargetMethod {
                 startOfPrologue = codeStart();
             }
             CodePointer lastPrologueInstruction = startOfPrologue.plus(FramePointerStateAMD64.OFFSET_TO_LAST_PROLOGUE_INSTRUCTION);
-            FramePointerStateAMD64 framePointerState = computeFramePointerState(current, sfw, lastPrologueInstruction);
+            FramePointerStateAMD64 framePointerState = computeFramePointerState(current.vmIP(), sfw.readByte(current.vmIP().toPointer(), 0), lastPrologueInstruction);
             localVariablesBase = framePointerState.localVariablesBase(current);
             StackFrame stackFrame = new AMD64JVMSFrame(sfw.calleeStackFrame(), current.targetMethod(), current.vmIP().toPointer(), current.sp(), localVariablesBase, localVariablesBase);
             return visitor.visitFrame(stackFrame);
@@ -986,7 +998,7 @@ public class T1XTargetMethod extends TargetMethod {
                 }
 
                 CodePointer lastPrologueInstruction = startOfPrologue.plus(FramePointerStateAMD64.OFFSET_TO_LAST_PROLOGUE_INSTRUCTION);
-                FramePointerStateAMD64 framePointerState = computeFramePointerState(current, sfw, lastPrologueInstruction);
+                FramePointerStateAMD64 framePointerState = computeFramePointerState(current.vmIP(), sfw.readByte(current.vmIP().toPointer(), 0), lastPrologueInstruction);
                 returnRIP = framePointerState.returnIP(current);
                 callerFP = framePointerState.callerFP(current);
 
@@ -1009,6 +1021,20 @@ public class T1XTargetMethod extends TargetMethod {
         }
     }
 
+    @Override
+    public boolean isFrameComplete(CodePointer ip) {
+        if (isAMD64()) {
+            CodePointer startOfPrologue = codeAt(AdapterGenerator.prologueSizeForCallee(this));
+            if (ip.toPointer().lessThan(startOfPrologue.toPointer())) {
+                // in the adapter prologue
+                return false;
+            }
+            CodePointer lastPrologueInstruction = startOfPrologue.plus(FramePointerStateAMD64.OFFSET_TO_LAST_PROLOGUE_INSTRUCTION);
+            return computeFramePointerState(ip, ip.toPointer().readByte(0), lastPrologueInstruction) == FramePointerStateAMD64.IN_RBP;
+        }
+        return false;
+    }
+
     @Override
     public Pointer returnAddressPointer(StackFrameCursor frame) {
         if (isAMD64()) {
@@ -136,6 +136,15 @@ public class T1XTemplateSource {
         return classActor.javaClass();
     }
 
+    /**
+     * Template for an {@code ldc} of a {@code CONSTANT_MethodHandle} or {@code CONSTANT_MethodType} entry that
+     * was not yet resolved when the method was compiled.
+     */
+    @T1X_TEMPLATE(LDC$value)
+    public static Object ldcValue(ResolutionGuard.InPool guard) {
+        return guard.pool.methodHandleOrTypeAt(guard.cpi);
+    }
+
     /**
      * Helper template that pops the dimensions of a multianewarray off the stack
      * into an int[] array. The array is returned in the (platform-dependent) register
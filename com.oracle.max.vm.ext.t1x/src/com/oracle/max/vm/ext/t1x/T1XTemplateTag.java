@@ -63,6 +63,7 @@ public enum T1XTemplateTag {
     LDC$double,
     LDC$reference,
     LDC$reference$resolved,
+    LDC$value,
     ILOAD,
     LLOAD,
     FLOAD,
@@ -218,7 +218,7 @@ public enum VMABytecodes {
     INVOKESPECIAL(Bytecodes.INVOKESPECIAL, "InvokeSpecial"),
     INVOKESTATIC(Bytecodes.INVOKESTATIC, "InvokeStatic"),
     INVOKEINTERFACE(Bytecodes.INVOKEINTERFACE, "InvokeInterface"),
-    XXXUNUSEDXXX(Bytecodes.XXXUNUSEDXXX, "Bytecode"),
+    INVOKEDYNAMIC(Bytecodes.INVOKEDYNAMIC, "Bytecode"),
     NEW(Bytecodes.NEW, "New"),
     NEWARRAY(Bytecodes.NEWARRAY, "NewArray"),
     ANEWARRAY(Bytecodes.ANEWARRAY, "NewArray"),
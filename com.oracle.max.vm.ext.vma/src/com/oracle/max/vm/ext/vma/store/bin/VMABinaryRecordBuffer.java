@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.max.vm.ext.vma.store.bin;
+
+import static com.oracle.max.vm.ext.vma.store.bin.VMABinaryStoreFormat.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.util.*;
+
+import com.oracle.max.vm.ext.vma.store.txt.sbps.*;
+
+/**
+ * An {@link SBPSRecordBuffer} that encodes records in the {@link VMABinaryStoreFormat binary format} directly into a
+ * memory-mapped file. The file is mapped in segments of the store buffer size; when a segment is full the next one is
+ * mapped at the current end of the file, so records are appended without any intermediate copy or system call.
+ * A full segment is {@linkplain VMABinaryStoreFormat#unmap unmapped} as soon as the next one is mapped.
+ *
+ * A field is accumulated until the following {@code ' '} or the end of the record. A field that consists of a single
+ * scalar append, or of text that is the canonical form of a {@code long}, is written as a number; all other fields are
+ * written as strings, with repeated strings replaced by their index in the string table. The string table is
+ * {@linkplain VMABinaryStoreFormat#RESET_STRINGS reset} when it reaches {@link VMABinaryStoreFormat#MAX_STRINGS} strings.
+ *
+ * The buffer is unsynchronized, like {@link SBPSVMAIdTextStore}.
+ */
+public class VMABinaryRecordBuffer extends SBPSRecordBuffer {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * State of the current field.
+     */
+    private enum Field {
+        EMPTY, LONG, FLOAT, DOUBLE, TEXT;
+    }
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int segmentSize;
+
+    /**
+     * File position of the start of {@link #buf}.
+     */
+    private long segmentBase;
+    private MappedByteBuffer buf;
+
+    private Field field = Field.EMPTY;
+    private long longValue;
+    private float floatValue;
+    private double doubleValue;
+    private final StringBuilder text = new StringBuilder();
+
+    private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+    public VMABinaryRecordBuffer(File file, int segmentSize) throws IOException {
+        this.file = new RandomAccessFile(file, "rw");
+        this.channel = this.file.getChannel();
+        this.segmentSize = Math.max(segmentSize, 4096);
+        buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, this.segmentSize);
+        buf.putInt(MAGIC);
+        buf.putInt(VERSION);
+    }
+
+    /**
+     * Ensures that there are at least {@code n} bytes available in the current segment.
+     */
+    private void ensure(int n) {
+        if (buf.remaining() < n) {
+            segmentBase += buf.position();
+            MappedByteBuffer full = buf;
+            try {
+                buf = channel.map(FileChannel.MapMode.READ_WRITE, segmentBase, Math.max(segmentSize, n));
+            } catch (IOException ex) {
+                throw new IllegalStateException("failed to extend VMA store", ex);
+            }
+            // the mapping is shared, so the data is already in the file
+            unmap(full);
+        }
+    }
+
+    /**
+     * Converts the current field to text, so that a further append is concatenated with it.
+     */
+    private void toText() {
+        switch (field) {
+            case LONG: text.append(longValue); break;
+            case FLOAT: text.append(floatValue); break;
+            case DOUBLE: text.append(doubleValue); break;
+            default:
+        }
+        field = Field.TEXT;
+    }
+
+    @Override
+    public SBPSRecordBuffer append(char c) {
+        if (c == ' ') {
+            endField();
+        } else {
+            toText();
+            text.append(c);
+        }
+        return this;
+    }
+
+    @Override
+    public SBPSRecordBuffer append(String s) {
+        toText();
+        text.append(s);
+        return this;
+    }
+
+    @Override
+    public SBPSRecordBuffer append(long l) {
+        if (field == Field.EMPTY) {
+            field = Field.LONG;
+            longValue = l;
+        } else {
+            toText();
+            text.append(l);
+        }
+        return this;
+    }
+
+    @Override
+    public SBPSRecordBuffer append(int i) {
+        return append((long) i);
+    }
+
+    @Override
+    public SBPSRecordBuffer append(float f) {
+        if (field == Field.EMPTY) {
+            field = Field.FLOAT;
+            floatValue = f;
+        } else {
+            toText();
+            text.append(f);
+        }
+        return this;
+    }
+
+    @Override
+    public SBPSRecordBuffer append(double d) {
+        if (field == Field.EMPTY) {
+            field = Field.DOUBLE;
+            doubleValue = d;
+        } else {
+            toText();
+            text.append(d);
+        }
+        return this;
+    }
+
+    @Override
+    public SBPSRecordBuffer append(boolean b) {
+        toText();
+        text.append(b);
+        return this;
+    }
+
+    /**
+     * The data is in the mapped file as soon as it is written, so {@code flushAt} is ignored.
+     */
+    @Override
+    public void endRecord(int flushAt) {
+        endField();
+        ensure(1);
+        buf.put((byte) END_RECORD);
+    }
+
+    @Override
+    public void close() {
+        try {
+            ensure(1);
+            buf.put((byte) END_RECORD);
+            long length = segmentBase + buf.position();
+            buf.force();
+            unmap(buf);
+            buf = null;
+            channel.truncate(length);
+            file.close();
+        } catch (IOException ex) {
+            System.err.println("failed to close VMA store: " + ex);
+        }
+    }
+
+    private void endField() {
+        ensure(MAX_SCALAR_SIZE);
+        switch (field) {
+            case EMPTY:
+                buf.put((byte) EMPTY);
+                break;
+            case LONG:
+                putLong(longValue);
+                break;
+            case FLOAT:
+                buf.put((byte) FLOAT);
+                buf.putInt(Float.floatToRawIntBits(floatValue));
+                break;
+            case DOUBLE:
+                buf.put((byte) DOUBLE);
+                buf.putLong(Double.doubleToRawLongBits(doubleValue));
+                break;
+            case TEXT:
+                putText();
+                break;
+        }
+        field = Field.EMPTY;
+    }
+
+    private void putLong(long value) {
+        if (value >= 0 && value <= SMALL_MAX) {
+            buf.put((byte) (SMALL_BASE + value));
+        } else {
+            buf.put((byte) LONG);
+            putVarLong(buf, value);
+        }
+    }
+
+    private void putText() {
+        if (isCanonicalLong(text)) {
+            putLong(Long.parseLong(text.toString()));
+        } else {
+            String s = text.toString();
+            Integer index = strings.get(s);
+            if (index != null) {
+                buf.put((byte) STRING_REF);
+                putVarLong(buf, index);
+            } else {
+                if (strings.size() == MAX_STRINGS) {
+                    buf.put((byte) RESET_STRINGS);
+                    strings.clear();
+                    ensure(MAX_SCALAR_SIZE);
+                }
+                strings.put(s, strings.size());
+                byte[] bytes = s.getBytes(UTF8);
+                buf.put((byte) STRING);
+                putVarLong(buf, bytes.length);
+                ensure(bytes.length);
+                buf.put(bytes);
+            }
+        }
+        text.setLength(0);
+    }
+
+    /**
+     * Determines whether {@code s} is exactly what {@link Long#toString(long)} would produce for some value,
+     * so that it can be stored as a number without changing the text that is read back.
+     */
+    private static boolean isCanonicalLong(CharSequence s) {
+        int length = s.length();
+        int start = length > 0 && s.charAt(0) == '-' ? 1 : 0;
+        int digits = length - start;
+        if (digits == 0 || digits > 18 || (s.charAt(start) == '0' && (digits > 1 || start == 1))) {
+            return false;
+        }
+        for (int i = start; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.max.vm.ext.vma.store.bin;
+
+import java.io.*;
+
+import com.oracle.max.vm.ext.vma.store.*;
+import com.oracle.max.vm.ext.vma.store.txt.sbps.*;
+
+/**
+ * A variant of {@link SBPSVMATextStore} that writes the same records in the compact
+ * {@link VMABinaryStoreFormat binary format} using a {@link VMABinaryRecordBuffer}.
+ * In per-thread mode each thread appends to its own memory-mapped file, so there is no
+ * sharing between threads on the output path.
+ *
+ * Select with {@code -Dmax.vma.store.class=com.oracle.max.vm.ext.vma.store.bin.VMABinaryStore},
+ * see {@link VMAStoreFactory}.
+ */
+public class VMABinaryStore extends SBPSVMATextStore {
+
+    public VMABinaryStore() {
+    }
+
+    protected VMABinaryStore(String threadName) {
+        super(threadName);
+    }
+
+    @Override
+    protected SBPSVMATextStore createThreadStore(String threadName) {
+        return new VMABinaryStore(threadName);
+    }
+
+    @Override
+    protected SBPSRecordBuffer createRecordBuffer(File file, int bufSize) throws IOException {
+        return new VMABinaryRecordBuffer(file, bufSize);
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.max.vm.ext.vma.store.bin;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.*;
+
+/**
+ * The format of the files written by {@link VMABinaryStore}.
+ *
+ * A file starts with {@link #MAGIC} and {@link #VERSION}, each a big-endian int, and is followed by a sequence of
+ * records. A record is the sequence of its fields, i.e. exactly the space separated components that the text store
+ * would have written on one line, terminated by {@link #END_RECORD}. Each field starts with a tag byte:
+ * <ul>
+ * <li>A tag of {@link #SMALL_BASE} or above is a non-negative integer field with value {@code tag - SMALL_BASE}.
+ * This covers most relative times, bytecode indices and short forms.</li>
+ * <li>{@link #LONG} is followed by a zig-zag encoded {@link #putVarLong varint}.</li>
+ * <li>{@link #FLOAT} and {@link #DOUBLE} are followed by the raw bits of the value.</li>
+ * <li>{@link #STRING} is followed by the varint length of the UTF-8 encoding of the string and the encoding. The
+ * string is implicitly assigned the next index in the file's string table.</li>
+ * <li>{@link #STRING_REF} is followed by the varint index of a string already in the string table.</li>
+ * <li>{@link #EMPTY} denotes the empty string.</li>
+ * <li>{@link #RESET_STRINGS} is not a field: it empties the string table, so that the next {@link #STRING} gets index 0.
+ * The writer emits it before adding a string to a table of {@link #MAX_STRINGS} strings, which bounds the memory used
+ * by the string table of both the writer and the reader.</li>
+ * </ul>
+ * An {@link #END_RECORD} at the start of a record terminates the file; this also covers the zero-filled
+ * tail of a file that was not closed properly.
+ */
+public class VMABinaryStoreFormat {
+    public static final int MAGIC = 0x564d4142; // "VMAB"
+    public static final int VERSION = 2;
+    public static final int HEADER_SIZE = 8;
+
+    public static final int END_RECORD = 0;
+    public static final int LONG = 1;
+    public static final int FLOAT = 2;
+    public static final int DOUBLE = 3;
+    public static final int STRING = 4;
+    public static final int STRING_REF = 5;
+    public static final int EMPTY = 6;
+    public static final int RESET_STRINGS = 7;
+    public static final int SMALL_BASE = 8;
+    public static final int SMALL_MAX = 0xFF - SMALL_BASE;
+
+    /**
+     * The maximum number of bytes in a tag and a varint or raw scalar value.
+     */
+    public static final int MAX_SCALAR_SIZE = 11;
+
+    /**
+     * The maximum number of strings in a string table.
+     */
+    public static final int MAX_STRINGS = 64 * 1024;
+
+    public static void putVarLong(ByteBuffer buf, long value) {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            buf.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buf.put((byte) v);
+    }
+
+    public static long getVarLong(ByteBuffer buf) {
+        long v = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = buf.get();
+            v |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * Releases the mapping of {@code buf} now rather than when the buffer is garbage collected. The store files are
+     * mapped one segment at a time, so without this every segment of a long run stays mapped until a GC finds the
+     * buffer. If the mapping cannot be released explicitly it is left to the GC. The buffer must not be used after
+     * this call.
+     */
+    public static void unmap(MappedByteBuffer buf) {
+        try {
+            Method cleanerMethod = buf.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buf);
+            if (cleaner != null) {
+                Method cleanMethod = cleaner.getClass().getMethod("clean");
+                cleanMethod.setAccessible(true);
+                cleanMethod.invoke(cleaner);
+            }
+        } catch (Exception ex) {
+            // not a JDK that exposes the cleaner
+        }
+    }
+
+    /**
+     * Determines whether {@code file} was written by {@link VMABinaryStore}.
+     */
+    public static boolean isBinaryStore(File file) {
+        if (!file.isFile() || file.length() < HEADER_SIZE) {
+            return false;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new FileInputStream(file));
+            try {
+                return in.readInt() == MAGIC;
+            } finally {
+                in.close();
+            }
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+}
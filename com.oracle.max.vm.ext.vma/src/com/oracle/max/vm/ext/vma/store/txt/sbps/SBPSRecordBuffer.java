@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.max.vm.ext.vma.store.txt.sbps;
+
+import java.io.*;
+
+/**
+ * The destination of the records written by {@link SBPSVMAIdTextStore}.
+ *
+ * A record is built by a sequence of {@code append} calls, where an appended {@code ' '} separates the
+ * fields of the record, and is completed by {@link #endRecord}. The default implementation, {@link Text},
+ * formats the record into a {@link StringBuilder} and flushes it to a {@link PrintStream}, but subclasses
+ * may choose a different representation provided that a reader can reconstruct the same fields.
+ */
+public abstract class SBPSRecordBuffer {
+
+    public abstract SBPSRecordBuffer append(char c);
+
+    public abstract SBPSRecordBuffer append(String s);
+
+    public abstract SBPSRecordBuffer append(long l);
+
+    public abstract SBPSRecordBuffer append(int i);
+
+    public abstract SBPSRecordBuffer append(float f);
+
+    public abstract SBPSRecordBuffer append(double d);
+
+    public abstract SBPSRecordBuffer append(boolean b);
+
+    /**
+     * Terminates the current record.
+     * @param flushAt number of buffered bytes at (or beyond) which the buffer should be written to the store
+     */
+    public abstract void endRecord(int flushAt);
+
+    /**
+     * Flushes any buffered records and closes the store.
+     */
+    public abstract void close();
+
+    /**
+     * The textual representation, one record per line.
+     */
+    public static class Text extends SBPSRecordBuffer {
+        private final PrintStream ps;
+        private final StringBuilder sb;
+
+        public Text(File file, int bufSize) throws IOException {
+            ps = new PrintStream(new FileOutputStream(file));
+            sb = new StringBuilder(bufSize);
+        }
+
+        @Override
+        public SBPSRecordBuffer append(char c) {
+            sb.append(c);
+            return this;
+        }
+
+        @Override
+        public SBPSRecordBuffer append(String s) {
+            sb.append(s);
+            return this;
+        }
+
+        @Override
+        public SBPSRecordBuffer append(long l) {
+            sb.append(l);
+            return this;
+        }
+
+        @Override
+        public SBPSRecordBuffer append(int i) {
+            sb.append(i);
+            return this;
+        }
+
+        @Override
+        public SBPSRecordBuffer append(float f) {
+            sb.append(f);
+            return this;
+        }
+
+        @Override
+        public SBPSRecordBuffer append(double d) {
+            sb.append(d);
+            return this;
+        }
+
+        @Override
+        public SBPSRecordBuffer append(boolean b) {
+            sb.append(b);
+            return this;
+        }
+
+        @Override
+        public void endRecord(int flushAt) {
+            sb.append('\n');
+            if (sb.length() >= flushAt) {
+                ps.print(sb);
+                ps.flush();
+                sb.setLength(0);
+            }
+        }
+
+        @Override
+        public void close() {
+            ps.print(sb);
+            sb.setLength(0);
+            ps.close();
+        }
+    }
+
+}
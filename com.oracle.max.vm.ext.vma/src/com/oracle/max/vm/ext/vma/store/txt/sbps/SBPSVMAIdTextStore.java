@@ -37,6 +37,8 @@ import com.sun.max.vm.runtime.*;
 
 /**
  * An implementation of {@link VMATextStore} and {@link VMAIdTextStoreIntf} using a {@link PrintStream} and {@link StringBuilder}.
+ * The records are actually written to an {@link SBPSRecordBuffer}, which a subclass can replace with
+ * a different representation by overriding {@link #createRecordBuffer}.
  *
  * The default {@link StringBuilder buffer size} is {@link DEFAULT_BUFSIZE} but this can be changed
  * with the {@link BUFSIZE_PROPERTY} system property. The buffer is normally flushed when it is full,
@@ -94,9 +96,8 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
      */
     private int bufSize = DEFAULT_BUFSIZE;
 
-    private PrintStream ps;
+    protected SBPSRecordBuffer sb;
 
-    protected StringBuilder sb;
     /**
      * Holds time of last record written for relative time generation.
      */
@@ -153,7 +154,7 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
         }
     }
 
-    StringBuilder sb() {
+    SBPSRecordBuffer sb() {
         return sb;
     }
 
@@ -180,15 +181,14 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     }
 
     /**
-     * Creates a {@link PrintStream} and a {@link StringBuilder}.
+     * Creates the {@link SBPSRecordBuffer} for the store.
      * @param fileName to use for store
      * @return {@code true} iff the persistent store was created ok
      */
     private static boolean createPersistentStore(SBPSVMAIdTextStore store, String fileName) {
         File file = new File(storeFileDir, fileName);
         try {
-            store.ps = new PrintStream(new FileOutputStream(file));
-            store.sb = new StringBuilder(store.bufSize);
+            store.sb = store.createRecordBuffer(file, store.bufSize);
             // Format log buffer with header information
             store.appendStoreHeader();
             return true;
@@ -212,6 +212,15 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
         }
     }
 
+    /**
+     * Creates the buffer that records are written to, by default an {@link SBPSRecordBuffer.Text}.
+     * @param file the store file
+     * @param bufSize the buffer size
+     */
+    protected SBPSRecordBuffer createRecordBuffer(File file, int bufSize) throws IOException {
+        return new SBPSRecordBuffer.Text(file, bufSize);
+    }
+
     private void appendStoreHeader() {
         appendCode(INITIALIZE_STORE);
         appendSpace();
@@ -272,7 +281,7 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
         appendTime(timeMode.getTime());
         flushLogAt = 0; // force ps.flush
         end();
-        ps.close();
+        sb.close();
     }
 
     /*
@@ -334,12 +343,7 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     }
 
     protected void end() {
-        sb.append('\n');
-        if (sb.length()  >= flushLogAt) {
-            ps.print(sb);
-            ps.flush();
-            sb.setLength(0);
-        }
+        sb.endRecord(flushLogAt);
         done = true;
     }
 
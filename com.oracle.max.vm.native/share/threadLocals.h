@@ -118,7 +118,8 @@ extern void threadLocalsBlock_destroy(Address tlBlock);
     macro(TRAP_FAULT_ADDRESS, 16) \
     macro(TRAP_LATCH_REGISTER, 17) \
     macro(STACK_REFERENCE_MAP, 21) \
-    macro(STACK_REFERENCE_MAP_SIZE, 22)
+    macro(STACK_REFERENCE_MAP_SIZE, 22) \
+    macro(PROFILER_NATIVE_TICKS, 23)
 
 #define DECLARE_THREAD_LOCAL(name, index) name = index,
 typedef enum ThreadLocal {
@@ -40,6 +40,13 @@
 #include <sys/sysctl.h>
 #endif
 
+#if os_LINUX
+#include <stdio.h>
+#include <sched.h>
+#include <pthread.h>
+#include <sys/syscall.h>
+#endif
+
 /* There is a problem binding these identifiers in RedHat's include files, so we fake them: */
 #if os_LINUX
 #   ifndef MAP_ANONYMOUS
@@ -54,6 +61,15 @@
 #   ifndef MAP_32BIT
 #       define MAP_32BIT        0x40
 #   endif
+#   ifndef MAP_HUGETLB
+#       define MAP_HUGETLB      0x40000
+#   endif
+#   ifndef MAP_FIXED_NOREPLACE
+#       define MAP_FIXED_NOREPLACE 0x100000
+#   endif
+#   ifndef MADV_HUGEPAGE
+#       define MADV_HUGEPAGE    14
+#   endif
 #else
     /* TODO */
 #   ifndef MAP_32BIT
@@ -231,6 +247,345 @@ Size virtualMemory_getPhysicalMemorySize(void) {
     return physicalMemory;
 }
 
+/*
+ * NUMA support. The memory policy system calls are invoked directly so as not to depend on libnuma.
+ */
+#if os_LINUX
+#define NUMA_MPOL_PREFERRED       1
+#define NUMA_MPOL_INTERLEAVE      3
+#define NUMA_MPOL_F_MEMS_ALLOWED  (1 << 2)
+#define NUMA_MAX_NODES            1024
+#define NUMA_BITS_PER_WORD        (8 * sizeof(unsigned long))
+
+typedef unsigned long NodeMask[NUMA_MAX_NODES / NUMA_BITS_PER_WORD];
+#endif
+
+/*
+ * Gets the number of NUMA nodes memory can be allocated from, which is 1 if the platform is not NUMA.
+ */
+jint virtualMemory_numaNodeCount(void) {
+#if os_LINUX
+    NodeMask mask;
+    memset(mask, 0, sizeof(mask));
+    if (syscall(SYS_get_mempolicy, NULL, mask, NUMA_MAX_NODES, NULL, NUMA_MPOL_F_MEMS_ALLOWED) != 0) {
+        return 1;
+    }
+    int node;
+    for (node = NUMA_MAX_NODES - 1; node > 0; node--) {
+        if (mask[node / NUMA_BITS_PER_WORD] & (1UL << (node % NUMA_BITS_PER_WORD))) {
+            break;
+        }
+    }
+    return node + 1;
+#else
+    return 1;
+#endif
+}
+
+/*
+ * Gets the NUMA node of the CPU the current thread runs on, or -1 if it cannot be determined.
+ */
+jint virtualMemory_numaCurrentNode(void) {
+#if os_LINUX
+    unsigned int cpu;
+    unsigned int node;
+    if (syscall(SYS_getcpu, &cpu, &node, NULL) != 0) {
+        return -1;
+    }
+    return (jint) node;
+#else
+    return -1;
+#endif
+}
+
+/*
+ * Sets the memory policy of a range of virtual memory so that its pages are preferably allocated on the given node.
+ * The policy only applies to pages not yet touched.
+ */
+jboolean virtualMemory_numaBindToNode(Address address, Size size, jint node) {
+#if os_LINUX
+    NodeMask mask;
+    if (node < 0 || node >= NUMA_MAX_NODES) {
+        return false;
+    }
+    memset(mask, 0, sizeof(mask));
+    mask[node / NUMA_BITS_PER_WORD] = 1UL << (node % NUMA_BITS_PER_WORD);
+    if (syscall(SYS_mbind, (void *) address, (unsigned long) size, NUMA_MPOL_PREFERRED, mask, NUMA_MAX_NODES, 0) != 0) {
+        log_println("virtualMemory_numaBindToNode(%p, %ld, %d) failed: %s", address, size, node, strerror(errno));
+        return false;
+    }
+    return true;
+#else
+    return false;
+#endif
+}
+
+/*
+ * Sets the memory policy of a range of virtual memory so that its pages are interleaved across the first numNodes nodes.
+ */
+jboolean virtualMemory_numaInterleave(Address address, Size size, jint numNodes) {
+#if os_LINUX
+    NodeMask mask;
+    int node;
+    if (numNodes <= 0 || numNodes > NUMA_MAX_NODES) {
+        return false;
+    }
+    memset(mask, 0, sizeof(mask));
+    for (node = 0; node < numNodes; node++) {
+        mask[node / NUMA_BITS_PER_WORD] |= 1UL << (node % NUMA_BITS_PER_WORD);
+    }
+    if (syscall(SYS_mbind, (void *) address, (unsigned long) size, NUMA_MPOL_INTERLEAVE, mask, NUMA_MAX_NODES, 0) != 0) {
+        log_println("virtualMemory_numaInterleave(%p, %ld, %d) failed: %s", address, size, numNodes, strerror(errno));
+        return false;
+    }
+    return true;
+#else
+    return false;
+#endif
+}
+
+/*
+ * Restricts the current thread to the CPUs of the given NUMA node.
+ */
+jboolean virtualMemory_numaBindCurrentThreadToNode(jint node) {
+#if os_LINUX
+    char path[64];
+    FILE *cpuList;
+    cpu_set_t cpus;
+    int first;
+    int last;
+    int cpu;
+    int c;
+
+    snprintf(path, sizeof(path), "/sys/devices/system/node/node%d/cpulist", (int) node);
+    cpuList = fopen(path, "r");
+    if (cpuList == NULL) {
+        return false;
+    }
+    CPU_ZERO(&cpus);
+    /* The list has the form "0-3,8-11" */
+    while (fscanf(cpuList, "%d", &first) == 1) {
+        last = first;
+        c = fgetc(cpuList);
+        if (c == '-') {
+            if (fscanf(cpuList, "%d", &last) != 1) {
+                break;
+            }
+            c = fgetc(cpuList);
+        }
+        for (cpu = first; cpu <= last && cpu < CPU_SETSIZE; cpu++) {
+            CPU_SET(cpu, &cpus);
+        }
+        if (c != ',') {
+            break;
+        }
+    }
+    fclose(cpuList);
+    if (CPU_COUNT(&cpus) == 0) {
+        return false;
+    }
+    return sched_setaffinity(0, sizeof(cpus), &cpus) == 0;
+#else
+    return false;
+#endif
+}
+
+/*
+ * Huge page support.
+ */
+static Size hugePageSize = 0;
+
+/*
+ * Gets the default size of explicit huge pages, or 0 if the platform doesn't support them.
+ */
+Size virtualMemory_getHugePageSize(void) {
+#if os_LINUX
+    if (hugePageSize == 0) {
+        char line[128];
+        unsigned long kb;
+        FILE *meminfo = fopen("/proc/meminfo", "r");
+        if (meminfo == NULL) {
+            return 0;
+        }
+        while (fgets(line, sizeof(line), meminfo) != NULL) {
+            if (sscanf(line, "Hugepagesize: %lu kB", &kb) == 1) {
+                hugePageSize = (Size) kb * 1024;
+                break;
+            }
+        }
+        fclose(meminfo);
+    }
+#endif
+    return hugePageSize;
+}
+
+/*
+ * Allocates memory backed by explicit huge pages, at the specified address if it isn't 0.
+ * The address and size must be aligned to the huge page size. Fails if the huge page pool cannot satisfy the request,
+ * in which case a range at a fixed address is left reserved but not committed, and must be committed again by the caller.
+ */
+Address virtualMemory_allocateHugePages(Address address, Size size, int type) {
+#if os_LINUX
+    int flags = MAP_PRIVATE | MAP_ANON | MAP_HUGETLB;
+    Address result;
+    if (address != 0) {
+        flags |= MAP_FIXED;
+    }
+    result = check_mmap_result(mmap((void *) address, (size_t) size, PROT, flags, -1, (off_t) 0));
+    if (result == ALLOC_FAILED && address != 0 && msync((void *) address, (size_t) size, MS_ASYNC) != 0 && errno == ENOMEM) {
+        /* The kernel removes the old mapping before it reserves the huge pages, so a failed MAP_FIXED
+         * request may leave the range unmapped. Reserve it again at once, without replacing anything
+         * another thread may have mapped into the gap meanwhile, so that the caller can commit it with
+         * normal pages. If that is not possible, committing it would clobber a foreign mapping. */
+        void *reserved = mmap((void *) address, (size_t) size, PROT_NONE, MAP_PRIVATE | MAP_ANON | MAP_NORESERVE | MAP_FIXED_NOREPLACE, -1, (off_t) 0);
+        if (reserved != (void *) address) {
+            int error = errno;
+            if (reserved != MAP_FAILED) {
+                /* a kernel without MAP_FIXED_NOREPLACE took the address as a hint */
+                munmap(reserved, (size_t) size);
+            }
+            log_exit(error, "allocateHugePages: range %p-%p was lost after a failed huge page mapping", address, address + size);
+        }
+    }
+    return result;
+#else
+    return ALLOC_FAILED;
+#endif
+}
+
+/*
+ * Advises the kernel to back a range of memory with transparent huge pages.
+ */
+jboolean virtualMemory_adviseHugePages(Address address, Size size) {
+#if os_LINUX
+    return madvise((void *) address, (size_t) size, MADV_HUGEPAGE) == 0;
+#else
+    return false;
+#endif
+}
+
+typedef struct {
+    Address start;
+    Address end;
+    Size pageSize;
+} PreTouchRange;
+
+static void *preTouchRange(void *arg) {
+    PreTouchRange *range = (PreTouchRange *) arg;
+    Address page;
+    for (page = range->start; page < range->end; page += range->pageSize) {
+        /* An atomic add of zero touches the page without altering memory that may already be in use. */
+        __sync_fetch_and_add((volatile int *) page, 0);
+    }
+    return NULL;
+}
+
+#define PRE_TOUCH_MAX_THREADS 64
+#define PRE_TOUCH_MIN_BYTES_PER_THREAD (32 * 1024 * 1024)
+
+/*
+ * Touches every page of a range of committed memory so that it is backed by physical memory,
+ * splitting the work among up to numThreads native threads (0 uses one thread per online processor).
+ */
+void virtualMemory_preTouch(Address address, Size size, Size pageSize, jint numThreads) {
+    PreTouchRange ranges[PRE_TOUCH_MAX_THREADS];
+    Address end = address + size;
+    Size numPages = (size + pageSize - 1) / pageSize;
+    int n;
+    int i;
+
+    n = numThreads;
+#if os_LINUX || os_SOLARIS || os_DARWIN
+    if (n <= 0) {
+        n = (int) sysconf(_SC_NPROCESSORS_ONLN);
+    }
+#endif
+    if ((Size) n > size / PRE_TOUCH_MIN_BYTES_PER_THREAD) {
+        n = (int) (size / PRE_TOUCH_MIN_BYTES_PER_THREAD);
+    }
+    if (n > PRE_TOUCH_MAX_THREADS) {
+        n = PRE_TOUCH_MAX_THREADS;
+    }
+    if (n <= 1) {
+        ranges[0].start = address;
+        ranges[0].end = end;
+        ranges[0].pageSize = pageSize;
+        preTouchRange(&ranges[0]);
+        return;
+    }
+#if os_LINUX || os_SOLARIS || os_DARWIN
+    {
+        pthread_t threads[PRE_TOUCH_MAX_THREADS];
+        jboolean started[PRE_TOUCH_MAX_THREADS];
+        Size pagesPerThread = (numPages + n - 1) / n;
+        Address start = address;
+        for (i = 0; i < n; i++) {
+            ranges[i].start = start;
+            start += pagesPerThread * pageSize;
+            ranges[i].end = start < end ? start : end;
+            ranges[i].pageSize = pageSize;
+            /* The calling thread touches the last range. */
+            started[i] = i < n - 1 && pthread_create(&threads[i], NULL, preTouchRange, &ranges[i]) == 0;
+            if (!started[i]) {
+                preTouchRange(&ranges[i]);
+            }
+        }
+        for (i = 0; i < n; i++) {
+            if (started[i]) {
+                pthread_join(threads[i], NULL);
+            }
+        }
+    }
+#else
+    (void) numPages;
+    (void) i;
+#endif
+}
+
+/*
+ * Gets the number of bytes of a range of virtual memory that are backed by huge pages, be they transparent or explicit.
+ * The figure is computed from the mappings overlapping the range in /proc/self/smaps; for mappings partially
+ * overlapping the range, it is prorated to the overlap.
+ */
+Size virtualMemory_getHugePageBytes(Address address, Size size) {
+    Size result = 0;
+#if os_LINUX
+    char line[256];
+    Address end = address + size;
+    Address mappingStart = 0;
+    Address mappingEnd = 0;
+    Size overlap = 0;
+    FILE *smaps = fopen("/proc/self/smaps", "r");
+    if (smaps == NULL) {
+        return 0;
+    }
+    while (fgets(line, sizeof(line), smaps) != NULL) {
+        unsigned long start;
+        unsigned long stop;
+        unsigned long kb;
+        if (sscanf(line, "%lx-%lx ", &start, &stop) == 2) {
+            mappingStart = (Address) start;
+            mappingEnd = (Address) stop;
+            if (mappingEnd <= address || mappingStart >= end) {
+                overlap = 0;
+            } else {
+                Address overlapStart = mappingStart > address ? mappingStart : address;
+                Address overlapEnd = mappingEnd < end ? mappingEnd : end;
+                overlap = overlapEnd - overlapStart;
+            }
+        } else if (overlap > 0 && (sscanf(line, "AnonHugePages: %lu kB", &kb) == 1 ||
+                                   sscanf(line, "Private_Hugetlb: %lu kB", &kb) == 1 ||
+                                   sscanf(line, "Shared_Hugetlb: %lu kB", &kb) == 1)) {
+            Size mappingSize = mappingEnd - mappingStart;
+            Size bytes = (Size) kb * 1024;
+            result += overlap == mappingSize ? bytes : (Size) ((double) bytes * overlap / mappingSize);
+        }
+    }
+    fclose(smaps);
+#endif
+    return result;
+}
+
 /*
  * Aligns a given address up to the next page-aligned address if it is not already page-aligned.
  */
@@ -51,4 +51,16 @@ extern Address virtualMemory_pageAlign(Address address);
 
 extern void virtualMemory_protectPages(Address address, int count);
 extern void virtualMemory_unprotectPages(Address address, int count);
+
+extern jint virtualMemory_numaNodeCount(void);
+extern jint virtualMemory_numaCurrentNode(void);
+extern jboolean virtualMemory_numaBindToNode(Address address, Size size, jint node);
+extern jboolean virtualMemory_numaInterleave(Address address, Size size, jint numNodes);
+extern jboolean virtualMemory_numaBindCurrentThreadToNode(jint node);
+
+extern Size virtualMemory_getHugePageSize(void);
+extern Address virtualMemory_allocateHugePages(Address address, Size size, int type);
+extern jboolean virtualMemory_adviseHugePages(Address address, Size size);
+extern void virtualMemory_preTouch(Address address, Size size, Size pageSize, jint numThreads);
+extern Size virtualMemory_getHugePageBytes(Address address, Size size);
 #endif /*__virtualMemory_h__*/
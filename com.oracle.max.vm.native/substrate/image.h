@@ -71,7 +71,8 @@
     f(TRAP_FAULT_ADDRESS) \
     f(TRAP_LATCH_REGISTER) \
     f(STACK_REFERENCE_MAP) \
-    f(STACK_REFERENCE_MAP_SIZE)
+    f(STACK_REFERENCE_MAP_SIZE) \
+    f(PROFILER_NATIVE_TICKS)
 
 #define DEFINE_IMAGE_HEADER_FIELD(name) jint name;
 
@@ -21,6 +21,8 @@
  * questions.
  */
 
+#include <string.h>
+
 #include "jmm.h"
 
 static void jmm_reserved() {
@@ -31,6 +33,14 @@ static jint jmm_GetVersion(JNIEnv *env) {
 }
 
 static jint jmm_GetOptionalSupport(JNIEnv *env, jmmOptionalSupport* support) {
+    if (support == NULL) {
+        return -1;
+    }
+    memset(support, 0, sizeof(jmmOptionalSupport));
+    support->isThreadContentionMonitoringSupported = 1;
+    support->isCurrentThreadCpuTimeSupported = 1;
+    support->isOtherThreadCpuTimeSupported = 1;
+    support->isThreadAllocatedMemorySupported = 1;
     return 0;
 }
 
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+/**
+ * Native support for {@code sun.misc.Unsafe.park()} and {@code sun.misc.Unsafe.unpark()}.
+ *
+ * Each VmThread owns a Parker whose permit word is the only state shared between a parking thread
+ * and its unparkers. The permit is always the first field of the structure so that the VM can
+ * consume an available permit with a single compare-and-swap, without leaving Java code.
+ *
+ * On Linux, a parked thread waits on the permit word itself with a futex. On other platforms a
+ * per-parker mutex and condition variable are used instead.
+ *
+ * Parkers are never freed. Released parkers are kept on a free list and reused, so an unparker
+ * racing with the termination of its target thread can at worst cause a spurious wakeup of a
+ * later owner, which park semantics permit.
+ */
+#include <stdlib.h>
+#include <errno.h>
+
+#include "os.h"
+#include "jni.h"
+#include "log.h"
+#include "word.h"
+#include "mutex.h"
+#include "condition.h"
+#include "maxine.h"
+
+#if os_LINUX
+#   include <unistd.h>
+#   include <time.h>
+#   include <sys/syscall.h>
+#   include <linux/futex.h>
+#endif
+
+/* Values of the permit word. These must match the PARKER_* constants in VmThread.java. */
+#define PARKER_EMPTY    0
+#define PARKER_PERMIT   1
+#define PARKER_WAITING  (-1)
+
+typedef struct Parker {
+    volatile jint permit;
+    struct Parker *next;
+#if !os_LINUX
+    mutex_Struct mutex;
+    condition_Struct condition;
+#endif
+} *Parker;
+
+static volatile jint freeListLock = 0;
+static Parker freeList = NULL;
+
+static jint parker_exchange(volatile jint *address, jint value) {
+    return __atomic_exchange_n(address, value, __ATOMIC_SEQ_CST);
+}
+
+static jboolean parker_compareAndSwap(volatile jint *address, jint expectedValue, jint newValue) {
+    return __atomic_compare_exchange_n(address, &expectedValue, newValue, 0, __ATOMIC_SEQ_CST, __ATOMIC_SEQ_CST);
+}
+
+static void parker_lockFreeList(void) {
+    while (!parker_compareAndSwap(&freeListLock, 0, 1)) {
+        while (freeListLock != 0) {
+        }
+    }
+}
+
+static void parker_unlockFreeList(void) {
+    __atomic_store_n(&freeListLock, 0, __ATOMIC_RELEASE);
+}
+
+Parker nativeParkerAllocate(void) {
+    parker_lockFreeList();
+    Parker parker = freeList;
+    if (parker != NULL) {
+        freeList = parker->next;
+    }
+    parker_unlockFreeList();
+
+    if (parker == NULL) {
+        parker = (Parker) calloc(1, sizeof(struct Parker));
+        if (parker == NULL) {
+            log_exit(11, "Could not allocate parker");
+        }
+#if !os_LINUX
+        mutex_initialize(&parker->mutex);
+        condition_initialize(&parker->condition);
+#endif
+    }
+    parker->next = NULL;
+    parker_exchange(&parker->permit, PARKER_EMPTY);
+    return parker;
+}
+
+void nativeParkerRelease(Parker parker) {
+    parker_lockFreeList();
+    parker->next = freeList;
+    freeList = parker;
+    parker_unlockFreeList();
+}
+
+void nativeParkerUnpark(Parker parker) {
+#if os_LINUX
+    if (parker_exchange(&parker->permit, PARKER_PERMIT) == PARKER_WAITING) {
+        syscall(SYS_futex, &parker->permit, FUTEX_WAKE_PRIVATE, 1, NULL, NULL, 0);
+    }
+#else
+    mutex_enter(&parker->mutex);
+    jint previous = parker->permit;
+    parker->permit = PARKER_PERMIT;
+    mutex_exit(&parker->mutex);
+    if (previous == PARKER_WAITING) {
+        condition_notify(&parker->condition);
+    }
+#endif
+}
+
+/**
+ * Blocks the current thread until its permit becomes available, the timeout expires or the wait
+ * is interrupted by a signal, and consumes the permit if there is one.
+ *
+ * @param time if {@code isAbsolute} is true, a deadline in milliseconds since the epoch, otherwise a
+ *            timeout in nanoseconds where 0 means no timeout
+ */
+JNIEXPORT void JNICALL
+Java_com_sun_max_vm_thread_VmThread_nativeParkerPark(JNIEnv *env, jclass c, Parker parker, jboolean isAbsolute, jlong time) {
+    if (parker_compareAndSwap(&parker->permit, PARKER_PERMIT, PARKER_EMPTY)) {
+        return;
+    }
+    if (time < 0 || (isAbsolute && time == 0)) {
+        return;
+    }
+#if os_LINUX
+    struct timespec timeout;
+    struct timespec *timeoutPointer = NULL;
+    int op = FUTEX_WAIT_PRIVATE;
+    if (isAbsolute) {
+        /* Waiting against CLOCK_REALTIME keeps the deadline correct if the wall clock is adjusted while parked. */
+        timeout.tv_sec = time / 1000;
+        timeout.tv_nsec = (time % 1000) * 1000000;
+        timeoutPointer = &timeout;
+        op = FUTEX_WAIT_BITSET_PRIVATE | FUTEX_CLOCK_REALTIME;
+    } else if (time > 0) {
+        timeout.tv_sec = time / 1000000000;
+        timeout.tv_nsec = time % 1000000000;
+        timeoutPointer = &timeout;
+    }
+    if (parker_compareAndSwap(&parker->permit, PARKER_EMPTY, PARKER_WAITING)) {
+        /* Returns immediately if an unpark has replaced PARKER_WAITING in the meantime. */
+        syscall(SYS_futex, &parker->permit, op, PARKER_WAITING, timeoutPointer, NULL, FUTEX_BITSET_MATCH_ANY);
+    }
+    /* Consume a permit deposited while waiting, or withdraw the waiting state after a timeout or signal. */
+    parker_exchange(&parker->permit, PARKER_EMPTY);
+#else
+    jlong timeoutMilliSeconds = 0;
+    if (isAbsolute) {
+        timeoutMilliSeconds = time - native_currentTimeMillis();
+        if (timeoutMilliSeconds <= 0) {
+            return;
+        }
+    } else if (time > 0) {
+        timeoutMilliSeconds = (time + 999999) / 1000000;
+    }
+    mutex_enter(&parker->mutex);
+    if (parker->permit != PARKER_PERMIT) {
+        parker->permit = PARKER_WAITING;
+        condition_timedWait(&parker->condition, &parker->mutex, timeoutMilliSeconds);
+    }
+    parker->permit = PARKER_EMPTY;
+    mutex_exit(&parker->mutex);
+#endif
+}
@@ -47,6 +47,8 @@
 #if (os_DARWIN || os_LINUX)
 #   include <pthread.h>
 #   include <errno.h>
+#   include <time.h>
+#   include <sys/resource.h>
     typedef pthread_t Thread;
 #define thread_current() ((Thread) pthread_self())
 #elif os_SOLARIS
@@ -450,6 +452,34 @@ Address nativeThreadCreate(jint id, Size stackSize, jint priority) {
     return (Address) thread_create(id, stackSize, priority);
 }
 
+/*
+ * Gets the CPU time consumed by a thread in nanoseconds, or -1 if it cannot be determined.
+ * User time is only available for the current thread; for other threads the total of
+ * user and system time is returned instead.
+ * @C_FUNCTION - called from Java
+ */
+jlong nativeGetThreadCpuTime(Address nativeThread, jboolean userOnly) {
+#if os_LINUX
+    struct timespec time;
+    clockid_t clock;
+#ifdef RUSAGE_THREAD
+    if (userOnly && (pthread_t) nativeThread == pthread_self()) {
+        struct rusage usage;
+        if (getrusage(RUSAGE_THREAD, &usage) != 0) {
+            return -1;
+        }
+        return ((jlong) usage.ru_utime.tv_sec) * 1000000000LL + ((jlong) usage.ru_utime.tv_usec) * 1000LL;
+    }
+#endif
+    if (pthread_getcpuclockid((pthread_t) nativeThread, &clock) != 0 || clock_gettime(clock, &time) != 0) {
+        return -1;
+    }
+    return ((jlong) time.tv_sec) * 1000000000LL + time.tv_nsec;
+#else
+    return -1;
+#endif
+}
+
 JNIEXPORT void JNICALL
 Java_com_sun_max_vm_thread_VmThread_nativeYield(JNIEnv *env, jclass c) {
 #if os_SOLARIS
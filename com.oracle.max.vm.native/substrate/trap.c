@@ -31,6 +31,10 @@
 #include "image.h"
 #include "trap.h"
 
+#if !os_MAXVE
+#   include <sys/time.h>
+#endif
+
 #if os_SOLARIS && isa_SPARC
     /* Get STACK_BIAS definition for Solaris / SPARC */
 #      include <sys/stack.h>
@@ -46,6 +50,7 @@
 #define STACK_FATAL 2
 #define ARITHMETIC_EXCEPTION 3
 #define ASYNC_INTERRUPT 4
+#define PROFILER_TICK 7
 
 static Address theJavaTrapStub;
 static boolean traceTraps = false;
@@ -329,6 +334,8 @@ static void logTrap(int signal, Address ip, Address fault, TLA dtla) {
     log_unlock();
 }
 
+static void redirectToJavaTrapStub(UContext *ucontext, TLA dtla, int trapNumber, Address faultAddress);
+
 /**
  * The handler for signals dealt with by Stubs.trapStub.
  */
@@ -401,6 +408,14 @@ static void vmSignalHandler(int signal, SigInfo *signalInfo, UContext *ucontext)
         }
     }
 
+    redirectToJavaTrapStub(ucontext, dtla, trapNumber, faultAddress);
+}
+
+/**
+ * Saves the trap information in the thread locals and makes the interrupted thread continue
+ * in the Java trap stub when the signal handler returns.
+ */
+static void redirectToJavaTrapStub(UContext *ucontext, TLA dtla, int trapNumber, Address faultAddress) {
     /* save the trap information in the thread locals */
     tla_store3(dtla, TRAP_NUMBER, trapNumber);
     tla_store3(dtla, TRAP_INSTRUCTION_POINTER, getInstructionPointer(ucontext));
@@ -438,6 +453,120 @@ static void userSignalHandlerDef(int signal, SigInfo *signalInfo, UContext *ucon
 /* Defined global declared in trap.h */
 SignalHandlerFunction userSignalHandler = (SignalHandlerFunction) userSignalHandlerDef;
 
+#if !os_MAXVE
+
+/**
+ * The number of address ranges of Java code known to the SIGPROF handler:
+ * the boot code region and the runtime baseline and opt code regions.
+ */
+#define PROFILER_CODE_RANGES 3
+
+/**
+ * The index of the PC field in a JavaFrameAnchor (see JavaFrameAnchor.java).
+ */
+#define JAVA_FRAME_ANCHOR_PC 1
+
+/**
+ * The [start, end) address ranges of Java code, set before the profiling timer is armed.
+ */
+static Address profilerCodeRanges[PROFILER_CODE_RANGES][2];
+
+/**
+ * Set while the asynchronous sampling profiler is running.
+ */
+static volatile boolean profilerActive = false;
+
+/**
+ * Set once the SIGPROF handler has been installed, which is only done when the profiler is first started.
+ */
+static boolean profSignalHandlerInstalled = false;
+
+/**
+ * Specifies if a SIGPROF received while the profiler is not running is passed on to SignalDispatcher.java,
+ * which is the case if that is where it was dispatched to before the profiler installed its handler.
+ */
+static boolean forwardProfSignals = false;
+
+static boolean isProfilerCode(Address ip) {
+    int i;
+    for (i = 0; i < PROFILER_CODE_RANGES; i++) {
+        if (ip >= profilerCodeRanges[i][0] && ip < profilerCodeRanges[i][1]) {
+            return true;
+        }
+    }
+    return false;
+}
+
+static Address getSafepointLatchRegister(UContext *ucontext) {
+#if os_SOLARIS && isa_SPARC
+    return ucontext->uc_mcontext.gregs[REG_G2];
+#elif isa_AMD64 && (os_SOLARIS || os_LINUX)
+    return ucontext->uc_mcontext.gregs[REG_R14];
+#elif isa_AMD64 && os_DARWIN
+    return ucontext->uc_mcontext->__ss.__r14;
+#else
+    return 0;
+#endif
+}
+
+/**
+ * The handler for SIGPROF while the asynchronous sampling profiler is running. A thread interrupted
+ * in Java code with safepoints enabled is redirected to the Java trap stub, where AsyncSamplingProfiler
+ * walks its stack from the interrupted instruction. A thread interrupted anywhere else only has
+ * its PROFILER_NATIVE_TICKS thread local incremented, except for VM code running with safepoints
+ * disabled, which is not sampled. Only async-signal-safe operations may be performed here.
+ */
+static void profSignalHandler(int signal, SigInfo *signalInfo, UContext *ucontext) {
+    if (!profilerActive) {
+        if (forwardProfSignals) {
+            userSignalHandler(signal, signalInfo, ucontext);
+        }
+        return;
+    }
+    TLA tla = tla_current();
+    if (tla == 0) {
+        /* not a VM thread */
+        return;
+    }
+    TLA etla = tla_load(TLA, tla, ETLA);
+    TLA dtla = tla_load(TLA, tla, DTLA);
+    if (etla == 0 || dtla == 0) {
+        return;
+    }
+    Address anchor = tla_load(Address, etla, LAST_JAVA_FRAME_ANCHOR);
+    boolean inJava = anchor != 0 && ((Address *) anchor)[JAVA_FRAME_ANCHOR_PC] == 0;
+    if (!inJava || !isProfilerCode(getInstructionPointer(ucontext))) {
+        tla_store(etla, PROFILER_NATIVE_TICKS, tla_load(Address, etla, PROFILER_NATIVE_TICKS) + 1);
+        return;
+    }
+    Address latch = getSafepointLatchRegister(ucontext);
+    if (latch != etla && latch != tla_load(Address, etla, TTLA)) {
+        /* safepoints are disabled, for example in the trap handler itself */
+        return;
+    }
+    redirectToJavaTrapStub(ucontext, dtla, PROFILER_TICK, 0);
+}
+
+static void installProfSignalHandler(void) {
+    struct sigaction newSigaction;
+    struct sigaction oldSigaction;
+
+    memset((char *) &newSigaction, 0, sizeof(newSigaction));
+    /* An asynchronous interrupt must not redirect this handler to the Java trap stub. */
+    sigemptyset(&newSigaction.sa_mask);
+    sigaddset(&newSigaction.sa_mask, SIGUSR1);
+    newSigaction.sa_flags = SA_SIGINFO | SA_RESTART | SA_ONSTACK;
+    newSigaction.sa_sigaction = (void (*)(int, siginfo_t *, void *)) profSignalHandler;
+
+    if (sigaction(SIGPROF, &newSigaction, &oldSigaction) != 0) {
+        log_exit(1, "sigaction failed");
+    }
+    forwardProfSignals = (SignalHandlerFunction) oldSigaction.sa_sigaction == userSignalHandler;
+    profSignalHandlerInstalled = true;
+}
+
+#endif
+
 /**
  * Implementation of com.sun.max.vm.runtime.Trap.nativeInitialize().
  */
@@ -459,6 +588,9 @@ void nativeTrapInitialize(Address javaTrapStub) {
     /* Save the current signal mask to apply it to the VM operation thread. */
     thread_setSignalMask(0, NULL, &vmAndDefaultSignals);
 
+    /* Profiling ticks must never interrupt the VM operation thread. */
+    sigaddset(&vmAndDefaultSignals, SIGPROF);
+
     /* Define the VM signals mask. */
     sigemptyset(&vmSignals);
     sigaddset(&vmSignals, SIGSEGV);
@@ -466,6 +598,7 @@ void nativeTrapInitialize(Address javaTrapStub) {
     sigaddset(&vmSignals, SIGILL);
     sigaddset(&vmSignals, SIGFPE);
     sigaddset(&vmSignals, SIGUSR1);
+    sigaddset(&vmSignals, SIGPROF);
 
     /* Let all threads be stopped by a debugger. */
     sigaddset(&vmSignals, SIGTRAP);
@@ -482,3 +615,41 @@ void nativeTrapInitialize(Address javaTrapStub) {
 void nativeSetTrapTracing(boolean flag) {
     traceTraps = flag;
 }
+
+/**
+ * Implementation of com.sun.max.vm.profilers.sampling.AsyncSamplingProfiler.nativeSetProfilingCodeRange().
+ */
+void nativeSetProfilingCodeRange(jint index, Address start, Address end) {
+#if !os_MAXVE
+    c_ASSERT(index >= 0 && index < PROFILER_CODE_RANGES);
+    profilerCodeRanges[index][0] = start;
+    profilerCodeRanges[index][1] = end;
+#endif
+}
+
+/**
+ * Implementation of com.sun.max.vm.profilers.sampling.AsyncSamplingProfiler.nativeSetProfilingTimer().
+ *
+ * Arms the process-wide CPU time interval timer so that SIGPROF is delivered to a running thread
+ * every {@code periodMicros} microseconds of consumed CPU time. A period of 0 disarms the timer.
+ * The SIGPROF handler is installed when the timer is first armed.
+ */
+void nativeSetProfilingTimer(jint periodMicros) {
+#if !os_MAXVE
+    if (periodMicros > 0 && !profSignalHandlerInstalled) {
+        installProfSignalHandler();
+    }
+    struct itimerval timer;
+    memset((char *) &timer, 0, sizeof(timer));
+    if (periodMicros > 0) {
+        timer.it_interval.tv_sec = periodMicros / 1000000;
+        timer.it_interval.tv_usec = periodMicros % 1000000;
+        timer.it_value = timer.it_interval;
+    }
+    profilerActive = periodMicros > 0;
+    if (setitimer(ITIMER_PROF, &timer, NULL) != 0) {
+        log_println("setitimer(ITIMER_PROF) failed");
+        profilerActive = false;
+    }
+#endif
+}
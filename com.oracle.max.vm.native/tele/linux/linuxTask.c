@@ -35,6 +35,7 @@
 #include <sys/wait.h>
 #include <sys/time.h>
 #include <sys/prctl.h>
+#include <sys/uio.h>
 
 #include "log.h"
 #include "ptrace.h"
@@ -794,6 +795,23 @@ int task_memory_read_fd(int tgid, const void *address) {
     return fd;
 }
 
+/**
+ * Copies 'size' bytes from 'src' in the address space of 'tgid' to 'dst' via /proc/<pid>/mem.
+ * This is slower than process_vm_readv but can also read pages that are not readable in the target.
+ */
+static size_t task_read_proc_mem(pid_t tgid, const void *src, void *dst, size_t size) {
+    int fd = task_memory_read_fd(tgid, src);
+    if (fd < 0) {
+        return -1;
+    }
+    size_t bytesRead = read(fd, dst, size);
+    if (bytesRead != size) {
+        log_println("Only read %d of %d bytes from %p: %s", bytesRead, size, src, strerror(errno));
+    }
+    close(fd);
+    return bytesRead;
+}
+
 /**
  * Copies 'size' bytes from 'src' in the address space of 'tgid' to 'dst' in the caller's address space.
  */
@@ -816,17 +834,62 @@ size_t task_read(pid_t tgid, pid_t tid, const void *src, void *dst, size_t size)
         }
         return size;
     } else {
-        int fd = task_memory_read_fd(tgid, src);
-        if (fd < 0) {
-            return -1;
+        struct iovec local = {dst, size};
+        struct iovec remote = {(void *) src, size};
+        ssize_t bytesRead = process_vm_readv(tgid, &local, 1, &remote, 1, 0);
+        if (bytesRead == (ssize_t) size) {
+            return size;
         }
-        size_t bytesRead = read(fd, dst, size);
-        if (bytesRead != size) {
-            log_println("Only read %d of %d bytes from %p: %s", bytesRead, size, src, strerror(errno));
+        // not supported by the kernel, or (part of) the range is not readable in the target
+        return task_read_proc_mem(tgid, src, dst, size);
+    }
+}
+
+#define MAX_REMOTE_IOVECS 1024
+
+/**
+ * Copies 'count' ranges, given by 'srcs' and 'sizes', from the address space of 'tgid' to consecutive
+ * locations starting at 'dst' in the caller's address space, with one system call per MAX_REMOTE_IOVECS ranges.
+ *
+ * @return the number of bytes copied, which is less than the sum of 'sizes' if a range could not be read completely
+ */
+size_t task_readv(pid_t tgid, pid_t tid, const Address *srcs, const size_t *sizes, int count, void *dst) {
+    char state;
+    if ((state = task_state(tgid, tid)) != 'T') {
+        log_println("Cannot read memory of task %d while it is in state '%c'", tid, state);
+        return 0;
+    }
+
+    struct iovec remote[MAX_REMOTE_IOVECS];
+    size_t total = 0;
+    int i = 0;
+    while (i < count) {
+        int n = count - i < MAX_REMOTE_IOVECS ? count - i : MAX_REMOTE_IOVECS;
+        size_t batchSize = 0;
+        int j;
+        for (j = 0; j < n; j++) {
+            remote[j].iov_base = (void *) srcs[i + j];
+            remote[j].iov_len = sizes[i + j];
+            batchSize += sizes[i + j];
         }
-        close(fd);
-        return bytesRead;
+        struct iovec local = {(jbyte *) dst + total, batchSize};
+        ssize_t bytesRead = process_vm_readv(tgid, &local, 1, remote, n, 0);
+        if (bytesRead == (ssize_t) batchSize) {
+            total += batchSize;
+            i += n;
+            continue;
+        }
+        // Fall back to reading the ranges of this batch one at a time, stopping at the first that fails
+        for (j = 0; j < n; j++) {
+            size_t size = sizes[i + j];
+            if (task_read_proc_mem(tgid, (const void *) srcs[i + j], (jbyte *) dst + total, size) != size) {
+                return total;
+            }
+            total += size;
+        }
+        i += n;
     }
+    return total;
 }
 
 /**
@@ -910,6 +973,46 @@ Java_com_sun_max_tele_debug_linux_LinuxTask_nativeReadBytes(JNIEnv *env, jclass
     return teleProcess_read(&ph, env, c, src, dst, isDirectByteBuffer, dstOffset, length);
 }
 
+JNIEXPORT jint JNICALL
+Java_com_sun_max_tele_debug_linux_LinuxTask_nativeReadBytesVectored(JNIEnv *env, jclass c, jint tgid, jint tid, jlongArray srcs, jintArray lengths, jint count, jbyteArray dst) {
+    jlong *srcElements = (jlong *) malloc(count * sizeof(jlong));
+    jint *lengthElements = (jint *) malloc(count * sizeof(jint));
+    Address *srcAddresses = (Address *) malloc(count * sizeof(Address));
+    size_t *sizes = (size_t *) malloc(count * sizeof(size_t));
+    jbyte *dstBuffer = NULL;
+    jint result = -1;
+    size_t total = 0;
+    int i;
+
+    if (srcElements == NULL || lengthElements == NULL || srcAddresses == NULL || sizes == NULL) {
+        log_println("Failed to malloc vectored read descriptors for %d ranges", count);
+        goto done;
+    }
+    (*env)->GetLongArrayRegion(env, srcs, 0, count, srcElements);
+    (*env)->GetIntArrayRegion(env, lengths, 0, count, lengthElements);
+    for (i = 0; i < count; i++) {
+        srcAddresses[i] = (Address) srcElements[i];
+        sizes[i] = (size_t) lengthElements[i];
+        total += sizes[i];
+    }
+    dstBuffer = (jbyte *) malloc(total);
+    if (dstBuffer == NULL) {
+        log_println("Failed to malloc byte array of %d bytes", total);
+        goto done;
+    }
+    result = (jint) task_readv(tgid, tid, srcAddresses, sizes, count, dstBuffer);
+    if (result > 0) {
+        (*env)->SetByteArrayRegion(env, dst, 0, result, dstBuffer);
+    }
+done:
+    free(srcElements);
+    free(lengthElements);
+    free(srcAddresses);
+    free(sizes);
+    free(dstBuffer);
+    return result;
+}
+
 JNIEXPORT jboolean JNICALL
 Java_com_sun_max_tele_debug_linux_LinuxTask_nativeSetInstructionPointer(JNIEnv *env, jclass c, jint tid, jlong instructionPointer) {
     struct user_regs_struct registers;
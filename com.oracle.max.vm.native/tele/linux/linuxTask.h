@@ -87,6 +87,14 @@ int task_memory_read_fd(int tgid, const void *address);
  */
 size_t task_read(pid_t tgid, pid_t tid, const void *src, void *dst, size_t size);
 
+/**
+ * Copies 'count' ranges, given by 'srcs' and 'sizes', from the address space of 'tgid' to consecutive
+ * locations starting at 'dst' in the caller's address space.
+ *
+ * @return the number of bytes copied, which is less than the sum of 'sizes' if a range could not be read completely
+ */
+size_t task_readv(pid_t tgid, pid_t tid, const Address *srcs, const size_t *sizes, int count, void *dst);
+
 /**
  * Copies 'size' bytes from 'src' in the caller's address space to 'dst' in the address space of 'tgid'.
  * The value of 'size' must be >= 0 and < sizeof(Word).
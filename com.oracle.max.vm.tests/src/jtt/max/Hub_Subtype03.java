@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jtt.max;
+
+/*
+ * @Harness: java
+ * @Runs: 0=true; 1=true; 2=true; 3=false; 4=true; 5=false; 6=true; 7=false; 8=false; 9=true
+ */
+public class Hub_Subtype03 {
+
+    // D1 is at depth 1 of the superclass chain, ..., D7 has the last primary supers display entry.
+    // D8 and deeper are checked through the m-table and the secondary super cache.
+    static class D1 { }
+    static class D2 extends D1 { }
+    static class D3 extends D2 { }
+    static class D4 extends D3 { }
+    static class D5 extends D4 { }
+    static class D6 extends D5 { }
+    static class D7 extends D6 { }
+    static class D8 extends D7 { }
+    static class D9 extends D8 { }
+    static class D10 extends D9 { }
+    static class D11 extends D10 { }
+
+    public static boolean test(int arg) {
+        // each test is done twice so that the second one can hit the secondary super cache
+        return check(arg) && check(arg);
+    }
+
+    @SuppressWarnings("all")
+    private static boolean check(int arg) {
+        if (arg == 0) {
+            return new D11() instanceof D1;
+        } else if (arg == 1) {
+            return new D11() instanceof D7;
+        } else if (arg == 2) {
+            return new D11() instanceof D8;
+        } else if (arg == 3) {
+            return new D7() instanceof D8;
+        } else if (arg == 4) {
+            return new D10() instanceof D10;
+        } else if (arg == 5) {
+            // the display entry at the depth of D4 is unused in the hub of D3
+            return new D3() instanceof D4;
+        } else if (arg == 6) {
+            return cast(new D11()) != null;
+        } else if (arg == 7) {
+            return cast(new D8()) != null;
+        } else if (arg == 8) {
+            return new Object() instanceof D1;
+        } else if (arg == 9) {
+            return new D9() instanceof D9 && new D11() instanceof D9 && !(new D8() instanceof D9);
+        }
+        return false;
+    }
+
+    private static D9 cast(Object object) {
+        try {
+            return (D9) object;
+        } catch (ClassCastException e) {
+            return null;
+        }
+    }
+}
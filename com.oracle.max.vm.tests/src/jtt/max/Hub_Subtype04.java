@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jtt.max;
+
+import java.io.*;
+
+/*
+ * @Harness: java
+ * @Runs: 0=true; 1=true; 2=false; 3=true; 4=false; 5=true; 6=false; 7=true; 8=false; 9=true; 10=false
+ */
+public class Hub_Subtype04 {
+
+    interface I1 { }
+    interface I2 extends I1 { }
+    static class C implements I2 { }
+    static class E implements I1 { }
+
+    public static boolean test(int arg) {
+        // each test is done twice so that the second one can hit the secondary super cache
+        return check(arg) && check(arg);
+    }
+
+    @SuppressWarnings("all")
+    private static boolean check(int arg) {
+        final Object c = new C();
+        final Object e = new E();
+        if (arg == 0) {
+            return c instanceof I1;
+        } else if (arg == 1) {
+            // replaces the cached type of C's hub each time
+            return c instanceof I2 && c instanceof I1 && c instanceof I2;
+        } else if (arg == 2) {
+            // a cached I1 must not satisfy a test for I2
+            return e instanceof I1 && e instanceof I2;
+        } else if (arg == 3) {
+            return new C[1] instanceof I1[] && new C[1] instanceof I2[];
+        } else if (arg == 4) {
+            return new E[1] instanceof I1[] && new E[1] instanceof I2[];
+        } else if (arg == 5) {
+            return new C[1] instanceof Object[] && new C[1][1] instanceof Object[][] && new C[1][1] instanceof Object[];
+        } else if (arg == 6) {
+            return (Object) new int[1] instanceof Object[];
+        } else if (arg == 7) {
+            return new String[1][1] instanceof Comparable[][] && new String[1][1] instanceof Serializable[];
+        } else if (arg == 8) {
+            return new Object() instanceof Cloneable;
+        } else if (arg == 9) {
+            return (Object) new int[1] instanceof Cloneable && (Object) new int[1] instanceof Serializable;
+        } else if (arg == 10) {
+            return cast(e) != null;
+        }
+        return false;
+    }
+
+    private static I2 cast(Object object) {
+        try {
+            return (I2) object;
+        } catch (ClassCastException e) {
+            return null;
+        }
+    }
+}
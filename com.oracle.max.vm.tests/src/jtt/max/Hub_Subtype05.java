@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jtt.max;
+
+import com.sun.max.vm.actor.holder.*;
+
+/*
+ * @Harness: java
+ * @Runs: 0=true; 1=true; 2=true; 3=true; 4=true; 5=true
+ */
+public class Hub_Subtype05 {
+
+    interface I { }
+    static class A implements I { }
+    static class B extends A { }
+
+    /**
+     * Checks {@link Hub#isSubClassHub} against {@link ClassActor#isAssignableFrom} for the dynamic hub of a class and
+     * a range of tested classes, including the class with id 0, twice so that the secondary super cache is used.
+     */
+    public static boolean test(int arg) {
+        Class<?> c = null;
+        if (arg == 0) {
+            c = Object.class;
+        } else if (arg == 1) {
+            c = B.class;
+        } else if (arg == 2) {
+            c = B[].class;
+        } else if (arg == 3) {
+            c = int[].class;
+        } else if (arg == 4) {
+            c = Hub_Subtype03.D11.class;
+        } else if (arg == 5) {
+            c = String.class;
+        }
+        final ClassActor classActor = ClassActor.fromJava(c);
+        final Class[] tested = {Object.class, I.class, A.class, B.class, I[].class, A[].class, Object[].class, Cloneable.class,
+            Hub_Subtype03.D1.class, Hub_Subtype03.D8.class, Hub_Subtype03.D11.class, Comparable.class, CharSequence.class};
+        for (int i = 0; i < 2; i++) {
+            for (Class t : tested) {
+                if (!check(classActor, ClassActor.fromJava(t))) {
+                    return false;
+                }
+            }
+            final ClassActor zero = ClassIDManager.toClassActor(0);
+            if (zero != null && !check(classActor, zero)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean check(ClassActor classActor, ClassActor testClassActor) {
+        return classActor.dynamicHub().isSubClassHub(testClassActor) == testClassActor.isAssignableFrom(classActor);
+    }
+}
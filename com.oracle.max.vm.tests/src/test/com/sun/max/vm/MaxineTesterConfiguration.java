@@ -286,7 +286,8 @@ public class MaxineTesterConfiguration {
         imageConfig("jtt-mset1xt1x", opt_c1x, "-run=test.com.sun.max.vm.jtrun.all", "-heap=gcx.mse", "-native-tests", joinCompileCommands(testCallerT1X, testCalleeT1X));
         imageConfig("jtt-msec1xc1x", opt_c1x, "-run=test.com.sun.max.vm.jtrun.all", "-heap=gcx.mse", "-native-tests");
 
-        imageConfig("vm-output", "-run=test.com.sun.max.vm.output");
+        // HeapDumpTest needs a heap scheme that can walk its heap
+        imageConfig("vm-output", "-run=test.com.sun.max.vm.output", "-heap=sequential.gen.semiSpace");
 
         maxvmConfig("std", "-Xms2g", "-Xmx2g");
         maxvmConfig("eviction1000", "-Xms2g", "-Xmx2g", "-XX:CodeCacheContentionFrequency=1000");
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.com.sun.max.vm.classfile;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import test.com.sun.max.vm.*;
+
+import com.sun.max.vm.classfile.constant.*;
+
+/**
+ * Tests that concurrent interning in the lock-free {@link SymbolTable} yields a single symbol per value, including
+ * while the table is being resized.
+ */
+public class SymbolTableTest extends VmTestCase {
+
+    public SymbolTableTest(String name) {
+        super(name);
+    }
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(SymbolTableTest.class);
+    }
+
+    private static final int THREADS = 8;
+
+    /**
+     * More symbols than the initial table can hold, so that interning them forces at least one resize.
+     */
+    private static final int SYMBOLS = 1 << 17;
+
+    /**
+     * Runs {@link #THREADS} threads, each interning {@code names} in its own order with either
+     * {@link SymbolTable#makeSymbol(String)} or {@link SymbolTable#makeSymbol(char[], int)}.
+     *
+     * @return the symbols obtained by each thread, indexed like {@code names}
+     */
+    private static Utf8Constant[][] internConcurrently(final String[] names) throws Exception {
+        final Utf8Constant[][] symbols = new Utf8Constant[THREADS][names.length];
+        final CyclicBarrier start = new CyclicBarrier(THREADS);
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        final char[] chars = new char[64];
+                        start.await();
+                        for (int n = 0; n < names.length; n++) {
+                            // odd threads walk the names backwards so that they meet the even ones half way
+                            final int i = (thread & 1) == 0 ? n : names.length - 1 - n;
+                            final String name = names[i];
+                            if ((thread & 2) == 0) {
+                                symbols[thread][i] = SymbolTable.makeSymbol(new String(name));
+                            } else {
+                                name.getChars(0, name.length(), chars, 0);
+                                symbols[thread][i] = SymbolTable.makeSymbol(chars, name.length());
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return symbols;
+    }
+
+    private static String[] names(String prefix, int count) {
+        final String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = prefix + i;
+        }
+        return names;
+    }
+
+    private static void checkIdentity(String[] names, Utf8Constant[][] symbols) {
+        for (int i = 0; i < names.length; i++) {
+            final Utf8Constant symbol = symbols[0][i];
+            assertNotNull(symbol);
+            assertEquals(names[i], symbol.toString());
+            for (int t = 1; t < THREADS; t++) {
+                assertSame("threads got different symbols for " + names[i], symbol, symbols[t][i]);
+            }
+            assertSame(symbol, SymbolTable.lookupSymbol(names[i]));
+        }
+    }
+
+    public void test_existingSymbols() {
+        assertSame(SymbolTable.INIT, SymbolTable.makeSymbol("<init>"));
+        assertSame(SymbolTable.INIT, SymbolTable.makeSymbol("<init>".toCharArray(), "<init>".length()));
+        assertSame(SymbolTable.CLINIT, SymbolTable.lookupSymbol(new String("<clinit>")));
+        final char[] chars = "finalizer".toCharArray();
+        assertSame(SymbolTable.FINALIZE, SymbolTable.makeSymbol(chars, chars.length - 1));
+    }
+
+    public void test_lookupAbsent() {
+        final String name = getClass().getName() + ".absent." + System.nanoTime();
+        final int length = SymbolTable.length();
+        assertNull(SymbolTable.lookupSymbol(name));
+        assertEquals(length, SymbolTable.length());
+    }
+
+    public void test_intern() {
+        final String name = getClass().getName() + ".interned";
+        final String interned = SymbolTable.intern(new String(name));
+        assertEquals(name, interned);
+        assertSame(interned, SymbolTable.intern(new String(name)));
+    }
+
+    public void test_concurrentIdentity() throws Exception {
+        final String[] names = names(getClass().getName() + ".shared.", 4096);
+        final int length = SymbolTable.length();
+        final Utf8Constant[][] symbols = internConcurrently(names);
+        checkIdentity(names, symbols);
+        assertEquals(length + names.length, SymbolTable.length());
+    }
+
+    public void test_concurrentResize() throws Exception {
+        final String[] names = names(getClass().getName() + ".resize.", SYMBOLS);
+        final int length = SymbolTable.length();
+        final Utf8Constant[][] symbols = internConcurrently(names);
+        checkIdentity(names, symbols);
+        // every symbol was inserted exactly once and survived the resizes
+        assertEquals(length + names.length, SymbolTable.length());
+        assertSame(SymbolTable.INIT, SymbolTable.lookupSymbol("<init>"));
+        for (int i = 0; i < names.length; i++) {
+            assertSame(symbols[0][i], SymbolTable.makeSymbol(names[i]));
+        }
+        assertEquals(length + names.length, SymbolTable.length());
+    }
+}
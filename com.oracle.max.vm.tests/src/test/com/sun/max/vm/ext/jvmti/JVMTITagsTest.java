@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.com.sun.max.vm.ext.jvmti;
+
+import java.util.*;
+
+import junit.framework.*;
+
+import com.sun.max.vm.ext.jvmti.*;
+
+/**
+ * Tests for the weak tag map used by each segment of {@link JVMTITags}.
+ */
+public class JVMTITagsTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(JVMTITagsTest.class);
+    }
+
+    public JVMTITagsTest(String name) {
+        super(name);
+    }
+
+    public void test_longTags() {
+        JVMTITags.Map map = new JVMTITags.Map(true);
+        Object a = new Object();
+        Object b = new Object();
+        map.put(a, 1L);
+        map.put(b, 2L);
+        map.put(a, 3L);
+        assertEquals(2, map.size());
+        assertEquals(3L, map.getLong(a));
+        assertEquals(2L, map.getLong(b));
+        assertEquals(0L, map.getLong(new Object()));
+        map.remove(a);
+        assertEquals(1, map.size());
+        assertEquals(0L, map.getLong(a));
+        assertEquals(2L, map.getLong(b));
+    }
+
+    public void test_objectTags() {
+        JVMTITags.Map map = new JVMTITags.Map(false);
+        Object a = new Object();
+        String tag = "tag";
+        map.put(a, tag);
+        assertSame(tag, map.getObject(a));
+        assertNull(map.getObject(new Object()));
+        map.remove(a);
+        assertNull(map.getObject(a));
+        assertEquals(0, map.size());
+    }
+
+    public void test_resize() {
+        JVMTITags.Map map = new JVMTITags.Map(true);
+        List<Object> objects = new ArrayList<Object>();
+        for (int i = 0; i < 1000; i++) {
+            Object o = new Object();
+            objects.add(o);
+            map.put(o, i + 1);
+        }
+        assertEquals(1000, map.size());
+        for (int i = 0; i < objects.size(); i++) {
+            assertEquals(i + 1, map.getLong(objects.get(i)));
+        }
+        final int[] visited = {0};
+        map.apply(new JVMTITags.Map.Visitor() {
+            @Override
+            public void visit(JVMTITags.Map.Entry e) {
+                visited[0]++;
+            }
+        });
+        assertEquals(1000, visited[0]);
+    }
+
+    /**
+     * Entries whose object has been collected are removed on the next update of the map.
+     */
+    public void test_expunge() throws InterruptedException {
+        JVMTITags.Map map = new JVMTITags.Map(true);
+        Object live = new Object();
+        map.put(live, 1L);
+        for (int i = 0; i < 100; i++) {
+            map.put(new Object(), 2L);
+        }
+        assertEquals(101, map.size());
+        for (int i = 0; i < 50 && map.size() > 1; i++) {
+            System.gc();
+            Thread.sleep(10);
+            // any update expunges the entries that have been enqueued so far
+            map.remove(new Object());
+        }
+        assertEquals(1, map.size());
+        assertEquals(1L, map.getLong(live));
+    }
+}
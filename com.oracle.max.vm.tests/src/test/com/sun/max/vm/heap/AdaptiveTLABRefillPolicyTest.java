@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.com.sun.max.vm.heap;
+
+import test.com.sun.max.vm.*;
+
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.heap.*;
+
+/**
+ * Tests for {@link AdaptiveTLABRefillPolicy}, with the default values of its options
+ * (50 refills per epoch, TLAB sizes between 2K and 4M, a waste limit of 1/64 of the TLAB).
+ */
+public class AdaptiveTLABRefillPolicyTest extends VmTestCase {
+
+    public AdaptiveTLABRefillPolicyTest(String name) {
+        super(name);
+    }
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(AdaptiveTLABRefillPolicyTest.class);
+    }
+
+    private static final Pointer MARK = Pointer.fromLong(0x100000L);
+
+    /**
+     * Ends {@code epochs} epochs in each of which the thread allocated {@code bytesPerEpoch} bytes.
+     *
+     * @return the cumulative number of bytes allocated
+     */
+    private static long runEpochs(AdaptiveTLABRefillPolicy policy, long allocated, long bytesPerEpoch, int epochs) {
+        long total = allocated;
+        for (int i = 0; i < epochs; i++) {
+            total += bytesPerEpoch;
+            policy.endEpoch(Pointer.zero(), total);
+        }
+        return total;
+    }
+
+    public void test_initialSize() {
+        final AdaptiveTLABRefillPolicy policy = new AdaptiveTLABRefillPolicy(Size.K.times(64));
+        assertEquals(Size.K.times(64), policy.nextTlabSize());
+        // an epoch matching the initial estimate leaves the size unchanged
+        policy.endEpoch(Pointer.zero(), Size.K.times(64).toLong() * 50);
+        assertEquals(Size.K.times(64), policy.nextTlabSize());
+    }
+
+    public void test_sizing() {
+        final AdaptiveTLABRefillPolicy policy = new AdaptiveTLABRefillPolicy(Size.K.times(64));
+        long allocated = runEpochs(policy, 0, Size.K.times(256).toLong() * 50, 40);
+        assertEquals(Size.K.times(256), policy.nextTlabSize());
+        runEpochs(policy, allocated, Size.K.times(8).toLong() * 50, 40);
+        assertEquals(Size.K.times(8), policy.nextTlabSize());
+    }
+
+    public void test_sizingIsGradual() {
+        final AdaptiveTLABRefillPolicy policy = new AdaptiveTLABRefillPolicy(Size.K.times(64));
+        runEpochs(policy, 0, Size.K.times(256).toLong() * 50, 1);
+        final long size = policy.nextTlabSize().toLong();
+        assertTrue(size > Size.K.times(64).toLong());
+        assertTrue(size < Size.K.times(256).toLong());
+        assertTrue(size % Word.size() == 0);
+    }
+
+    public void test_clamping() {
+        final AdaptiveTLABRefillPolicy policy = new AdaptiveTLABRefillPolicy(Size.K.times(64));
+        long allocated = runEpochs(policy, 0, Size.G.toLong(), 40);
+        assertEquals(Size.M.times(4), policy.nextTlabSize());
+        runEpochs(policy, allocated, 0, 100);
+        assertEquals(Size.K.times(2), policy.nextTlabSize());
+    }
+
+    public void test_refillThreshold() {
+        final AdaptiveTLABRefillPolicy policy = new AdaptiveTLABRefillPolicy(Size.K.times(64));
+        // an empty TLAB is always refilled, a small request always refills
+        assertTrue(policy.shouldRefill(Size.M, Pointer.zero()));
+        assertTrue(policy.shouldRefill(Size.fromInt(512), MARK));
+
+        // the base threshold is 1K and is raised by 256 bytes on each request allocated outside of the TLAB,
+        // so a 4K request refills once the threshold has been raised 13 times
+        int slowAllocations = 0;
+        while (!policy.shouldRefill(Size.K.times(4), MARK)) {
+            slowAllocations++;
+            assertTrue(slowAllocations < 100);
+        }
+        assertEquals(13, slowAllocations);
+
+        // refilling brings the threshold back to its base
+        assertFalse(policy.shouldRefill(Size.K.times(2), MARK));
+    }
+
+    public void test_refillCount() {
+        final AdaptiveTLABRefillPolicy policy = new AdaptiveTLABRefillPolicy(Size.K.times(64));
+        assertEquals(0, policy.refills());
+        for (int i = 0; i < 3; i++) {
+            policy.notifyRefill();
+        }
+        assertEquals(3, policy.refills());
+        policy.endEpoch(Pointer.zero(), 0);
+        assertEquals(0, policy.refills());
+        policy.notifyRefill();
+        assertEquals(1, policy.refills());
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.com.sun.max.vm.heap;
+
+import java.util.*;
+
+import junit.framework.*;
+
+import com.sun.max.vm.heap.GCTelemetry.Histogram;
+
+/**
+ * Tests for the bucketing and percentiles of {@link Histogram}.
+ */
+public class GCTelemetryTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(GCTelemetryTest.class);
+    }
+
+    public GCTelemetryTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Checks that {@code value} lies in the bucket {@link Histogram#indexOf} picks and that the bucket is
+     * no wider than 1/16 of the value.
+     */
+    private static void checkBucket(long value) {
+        final int index = Histogram.indexOf(value);
+        final long highest = Histogram.highestValueAt(index);
+        final long lowest = index == 0 ? 0 : Histogram.highestValueAt(index - 1) + 1;
+        assertTrue(value + " above bucket " + index, value <= highest);
+        assertTrue(value + " below bucket " + index, value >= lowest);
+        assertTrue(value + " in too wide a bucket", highest - lowest <= Math.max(0, value / 16));
+    }
+
+    public void test_indexOf() {
+        for (long v = 0; v < 16; v++) {
+            assertEquals(v, Histogram.indexOf(v));
+            assertEquals(v, Histogram.highestValueAt((int) v));
+        }
+        for (int shift = 4; shift < 63; shift++) {
+            final long power = 1L << shift;
+            checkBucket(power - 1);
+            checkBucket(power);
+            checkBucket(power + 1);
+            assertEquals(Histogram.indexOf(power - 1) + 1, Histogram.indexOf(power));
+        }
+        checkBucket(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, Histogram.highestValueAt(Histogram.indexOf(Long.MAX_VALUE)));
+
+        final Random random = new Random(47);
+        for (int i = 0; i < 100000; i++) {
+            checkBucket(random.nextLong() >>> (1 + random.nextInt(63)));
+        }
+        int previous = 0;
+        for (long v = 0; v < 100000; v++) {
+            final int index = Histogram.indexOf(v);
+            assertTrue(index == previous || index == previous + 1);
+            previous = index;
+        }
+    }
+
+    public void test_valueAtPercentile() {
+        final Histogram histogram = new Histogram();
+        assertEquals(0, histogram.valueAtPercentile(50));
+        assertEquals(0, histogram.mean());
+
+        for (long v = 1; v <= 1000; v++) {
+            histogram.record(v);
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(1000, histogram.max());
+        assertEquals(500500, histogram.sum());
+        assertEquals(500, histogram.mean());
+        checkPercentile(histogram, 50, 500);
+        checkPercentile(histogram, 90, 900);
+        checkPercentile(histogram, 99, 990);
+        checkPercentile(histogram, 99.9, 999);
+        assertEquals(1, histogram.valueAtPercentile(0));
+        assertEquals(1000, histogram.valueAtPercentile(100));
+        assertEquals(1000, histogram.valueAtPercentile(200));
+        assertEquals(1, histogram.valueAtPercentile(-1));
+    }
+
+    /**
+     * The reported value is the top of the bucket holding the exact percentile, capped at the maximum.
+     */
+    private static void checkPercentile(Histogram histogram, double percentile, long exact) {
+        final long value = histogram.valueAtPercentile(percentile);
+        assertTrue(percentile + ": " + value + " < " + exact, value >= exact);
+        assertTrue(percentile + ": " + value + " too far above " + exact, value <= exact + exact / 16);
+    }
+
+    public void test_outliers() {
+        final Histogram histogram = new Histogram();
+        for (int i = 0; i < 999; i++) {
+            histogram.record(10);
+        }
+        histogram.record(-5);
+        assertEquals(0, histogram.valueAtPercentile(0.1));
+        assertEquals(10, histogram.valueAtPercentile(99.9));
+        histogram.record(1L << 40);
+        assertEquals(1L << 40, histogram.max());
+        assertEquals(1L << 40, histogram.valueAtPercentile(100));
+        assertEquals(10, histogram.valueAtPercentile(99.9));
+    }
+}
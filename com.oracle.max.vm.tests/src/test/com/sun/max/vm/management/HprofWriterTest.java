@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.com.sun.max.vm.management;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+import junit.framework.*;
+
+import com.sun.max.vm.management.*;
+
+/**
+ * Tests that {@link HprofWriter} frames records correctly wherever they fall relative to the end of its buffer.
+ */
+public class HprofWriterTest extends TestCase {
+
+    private static final int BUFFER_SIZE = 64;
+    private static final int ID_SIZE = 8;
+
+    private static final int HPROF_UTF8 = 0x01;
+    private static final int HPROF_LOAD_CLASS = 0x02;
+    private static final int HPROF_HEAP_DUMP_SEGMENT = 0x1C;
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(HprofWriterTest.class);
+    }
+
+    public HprofWriterTest(String name) {
+        super(name);
+    }
+
+    private File file;
+    private RandomAccessFile raf;
+
+    @Override
+    protected void setUp() throws Exception {
+        file = File.createTempFile("hprofwriter", ".hprof");
+        raf = new RandomAccessFile(file, "rw");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        raf.close();
+        file.delete();
+    }
+
+    private HprofWriter newWriter() throws IOException {
+        raf.setLength(0);
+        raf.seek(0);
+        final HprofWriter out = new HprofWriter(raf.getChannel(), BUFFER_SIZE, ID_SIZE);
+        out.writeHeader(0L);
+        return out;
+    }
+
+    private DataInputStream readBack(HprofWriter out) throws IOException {
+        out.flush();
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        for (int b = in.readByte(); b != 0; b = in.readByte()) {
+        }
+        assertEquals(ID_SIZE, in.readInt());
+        in.readLong();
+        return in;
+    }
+
+    /**
+     * A string of {@code length} characters, including characters that are encoded in 2 and 3 bytes.
+     */
+    private static String string(int length) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append(i % 5 == 3 ? '\u00e9' : i % 7 == 5 ? '\u4e2d' : (char) ('a' + i % 26));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes a padding string, moving the following records across every position relative to the end of the buffer,
+     * then a UTF8 and a LOAD_CLASS record, each of which is written without reserving room value by value.
+     */
+    public void test_recordsAtBufferEnd() throws IOException {
+        final String name = string(12);
+        for (int pad = 0; pad <= BUFFER_SIZE; pad++) {
+            final HprofWriter out = newWriter();
+            final ByteBuffer buffer = out.buffer();
+            final String padding = string(pad % (BUFFER_SIZE - HprofWriter.RECORD_HEADER_SIZE - ID_SIZE - 16));
+            out.writeUTF8(1L, padding, 0, padding.length());
+            out.writeUTF8(2L, name, 1, name.length());
+            out.startRecord(HPROF_LOAD_CLASS, 4 + ID_SIZE + 4 + ID_SIZE);
+            buffer.putInt(7);
+            out.putID(0x1122334455667788L);
+            buffer.putInt(1);
+            out.putID(2L);
+
+            final DataInputStream in = readBack(out);
+            try {
+                assertEquals(padding, readUTF8(in, 1L));
+                assertEquals(name.substring(1), readUTF8(in, 2L));
+                assertEquals(HPROF_LOAD_CLASS, in.read());
+                in.readInt();
+                assertEquals(4 + ID_SIZE + 4 + ID_SIZE, in.readInt());
+                assertEquals(7, in.readInt());
+                assertEquals(0x1122334455667788L, in.readLong());
+                assertEquals(1, in.readInt());
+                assertEquals(2L, in.readLong());
+                assertEquals(-1, in.read());
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    private static String readUTF8(DataInputStream in, long id) throws IOException {
+        assertEquals(HPROF_UTF8, in.read());
+        in.readInt();
+        final int length = in.readInt();
+        assertEquals(id, in.readLong());
+        final byte[] bytes = new byte[length - ID_SIZE];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    public void test_recordTooLarge() throws IOException {
+        final HprofWriter out = newWriter();
+        try {
+            out.startRecord(HPROF_UTF8, BUFFER_SIZE - HprofWriter.RECORD_HEADER_SIZE + 1);
+            fail("record larger than the buffer accepted");
+        } catch (IOException e) {
+        }
+        // the largest record that fits
+        out.startRecord(HPROF_UTF8, BUFFER_SIZE - HprofWriter.RECORD_HEADER_SIZE);
+        out.buffer().put(new byte[BUFFER_SIZE - HprofWriter.RECORD_HEADER_SIZE]);
+    }
+
+    /**
+     * Checks that segment lengths are patched both when the segment start is still in the buffer and when it has
+     * already been flushed.
+     */
+    public void test_segmentLengths() throws IOException {
+        final Random random = new Random(17);
+        final int[] lengths = {0, 1, BUFFER_SIZE - 2 * HprofWriter.RECORD_HEADER_SIZE, BUFFER_SIZE, 3 * BUFFER_SIZE + 5, 11};
+        final HprofWriter out = newWriter();
+        final ByteBuffer buffer = out.buffer();
+        final List<byte[]> contents = new ArrayList<byte[]>();
+        for (int length : lengths) {
+            final byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            contents.add(bytes);
+            out.startSegment();
+            for (byte b : bytes) {
+                out.ensure(1);
+                buffer.put(b);
+            }
+            assertEquals(length, out.segmentSize());
+            out.endSegment();
+        }
+        final DataInputStream in = readBack(out);
+        try {
+            for (byte[] bytes : contents) {
+                assertEquals(HPROF_HEAP_DUMP_SEGMENT, in.read());
+                in.readInt();
+                assertEquals(bytes.length, in.readInt());
+                final byte[] read = new byte[bytes.length];
+                in.readFully(read);
+                assertTrue(Arrays.equals(bytes, read));
+            }
+            assertEquals(-1, in.read());
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.com.sun.max.vm.profile;
+
+import test.com.sun.max.vm.*;
+
+import com.sun.max.vm.profile.*;
+
+/**
+ * Tests the sampling and coalescing of type profile updates by {@link TypeProfileBuffer}.
+ */
+public class TypeProfileBufferTest extends VmTestCase {
+
+    public TypeProfileBufferTest(String name) {
+        super(name);
+    }
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(TypeProfileBufferTest.class);
+    }
+
+    private static final int ENTRIES = 2;
+    private static final int UNDEFINED = MethodProfile.UNDEFINED_TYPE_ID;
+
+    private int savedSampling;
+    private int savedCoalescing;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        savedSampling = MethodInstrumentation.TypeProfileSampling;
+        savedCoalescing = MethodInstrumentation.TypeProfileCoalescing;
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        MethodInstrumentation.TypeProfileSampling = savedSampling;
+        MethodInstrumentation.TypeProfileCoalescing = savedCoalescing;
+        super.tearDown();
+    }
+
+    private static void configure(int sampling, int coalescing) {
+        MethodInstrumentation.TypeProfileSampling = sampling;
+        MethodInstrumentation.TypeProfileCoalescing = coalescing;
+    }
+
+    /**
+     * Creates a profile with a single type profile of {@link #ENTRIES} entries at index 0, followed by its
+     * null-seen counter and its default counter.
+     */
+    private static MethodProfile createProfile() {
+        final MethodProfile.Builder builder = new MethodProfile.Builder();
+        builder.addTypeProfile(0, ENTRIES);
+        return builder.finish(null);
+    }
+
+    private static void record(TypeProfileBuffer buffer, MethodProfile mpo, int typeId, int times) {
+        for (int i = 0; i < times; i++) {
+            buffer.record(mpo, 0, ENTRIES, typeId, UNDEFINED);
+        }
+    }
+
+    private static void assertEntry(MethodProfile mpo, int entry, int typeId, int count) {
+        assertEquals(typeId, mpo.rawData()[entry * 2]);
+        assertEquals(count, mpo.rawData()[entry * 2 + 1]);
+    }
+
+    public void test_coalescing() {
+        configure(1, 4);
+        final MethodProfile mpo = createProfile();
+        final TypeProfileBuffer buffer = new TypeProfileBuffer();
+        record(buffer, mpo, 7, 3);
+        assertEntry(mpo, 0, UNDEFINED, 0);
+        // the 4th update reaches the coalescing limit
+        record(buffer, mpo, 7, 1);
+        assertEntry(mpo, 0, 7, 4);
+        record(buffer, mpo, 7, 2);
+        assertEntry(mpo, 0, 7, 4);
+        buffer.flush();
+        assertEntry(mpo, 0, 7, 6);
+        // flushing an empty buffer does nothing
+        buffer.flush();
+        assertEntry(mpo, 0, 7, 6);
+    }
+
+    public void test_differentEntryFlushes() {
+        configure(1, 100);
+        final MethodProfile mpo = createProfile();
+        final TypeProfileBuffer buffer = new TypeProfileBuffer();
+        record(buffer, mpo, 7, 2);
+        record(buffer, mpo, 8, 1);
+        assertEntry(mpo, 0, 7, 2);
+        assertEntry(mpo, 1, UNDEFINED, 0);
+        buffer.flush();
+        assertEntry(mpo, 1, 8, 1);
+    }
+
+    public void test_differentProfileFlushes() {
+        configure(1, 100);
+        final MethodProfile mpo1 = createProfile();
+        final MethodProfile mpo2 = createProfile();
+        final TypeProfileBuffer buffer = new TypeProfileBuffer();
+        record(buffer, mpo1, 7, 3);
+        record(buffer, mpo2, 7, 1);
+        assertEntry(mpo1, 0, 7, 3);
+        assertEntry(mpo2, 0, UNDEFINED, 0);
+    }
+
+    public void test_sampling() {
+        configure(4, 1);
+        final MethodProfile mpo = createProfile();
+        final TypeProfileBuffer buffer = new TypeProfileBuffer();
+        // every 4th update, starting with the 1st, is sampled and counts for 4
+        record(buffer, mpo, 7, 1);
+        assertEntry(mpo, 0, 7, 4);
+        record(buffer, mpo, 7, 3);
+        assertEntry(mpo, 0, 7, 4);
+        record(buffer, mpo, 7, 1);
+        assertEntry(mpo, 0, 7, 8);
+        record(buffer, mpo, 7, 7);
+        assertEntry(mpo, 0, 7, 12);
+    }
+
+    public void test_samplingAndCoalescing() {
+        configure(2, 6);
+        final MethodProfile mpo = createProfile();
+        final TypeProfileBuffer buffer = new TypeProfileBuffer();
+        // 3 samples of 2 reach the coalescing limit
+        record(buffer, mpo, 7, 5);
+        assertEntry(mpo, 0, 7, 6);
+        record(buffer, mpo, 7, 2);
+        buffer.flush();
+        assertEntry(mpo, 0, 7, 8);
+    }
+
+    public void test_nullSeen() {
+        configure(1, 3);
+        final MethodProfile mpo = createProfile();
+        final TypeProfileBuffer buffer = new TypeProfileBuffer();
+        final int nullSeenIndex = ENTRIES * 2;
+        for (int i = 0; i < 5; i++) {
+            buffer.record(mpo, nullSeenIndex, TypeProfileBuffer.NULL_SEEN, 0, 0);
+        }
+        assertEquals(3, mpo.rawData()[nullSeenIndex]);
+        buffer.flush();
+        assertEquals(5, mpo.rawData()[nullSeenIndex]);
+    }
+
+    public void test_defaultCounter() {
+        configure(1, 2);
+        final MethodProfile mpo = createProfile();
+        final TypeProfileBuffer buffer = new TypeProfileBuffer();
+        record(buffer, mpo, 7, 1);
+        record(buffer, mpo, 8, 1);
+        record(buffer, mpo, 9, 2);
+        buffer.flush();
+        assertEntry(mpo, 0, 7, 1);
+        assertEntry(mpo, 1, 8, 1);
+        // the entries are taken, so type 9 is counted by the default counter
+        assertEquals(2, mpo.rawData()[ENTRIES * 2 + 1]);
+    }
+}
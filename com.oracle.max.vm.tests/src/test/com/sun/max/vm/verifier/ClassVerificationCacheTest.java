@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.com.sun.max.vm.verifier;
+
+import java.io.*;
+import java.util.*;
+
+import junit.framework.*;
+import test.com.sun.max.vm.*;
+
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.verifier.*;
+
+/**
+ * Tests for the keys, class path fingerprints and file format of {@link ClassVerificationCache}.
+ * Lookups and lazy verification need classes defined at run time and are tested by {@link test.vm.output.VerificationCacheTest}.
+ */
+public class ClassVerificationCacheTest extends VmTestCase {
+
+    public static Test suite() {
+        final TestSuite suite = new TestSuite(ClassVerificationCacheTest.class.getSimpleName());
+        suite.addTestSuite(ClassVerificationCacheTest.class);
+        return new VmTestSetup(suite);
+    }
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(ClassVerificationCacheTest.suite());
+    }
+
+    public ClassVerificationCacheTest(String name) {
+        super(name);
+    }
+
+    public void test_digest() {
+        final byte[] bytes = new byte[1000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i * 31);
+        }
+        final String digest = ClassVerificationCache.digest(bytes, 0, bytes.length);
+        assertEquals(64, digest.length());
+        assertEquals(digest, ClassVerificationCache.digest(bytes.clone(), 0, bytes.length));
+
+        // the digest only covers the given range
+        final byte[] padded = new byte[bytes.length + 10];
+        System.arraycopy(bytes, 0, padded, 5, bytes.length);
+        assertEquals(digest, ClassVerificationCache.digest(padded, 5, bytes.length));
+
+        // a single flipped bit anywhere changes the digest
+        for (int i = 0; i < bytes.length; i += 97) {
+            bytes[i] ^= 1;
+            assertFalse(digest.equals(ClassVerificationCache.digest(bytes, 0, bytes.length)));
+            bytes[i] ^= 1;
+        }
+
+        // the empty input has the well known SHA-256 digest
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", ClassVerificationCache.digest(new byte[0], 0, 0));
+    }
+
+    public void test_fingerprint() throws IOException {
+        final File a = File.createTempFile("cvc", ".jar");
+        final File b = File.createTempFile("cvc", ".jar");
+        try {
+            writeFile(a, 10);
+            writeFile(b, 20);
+            final String ab = ClassVerificationCache.fingerprint(Arrays.asList(a, b));
+            assertEquals(ab, ClassVerificationCache.fingerprint(Arrays.asList(a, b)));
+            assertFalse(ab.equals(ClassVerificationCache.fingerprint(Arrays.asList(b, a))));
+            assertFalse(ab.equals(ClassVerificationCache.fingerprint(Arrays.asList(a))));
+
+            // modifying an entry changes the fingerprint
+            writeFile(b, 21);
+            assertFalse(ab.equals(ClassVerificationCache.fingerprint(Arrays.asList(a, b))));
+            final String modified = ClassVerificationCache.fingerprint(Arrays.asList(a, b));
+            assertTrue(b.setLastModified(b.lastModified() - 10000));
+            assertFalse(modified.equals(ClassVerificationCache.fingerprint(Arrays.asList(a, b))));
+        } finally {
+            a.delete();
+            b.delete();
+        }
+    }
+
+    public void test_readWrite() throws IOException {
+        final File file = File.createTempFile("cvc", ".cache");
+        try {
+            final Set<String> keys = new HashSet<String>();
+            keys.add("boot java.lang.Object 00");
+            keys.add("sun.misc.Launcher$AppClassLoader test.Foo 01");
+            ClassVerificationCache.write(file, "fp1", keys);
+            assertEquals(keys, ClassVerificationCache.read(file, "fp1"));
+
+            // a cache recorded for another class path is discarded
+            assertTrue(ClassVerificationCache.read(file, "fp2").isEmpty());
+
+            final FileOutputStream out = new FileOutputStream(file);
+            out.write(new byte[] {1, 2, 3, 4, 5, 6});
+            out.close();
+            try {
+                ClassVerificationCache.read(file, "fp1");
+                fail("read a corrupt cache file");
+            } catch (IOException e) {
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void test_lookupUnrecorded() {
+        final ClassActor classActor = ClassActor.fromJava(ClassVerificationCacheTest.class);
+        assertFalse(ClassVerificationCache.lookup(classActor));
+
+        // a class whose class file was not recorded when it was defined is never recorded as verified
+        ClassVerificationCache.verified(classActor, false);
+        assertFalse(ClassVerificationCache.lookup(classActor));
+    }
+
+    private static void writeFile(File file, int length) throws IOException {
+        final FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[length]);
+        out.close();
+    }
+}
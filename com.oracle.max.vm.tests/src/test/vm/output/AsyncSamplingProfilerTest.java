@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.vm.output;
+
+import java.io.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.vm.profilers.sampling.*;
+
+/**
+ * Runs the {@link AsyncSamplingProfiler} over a thread that keeps the CPU busy in one method and checks that the
+ * collapsed stacks it writes out attribute samples to that method.
+ */
+public class AsyncSamplingProfilerTest implements MaxineOnly {
+
+    static final long SPIN_NANOS = 2000000000L;
+
+    static volatile long sink;
+
+    @NEVER_INLINE
+    static long spin(long iterations) {
+        long result = 17;
+        for (long i = 0; i < iterations; i++) {
+            result = result * 31 + i;
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws IOException {
+        final File file = File.createTempFile("aprof", ".txt");
+        file.deleteOnExit();
+        final AsyncSamplingProfiler profiler = new AsyncSamplingProfiler("-Xaprof", ":period=1000,file=" + file.getPath());
+        final long start = System.nanoTime();
+        while (System.nanoTime() - start < SPIN_NANOS) {
+            sink = spin(1000000);
+        }
+        profiler.terminate();
+
+        final String leaf = AsyncSamplingProfilerTest.class.getName() + ".spin";
+        final String caller = AsyncSamplingProfilerTest.class.getName() + ".main;";
+        long samples = 0;
+        final BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int space = line.lastIndexOf(' ');
+                check(space > 0, "malformed collapsed stack: " + line);
+                final String stack = line.substring(0, space);
+                final long count = Long.parseLong(line.substring(space + 1));
+                check(count > 0, "empty collapsed stack: " + line);
+                if (stack.endsWith(leaf)) {
+                    check(stack.contains(caller), "caller of spin missing: " + line);
+                    samples += count;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        check(samples > 0, "no samples in " + leaf);
+        System.out.println("spin sampled");
+    }
+
+    static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
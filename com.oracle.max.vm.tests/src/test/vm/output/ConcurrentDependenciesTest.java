@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.vm.output;
+
+import static com.sun.max.vm.MaxineVM.*;
+
+import java.util.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.compiler.RuntimeCompiler.Nature;
+import com.sun.max.vm.compiler.deps.*;
+import com.sun.max.vm.compiler.target.*;
+
+/**
+ * Checks that optimized code compiled while subclasses are being loaded never runs with stale class hierarchy
+ * {@linkplain Dependencies dependencies}. One thread repeatedly compiles a call site whose receiver has a unique
+ * concrete method when the test starts, while the main thread loads new subclasses that override it. Every
+ * compilation must either be invalidated by a class loaded after it was validated or dispatch to the overriding
+ * methods of every subclass loaded so far.
+ */
+public class ConcurrentDependenciesTest implements MaxineOnly {
+
+    abstract static class Base {
+        abstract int sides();
+    }
+
+    static final class Leaf extends Base {
+        @Override
+        int sides() {
+            return 1;
+        }
+    }
+
+    static final int SUBCLASSES = 8;
+
+    static class Sub0 extends Base {
+        @Override
+        int sides() {
+            return 10;
+        }
+    }
+
+    static class Sub1 extends Base {
+        @Override
+        int sides() {
+            return 11;
+        }
+    }
+
+    static class Sub2 extends Base {
+        @Override
+        int sides() {
+            return 12;
+        }
+    }
+
+    static class Sub3 extends Base {
+        @Override
+        int sides() {
+            return 13;
+        }
+    }
+
+    static class Sub4 extends Base {
+        @Override
+        int sides() {
+            return 14;
+        }
+    }
+
+    static class Sub5 extends Base {
+        @Override
+        int sides() {
+            return 15;
+        }
+    }
+
+    static class Sub6 extends Base {
+        @Override
+        int sides() {
+            return 16;
+        }
+    }
+
+    static class Sub7 extends Base {
+        @Override
+        int sides() {
+            return 17;
+        }
+    }
+
+    /**
+     * The instances of the subclasses loaded so far, the {@code i}th one returning {@code 10 + i} from {@link Base#sides()}.
+     */
+    static final List<Base> loaded = Collections.synchronizedList(new ArrayList<Base>());
+
+    static volatile boolean loading = true;
+
+    @NEVER_INLINE
+    static int callSides(Base base) {
+        return base.sides();
+    }
+
+    public static void main(String[] args) throws Exception {
+        final ClassMethodActor cma = ClassMethodActor.fromJava(ConcurrentDependenciesTest.class.getDeclaredMethod("callSides", Base.class));
+        final Base leaf = new Leaf();
+        final Throwable[] failure = {null};
+        final int[] compilations = {0};
+        final Thread compiler = new Thread("Compiler") {
+            @Override
+            public void run() {
+                try {
+                    do {
+                        final TargetMethod targetMethod = vm().compilationBroker.compile(cma, Nature.OPT);
+                        check(targetMethod != null, "no optimized compilation");
+                        compilations[0]++;
+                        checkDispatch(leaf);
+                    } while (loading);
+                } catch (Throwable e) {
+                    failure[0] = e;
+                }
+            }
+        };
+        compiler.start();
+        for (int i = 0; i < SUBCLASSES; i++) {
+            final Class<?> subclass = Class.forName(ConcurrentDependenciesTest.class.getName() + "$Sub" + i);
+            loaded.add((Base) subclass.newInstance());
+            checkDispatch(leaf);
+            Thread.sleep(10);
+        }
+        loading = false;
+        compiler.join();
+        if (failure[0] != null) {
+            throw new IllegalStateException("compiler thread failed", failure[0]);
+        }
+        vm().compilationBroker.compile(cma, Nature.OPT);
+        checkDispatch(leaf);
+        System.out.println("dispatched correctly after " + compilations[0] + " concurrent compilations");
+    }
+
+    static void checkDispatch(Base leaf) {
+        check(callSides(leaf) == 1, "wrong dispatch to the leaf class");
+        final Base[] subclasses = loaded.toArray(new Base[0]);
+        for (int i = 0; i < subclasses.length; i++) {
+            final int sides = callSides(subclasses[i]);
+            check(sides == 10 + i, "dispatched " + subclasses[i].getClass().getSimpleName() + " to a method returning " + sides);
+        }
+    }
+
+    static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
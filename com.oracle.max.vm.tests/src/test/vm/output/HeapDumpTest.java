@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.vm.output;
+
+import java.io.*;
+import java.util.*;
+
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.management.*;
+
+/**
+ * Writes an HPROF heap dump with {@link HeapDumper} and parses it back. The header, the framing of all records
+ * and the sub-records of every heap dump segment are checked, and the instances of a marker class are counted and
+ * their field values summed.
+ */
+public class HeapDumpTest implements MaxineOnly {
+
+    static final int MARKERS = 1000;
+
+    static class Marker {
+        final int value;
+
+        Marker(int value) {
+            this.value = value;
+        }
+    }
+
+    static Marker[] markers;
+
+    public static void main(String[] args) throws IOException {
+        markers = new Marker[MARKERS];
+        long expectedSum = 0;
+        for (int i = 0; i < MARKERS; i++) {
+            markers[i] = new Marker(i * 3);
+            expectedSum += i * 3;
+        }
+        final File file = File.createTempFile("heapdump", ".hprof");
+        try {
+            // This fails if the heap scheme cannot walk its heap; the vm-output image uses one that can.
+            HeapDumper.dumpHeap(file.getPath(), false);
+            final Reader reader = new Reader(new DataInputStream(new BufferedInputStream(new FileInputStream(file))));
+            try {
+                reader.read();
+            } finally {
+                reader.in.close();
+            }
+            Reader.check(reader.idSize == Word.size(), "id size does not match word size");
+            Reader.check(reader.ended, "no HEAP_DUMP_END record");
+            final Long markerClass = reader.classIDs.get(Marker.class.getName().replace('.', '/'));
+            Reader.check(markerClass != null, "marker class not found");
+            final Integer markerCount = reader.instanceCounts.get(markerClass);
+            Reader.check(markerCount != null && markerCount == MARKERS, "found " + markerCount + " marker instances, expected " + MARKERS);
+            final Long markerSum = reader.firstIntSums.get(markerClass);
+            Reader.check(markerSum != null && markerSum == expectedSum, "marker values sum to " + markerSum + ", expected " + expectedSum);
+            Reader.check(reader.threadRoots > 0, "no root thread objects");
+            System.out.println("heap dump of " + MARKERS + " markers read back");
+        } finally {
+            file.delete();
+        }
+    }
+
+    static class Reader {
+        final DataInputStream in;
+        int idSize;
+        boolean ended;
+        int threadRoots;
+        final Map<Long, String> strings = new HashMap<Long, String>();
+        final Map<String, Long> classIDs = new HashMap<String, Long>();
+        final Map<Long, Integer> instanceCounts = new HashMap<Long, Integer>();
+        final Map<Long, Long> firstIntSums = new HashMap<Long, Long>();
+
+        Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        long id() throws IOException {
+            return idSize == 8 ? in.readLong() : in.readInt() & 0xFFFFFFFFL;
+        }
+
+        void skip(long n) throws IOException {
+            while (n > 0) {
+                final int skipped = in.skipBytes((int) Math.min(n, Integer.MAX_VALUE));
+                if (skipped <= 0) {
+                    throw new EOFException();
+                }
+                n -= skipped;
+            }
+        }
+
+        int valueSize(int type) {
+            switch (type) {
+                case 2:  return idSize;
+                case 4:
+                case 8:  return 1;
+                case 5:
+                case 9:  return 2;
+                case 6:
+                case 10: return 4;
+                case 7:
+                case 11: return 8;
+                default: throw new IllegalStateException("bad basic type " + type);
+            }
+        }
+
+        void read() throws IOException {
+            final StringBuilder format = new StringBuilder();
+            for (int b = in.readByte(); b != 0; b = in.readByte()) {
+                format.append((char) b);
+            }
+            check(format.toString().equals("JAVA PROFILE 1.0.2"), "bad format " + format);
+            idSize = in.readInt();
+            check(idSize == 4 || idSize == 8, "bad id size " + idSize);
+            in.readLong();
+
+            int tag;
+            while ((tag = in.read()) != -1) {
+                check(!ended, "record after HEAP_DUMP_END");
+                in.readInt();
+                final long length = in.readInt() & 0xFFFFFFFFL;
+                switch (tag) {
+                    case 0x01: {
+                        final long id = id();
+                        final byte[] bytes = new byte[(int) length - idSize];
+                        in.readFully(bytes);
+                        strings.put(id, new String(bytes, "UTF-8"));
+                        break;
+                    }
+                    case 0x02: {
+                        check(length == 8 + 2 * idSize, "bad LOAD_CLASS length");
+                        in.readInt();
+                        final long classID = id();
+                        in.readInt();
+                        final String name = strings.get(id());
+                        check(name != null, "LOAD_CLASS refers to an undefined string");
+                        classIDs.put(name, classID);
+                        break;
+                    }
+                    case 0x1C:
+                        readSegment(length);
+                        break;
+                    case 0x2C:
+                        check(length == 0, "bad HEAP_DUMP_END length");
+                        ended = true;
+                        break;
+                    default:
+                        skip(length);
+                        break;
+                }
+            }
+        }
+
+        void readSegment(long length) throws IOException {
+            long remaining = length;
+            while (remaining > 0) {
+                final int tag = in.readUnsignedByte();
+                long n = 1;
+                switch (tag) {
+                    case 0xFF:
+                        id();
+                        n += idSize;
+                        break;
+                    case 0x08:
+                        id();
+                        in.readInt();
+                        in.readInt();
+                        n += idSize + 8;
+                        threadRoots++;
+                        break;
+                    case 0x20: {
+                        // class, stack trace serial, super class, loader, signers, protection domain, 2 reserved
+                        id();
+                        in.readInt();
+                        for (int i = 0; i < 6; i++) {
+                            id();
+                        }
+                        in.readInt(); // instance size
+                        n += 7 * idSize + 8;
+                        check(in.readUnsignedShort() == 0, "unexpected constant pool entries");
+                        final int statics = in.readUnsignedShort();
+                        n += 4;
+                        for (int i = 0; i < statics; i++) {
+                            id();
+                            final int size = valueSize(in.readUnsignedByte());
+                            skip(size);
+                            n += idSize + 1 + size;
+                        }
+                        final int fields = in.readUnsignedShort();
+                        n += 2;
+                        for (int i = 0; i < fields; i++) {
+                            id();
+                            valueSize(in.readUnsignedByte());
+                            n += idSize + 1;
+                        }
+                        break;
+                    }
+                    case 0x21: {
+                        id();
+                        in.readInt();
+                        final long classID = id();
+                        final int size = in.readInt();
+                        n += 2 * idSize + 8 + size;
+                        final Integer count = instanceCounts.get(classID);
+                        instanceCounts.put(classID, count == null ? 1 : count + 1);
+                        if (size >= 4) {
+                            final Long sum = firstIntSums.get(classID);
+                            firstIntSums.put(classID, (sum == null ? 0 : sum) + in.readInt());
+                            skip(size - 4);
+                        } else {
+                            skip(size);
+                        }
+                        break;
+                    }
+                    case 0x22: {
+                        id();
+                        in.readInt();
+                        final int elements = in.readInt();
+                        id();
+                        skip((long) elements * idSize);
+                        n += 2 * idSize + 8 + (long) elements * idSize;
+                        break;
+                    }
+                    case 0x23: {
+                        id();
+                        in.readInt();
+                        final int elements = in.readInt();
+                        final int size = valueSize(in.readUnsignedByte());
+                        skip((long) elements * size);
+                        n += idSize + 9 + (long) elements * size;
+                        break;
+                    }
+                    default:
+                        throw new IllegalStateException("bad heap dump sub-record tag " + tag);
+                }
+                remaining -= n;
+            }
+            check(remaining == 0, "heap dump segment overrun by " + -remaining + " bytes");
+        }
+
+        static void check(boolean condition, String message) {
+            if (!condition) {
+                throw new IllegalStateException(message);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.vm.output;
+
+import java.lang.management.*;
+
+import com.sun.max.memory.*;
+import com.sun.max.platform.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.management.*;
+
+/**
+ * Checks the huge page coverage reported by {@link HugePageMemoryPoolMXBean} and that
+ * {@link VirtualMemory#AlwaysPreTouch} with {@link VirtualMemory#PreTouchParallelism} commits usable, zeroed memory when
+ * explicit huge pages cannot be used, either because the range is not aligned to the huge page size or because the
+ * huge page pool cannot satisfy the request.
+ */
+public class HugePageTest implements MaxineOnly {
+
+    static final int PRE_TOUCH_THREADS = 4;
+
+    /**
+     * Large enough for the native pre-touch code to use {@link #PRE_TOUCH_THREADS} threads.
+     */
+    static final long PRE_TOUCH_SIZE = 128L * 1024 * 1024;
+
+    public static void main(String[] args) {
+        checkMemoryPools();
+        final boolean savedLargePages = VirtualMemory.UseLargePages;
+        final boolean savedPreTouch = VirtualMemory.AlwaysPreTouch;
+        final int savedParallelism = VirtualMemory.PreTouchParallelism;
+        VirtualMemory.UseLargePages = true;
+        VirtualMemory.AlwaysPreTouch = true;
+        VirtualMemory.PreTouchParallelism = PRE_TOUCH_THREADS;
+        try {
+            final long pageSize = Platform.platform().pageSize;
+            final long hugePageSize = VirtualMemory.getHugePageSize().toLong();
+            check(hugePageSize >= 0 && (hugePageSize == 0 || hugePageSize % pageSize == 0), "bad huge page size " + hugePageSize);
+            // one page more than a multiple of the huge page size cannot be backed by explicit huge pages
+            preTouch(PRE_TOUCH_SIZE + pageSize);
+            // if the huge page pool cannot satisfy this one, it is committed with normal pages
+            preTouch(PRE_TOUCH_SIZE);
+        } finally {
+            VirtualMemory.UseLargePages = savedLargePages;
+            VirtualMemory.AlwaysPreTouch = savedPreTouch;
+            VirtualMemory.PreTouchParallelism = savedParallelism;
+        }
+        System.out.println("huge page coverage and pre-touching are consistent");
+    }
+
+    static void checkMemoryPools() {
+        int checked = 0;
+        for (MemoryPoolMXBean pool : MemoryManagement.getMemoryPools()) {
+            if (!(pool instanceof HugePageMemoryPoolMXBean)) {
+                continue;
+            }
+            final HugePageMemoryPoolMXBean hugePagePool = (HugePageMemoryPoolMXBean) pool;
+            final long bytes = hugePagePool.getHugePageBytes();
+            final double coverage = hugePagePool.getHugePageCoverage();
+            final String name = pool.getName();
+            check(bytes >= 0, name + " reports " + bytes + " huge page bytes");
+            check(coverage >= 0.0 && coverage <= 100.0, name + " reports a huge page coverage of " + coverage + "%");
+            check(bytes > 0 || coverage == 0.0, name + " reports a coverage of " + coverage + "% without huge page bytes");
+            checked++;
+        }
+        check(checked > 0, "no memory pool reports huge page coverage");
+    }
+
+    static void preTouch(long size) {
+        final Size rangeSize = Size.fromLong(size);
+        final Pointer start = VirtualMemory.allocate(rangeSize, VirtualMemory.Type.HEAP);
+        check(!start.isZero(), "could not allocate " + size + " bytes with pre-touching");
+        try {
+            final long pageSize = Platform.platform().pageSize;
+            for (long offset = 0; offset < size; offset += pageSize) {
+                check(start.readLong(Offset.fromLong(offset)) == 0L, "pre-touched page at offset " + offset + " is not zeroed");
+            }
+            start.writeLong(Offset.fromLong(size - 8), 0xCAFEBABEL);
+            check(start.readLong(Offset.fromLong(size - 8)) == 0xCAFEBABEL, "pre-touched memory is not writable");
+            final long hugePageBytes = VirtualMemory.getHugePageBytes(start, rangeSize).toLong();
+            check(hugePageBytes >= 0 && hugePageBytes <= size, "range of " + size + " bytes reports " + hugePageBytes + " huge page bytes");
+        } finally {
+            VirtualMemory.deallocate(start, rangeSize, VirtualMemory.Type.HEAP);
+        }
+    }
+
+    static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.vm.output;
+
+import java.lang.management.*;
+
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.management.*;
+
+/**
+ * Checks the statistics of the last collection reported to the {@code GetLastGCStat} JMM entry point by
+ * {@link GCTelemetry#lastGCStat(MemoryUsage[], MemoryUsage[])}.
+ */
+public class LastGCStatTest implements MaxineOnly {
+
+    static Object[] sink;
+
+    public static void main(String[] args) {
+        final int pools = MemoryManagement.getMemoryPools().length;
+        final MemoryUsage[] before = new MemoryUsage[pools];
+        final MemoryUsage[] after = new MemoryUsage[pools];
+
+        System.gc();
+        final long[] first = GCTelemetry.lastGCStat(before, after);
+        check(first != null, "no statistics after a collection");
+        check(first[0] > 0, "collection index " + first[0]);
+        check(first[1] >= 0 && first[2] >= first[1], "collection from " + first[1] + " ms to " + first[2] + " ms");
+        long usedBefore = 0;
+        long usedAfter = 0;
+        for (int i = 0; i < pools; i++) {
+            check(before[i] != null && after[i] != null, "no usage for pool " + i);
+            usedBefore += before[i].getUsed();
+            usedAfter += after[i].getUsed();
+        }
+        check(usedBefore > 0 && usedAfter > 0, "no memory used before or after the collection");
+
+        final Object[] garbage = new Object[1024];
+        for (int i = 0; i < garbage.length; i++) {
+            garbage[i] = new byte[1024];
+        }
+        sink = garbage;
+        sink = null;
+        System.gc();
+        final long[] second = GCTelemetry.lastGCStat(null, null);
+        check(second[0] > first[0], "collection index did not increase: " + first[0] + " then " + second[0]);
+        check(second[1] >= first[2], "collection " + second[0] + " started before collection " + first[0] + " ended");
+        System.out.println("last GC statistics recorded");
+    }
+
+    static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.vm.output;
+
+import java.io.*;
+import java.util.*;
+
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.classfile.*;
+import com.sun.max.vm.classfile.constant.*;
+
+/**
+ * Checks that the tables of a code attribute decoded {@linkplain ClassfileReader#LazyCodeAttributes lazily} are
+ * the same as those decoded when the class is defined. The same class file is defined by two class loaders, once
+ * with and once without lazy decoding.
+ */
+public class LazyCodeAttributesTest implements MaxineOnly {
+
+    /**
+     * A class with exception handlers, line numbers, local variables and stack maps.
+     */
+    public static class Subject {
+        int field;
+
+        public int loop(int n) {
+            int sum = 0;
+            for (int i = 0; i < n; i++) {
+                if (i % 2 == 0) {
+                    sum += i;
+                }
+            }
+            return sum;
+        }
+
+        public static String handlers(String s) {
+            try {
+                return s.substring(1);
+            } catch (StringIndexOutOfBoundsException e) {
+                return "";
+            } catch (NullPointerException e) {
+                return null;
+            } finally {
+                System.identityHashCode(s);
+            }
+        }
+
+        public static native void noCode();
+    }
+
+    static ClassActor define(byte[] bytes, boolean lazy) {
+        final boolean saved = ClassfileReader.LazyCodeAttributes;
+        ClassfileReader.LazyCodeAttributes = lazy;
+        try {
+            return ClassfileReader.defineClassActor(Subject.class.getName(), new ClassLoader(null) { }, bytes, null, null, false);
+        } finally {
+            ClassfileReader.LazyCodeAttributes = saved;
+        }
+    }
+
+    static int compare(ClassMethodActor[] eager, ClassMethodActor[] lazy) {
+        check(eager.length == lazy.length, "different number of methods");
+        int compared = 0;
+        for (int i = 0; i < eager.length; i++) {
+            final CodeAttribute e = eager[i].codeAttribute();
+            final CodeAttribute l = lazy[i].codeAttribute();
+            final String name = eager[i].name.toString();
+            check(name.equals(lazy[i].name.toString()), "methods in a different order");
+            if (e == null) {
+                check(l == null, "lazily read code for " + name);
+                continue;
+            }
+            check(l != null, "no lazily read code for " + name);
+            // access the tables of the lazy attribute in a different order than the checks below
+            l.stackMapTable();
+            check(Arrays.equals(e.code(), l.code()), "different code in " + name);
+            check(e.maxStack == l.maxStack && e.maxLocals == l.maxLocals, "different frame size in " + name);
+            check(Arrays.equals(e.encodedData(), l.encodedData()), "different tables in " + name);
+            check(Arrays.equals(e.exceptionHandlerBCIs(), l.exceptionHandlerBCIs()), "different exception handlers in " + name);
+            check(e.lineNumberTable().entries().length == l.lineNumberTable().entries().length, "different line numbers in " + name);
+            check((e.stackMapTable() == null) == (l.stackMapTable() == null), "different stack maps in " + name);
+            compared++;
+        }
+        return compared;
+    }
+
+    public static void main(String[] args) throws IOException {
+        final InputStream in = LazyCodeAttributesTest.class.getResourceAsStream("LazyCodeAttributesTest$Subject.class");
+        check(in != null, "class file of " + Subject.class.getName() + " not found");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        for (int n = in.read(buffer); n > 0; n = in.read(buffer)) {
+            out.write(buffer, 0, n);
+        }
+        in.close();
+        final byte[] bytes = out.toByteArray();
+
+        final ClassActor eager = define(bytes, false);
+        final ClassActor lazy = define(bytes, true);
+        check(eager != lazy, "the class was defined only once");
+        int compared = compare(eager.localStaticMethodActors(), lazy.localStaticMethodActors());
+        compared += compare(eager.localVirtualMethodActors(), lazy.localVirtualMethodActors());
+        check(compared == 3, "compared the code of " + compared + " methods");
+        // a handler for each catch clause and for the finally clause
+        check(lazy.findLocalStaticMethodActor(SymbolTable.makeSymbol("handlers")).codeAttribute().exceptionHandlerTable().length >= 3, "exception handlers lost");
+        System.out.println("lazily decoded code attributes match");
+    }
+
+    static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.vm.output;
+
+import static com.sun.max.vm.MaxineVM.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.compiler.RuntimeCompiler.Nature;
+import com.sun.max.vm.compiler.target.*;
+import com.sun.max.vm.profile.*;
+
+/**
+ * Checks that {@link MethodProfileCache} finds the profile of a method through its current baseline compilation,
+ * so that the profile of a replaced compilation is neither reported nor kept alive by the cache.
+ */
+public class MethodProfileCacheTest implements MaxineOnly {
+
+    static int sum;
+
+    @NEVER_INLINE
+    static void profiled(int n) {
+        for (int i = 0; i < n; i++) {
+            if (i % 3 == 0) {
+                sum += i;
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        final ClassMethodActor cma = ClassMethodActor.fromJava(MethodProfileCacheTest.class.getDeclaredMethod("profiled", int.class));
+
+        final TargetMethod first = vm().compilationBroker.compile(cma, Nature.BASELINE);
+        check(first != null && first.isBaseline(), "no baseline compilation");
+        final MethodProfile firstProfile = first.profile();
+        check(firstProfile != null, "the baseline compilation is not profiled");
+        check(MethodProfileCache.currentProfile(cma) == firstProfile, "the profile of the baseline compilation is not current");
+
+        final TargetMethod second = vm().compilationBroker.compile(cma, Nature.BASELINE);
+        check(second != first, "the method was not recompiled");
+        check(MethodProfileCache.currentProfile(cma) == second.profile(), "the profile of the new baseline compilation is not current");
+        check(MethodProfileCache.currentProfile(cma) != firstProfile, "the profile of the replaced compilation is still current");
+        System.out.println("profiles found through the current baseline compilation");
+    }
+
+    static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.vm.output;
+
+import static com.sun.max.vm.VMConfiguration.*;
+import static com.sun.max.vm.heap.gcx.HeapRegionConstants.*;
+
+import com.sun.max.memory.*;
+import com.sun.max.vm.heap.gcx.*;
+import com.sun.max.vm.heap.gcx.mse.*;
+import com.sun.max.vm.object.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * Checks NUMA-aware heap region allocation with a {@linkplain NUMATopology#NUMASimulatedNodes simulated} topology of
+ * two nodes. Threads must map to nodes by identifier and regions must have round-robin home nodes. Node-aware region
+ * selection is only implemented by the TLAB allocator of {@link FirstFitMarkSweepSpace}, so when the heap scheme is
+ * {@link MSEHeapScheme} the test also checks that objects allocated by a single thread mostly end up in regions local
+ * to that thread. With other heap schemes it only checks that allocation and GC still work.
+ */
+public class NUMASimulatedNodesTest implements MaxineOnly {
+
+    static final int NODES = 2;
+    static final int ARRAY_LENGTH = 64;
+    static final int ARRAYS = 1 << 19;
+    static final int SAMPLE_INTERVAL = 256;
+
+    public static void main(String[] args) throws InterruptedException {
+        NUMATopology.NUMASimulatedNodes = NODES;
+        NUMATopology.UseNUMA = true;
+        try {
+            check(NUMATopology.isEnabled(), "a simulated topology of " + NODES + " nodes is not enabled");
+            check(NUMATopology.numNodes() == NODES, "simulated " + NUMATopology.numNodes() + " nodes");
+            for (int regionID = 0; regionID < 4 * NODES; regionID++) {
+                check(NUMATopology.homeNode(regionID) == regionID % NODES, "region " + regionID + " is not homed round-robin");
+            }
+            checkThreadNodes();
+            checkAllocation();
+        } finally {
+            NUMATopology.UseNUMA = false;
+        }
+        System.out.println("NUMA topology of " + NODES + " simulated nodes");
+    }
+
+    /**
+     * Checks that threads map to nodes by identifier, so that consecutive threads cover all nodes.
+     */
+    static void checkThreadNodes() throws InterruptedException {
+        final boolean[] seen = new boolean[NODES];
+        final Thread[] threads = new Thread[2 * NODES];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread("NUMANode" + i) {
+                @Override
+                public void run() {
+                    final int node = NUMATopology.currentNode();
+                    check(node == VmThread.current().id() % NODES, "thread " + VmThread.current().id() + " runs on simulated node " + node);
+                    synchronized (seen) {
+                        seen[node] = true;
+                    }
+                }
+            };
+            threads[i].start();
+            threads[i].join();
+        }
+        for (int node = 0; node < NODES; node++) {
+            check(seen[node], "no thread ran on simulated node " + node);
+        }
+    }
+
+    /**
+     * Allocates enough to refill the TLAB allocator with many regions and, if allocation is node-aware, checks that
+     * most sampled objects are in regions homed on the allocating thread's node.
+     */
+    static void checkAllocation() {
+        final boolean nodeAware = vmConfig().heapScheme() instanceof MSEHeapScheme;
+        final int node = NUMATopology.currentNode();
+        final byte[][] samples = new byte[ARRAYS / SAMPLE_INTERVAL][];
+        int local = 0;
+        int sampled = 0;
+        for (int i = 0; i < ARRAYS; i++) {
+            final byte[] array = new byte[ARRAY_LENGTH];
+            array[0] = (byte) i;
+            if (i % SAMPLE_INTERVAL == 0) {
+                samples[i / SAMPLE_INTERVAL] = array;
+                // the first half allocates from regions obtained before NUMA awareness was enabled
+                if (nodeAware && i >= ARRAYS / 2) {
+                    final int regionID = RegionTable.theRegionTable().regionID(ObjectAccess.toOrigin(array));
+                    if (regionID != INVALID_REGION_ID) {
+                        sampled++;
+                        if (NUMATopology.homeNode(regionID) == node) {
+                            local++;
+                        }
+                    }
+                }
+            }
+        }
+        System.gc();
+        for (int i = 0; i < samples.length; i++) {
+            check(samples[i].length == ARRAY_LENGTH && samples[i][0] == (byte) (i * SAMPLE_INTERVAL), "corrupted array " + i);
+        }
+        if (nodeAware) {
+            check(sampled > 0, "no sampled object in a heap region");
+            check(2 * local > sampled, "only " + local + " of " + sampled + " sampled objects are in regions local to node " + node);
+        }
+    }
+
+    static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
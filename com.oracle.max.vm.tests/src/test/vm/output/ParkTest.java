@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.vm.output;
+
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * Checks {@link LockSupport#park()} and {@link LockSupport#unpark(Thread)}, which are implemented by
+ * {@link com.sun.max.vm.thread.VmThread#park(boolean, long)}: a pending permit is consumed by one park, relative and
+ * absolute timeouts expire, and both an unpark and an interrupt from another thread wake a parked thread.
+ */
+public class ParkTest implements MaxineOnly {
+
+    static final long TIMEOUT_MILLIS = 100;
+    static final long JOIN_MILLIS = 10000;
+
+    public static void main(String[] args) throws InterruptedException {
+        testPermit();
+        testRelativeTimeout();
+        testAbsoluteDeadline();
+        testUnpark();
+        testInterrupt();
+        System.out.println("ParkTest: park and unpark behave correctly");
+    }
+
+    static void testPermit() {
+        final Thread current = Thread.currentThread();
+        LockSupport.unpark(current);
+        LockSupport.unpark(current);
+        long start = System.nanoTime();
+        LockSupport.park();
+        check(elapsedMillis(start) < JOIN_MILLIS, "park did not consume the pending permit");
+
+        // permits do not accumulate, so the second unpark left nothing behind
+        start = System.nanoTime();
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS));
+        check(elapsedMillis(start) >= TIMEOUT_MILLIS / 2, "park returned early after its permit was consumed");
+    }
+
+    static void testRelativeTimeout() {
+        final long start = System.nanoTime();
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS));
+        final long elapsed = elapsedMillis(start);
+        check(elapsed >= TIMEOUT_MILLIS / 2, "parkNanos returned after " + elapsed + "ms");
+        check(elapsed < JOIN_MILLIS, "parkNanos did not time out");
+    }
+
+    static void testAbsoluteDeadline() {
+        long start = System.nanoTime();
+        LockSupport.parkUntil(System.currentTimeMillis() + TIMEOUT_MILLIS);
+        final long elapsed = elapsedMillis(start);
+        check(elapsed >= TIMEOUT_MILLIS / 2, "parkUntil returned after " + elapsed + "ms");
+        check(elapsed < JOIN_MILLIS, "parkUntil did not reach its deadline");
+
+        start = System.nanoTime();
+        LockSupport.parkUntil(System.currentTimeMillis() - TIMEOUT_MILLIS);
+        check(elapsedMillis(start) < JOIN_MILLIS, "parkUntil with a past deadline blocked");
+    }
+
+    static void testUnpark() throws InterruptedException {
+        final Parked parked = new Parked();
+        parked.start();
+        parked.awaitParking();
+        parked.unparked = true;
+        LockSupport.unpark(parked);
+        parked.join(JOIN_MILLIS);
+        check(!parked.isAlive(), "unpark did not wake a parked thread");
+        check(!parked.wasInterrupted, "unpark set the interrupted status");
+    }
+
+    static void testInterrupt() throws InterruptedException {
+        final Parked parked = new Parked();
+        parked.start();
+        parked.awaitParking();
+        parked.interrupt();
+        parked.join(JOIN_MILLIS);
+        check(!parked.isAlive(), "interrupt did not wake a parked thread");
+        check(parked.wasInterrupted, "park cleared the interrupted status");
+
+        // a thread that is already interrupted does not park
+        Thread.currentThread().interrupt();
+        final long start = System.nanoTime();
+        LockSupport.park();
+        check(elapsedMillis(start) < JOIN_MILLIS, "park blocked an interrupted thread");
+        check(Thread.interrupted(), "park cleared the interrupted status of the current thread");
+    }
+
+    /**
+     * A thread that parks until it is unparked or interrupted, ignoring spurious returns.
+     */
+    static final class Parked extends Thread {
+        final CountDownLatch parking = new CountDownLatch(1);
+        volatile boolean unparked;
+        volatile boolean wasInterrupted;
+
+        Parked() {
+            super("Parked");
+        }
+
+        void awaitParking() throws InterruptedException {
+            parking.await();
+            // give the thread time to block in park
+            Thread.sleep(TIMEOUT_MILLIS);
+        }
+
+        @Override
+        public void run() {
+            parking.countDown();
+            final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(JOIN_MILLIS);
+            while (!unparked && !Thread.currentThread().isInterrupted() && System.nanoTime() < deadline) {
+                LockSupport.park(this);
+            }
+            wasInterrupted = Thread.currentThread().isInterrupted();
+        }
+    }
+
+    static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
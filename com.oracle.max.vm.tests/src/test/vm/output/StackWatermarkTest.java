@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.vm.output;
+
+import com.sun.max.annotate.*;
+import com.sun.max.vm.stack.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * Checks the reuse of reference maps below a {@linkplain StackReferenceMapPreparer#StackWatermarkFrames stack
+ * watermark}. A thread with a deep stack runs several GCs with an unchanged stack, which must stop at the watermark,
+ * then unwinds below the watermark, builds a different stack in its place and runs more GCs. Every frame holds a
+ * reference that is checked after the GCs, so a stale reference map shows up as a corrupted or lost object.
+ */
+public class StackWatermarkTest implements MaxineOnly {
+
+    static final int DEPTH = 64;
+    static final int UNWIND_DEPTH = 8;
+    static final int GCS = 3;
+
+    static final class Node {
+        final int depth;
+        final String name;
+
+        Node(int depth) {
+            this.depth = depth;
+            this.name = "node" + depth;
+        }
+
+        void check(int expectedDepth) {
+            StackWatermarkTest.check(depth == expectedDepth && name.equals("node" + expectedDepth), "corrupted node at depth " + expectedDepth);
+        }
+    }
+
+    static int unchangedReuses;
+    static int unwoundReuses;
+
+    @NEVER_INLINE
+    static void recurse(int depth) {
+        final Node node = new Node(depth);
+        if (depth == DEPTH) {
+            unchangedReuses = gcWithUnchangedStack();
+        } else {
+            recurse(depth + 1);
+            if (depth == UNWIND_DEPTH) {
+                // the frames above this one, including the watermark frame, are gone
+                final int before = reuseCount();
+                recurseAgain(depth + 1, new Object[] {node});
+                unwoundReuses = reuseCount() - before;
+            }
+        }
+        node.check(depth);
+    }
+
+    @NEVER_INLINE
+    static void recurseAgain(int depth, Object[] holder) {
+        final Node node = new Node(depth);
+        final long padding = depth * 31L;
+        if (depth == DEPTH) {
+            gcWithUnchangedStack();
+        } else {
+            recurseAgain(depth + 1, new Object[] {node, holder});
+        }
+        check(padding == depth * 31L, "corrupted primitive at depth " + depth);
+        node.check(depth);
+        check(holder.length == 1 || holder.length == 2, "corrupted holder at depth " + depth);
+        ((Node) holder[0]).check(depth - 1);
+    }
+
+    /**
+     * Runs {@link #GCS} GCs without changing the stack below this frame.
+     *
+     * @return the number of GCs that reused the reference maps saved at the watermark
+     */
+    @NEVER_INLINE
+    static int gcWithUnchangedStack() {
+        final int before = reuseCount();
+        for (int i = 0; i < GCS; i++) {
+            System.gc();
+        }
+        return reuseCount() - before;
+    }
+
+    static int reuseCount() {
+        return VmThread.current().stackReferenceMapPreparer().watermarkReuseCount();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        StackReferenceMapPreparer.StackWatermarkFrames = 256;
+        final Throwable[] failure = {null};
+        final Thread thread = new Thread("DeepStack") {
+            @Override
+            public void run() {
+                try {
+                    recurse(0);
+                } catch (Throwable e) {
+                    failure[0] = e;
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+        StackReferenceMapPreparer.StackWatermarkFrames = 0;
+        if (failure[0] != null) {
+            throw new IllegalStateException("deep stack thread failed", failure[0]);
+        }
+        // the first GC sets the watermark, the following ones reuse it
+        check(unchangedReuses == GCS - 1, "reused the watermark in " + unchangedReuses + " of " + (GCS - 1) + " GCs with an unchanged stack");
+        // the first GC after unwinding must not reuse the stale watermark
+        check(unwoundReuses < GCS, "reused a stale watermark after unwinding below it");
+        System.out.println("stack watermark reused and invalidated");
+    }
+
+    static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
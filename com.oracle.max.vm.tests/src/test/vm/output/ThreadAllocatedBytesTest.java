@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.vm.output;
+
+import java.util.concurrent.*;
+
+import com.sun.max.vm.management.*;
+
+/**
+ * Checks the per-thread allocated bytes reported by {@link ThreadManagement#getThreadAllocatedBytes(long)} for the
+ * current thread, for a live thread and for threads that are unknown or have terminated.
+ */
+public class ThreadAllocatedBytesTest implements MaxineOnly {
+
+    static final int CHUNK = 1024;
+    static final int CHUNKS = 1024;
+
+    static Object[] sink;
+
+    static void allocate() {
+        final Object[] chunks = new Object[CHUNKS];
+        for (int i = 0; i < CHUNKS; i++) {
+            chunks[i] = new byte[CHUNK];
+        }
+        sink = chunks;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        ThreadManagement.setThreadAllocatedMemoryEnabled(false);
+        check(ThreadManagement.getThreadAllocatedBytes(0) == -1, "allocated bytes reported while disabled");
+        ThreadManagement.setThreadAllocatedMemoryEnabled(true);
+
+        final long before = ThreadManagement.getThreadAllocatedBytes(0);
+        check(before >= 0, "no allocated bytes for the current thread");
+        allocate();
+        final long after = ThreadManagement.getThreadAllocatedBytes(Thread.currentThread().getId());
+        check(after - before >= CHUNK * CHUNKS, "current thread allocated " + (after - before) + " bytes, expected at least " + CHUNK * CHUNKS);
+
+        final CountDownLatch allocated = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final Thread thread = new Thread("Allocator") {
+            @Override
+            public void run() {
+                allocate();
+                allocated.countDown();
+                try {
+                    done.await();
+                } catch (InterruptedException e) {
+                }
+            }
+        };
+        thread.start();
+        allocated.await();
+        final long other = ThreadManagement.getThreadAllocatedBytes(thread.getId());
+        check(other >= CHUNK * CHUNKS, "other thread allocated " + other + " bytes, expected at least " + CHUNK * CHUNKS);
+        done.countDown();
+        thread.join();
+        check(ThreadManagement.getThreadAllocatedBytes(thread.getId()) == -1, "allocated bytes reported for a terminated thread");
+        check(ThreadManagement.getThreadAllocatedBytes(Long.MAX_VALUE) == -1, "allocated bytes reported for an unknown thread");
+        System.out.println("allocated bytes counted per thread");
+    }
+
+    static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
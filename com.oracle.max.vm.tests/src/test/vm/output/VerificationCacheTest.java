@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.vm.output;
+
+import java.io.*;
+
+import com.sun.max.vm.actor.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.classfile.*;
+import com.sun.max.vm.classfile.constant.*;
+import com.sun.max.vm.verifier.*;
+
+/**
+ * Checks {@link ClassVerificationCache#lookup} and {@link ClassVerificationCache#verified}, and their interaction with
+ * {@linkplain ClassVerificationCache#LazyVerification lazy verification}: a class found in the cache has all its
+ * methods marked verified when it is linked, whereas a class that is not in the cache, or whose cache entry is stale
+ * because its class file changed, has each method verified only when its code is first needed.
+ */
+public class VerificationCacheTest implements MaxineOnly {
+
+    /**
+     * The class defined repeatedly by fresh class loaders. It only refers to boot classes.
+     */
+    public static class Subject {
+        public static final String VERSION = "subject-v1";
+
+        public int compute(int n) {
+            int sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += i;
+            }
+            return sum;
+        }
+
+        public String version() {
+            return VERSION;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        final File file = File.createTempFile("verification", ".cache");
+        file.delete();
+        file.deleteOnExit();
+        ClassVerificationCache.VerificationCache = file.getPath();
+        ClassVerificationCache.initialize();
+        check(ClassVerificationCache.isEnabled(), "the verification cache is not enabled");
+
+        final byte[] bytes = classfile();
+        final byte[] changed = changeVersion(bytes);
+        try {
+            checkLookupAndVerified(bytes);
+
+            // a class verified eagerly is recorded
+            ClassVerificationCache.LazyVerification = false;
+            define(bytes).makeInitialized();
+
+            // a cache hit marks every method verified at link time, so lazy verification has nothing left to do
+            ClassVerificationCache.LazyVerification = true;
+            final ClassActor hit = define(bytes);
+            hit.makeInitialized();
+            check(isVerified(hit, "compute") && isVerified(hit, "version"), "a class found in the cache was not marked verified");
+
+            // a stale entry, i.e. the same class with a different class file, is a miss: methods are verified lazily
+            checkVerifiedLazily(define(changed), "stale cache entry");
+        } finally {
+            ClassVerificationCache.LazyVerification = false;
+        }
+        System.out.println("verification cache lookups and lazy verification are consistent");
+    }
+
+    /**
+     * Checks the outcome of {@link ClassVerificationCache#lookup} after recording a class with
+     * {@link ClassVerificationCache#verified}.
+     */
+    static void checkLookupAndVerified(byte[] bytes) {
+        ClassVerificationCache.LazyVerification = false;
+        final byte[] other = changeVersion(changeVersion(bytes));
+
+        final ClassActor miss = define(other);
+        check(!ClassVerificationCache.lookup(miss), "lookup found a class that was never verified");
+        check(!isVerified(miss, "compute"), "a lookup miss marked a method verified");
+
+        // classes whose code was rewritten by the verifier are not recorded
+        ClassVerificationCache.verified(miss, true);
+        check(!ClassVerificationCache.lookup(define(other)), "lookup found a class whose code was rewritten");
+
+        final ClassActor recorded = define(other);
+        ClassVerificationCache.verified(recorded, false);
+        // the key is consumed when the class is recorded
+        check(!ClassVerificationCache.lookup(recorded), "lookup found a class twice");
+
+        final ClassActor hit = define(other);
+        check(ClassVerificationCache.lookup(hit), "lookup did not find a recorded class");
+        check(isVerified(hit, "compute") && isVerified(hit, "version"), "a lookup hit did not mark the methods verified");
+    }
+
+    /**
+     * Checks that the methods of a class that is not in the cache are verified one by one when their code is needed.
+     */
+    static void checkVerifiedLazily(ClassActor classActor, String what) {
+        classActor.makeInitialized();
+        check(!isVerified(classActor, "compute") && !isVerified(classActor, "version"), what + ": a method was verified when its class was linked");
+        method(classActor, "compute").compilee();
+        check(isVerified(classActor, "compute"), what + ": a method was not verified when its code was needed");
+        check(!isVerified(classActor, "version"), what + ": a method was verified before its code was needed");
+    }
+
+    static ClassActor define(byte[] bytes) {
+        return ClassfileReader.defineClassActor(Subject.class.getName(), new ClassLoader(null) { }, bytes, null, null, true);
+    }
+
+    static ClassMethodActor method(ClassActor classActor, String name) {
+        for (VirtualMethodActor methodActor : classActor.localVirtualMethodActors()) {
+            if (methodActor.name.equals(SymbolTable.makeSymbol(name))) {
+                return methodActor;
+            }
+        }
+        throw new IllegalStateException("no method " + name + " in " + classActor);
+    }
+
+    static boolean isVerified(ClassActor classActor, String name) {
+        return Actor.isVerified(method(classActor, name).flags());
+    }
+
+    static byte[] classfile() throws IOException {
+        final InputStream in = VerificationCacheTest.class.getResourceAsStream("VerificationCacheTest$Subject.class");
+        check(in != null, "class file of Subject not found");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns a copy of a class file of {@link Subject} in which the last digit of {@link Subject#VERSION} is incremented.
+     */
+    static byte[] changeVersion(byte[] bytes) {
+        final byte[] prefix = "subject-v".getBytes();
+        final byte[] result = bytes.clone();
+        for (int i = 0; i + prefix.length < result.length; i++) {
+            boolean found = true;
+            for (int j = 0; j < prefix.length && found; j++) {
+                found = result[i + j] == prefix[j];
+            }
+            if (found) {
+                result[i + prefix.length]++;
+                return result;
+            }
+        }
+        throw new IllegalStateException("VERSION constant not found in the class file of Subject");
+    }
+
+    static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.memory;
+
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.MaxineVM.Phase;
+import com.sun.max.vm.thread.*;
+
+/**
+ * The NUMA topology of the platform as seen by the heap.
+ *
+ * When {@link #UseNUMA} is enabled, each heap region has a home node, assigned round-robin on region identifiers so that
+ * any contiguous range of regions, and therefore any address-ordered list of regions, spreads evenly over all nodes.
+ * Committed regions are either bound to their home node or, with {@link #NUMAInterleave}, interleaved across all nodes.
+ * Region providers use {@link #currentNode()} to hand out regions local to the allocating thread.
+ *
+ * Only the region based heap schemes of {@code com.sun.max.vm.heap.gcx} have home nodes, and only the TLAB allocation
+ * regions of {@code FirstFitMarkSweepSpace} are selected by node, i.e., all allocation with the MSE heap scheme and
+ * the old generation of the generational MSE heap scheme. Other heap schemes ignore these options.
+ *
+ * A topology can be simulated with {@link #NUMASimulatedNodes} on platforms with a single node. Threads are then
+ * assigned to nodes according to their identifier and no memory policy is set, which exercises node-aware
+ * allocation paths without requiring NUMA hardware.
+ */
+public final class NUMATopology {
+    public static boolean UseNUMA = false;
+    public static boolean NUMAInterleave = false;
+    public static int NUMASimulatedNodes = 0;
+    public static int NUMAGCNode = -1;
+    static {
+        VMOptions.addFieldOption("-XX:", "UseNUMA", NUMATopology.class, "Make heap region allocation aware of the NUMA topology (region based gcx heap schemes only).", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "NUMAInterleave", NUMATopology.class,
+            "Interleave heap regions across NUMA nodes instead of binding them to their home node.", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "NUMASimulatedNodes", NUMATopology.class,
+            "Simulate a NUMA topology with the specified number of nodes (0 uses the platform's topology).", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "NUMAGCNode", NUMATopology.class,
+            "Pin the thread performing garbage collection to the CPUs of the specified NUMA node (-1 disables pinning).", Phase.PRISTINE);
+    }
+
+    /**
+     * Number of nodes, or zero if not initialized yet.
+     */
+    private static int numNodes;
+
+    private NUMATopology() {
+    }
+
+    /**
+     * Tells whether heap memory placement must take the NUMA topology into account.
+     */
+    public static boolean isEnabled() {
+        return UseNUMA && numNodes() > 1;
+    }
+
+    private static boolean isSimulated() {
+        return NUMASimulatedNodes > 0;
+    }
+
+    /**
+     * Number of NUMA nodes, which is 1 if the platform isn't NUMA and no topology is simulated.
+     */
+    public static int numNodes() {
+        if (numNodes == 0) {
+            numNodes = isSimulated() ? NUMASimulatedNodes : Math.max(1, VirtualMemory.numaNodeCount());
+        }
+        return numNodes;
+    }
+
+    /**
+     * The node of the current thread, or 0 if NUMA awareness is disabled.
+     */
+    public static int currentNode() {
+        if (!isEnabled()) {
+            return 0;
+        }
+        if (isSimulated()) {
+            return VmThread.current().id() % numNodes;
+        }
+        final int node = VirtualMemory.numaCurrentNode();
+        return node < 0 || node >= numNodes ? 0 : node;
+    }
+
+    /**
+     * The home node of a heap region.
+     *
+     * @param regionID the identifier of a region
+     */
+    public static int homeNode(int regionID) {
+        return isEnabled() ? regionID % numNodes : 0;
+    }
+
+    /**
+     * Sets the memory policy of a contiguous range of freshly committed regions.
+     *
+     * @param firstRegionID identifier of the first region of the range
+     * @param numRegions number of regions in the range
+     * @param start address of the first region
+     * @param regionSize size of a region in bytes
+     */
+    public static void placeRegions(int firstRegionID, int numRegions, Address start, Size regionSize) {
+        if (!isEnabled() || isSimulated()) {
+            return;
+        }
+        if (NUMAInterleave) {
+            VirtualMemory.numaInterleave(start, regionSize.times(numRegions), numNodes);
+            return;
+        }
+        Address regionStart = start;
+        for (int i = 0; i < numRegions; i++) {
+            VirtualMemory.numaBindToNode(regionStart, regionSize, homeNode(firstRegionID + i));
+            regionStart = regionStart.plus(regionSize);
+        }
+    }
+
+    /**
+     * Pins the current thread to the node specified by {@link #NUMAGCNode}, if any.
+     * Called by the thread performing garbage collection when it starts.
+     */
+    public static void pinGCThread() {
+        if (NUMAGCNode < 0 || isSimulated()) {
+            return;
+        }
+        if (NUMAGCNode >= numNodes() || !VirtualMemory.numaBindCurrentThreadToNode(NUMAGCNode)) {
+            Log.print("Could not pin the GC thread to NUMA node ");
+            Log.println(NUMAGCNode);
+        }
+    }
+}
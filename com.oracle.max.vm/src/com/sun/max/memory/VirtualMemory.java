@@ -50,6 +50,35 @@ public final class VirtualMemory {
         VMOptions.addFieldOption("-XX:", "TraceAnonOperations", VirtualMemory.class, "TraceAnonOperations", Phase.PRISTINE);
     }
 
+    /**
+     * Back the heap, its GC data structures and code regions with explicit huge pages when possible.
+     * Ranges that cannot be (because they are not aligned to the huge page size or because the huge page pool
+     * is exhausted) fall back to transparent huge pages.
+     */
+    public static boolean UseLargePages = false;
+    /**
+     * Advise the kernel to back the heap, its GC data structures and code regions with transparent huge pages.
+     */
+    public static boolean UseTransparentHugePages = false;
+    /**
+     * Touch every page of the heap, its GC data structures and code regions when they are committed.
+     */
+    public static boolean AlwaysPreTouch = false;
+    /**
+     * Number of threads used to pre-touch memory. Zero means one per processor.
+     */
+    public static int PreTouchParallelism = 0;
+    static {
+        VMOptions.addFieldOption("-XX:", "UseLargePages", VirtualMemory.class,
+            "Back heap and code memory with explicit huge pages when possible.", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "UseTransparentHugePages", VirtualMemory.class,
+            "Advise the OS to back heap and code memory with transparent huge pages.", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "AlwaysPreTouch", VirtualMemory.class,
+            "Touch every page of heap and code memory when it is committed.", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "PreTouchParallelism", VirtualMemory.class,
+            "Number of threads pre-touching memory (0 uses one per processor).", Phase.PRISTINE);
+    }
+
     public enum Type {
         HEAP,   // for the garbage collected heap
         STACK,  // for thread stacks
@@ -69,7 +98,20 @@ public final class VirtualMemory {
      */
     public static Pointer allocate(Size size, Type type) {
         allocateMemoryTime.start();
-        final Pointer allocated = virtualMemory_allocate(size, type.ordinal());
+        Pointer allocated = Pointer.zero();
+        final boolean largePages = usesLargePages(type);
+        if (largePages && UseLargePages && isHugePageAligned(Address.zero(), size)) {
+            allocated = virtualMemory_allocateHugePages(Address.zero(), size, type.ordinal());
+        }
+        if (allocated.isZero()) {
+            allocated = virtualMemory_allocate(size, type.ordinal());
+            if (largePages && !allocated.isZero()) {
+                adviseHugePages(allocated, size);
+            }
+        }
+        if (largePages && !allocated.isZero()) {
+            preTouch(allocated, size);
+        }
         allocateMemoryTime.stop();
         return allocated;
     }
@@ -103,7 +145,20 @@ public final class VirtualMemory {
      */
     public static boolean allocateAtFixedAddress(Address address, Size size, Type type) {
         allocateAtFixedAddressTime.start();
-        final boolean allocated = virtualMemory_allocateAtFixedAddress(address, size, type.ordinal());
+        boolean allocated = false;
+        final boolean largePages = usesLargePages(type);
+        if (largePages && UseLargePages && isHugePageAligned(address, size)) {
+            allocated = virtualMemory_allocateHugePages(address, size, type.ordinal()).equals(address);
+        }
+        if (!allocated) {
+            allocated = virtualMemory_allocateAtFixedAddress(address, size, type.ordinal());
+            if (largePages && allocated) {
+                adviseHugePages(address, size);
+            }
+        }
+        if (largePages && allocated) {
+            preTouch(address, size);
+        }
         allocateAtFixedAddressTime.stop();
         return allocated;
     }
@@ -199,7 +254,38 @@ public final class VirtualMemory {
         return result;
     }
 
+    /**
+     * Commits a range of reserved virtual memory that may later be uncommitted or committed again in parts
+     * as small as a page. Such a range is never backed by explicit huge pages.
+     *
+     * @see #commitMemory(Address, Size, Type, boolean, Size)
+     */
     public static boolean commitMemory(Address address, Size size, Type type) {
+        return commitMemory(address, size, type, usesLargePages(type), Size.fromInt(Platform.platform().pageSize));
+    }
+
+    /**
+     * Commits a range of reserved virtual memory that is only ever uncommitted as a whole.
+     *
+     * @see #commitMemory(Address, Size, Type, boolean, Size)
+     */
+    public static boolean commitMemory(Address address, Size size, Type type, boolean largePages) {
+        return commitMemory(address, size, type, largePages, size);
+    }
+
+    /**
+     * Commits a range of reserved virtual memory.
+     *
+     * @param largePages specifies whether the range is subject to the huge page and pre-touch options
+     * ({@link #UseLargePages}, {@link #UseTransparentHugePages}, {@link #AlwaysPreTouch}). This is the case by default
+     * for {@link Type#HEAP} and {@link Type#CODE} memory; heap schemes also request it for the mark bitmaps and card tables
+     * covering the heap.
+     * @param granularity the size of the smallest part of the range that may later be uncommitted or committed again.
+     * A mapping of explicit huge pages cannot be split, so {@link #UseLargePages} only maps the range with explicit
+     * huge pages if the granularity is a multiple of the huge page size. Otherwise the range gets transparent huge pages.
+     * @return true if the range was committed
+     */
+    public static boolean commitMemory(Address address, Size size, Type type, boolean largePages, Size granularity) {
         if (address.isZero()) {
             return false;
         }
@@ -207,11 +293,82 @@ public final class VirtualMemory {
             traceRange("commitMemory", address, size);
         }
         commitMemoryTime.start();
-        final Pointer committed = virtualMemory_allocatePrivateAnon(address, size, true, false, type.ordinal());
+        Pointer committed = Pointer.zero();
+        if (largePages && UseLargePages && isHugePageAligned(address, size) && isHugePageAligned(Address.zero(), granularity)) {
+            committed = virtualMemory_allocateHugePages(address, size, type.ordinal());
+        }
+        if (!committed.equals(address)) {
+            // A failed explicit huge page request leaves the range reserved, so it can be committed normally.
+            committed = virtualMemory_allocatePrivateAnon(address, size, true, false, type.ordinal());
+            if (largePages && committed.equals(address)) {
+                adviseHugePages(address, size);
+            }
+        }
+        if (largePages && committed.equals(address)) {
+            preTouch(address, size);
+        }
         commitMemoryTime.stop();
         return committed.equals(address);
     }
 
+    private static boolean usesLargePages(Type type) {
+        return type == Type.HEAP || type == Type.CODE;
+    }
+
+    private static Size hugePageSize = Size.zero();
+
+    /**
+     * Gets the size of explicit huge pages, or zero if the platform does not support them.
+     */
+    public static Size getHugePageSize() {
+        if (hugePageSize.isZero()) {
+            hugePageSize = virtualMemory_getHugePageSize();
+        }
+        return hugePageSize;
+    }
+
+    private static boolean isHugePageAligned(Address address, Size size) {
+        final Size pageSize = getHugePageSize();
+        return !pageSize.isZero() && address.isAligned(pageSize.toInt()) && size.isAligned(pageSize.toInt());
+    }
+
+    private static void adviseHugePages(Address address, Size size) {
+        if (UseTransparentHugePages || UseLargePages) {
+            virtualMemory_adviseHugePages(address, size);
+        }
+    }
+
+    private static void preTouch(Address address, Size size) {
+        if (AlwaysPreTouch) {
+            if (TraceAnonOperations) {
+                traceRange("preTouch", address, size);
+            }
+            virtualMemory_preTouch(address, size, Size.fromInt(Platform.platform().pageSize), PreTouchParallelism);
+        }
+    }
+
+    /**
+     * Gets the number of bytes of a range of virtual memory currently backed by huge pages, whether explicit or transparent.
+     */
+    public static Size getHugePageBytes(Address address, Size size) {
+        return virtualMemory_getHugePageBytes(address, size);
+    }
+
+    @C_FUNCTION
+    private static native Size virtualMemory_getHugePageSize();
+
+    @C_FUNCTION
+    private static native Pointer virtualMemory_allocateHugePages(Address address, Size size, int type);
+
+    @C_FUNCTION
+    private static native boolean virtualMemory_adviseHugePages(Address address, Size size);
+
+    @C_FUNCTION
+    private static native void virtualMemory_preTouch(Address address, Size size, Size pageSize, int numThreads);
+
+    @C_FUNCTION
+    private static native Size virtualMemory_getHugePageBytes(Address address, Size size);
+
     public static boolean uncommitMemory(Address address, Size size, Type type) {
         if (address.isZero()) {
             return false;
@@ -270,6 +427,71 @@ public final class VirtualMemory {
     @C_FUNCTION
     private static native void virtualMemory_unprotectPages(Address address, int count);
 
+    /* NUMA methods. See {@link NUMATopology} for the VM's use of these. */
+
+    /**
+     * Gets the number of NUMA nodes of the underlying platform, which is 1 if the platform isn't NUMA.
+     */
+    public static int numaNodeCount() {
+        return virtualMemory_numaNodeCount();
+    }
+
+    /**
+     * Gets the NUMA node of the CPU the current thread runs on, or -1 if it cannot be determined.
+     */
+    public static int numaCurrentNode() {
+        return virtualMemory_numaCurrentNode();
+    }
+
+    /**
+     * Requests the pages of a range of virtual memory to be allocated preferably on the specified NUMA node.
+     * This only affects pages that haven't been touched yet, and must be re-applied after the range is committed again.
+     *
+     * @return true if the memory policy was set
+     */
+    public static boolean numaBindToNode(Address address, Size size, int node) {
+        if (TraceAnonOperations) {
+            traceRange("numaBindToNode", address, size);
+        }
+        return virtualMemory_numaBindToNode(address, size, node);
+    }
+
+    /**
+     * Requests the pages of a range of virtual memory to be interleaved across the first {@code numNodes} NUMA nodes.
+     *
+     * @return true if the memory policy was set
+     */
+    public static boolean numaInterleave(Address address, Size size, int numNodes) {
+        if (TraceAnonOperations) {
+            traceRange("numaInterleave", address, size);
+        }
+        return virtualMemory_numaInterleave(address, size, numNodes);
+    }
+
+    /**
+     * Restricts the current thread to run on the CPUs of the specified NUMA node.
+     *
+     * @return true if the thread's affinity was changed
+     */
+    public static boolean numaBindCurrentThreadToNode(int node) {
+        return virtualMemory_numaBindCurrentThreadToNode(node);
+    }
+
+    @C_FUNCTION
+    private static native int virtualMemory_numaNodeCount();
+
+    @C_FUNCTION
+    private static native int virtualMemory_numaCurrentNode();
+
+    @C_FUNCTION
+    private static native boolean virtualMemory_numaBindToNode(Address address, Size size, int node);
+
+    @C_FUNCTION
+    private static native boolean virtualMemory_numaInterleave(Address address, Size size, int numNodes);
+
+    @C_FUNCTION
+    private static native boolean virtualMemory_numaBindCurrentThreadToNode(int node);
+
     /* File mapping methods */
 
     /**
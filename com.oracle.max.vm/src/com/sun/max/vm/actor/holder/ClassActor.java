@@ -115,6 +115,13 @@ public abstract class ClassActor extends Actor implements RiResolvedType {
 
     public final ClassActor superClassActor;
 
+    /**
+     * The depth of this class in its superclass chain ({@code java.lang.Object} being at depth 0) if subtype checks
+     * against it use the {@linkplain Hub#PRIMARY_SUPERS_LENGTH primary supers display} of a hub, or -1 if they use
+     * the m-table. Interfaces, array classes and classes too deep for the display have no display entry.
+     */
+    public final int primarySuperDepth;
+
     /**
      * Unique class actor identifier (i.e., class id). Simplifies the implementation of type checking, interface dispatch, etc.
      *
@@ -129,12 +136,12 @@ public abstract class ClassActor extends Actor implements RiResolvedType {
      * Relevant only for tuple and hybrid class actors. All other class actors are direct sub-classes
      * of the Object class.
      */
-    public int firstSubclassActorId;
+    public volatile int firstSubclassActorId;
 
     /**
      * Class id of the next sibling of this actor in its superclass' list of sub-classes.
      */
-    private int nextSiblingId;
+    private volatile int nextSiblingId;
 
     public static final int HAS_MULTIPLE_CONCRETE_SUBTYPE_MARK = 0;
     public static final int NO_CONCRETE_SUBTYPE_MARK = NULL_CLASS_ID;
@@ -241,6 +248,7 @@ public abstract class ClassActor extends Actor implements RiResolvedType {
         ClassIDManager.register(this);
         this.typeDescriptor = typeDescriptor;
         this.superClassActor = superClassActor;
+        this.primarySuperDepth = computePrimarySuperDepth();
         this.sourceFileName = sourceFileName;
         assert classLoader != null;
         this.classLoader = classLoader;
@@ -422,6 +430,8 @@ public abstract class ClassActor extends Actor implements RiResolvedType {
 
     /**
      * Adds this class to the beginning of the list of subclasses of its superclass.
+     * The sibling link is set before the class is published as the head of the list
+     * so that dependency validation can traverse the list without the class hierarchy lock.
      */
     public final void prependToSiblingList() {
         assert DependenciesManager.classHierarchyLock.isWriteLockedByCurrentThread();
@@ -1411,6 +1421,17 @@ public abstract class ClassActor extends Actor implements RiResolvedType {
         return false;
     }
 
+    private int computePrimarySuperDepth() {
+        if (isInterface() || isArrayClass() || isPrimitiveClassActor()) {
+            return -1;
+        }
+        int depth = 0;
+        for (ClassActor c = superClassActor; c != null; c = c.superClassActor) {
+            depth++;
+        }
+        return depth < Hub.PRIMARY_SUPERS_LENGTH ? depth : -1;
+    }
+
     public final boolean isAssignableFrom(ClassActor subClassActor) {
         if (this.equals(subClassActor)) {
             return true;
@@ -1522,8 +1543,12 @@ public abstract class ClassActor extends Actor implements RiResolvedType {
     private void verify() {
         if (isReflectionStub() || !ClassVerifier.shouldBeVerified(classLoader, isRemote())) {
             // generated stubs do not necessarily pass the verifier, even if they work as intended
+        } else if (ClassVerificationCache.lookup(this) || ClassVerificationCache.isLazy(this)) {
+            // verified in a previous run or each method is verified when its code is first needed
         } else {
-            Verifier.verifierFor(this).verify();
+            final ClassVerifier verifier = Verifier.verifierFor(this);
+            verifier.verify();
+            ClassVerificationCache.verified(this, verifier.codeRewritten);
         }
     }
 
@@ -60,6 +60,13 @@ public final class ClassIDManager {
      */
     private static BitSet usedIDs = new BitSet();
 
+    /**
+     * All identifiers below this one are in use. Identifiers are only released by unloading or by losing a race to
+     * define a class, so this saves {@link #allocate()} from rescanning the densely used prefix of {@link #usedIDs}
+     * while the class ID lock is held.
+     */
+    private static int firstFreeID;
+
     /**
      * Retrieves the class corresponding to a given identifier.
      *
@@ -83,9 +90,10 @@ public final class ClassIDManager {
      * {@linkplain #register(ClassActor) bound} to a class actor.
      */
     static synchronized int allocate() {
-        final int id = usedIDs.nextClearBit(0);
+        final int id = usedIDs.nextClearBit(firstFreeID);
         idToClassActor.set(id, null);
         usedIDs.set(id);
+        firstFreeID = id + 1;
         if (TraceClassIDs) {
             Log.println("Allocated class identifier " + id);
         }
@@ -121,6 +129,9 @@ public final class ClassIDManager {
     private static void clear(int id) {
         ClassActor c = idToClassActor.set(id, null);
         usedIDs.clear(id);
+        if (id < firstFreeID) {
+            firstFreeID = id;
+        }
         if (TraceClassIDs) {
             Log.print("Released class identifier " + id);
             if (c != null) {
@@ -112,6 +112,7 @@ public final class DynamicHub extends Hub {
         final DynamicHub hub = (DynamicHub) expand();
         assert hub.mTableLength > 0;
         referenceMap.copyIntoHub(hub);
+        hub.initializeSupers(classActor);
         hub.initializeMTable(superClassActorIds, allInterfaceActors, methodLookup, iToV);
         return hub;
     }
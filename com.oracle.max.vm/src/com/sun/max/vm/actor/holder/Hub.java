@@ -179,13 +179,41 @@ public abstract class Hub extends Hybrid {
         return referenceMapStartIndex + referenceMapLength - 1;
     }
 
+    /**
+     * Number of entries in the primary supers display that starts the variable-size part of every hub.
+     * Entry {@code d} holds the id of the class at depth {@code d} in the superclass chain of the hub's
+     * class ({@code java.lang.Object} being at depth 0), or {@link ClassIDManager#NULL_CLASS_ID} if the chain is
+     * shorter than {@code d}.
+     * A subtype check against a class with a {@linkplain ClassActor#primarySuperDepth display entry} is
+     * thus a single load and compare.
+     */
+    public static final int PRIMARY_SUPERS_LENGTH = 8;
+
+    /**
+     * Index, relative to the first word following the hub's header, of the primary supers display entry for a given depth.
+     */
+    @INLINE
+    public static int primarySuperIndex(int depth) {
+        return getFirstWordIndex() + depth;
+    }
+
+    /**
+     * Index, relative to the first word following the hub's header, of the secondary super cache. It holds the id of
+     * the last interface, array or deep class type a subtype check found in the m-table of this hub, or
+     * {@link ClassIDManager#NULL_CLASS_ID}. Like all class ids in the word part of a hub, it is stored as a word.
+     */
+    @INLINE
+    public static int secondarySuperCacheIndex() {
+        return getFirstWordIndex() + PRIMARY_SUPERS_LENGTH;
+    }
+
     /**
      * Index, relative to the first word following the hub's header, to the first entry of the virtual table.
      * @return an word index
      */
     @INLINE
     public static int vTableStartIndex() {
-        return getFirstWordIndex();
+        return getFirstWordIndex() + PRIMARY_SUPERS_LENGTH + 1;
     }
 
     public final int vTableLength() {
@@ -223,7 +251,7 @@ public abstract class Hub extends Hybrid {
         this.specificLayout = Layout.tupleLayout();
         this.layoutCategory = Layout.Category.TUPLE;
         this.classActor = classActor;
-        this.iTableStartIndex = firstWordIndex() + vTableLength;
+        this.iTableStartIndex = vTableStartIndex() + vTableLength;
         this.iTableLength = 1;
         this.mTableStartIndex = firstIntIndex();
         this.mTableLength = 1;
@@ -254,7 +282,7 @@ public abstract class Hub extends Hybrid {
         }
 
         this.classActor = classActor;
-        this.iTableStartIndex = firstWordIndex() + vTableLength;
+        this.iTableStartIndex = vTableStartIndex() + vTableLength;
         this.iTableLength = getITableLength(superClassActorIds, allInterfaceActors);
         this.mTableStartIndex = firstIntIndex();
         this.mTableLength = minCollisionFreeDivisor(superClassActorIds);
@@ -273,6 +301,28 @@ public abstract class Hub extends Hybrid {
         return false;
     }
 
+    /**
+     * Fills the primary supers display from a class and its superclass chain and empties the secondary super cache.
+     * Unused display entries and the cache must not hold zero, which is the id of a class.
+     */
+    final void initializeSupers(ClassActor leaf) {
+        final Address nullID = Address.fromInt(ClassIDManager.NULL_CLASS_ID);
+        for (int depth = 0; depth < PRIMARY_SUPERS_LENGTH; depth++) {
+            setWord(primarySuperIndex(depth), nullID);
+        }
+        setWord(secondarySuperCacheIndex(), nullID);
+        int depth = 0;
+        for (ClassActor c = leaf.superClassActor; c != null; c = c.superClassActor) {
+            depth++;
+        }
+        for (ClassActor c = leaf; c != null; c = c.superClassActor) {
+            if (depth < PRIMARY_SUPERS_LENGTH) {
+                setWord(primarySuperIndex(depth), Address.fromInt(c.id));
+            }
+            depth--;
+        }
+    }
+
     protected final Hub expand() {
         return (Hub) expand(computeLength(referenceMapStartIndex, referenceMapLength));
     }
@@ -323,7 +373,7 @@ public abstract class Hub extends Hybrid {
         TargetMethod tm = Code.codePointerToTargetMethod(vTableEntry.asPointer());
         if (tm == null || Stubs.isJumpToStaticTrampoline(tm)) {
             Log.println(classActor.toString() + "(hub = " + Reference.fromJava(this).toOrigin().to0xHexString() +
-                            ") has virtual table entry #" + (vTableIndex - firstWordIndex) + "(" + vTableIndex + ") points to method patched with static trampoline");
+                            ") has virtual table entry #" + (vTableIndex - vTableStartIndex()) + "(" + vTableIndex + ") points to method patched with static trampoline");
             FatalError.unexpected("corrupted vtable");
         }
     }
@@ -331,8 +381,8 @@ public abstract class Hub extends Hybrid {
     public void checkVTable() {
         if (!MaxineVM.isHosted()) {
             final VirtualMethodActor[] allVirtualMethodActors = classActor.allVirtualMethodActors();
-            final int endOfVTable = firstWordIndex() + allVirtualMethodActors.length;
-            for (int vTableIndex = firstWordIndex(); vTableIndex < endOfVTable; vTableIndex++) {
+            final int endOfVTable = vTableStartIndex() + allVirtualMethodActors.length;
+            for (int vTableIndex = vTableStartIndex(); vTableIndex < endOfVTable; vTableIndex++) {
                 checkVTableEntry(vTableIndex);
             }
         }
@@ -389,6 +439,14 @@ public abstract class Hub extends Hybrid {
         return getInt(getMTableIndex(id));
     }
 
+    /**
+     * Determines if the class at a given depth in the superclass chain of this hub's class has a given id.
+     */
+    @INLINE
+    public final boolean hasPrimarySuper(int depth, int id) {
+        return getWord(primarySuperIndex(depth)).equals(Address.fromInt(id));
+    }
+
     @INLINE
     public final boolean isSubClassHub(ClassActor testClassActor) {
         if (this.classActor == testClassActor) {
@@ -396,8 +454,22 @@ public abstract class Hub extends Hybrid {
             return true;
         }
         final int id = testClassActor.id;
+        final int depth = testClassActor.primarySuperDepth;
+        if (depth >= 0) {
+            // the display is authoritative for the classes it covers
+            return hasPrimarySuper(depth, id);
+        }
+        final Address idWord = Address.fromInt(id);
+        if (getWord(secondarySuperCacheIndex()).equals(idWord)) {
+            return true;
+        }
         final int iTableIndex = getITableIndex(id);
-        return getWord(iTableIndex).equals(Address.fromInt(id));
+        if (getWord(iTableIndex).equals(idWord)) {
+            // Racy update: any id written here is a valid supertype of this hub
+            setWord(secondarySuperCacheIndex(), idWord);
+            return true;
+        }
+        return false;
     }
 
     public abstract FieldActor findFieldActor(int offset);
@@ -44,6 +44,7 @@ public final class StaticHub extends Hub {
         // as if it extends java.lang.Object (rootId)
         hub.setWord(hub.iTableStartIndex, Address.fromInt(rootId));
         hub.setInt(hub.mTableStartIndex, hub.iTableStartIndex);
+        hub.initializeSupers(ClassIDManager.toClassActor(rootId));
         return hub;
     }
 
@@ -231,6 +231,9 @@ public abstract class ClassMethodActor extends MethodActor {
                         verifier = new TypeInferencingVerifier(holder);
                     }
                 }
+                if (verifier == null && !isVerified(flags()) && ClassVerificationCache.isLazy(holder)) {
+                    verifier = Verifier.verifierFor(holder);
+                }
 
                 if (verifier != null && codeAttribute != null && !compilee.holder().isReflectionStub()) {
                     boolean allowResolveVM = false;
@@ -779,6 +779,10 @@ public class BytecodeAdapter extends BytecodeVisitor {
     protected void invokeinterface(int index, int count) {
     }
 
+    @Override
+    protected void invokedynamic(int index) {
+    }
+
     @Override
     protected void new_(int index) {
     }
@@ -1210,6 +1210,11 @@ public class BytecodePrinter extends BytecodeVisitor {
         printInstructionWithConstant(index);
     }
 
+    @Override
+    public void invokedynamic(int index) {
+        printInstructionWithConstant(index);
+    }
+
     @Override
     public void new_(int index) {
         printInstructionWithConstant(index);
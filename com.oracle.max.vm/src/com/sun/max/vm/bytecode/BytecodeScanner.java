@@ -1066,6 +1066,14 @@ public final class BytecodeScanner {
                 bytecodeVisitor.invokeinterface(index, count);
                 break;
             }
+            case INVOKEDYNAMIC: {
+                final int index = readUnsigned2();
+                if (readByte() != 0 || readByte() != 0) {
+                    throw verifyError("Third and fourth operand bytes of invokedynamic must be zero");
+                }
+                bytecodeVisitor.invokedynamic(index);
+                break;
+            }
             case NEW: {
                 final int index = readUnsigned2();
                 bytecodeVisitor.new_(index);
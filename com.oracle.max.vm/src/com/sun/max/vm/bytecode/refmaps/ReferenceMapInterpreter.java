@@ -1339,6 +1339,22 @@ public abstract class ReferenceMapInterpreter {
                     push(methodSignature.resultKind());
                     break;
                 }
+                case INVOKEDYNAMIC: {
+                    final int index = readUnsigned2();
+                    skip2();
+                    final SignatureDescriptor methodSignature = constantPool.invokeDynamicAt(index).signature(constantPool);
+                    for (int i = methodSignature.numberOfParameters() - 1; i >= 0; --i) {
+                        final TypeDescriptor parameter = methodSignature.parameterDescriptorAt(i);
+                        pop(parameter.toKind());
+                    }
+
+                    if (atSearchBCI) {
+                        visitReferencesAtCurrentBCI(visitor, true);
+                    }
+
+                    push(methodSignature.resultKind());
+                    break;
+                }
                 case NEW: {
                     final int index = readUnsigned2();
                     push(constantPool.classAt(index).typeDescriptor().toKind());
@@ -60,6 +60,7 @@ import com.sun.max.vm.ti.*;
 import com.sun.max.vm.type.*;
 import com.sun.max.vm.type.ClassRegistry.Property;
 import com.sun.max.vm.value.*;
+import com.sun.max.vm.verifier.*;
 
 /**
  * Reads a class file to create a corresponding {@link ClassActor}.
@@ -69,6 +70,7 @@ public final class ClassfileReader {
     public static final char JAVA_MIN_SUPPORTED_VERSION = 45;
     public static final char JAVA_1_5_VERSION = 49;
     public static final char JAVA_6_VERSION = 50;
+    public static final char JAVA_7_VERSION = 51;
     public static final char JAVA_MAX_SUPPORTED_VERSION = 51;
     public static final char JAVA_MAX_SUPPORTED_MINOR_VERSION = 0;
 
@@ -589,7 +591,16 @@ public final class ClassfileReader {
     }
     // CheckStyle: resume parameter assignment check
 
-    protected CodeAttribute readCodeAttribute(int methodAccessFlags) {
+    /**
+     * Defer decoding the exception handler table and the attributes of a method's code until they are first needed.
+     */
+    public static boolean LazyCodeAttributes;
+    static {
+        addFieldOption("-XX:", "LazyCodeAttributes", ClassfileReader.class,
+            "Decode the exception handler table, line number, local variable and stack map tables of a method only when first needed.");
+    }
+
+    protected CodeAttribute readCodeAttribute(int methodAccessFlags, int attributeSize) {
         final char maxStack = (char) classfileStream.readUnsigned2();
         final char maxLocals = (char) classfileStream.readUnsigned2();
         final int codeLength = classfileStream.readSize4();
@@ -600,7 +611,26 @@ public final class ClassfileReader {
         }
 
         final byte[] code = classfileStream.readByteArray(codeLength);
-        final ExceptionHandlerEntry[] exceptionHandlerTable = readExceptionHandlerTable(code.length);
+        if (LazyCodeAttributes && !MaxineVM.isHosted()) {
+            // Only copy the undecoded tables: the class file bytes may be modified by the caller of defineClass()
+            final int tablesSize = attributeSize - 8 - codeLength;
+            if (tablesSize < 4) {
+                throw classFormatError("Invalid attribute length for Code attribute");
+            }
+            return new CodeAttribute(constantPool, code, maxStack, maxLocals, classfileStream.readByteArray(tablesSize), majorVersion);
+        }
+        final CodeAttribute codeAttribute = new CodeAttribute(constantPool, code, maxStack, maxLocals, null, majorVersion);
+        readCodeAttributeTables(codeAttribute);
+        return codeAttribute;
+    }
+
+    /**
+     * Reads the exception handler table and the attributes of a given code attribute whose code has already been read.
+     */
+    protected void readCodeAttributeTables(CodeAttribute codeAttribute) {
+        final int codeLength = codeAttribute.code().length;
+        final char maxLocals = codeAttribute.maxLocals;
+        final ExceptionHandlerEntry[] exceptionHandlerTable = readExceptionHandlerTable(codeLength);
 
         LineNumberTable lineNumberTable = LineNumberTable.EMPTY;
         LocalVariableTable localVariableTable = LocalVariableTable.EMPTY;
@@ -655,15 +685,23 @@ public final class ClassfileReader {
             localVariableTable = new LocalVariableTable(localVariableTableEntries.values());
         }
 
-        return new CodeAttribute(
-                        constantPool,
-                        code,
-                        maxStack,
-                        maxLocals,
-                        exceptionHandlerTable,
-                        lineNumberTable,
-                        localVariableTable,
-                        stackMapTable);
+        codeAttribute.initializeTables(exceptionHandlerTable, lineNumberTable, localVariableTable, stackMapTable);
+    }
+
+    /**
+     * Decodes the tables of a code attribute that was read {@linkplain #LazyCodeAttributes lazily}.
+     *
+     * @param tables the undecoded exception handler table and attributes of {@code codeAttribute}
+     * @param majorVersion the major version of the class file containing {@code codeAttribute}
+     */
+    static void readCodeAttributeTables(CodeAttribute codeAttribute, byte[] tables, int majorVersion) {
+        final ClassfileReader classfileReader = new ClassfileReader(new ClassfileStream(tables), codeAttribute.cp.classLoader());
+        classfileReader.constantPool = codeAttribute.cp;
+        classfileReader.majorVersion = majorVersion;
+        classfileReader.readCodeAttributeTables(codeAttribute);
+        if (!classfileReader.classfileStream.isAtEndOfFile()) {
+            throw classFormatError("Invalid attribute length for Code attribute");
+        }
     }
 
     /**
@@ -812,7 +850,7 @@ public final class ClassfileReader {
                         if (codeAttribute != null) {
                             throw classFormatError("Duplicate Code attribute");
                         }
-                        codeAttribute = readCodeAttribute(flags);
+                        codeAttribute = readCodeAttribute(flags, attributeSize);
                     } else if (attributeName.equals("Exceptions")) {
                         if (checkedExceptions != NO_CHECKED_EXCEPTIONS) {
                             throw classFormatError("Duplicate Exceptions attribute");
@@ -1143,6 +1181,40 @@ public final class ClassfileReader {
         return new EnclosingMethodInfo(holder.typeDescriptor(), name, descriptor);
     }
 
+    /**
+     * Reads a {@code BootstrapMethods} attribute (#4.7.21) and records it in the constant pool.
+     */
+    protected void readBootstrapMethodsAttribute() {
+        final int nBootstrapMethods = classfileStream.readUnsigned2();
+        final int[][] bootstrapMethods = new int[nBootstrapMethods][];
+        for (int i = 0; i < nBootstrapMethods; ++i) {
+            final int bootstrapMethodRef = classfileStream.readUnsigned2();
+            constantPool.methodHandleAt(bootstrapMethodRef);
+            final int nArguments = classfileStream.readUnsigned2();
+            final int[] bootstrapMethod = new int[1 + nArguments];
+            bootstrapMethod[0] = bootstrapMethodRef;
+            for (int j = 1; j <= nArguments; ++j) {
+                final int argumentIndex = classfileStream.readUnsigned2();
+                switch (constantPool.tagAt(argumentIndex)) {
+                    case STRING:
+                    case CLASS:
+                    case INTEGER:
+                    case LONG:
+                    case FLOAT:
+                    case DOUBLE:
+                    case METHOD_HANDLE:
+                    case METHOD_TYPE:
+                        break;
+                    default:
+                        throw classFormatError("Invalid bootstrap method argument at constant pool index " + argumentIndex);
+                }
+                bootstrapMethod[j] = argumentIndex;
+            }
+            bootstrapMethods[i] = bootstrapMethod;
+        }
+        constantPool.setBootstrapMethods(bootstrapMethods);
+    }
+
     protected ClassActor resolveSuperClass(int superClassIndex, boolean isInterface) {
         final ClassActor superClassActor;
         if (superClassIndex != 0) {
@@ -1279,6 +1351,11 @@ public final class ClassfileReader {
                         throw classFormatError("Duplicate EnclosingMethod attribute");
                     }
                     enclosingMethodInfo = readEnclosingMethodAttribute();
+                } else if (majorVersion >= JAVA_7_VERSION && attributeName.equals("BootstrapMethods")) {
+                    if (constantPool.bootstrapMethods() != ConstantPool.NO_BOOTSTRAP_METHODS) {
+                        throw classFormatError("Duplicate BootstrapMethods attribute");
+                    }
+                    readBootstrapMethodsAttribute();
                 } else {
                     classfileStream.skip(attributeSize);
                 }
@@ -1291,6 +1368,10 @@ public final class ClassfileReader {
             }
         }
 
+        if (constantPool.hasInvokeDynamic() && constantPool.bootstrapMethods() == ConstantPool.NO_BOOTSTRAP_METHODS) {
+            throw classFormatError("Missing BootstrapMethods attribute");
+        }
+
         // inherit the FINALIZER flag from the super class actor
         if (superClassActor != null) {
             if (superClassActor.hasFinalizer()) {
@@ -1626,6 +1707,9 @@ public final class ClassfileReader {
         classActor.setProtectionDomain(protectionDomain);
 
         final ClassActor definedClassActor = ClassRegistry.define(classActor);
+        if (definedClassActor == classActor && ClassVerificationCache.isEnabled()) {
+            ClassVerificationCache.recordClassfile(classActor, bytes, offset, length);
+        }
 
         if (!MaxineVM.isHosted()) {
             // Maxine is unable to usefully distinguish CLASS_LOAD and CLASS_PREPARE events which, for example, JVMTI distinguishes,
@@ -27,6 +27,7 @@ import static com.sun.max.vm.classfile.ErrorContext.*;
 import java.io.*;
 
 import com.sun.max.util.*;
+import com.sun.max.vm.classfile.constant.*;
 
 /**
  * Operations for sequentially scanning data items in a class file. Any IO exceptions that occur during scanning
@@ -38,6 +39,12 @@ public class ClassfileStream {
     private final DataInputStream stream;
     private int pos;
 
+    /**
+     * Scratch buffers for {@link #readUtf8Constant()}.
+     */
+    private byte[] utf8Buffer = new byte[256];
+    private char[] charBuffer = new char[256];
+
     public ClassfileStream(byte[] bytes) {
         this(bytes, 0, bytes.length);
     }
@@ -50,7 +57,7 @@ public class ClassfileStream {
     public byte readByte() {
         try {
             final byte value = stream.readByte();
-            pos = pos++;
+            pos++;
             return value;
         } catch (EOFException eofException) {
             throw eofError();
@@ -231,6 +238,31 @@ public class ClassfileStream {
         }
     }
 
+    /**
+     * Reads a {@code CONSTANT_Utf8} value and gets the corresponding symbol. The bytes are decoded into a scratch
+     * buffer that is reused across calls so that no {@link String} is allocated if the symbol already exists.
+     */
+    public Utf8Constant readUtf8Constant() {
+        try {
+            final int utflen = stream.readUnsignedShort();
+            if (utf8Buffer.length < utflen) {
+                final int capacity = Math.max(utflen, utf8Buffer.length << 1);
+                utf8Buffer = new byte[capacity];
+                charBuffer = new char[capacity];
+            }
+            stream.readFully(utf8Buffer, 0, utflen);
+            pos += 2 + utflen;
+            final int length = Utf8.utf8ToChars(true, utf8Buffer, utflen, charBuffer);
+            return SymbolTable.makeSymbol(charBuffer, length);
+        } catch (Utf8Exception e) {
+            throw classFormatError("Invalid UTF-8 encoded string", e);
+        } catch (EOFException eofException) {
+            throw eofError();
+        } catch (IOException ioException) {
+            throw ioError(ioException);
+        }
+    }
+
     public void skip(int nBytes) {
         try {
             pos += nBytes;
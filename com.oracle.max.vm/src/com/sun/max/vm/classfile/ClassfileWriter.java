@@ -393,6 +393,24 @@ public class ClassfileWriter {
                 });
             }
 
+            final int[][] bootstrapMethods = classActor.constantPool().bootstrapMethods();
+            if (bootstrapMethods.length != 0) {
+                attributes.add(new Attribute("BootstrapMethods") {
+                    @Override
+                    protected void writeData(ClassfileWriter cf) throws IOException {
+                        // Pool indexes are preserved when the pool is copied for writing
+                        cf.writeUnsigned2(bootstrapMethods.length);
+                        for (int[] bootstrapMethod : bootstrapMethods) {
+                            cf.writeUnsigned2(bootstrapMethod[0]);
+                            cf.writeUnsigned2(bootstrapMethod.length - 1);
+                            for (int i = 1; i < bootstrapMethod.length; i++) {
+                                cf.writeUnsigned2(bootstrapMethod[i]);
+                            }
+                        }
+                    }
+                });
+            }
+
             if (outerClass != null || innerClasses != null) {
                 attributes.add(new Attribute("InnerClasses") {
                     @Override
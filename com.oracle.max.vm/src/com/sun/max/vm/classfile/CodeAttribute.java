@@ -39,6 +39,8 @@ public final class CodeAttribute {
 
     public static final ExceptionHandlerEntry[] NO_EXCEPTION_HANDLER_TABLE = ExceptionHandlerEntry.NONE;
 
+    private static final byte[] NO_ENCODED_DATA = {};
+
     @INSPECTED
     public final ConstantPool cp;
     public final char maxStack;
@@ -48,12 +50,25 @@ public final class CodeAttribute {
     private final byte[] code;
 
     private StackMapTable stackMapTableAttribute;
-    private final byte[] encodedData;
-    private final int exceptionHandlerTableOffset;
-    private final int lineNumberTableOffset;
-    private final int localVariableTableOffset;
+
+    /**
+     * The encoded exception handler, line number and local variable tables. The offsets of the tables are
+     * relative to the start of this array, which does not include the {@linkplain #code code}.
+     */
+    private byte[] encodedData;
+    private int exceptionHandlerTableOffset;
+    private int lineNumberTableOffset;
+    private int localVariableTableOffset;
     private LineNumberTable lineNumberTable;
 
+    /**
+     * The undecoded exception handler table and attributes of this code attribute as they appear in the class file
+     * if this attribute was read {@linkplain ClassfileReader#readCodeAttribute(int, int) lazily} and has not been
+     * decoded yet, {@code null} otherwise. It is cleared once decoded so that the class file bytes can be reclaimed.
+     */
+    private volatile byte[] undecodedTables;
+    private final int majorVersion;
+
     public CodeAttribute(ConstantPool constantPool,
                     byte[] code,
                     char maxStack,
@@ -66,6 +81,29 @@ public final class CodeAttribute {
         this.code = code;
         this.maxStack = maxStack;
         this.maxLocals = maxLocals;
+        this.majorVersion = 0;
+        initializeTables(exceptionHandlerTable, lineNumberTable, localVariableTable, stackMapTable);
+    }
+
+    /**
+     * Creates a code attribute whose tables are {@linkplain #initializeTables initialized} separately.
+     *
+     * @param undecodedTables if non-null, the tables are decoded from these bytes when first accessed
+     * @param majorVersion the major version of the class file containing the code attribute
+     */
+    CodeAttribute(ConstantPool constantPool, byte[] code, char maxStack, char maxLocals, byte[] undecodedTables, int majorVersion) {
+        this.cp = constantPool;
+        this.code = code;
+        this.maxStack = maxStack;
+        this.maxLocals = maxLocals;
+        this.majorVersion = majorVersion;
+        this.undecodedTables = undecodedTables;
+    }
+
+    void initializeTables(ExceptionHandlerEntry[] exceptionHandlerTable,
+                    LineNumberTable lineNumberTable,
+                    LocalVariableTable localVariableTable,
+                    StackMapTable stackMapTable) {
         this.stackMapTableAttribute = stackMapTable;
 
         final ByteArrayOutputStream encodingStream = new ByteArrayOutputStream();
@@ -76,7 +114,6 @@ public final class CodeAttribute {
         int localVariableTableOff = -1;
 
         try {
-            dataOutputStream.write(code);
             if (exceptionHandlerTable.length != 0) {
                 exceptionHandlerTableOff = encodingStream.size();
                 ExceptionHandlerEntry.encode(exceptionHandlerTable, dataOutputStream);
@@ -96,8 +133,22 @@ public final class CodeAttribute {
         this.exceptionHandlerTableOffset = exceptionHandlerTableOff;
         this.lineNumberTableOffset = lineNumberTableOff;
         this.localVariableTableOffset = localVariableTableOff;
-        encodedData = encodingStream.toByteArray();
+        encodedData = encodingStream.size() == 0 ? NO_ENCODED_DATA : encodingStream.toByteArray();
+    }
 
+    /**
+     * Ensures the tables of this code attribute have been decoded.
+     */
+    private void decodeTables() {
+        if (undecodedTables != null) {
+            synchronized (this) {
+                final byte[] tables = undecodedTables;
+                if (tables != null) {
+                    ClassfileReader.readCodeAttributeTables(this, tables, majorVersion);
+                    undecodedTables = null;
+                }
+            }
+        }
     }
 
     static void writeCharArray(DataOutputStream dataOutputStream, char[] buf) throws IOException {
@@ -122,7 +173,11 @@ public final class CodeAttribute {
         return code;
     }
 
+    /**
+     * Gets the encoded exception handler, line number and local variable tables of this code attribute.
+     */
     public byte[] encodedData() {
+        decodeTables();
         return encodedData;
     }
 
@@ -136,6 +191,7 @@ public final class CodeAttribute {
      * @return {@code null} if this code attribute has no exception handlers
      */
     public int[] exceptionHandlerBCIs() {
+        decodeTables();
         if (exceptionHandlerTableOffset == -1) {
             return null;
         }
@@ -171,6 +227,7 @@ public final class CodeAttribute {
     }
 
     public ExceptionHandlerEntry[] exceptionHandlerTable() {
+        decodeTables();
         try {
             return exceptionHandlerTableOffset == -1 ? ExceptionHandlerEntry.NONE : ExceptionHandlerEntry.decode(encodedData(exceptionHandlerTableOffset));
         } catch (IOException e) {
@@ -179,6 +236,7 @@ public final class CodeAttribute {
     }
 
     public LineNumberTable lineNumberTable() {
+        decodeTables();
         if (lineNumberTable == null) {
             // cache the line number table
             try {
@@ -191,6 +249,7 @@ public final class CodeAttribute {
     }
 
     public LocalVariableTable localVariableTable() {
+        decodeTables();
         try {
             return localVariableTableOffset == -1 ? LocalVariableTable.EMPTY : LocalVariableTable.decode(encodedData(localVariableTableOffset));
         } catch (IOException e) {
@@ -202,10 +261,12 @@ public final class CodeAttribute {
      * @return null if there is no stack map table associated with this code attribute
      */
     public StackMapTable stackMapTable() {
+        decodeTables();
         return stackMapTableAttribute;
     }
 
     public void setStackMapTableAttribute(StackMapTable stackMapTable) {
+        decodeTables();
         stackMapTableAttribute = stackMapTable;
     }
 
@@ -99,6 +99,19 @@ public final class ConstantPool implements RiConstantPool {
         },
         NAME_AND_TYPE(12),
         UTF8(1),
+        METHOD_HANDLE(15) {
+            @Override
+            public Kind valueKind() {
+                return Kind.REFERENCE;
+            }
+        },
+        METHOD_TYPE(16) {
+            @Override
+            public Kind valueKind() {
+                return Kind.REFERENCE;
+            }
+        },
+        INVOKE_DYNAMIC(18),
         OBJECT(-1) {
             @Override
             public Kind valueKind() {
@@ -150,6 +163,9 @@ public final class ConstantPool implements RiConstantPool {
          * CONSTANT_Double             | 6
          * CONSTANT_NameAndType        | 12
          * CONSTANT_Utf8               | 1
+         * CONSTANT_MethodHandle       | 15
+         * CONSTANT_MethodType         | 16
+         * CONSTANT_InvokeDynamic      | 18
          */
         static Tag fromClassfile(int tag) {
             switch (tag) {
@@ -175,6 +191,12 @@ public final class ConstantPool implements RiConstantPool {
                     return NAME_AND_TYPE;
                 case 1:
                     return UTF8;
+                case 15:
+                    return METHOD_HANDLE;
+                case 16:
+                    return METHOD_TYPE;
+                case 18:
+                    return INVOKE_DYNAMIC;
                 default:
                     throw classFormatError("Invalid constant pool entry tag " + tag);
             }
@@ -208,6 +230,20 @@ public final class ConstantPool implements RiConstantPool {
 
     private final ClassLoader classLoader;
 
+    /**
+     * Specifies if this pool contains at least one {@link InvokeDynamicConstant}.
+     */
+    private boolean hasInvokeDynamic;
+
+    /**
+     * The contents of the {@code BootstrapMethods} attribute of the class file this pool was read from. Each element
+     * is an array whose first element is the index of a {@link MethodHandleConstant} and whose remaining elements are
+     * the indexes of the static arguments to the bootstrap method.
+     */
+    private int[][] bootstrapMethods;
+
+    public static final int[][] NO_BOOTSTRAP_METHODS = {};
+
     /**
      * Creates a constant pool from a class file.
      */
@@ -225,6 +261,8 @@ public final class ConstantPool implements RiConstantPool {
         this.classLoader = classLoader;
         this.length = poolLength;
 
+        boolean hasInvokeDynamic = false;
+
         // Pass 1: read in the primitive values
         int i = 1;
         while (i < poolLength) {
@@ -254,6 +292,22 @@ public final class ConstantPool implements RiConstantPool {
                     rawEntries[i] = (nameIndex << 16) | (descriptorIndex & 0xFFFF);
                     break;
                 }
+                case METHOD_HANDLE: {
+                    final int referenceKind = classfileStream.readUnsigned1();
+                    final int referenceIndex = classfileStream.readUnsigned2();
+                    rawEntries[i] = (referenceKind << 16) | (referenceIndex & 0xFFFF);
+                    break;
+                }
+                case METHOD_TYPE: {
+                    rawEntries[i] = classfileStream.readUnsigned2();
+                    break;
+                }
+                case INVOKE_DYNAMIC: {
+                    final int bootstrapMethodAttrIndex = classfileStream.readUnsigned2();
+                    final int nameAndTypeIndex = classfileStream.readUnsigned2();
+                    rawEntries[i] = (bootstrapMethodAttrIndex << 16) | (nameAndTypeIndex & 0xFFFF);
+                    break;
+                }
                 case INTEGER: {
                     poolConstants[i] = createIntegerConstant(classfileStream.readInt());
                     break;
@@ -285,7 +339,7 @@ public final class ConstantPool implements RiConstantPool {
                     break;
                 }
                 case UTF8: {
-                    poolConstants[i] = makeUtf8Constant(classfileStream.readUtf8String());
+                    poolConstants[i] = classfileStream.readUtf8Constant();
                     break;
                 }
                 default: {
@@ -352,6 +406,22 @@ public final class ConstantPool implements RiConstantPool {
                         poolConstants[i] = methodRef;
                         break;
                     }
+                    case METHOD_HANDLE: {
+                        final int kindAndReference = rawEntries[i];
+                        poolConstants[i] = new MethodHandleConstant(kindAndReference >>> 16, kindAndReference & 0xFFFF, tags);
+                        break;
+                    }
+                    case METHOD_TYPE: {
+                        final int descriptorIndex = rawEntries[i];
+                        poolConstants[i] = new MethodTypeConstant((Utf8Constant) poolConstants[descriptorIndex]);
+                        break;
+                    }
+                    case INVOKE_DYNAMIC: {
+                        final int bootstrapAndNameAndType = rawEntries[i];
+                        poolConstants[i] = new InvokeDynamicConstant(bootstrapAndNameAndType >>> 16, bootstrapAndNameAndType & 0xFFFF, tags);
+                        hasInvokeDynamic = true;
+                        break;
+                    }
                     default:
                         break;
                 }
@@ -366,6 +436,7 @@ public final class ConstantPool implements RiConstantPool {
         }
 
         this.constants = poolConstants;
+        this.hasInvokeDynamic = hasInvokeDynamic;
 
         // Pass 3: second verification pass - checks the strings are of the right format
         i = 1;
@@ -386,6 +457,30 @@ public final class ConstantPool implements RiConstantPool {
                         ClassfileReader.verifyMethodName(methodRef.name(this), false);
                         break;
                     }
+                    case METHOD_HANDLE: {
+                        final MethodHandleConstant methodHandle = methodHandleAt(i);
+                        if (methodHandle.isMethodReference()) {
+                            final Utf8Constant name = methodHandle.reference(this).name(this);
+                            if (methodHandle.referenceKind == MethodHandleConstant.REF_newInvokeSpecial) {
+                                if (name != SymbolTable.INIT) {
+                                    throw classFormatError("Method handle of kind REF_newInvokeSpecial must reference <init>, not " + name);
+                                }
+                            } else if (name == SymbolTable.INIT || name == SymbolTable.CLINIT) {
+                                throw classFormatError("Method handle of kind " + methodHandle.referenceKind + " must not reference " + name);
+                            }
+                        }
+                        break;
+                    }
+                    case METHOD_TYPE: {
+                        methodTypeAt(i).signature();
+                        break;
+                    }
+                    case INVOKE_DYNAMIC: {
+                        final InvokeDynamicConstant invokeDynamic = invokeDynamicAt(i);
+                        invokeDynamic.signature(this);
+                        ClassfileReader.verifyMethodName(invokeDynamic.name(this), false);
+                        break;
+                    }
                     default:
                         break;
                 }
@@ -511,7 +606,7 @@ public final class ConstantPool implements RiConstantPool {
         try {
             return (ResolvableConstant) at(index);
         } catch (ClassCastException e) {
-            throw unexpectedEntry(index, null, CLASS, FIELD_REF, METHOD_REF, INTERFACE_METHOD_REF);
+            throw unexpectedEntry(index, null, CLASS, FIELD_REF, METHOD_REF, INTERFACE_METHOD_REF, INVOKE_DYNAMIC);
         }
     }
 
@@ -519,7 +614,7 @@ public final class ConstantPool implements RiConstantPool {
         try {
             return (ValueConstant) at(index);
         } catch (ClassCastException e) {
-            throw unexpectedEntry(index, null, INTEGER, FLOAT, LONG, DOUBLE, STRING, CLASS);
+            throw unexpectedEntry(index, null, INTEGER, FLOAT, LONG, DOUBLE, STRING, CLASS, METHOD_HANDLE, METHOD_TYPE);
         }
     }
 
@@ -683,6 +778,73 @@ public final class ConstantPool implements RiConstantPool {
         return stringConstantAt(index).value;
     }
 
+    public MethodHandleConstant methodHandleAt(int index) {
+        try {
+            return (MethodHandleConstant) at(index);
+        } catch (ClassCastException e) {
+            throw unexpectedEntry(index, null, METHOD_HANDLE);
+        }
+    }
+
+    public MethodTypeConstant methodTypeAt(int index) {
+        try {
+            return (MethodTypeConstant) at(index);
+        } catch (ClassCastException e) {
+            throw unexpectedEntry(index, null, METHOD_TYPE);
+        }
+    }
+
+    /**
+     * Gets the object denoted by the {@code CONSTANT_MethodHandle} or {@code CONSTANT_MethodType} entry at a given
+     * index, creating it first if necessary. This is the run time resolution of an {@code ldc} of such an entry.
+     */
+    public Object methodHandleOrTypeAt(int index) {
+        switch (tagAt(index)) {
+            case METHOD_HANDLE:
+                return methodHandleAt(index).resolve(this);
+            case METHOD_TYPE:
+                return methodTypeAt(index).resolve(this);
+            default:
+                throw unexpectedEntry(index, null, METHOD_HANDLE, METHOD_TYPE);
+        }
+    }
+
+    public InvokeDynamicConstant invokeDynamicAt(int index) {
+        try {
+            return (InvokeDynamicConstant) at(index);
+        } catch (ClassCastException e) {
+            throw unexpectedEntry(index, null, INVOKE_DYNAMIC);
+        }
+    }
+
+    public boolean hasInvokeDynamic() {
+        return hasInvokeDynamic;
+    }
+
+    /**
+     * Records the contents of the {@code BootstrapMethods} attribute of the class file this pool was read from.
+     */
+    public void setBootstrapMethods(int[][] bootstrapMethods) {
+        this.bootstrapMethods = bootstrapMethods;
+    }
+
+    public int[][] bootstrapMethods() {
+        return bootstrapMethods == null ? NO_BOOTSTRAP_METHODS : bootstrapMethods;
+    }
+
+    /**
+     * Gets a bootstrap method specifier.
+     *
+     * @param index an index into the {@code BootstrapMethods} attribute
+     * @return the index of the bootstrap method handle followed by the indexes of the static arguments
+     */
+    public int[] bootstrapMethodAt(int index) {
+        if (bootstrapMethods == null || index < 0 || index >= bootstrapMethods.length) {
+            throw classFormatError("Invalid bootstrap method index " + index + " in " + this);
+        }
+        return bootstrapMethods[index];
+    }
+
     ConstantPoolEditor editor;
 
     /**
@@ -784,7 +946,14 @@ public final class ConstantPool implements RiConstantPool {
         return declaredMethod;
     }
 
+    /**
+     * Resolves the target of an {@code invokestatic} or {@code invokedynamic} instruction. The latter is linked
+     * to a static method by {@linkplain InvokeDynamicConstant#resolve(ConstantPool, int) resolving} its call site.
+     */
     public MethodActor resolveInvokeStatic(int cpi) {
+        if (hasInvokeDynamic && tagAt(cpi) == INVOKE_DYNAMIC) {
+            return invokeDynamicAt(cpi).resolve(this, cpi);
+        }
         final StaticMethodActor staticMethodActor = classMethodAt(cpi).resolveStatic(this, cpi);
         if (staticMethodActor.isConstructor()) {
             throw new VerifyError("<init> must be invoked with invokespecial");
@@ -898,6 +1067,15 @@ public final class ConstantPool implements RiConstantPool {
     }
 
     public RiMethod lookupMethod(int cpi, int opcode) {
+        if (opcode == INVOKEDYNAMIC) {
+            final InvokeDynamicConstant callSite = invokeDynamicAt(cpi);
+            if (callSite.isResolved()) {
+                return callSite.resolve(this, cpi);
+            }
+            // The call site is linked to a static method whose holder is not known until the
+            // bootstrap method has run. The holder of this pool stands in for it.
+            return new UnresolvedMethod(this, cpi, holder(), callSite.name(this).string, callSite.signature(this));
+        }
         MethodRefConstant constant = methodAt(cpi);
         if (constant.isResolvableWithoutClassLoading(this)) {
             // the resolution can occur without side effects
@@ -953,6 +1131,21 @@ public final class ConstantPool implements RiConstantPool {
             case OBJECT: {
                 return CiConstant.forObject(objectAt(cpi).value());
             }
+            case METHOD_HANDLE: {
+                // Never resolved here: linkage errors must be raised when the ldc is executed, not when it is compiled
+                MethodHandleConstant constant = methodHandleAt(cpi);
+                if (!constant.isResolved()) {
+                    throw new CiBailout("unresolved method handle constant at index " + cpi);
+                }
+                return CiConstant.forObject(constant.resolve(this));
+            }
+            case METHOD_TYPE: {
+                MethodTypeConstant constant = methodTypeAt(cpi);
+                if (!constant.isResolved()) {
+                    throw new CiBailout("unresolved method type constant at index " + cpi);
+                }
+                return CiConstant.forObject(constant.resolve(this));
+            }
             default:
                 throw ProgramError.unexpected("unknown constant type");
         }
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2007, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.classfile.constant;
+
+import static com.sun.max.vm.classfile.ErrorContext.*;
+
+import java.io.*;
+
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.classfile.constant.ConstantPool.Tag;
+import com.sun.max.vm.reflection.*;
+import com.sun.max.vm.type.*;
+
+/**
+ * #4.4.10. A {@code CONSTANT_InvokeDynamic} entry.
+ * <p>
+ * Resolving this entry runs the bootstrap method and links the resulting call site to a {@link StaticMethodActor}
+ * whose signature is the {@linkplain #signature(ConstantPool) signature} of this entry. An {@code invokedynamic}
+ * instruction is thereafter executed as an {@code invokestatic} of that method. If the call site is a constant call
+ * site with a direct target, the linked method is either the target itself or a small adapter that calls it directly,
+ * so that the optimizing compiler can inline through the call site.
+ *
+ * @see InvokeDynamicLinker
+ */
+public final class InvokeDynamicConstant extends AbstractPoolConstant<InvokeDynamicConstant> implements PoolConstantKey<InvokeDynamicConstant>, ResolvableConstant<InvokeDynamicConstant, StaticMethodActor> {
+
+    /**
+     * Index into the {@linkplain ConstantPool#bootstrapMethodAt(int) bootstrap methods} of the class.
+     */
+    public final int bootstrapMethodAttrIndex;
+
+    public final int nameAndTypeIndex;
+
+    private volatile StaticMethodActor target;
+
+    @Override
+    public Tag tag() {
+        return Tag.INVOKE_DYNAMIC;
+    }
+
+    InvokeDynamicConstant(int bootstrapMethodAttrIndex, int nameAndTypeIndex, Tag[] tags) {
+        if (nameAndTypeIndex <= 0 || nameAndTypeIndex >= tags.length) {
+            throw classFormatError("Invalid invokedynamic name and type index " + nameAndTypeIndex);
+        }
+        if (tags[nameAndTypeIndex] != Tag.NAME_AND_TYPE) {
+            throw ConstantPool.unexpectedEntry(nameAndTypeIndex, tags[nameAndTypeIndex], "invokedynamic name and type", Tag.NAME_AND_TYPE);
+        }
+        this.bootstrapMethodAttrIndex = bootstrapMethodAttrIndex;
+        this.nameAndTypeIndex = nameAndTypeIndex;
+    }
+
+    public Utf8Constant name(ConstantPool pool) {
+        return pool.nameAndTypeAt(nameAndTypeIndex).name();
+    }
+
+    public SignatureDescriptor signature(ConstantPool pool) {
+        return pool.nameAndTypeAt(nameAndTypeIndex).signature();
+    }
+
+    public boolean isResolved() {
+        return target != null;
+    }
+
+    public boolean isResolvableWithoutClassLoading(ConstantPool pool) {
+        return target != null;
+    }
+
+    /**
+     * Gets the method an {@code invokedynamic} instruction referring to this entry is linked to, running the bootstrap
+     * method first if necessary. If several threads race to link the same entry, the bootstrap method may be run more
+     * than once but only the first linked method is published.
+     */
+    public StaticMethodActor resolve(ConstantPool pool, int index) throws LinkageError {
+        StaticMethodActor result = target;
+        if (result == null) {
+            final StaticMethodActor linked = InvokeDynamicLinker.link(pool, index, this);
+            synchronized (this) {
+                result = target;
+                if (result == null) {
+                    target = linked;
+                    result = linked;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other instanceof InvokeDynamicConstant) {
+            final InvokeDynamicConstant key = (InvokeDynamicConstant) other;
+            return bootstrapMethodAttrIndex == key.bootstrapMethodAttrIndex && nameAndTypeIndex == key.nameAndTypeIndex;
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return (bootstrapMethodAttrIndex << 16) ^ nameAndTypeIndex;
+    }
+
+    @Override
+    public InvokeDynamicConstant key(ConstantPool pool) {
+        return this;
+    }
+
+    public String valueString(ConstantPool pool) {
+        if (pool == null) {
+            return "bootstrap=" + bootstrapMethodAttrIndex + ",nameAndType=" + nameAndTypeIndex;
+        }
+        return "bootstrap=" + bootstrapMethodAttrIndex + ",name=\"" + name(pool) + "\",signature=\"" + signature(pool) + "\"";
+    }
+
+    @Override
+    public void writeOn(DataOutputStream stream, ConstantPoolEditor editor, int index) throws IOException {
+        super.writeOn(stream, editor, index);
+        stream.writeShort(bootstrapMethodAttrIndex);
+        stream.writeShort(nameAndTypeIndex);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2007, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.classfile.constant;
+
+import static com.sun.max.vm.classfile.ErrorContext.*;
+
+import java.io.*;
+import java.lang.invoke.*;
+
+import com.sun.max.vm.classfile.constant.ConstantPool.Tag;
+import com.sun.max.vm.reflection.*;
+import com.sun.max.vm.value.*;
+
+/**
+ * #4.4.8. A {@code CONSTANT_MethodHandle} entry. The {@link MethodHandle} denoted by this entry is a direct handle
+ * {@linkplain InvokeDynamicLinker#methodHandle created} the first time its {@linkplain #value(ConstantPool, int) value}
+ * is requested and is cached thereafter.
+ */
+public final class MethodHandleConstant extends AbstractPoolConstant<MethodHandleConstant> implements PoolConstantKey<MethodHandleConstant>, ValueConstant<MethodHandleConstant> {
+
+    public static final int REF_getField = 1;
+    public static final int REF_getStatic = 2;
+    public static final int REF_putField = 3;
+    public static final int REF_putStatic = 4;
+    public static final int REF_invokeVirtual = 5;
+    public static final int REF_invokeStatic = 6;
+    public static final int REF_invokeSpecial = 7;
+    public static final int REF_newInvokeSpecial = 8;
+    public static final int REF_invokeInterface = 9;
+
+    /**
+     * The reference kind of this method handle, one of the {@code REF_*} constants.
+     */
+    public final int referenceKind;
+
+    /**
+     * The index of the {@linkplain MemberRefConstant member} referenced by this method handle.
+     */
+    public final int referenceIndex;
+
+    private volatile MethodHandle methodHandle;
+
+    @Override
+    public Tag tag() {
+        return Tag.METHOD_HANDLE;
+    }
+
+    MethodHandleConstant(int referenceKind, int referenceIndex, Tag[] tags) {
+        final Tag expected;
+        switch (referenceKind) {
+            case REF_getField:
+            case REF_getStatic:
+            case REF_putField:
+            case REF_putStatic:
+                expected = Tag.FIELD_REF;
+                break;
+            case REF_invokeVirtual:
+            case REF_invokeStatic:
+            case REF_invokeSpecial:
+            case REF_newInvokeSpecial:
+                expected = Tag.METHOD_REF;
+                break;
+            case REF_invokeInterface:
+                expected = Tag.INTERFACE_METHOD_REF;
+                break;
+            default:
+                throw classFormatError("Invalid method handle reference kind " + referenceKind);
+        }
+        if (referenceIndex <= 0 || referenceIndex >= tags.length) {
+            throw classFormatError("Invalid method handle reference index " + referenceIndex);
+        }
+        if (tags[referenceIndex] != expected) {
+            throw ConstantPool.unexpectedEntry(referenceIndex, tags[referenceIndex], "method handle reference", expected);
+        }
+        this.referenceKind = referenceKind;
+        this.referenceIndex = referenceIndex;
+    }
+
+    /**
+     * Determines if this handle refers to a method (as opposed to a field).
+     */
+    public boolean isMethodReference() {
+        return referenceKind >= REF_invokeVirtual;
+    }
+
+    public MemberRefConstant reference(ConstantPool pool) {
+        return pool.memberAt(referenceIndex, "method handle reference");
+    }
+
+    /**
+     * Gets the method handle denoted by this constant, creating it first if necessary. Creating a method handle
+     * resolves the referenced member and may thus cause class loading.
+     *
+     * @param pool the pool containing this constant
+     */
+    public MethodHandle resolve(ConstantPool pool) {
+        MethodHandle handle = methodHandle;
+        if (handle == null) {
+            // Races are benign: method handles have no identity semantics visible to the program
+            handle = InvokeDynamicLinker.methodHandle(pool, referenceKind, referenceIndex, reference(pool));
+            methodHandle = handle;
+        }
+        return handle;
+    }
+
+    /**
+     * Determines if the method handle denoted by this constant has already been created.
+     */
+    public boolean isResolved() {
+        return methodHandle != null;
+    }
+
+    public Value value(ConstantPool pool, int index) {
+        return ReferenceValue.from(resolve(pool));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other instanceof MethodHandleConstant) {
+            final MethodHandleConstant key = (MethodHandleConstant) other;
+            return referenceKind == key.referenceKind && referenceIndex == key.referenceIndex;
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return (referenceIndex << 4) ^ referenceKind;
+    }
+
+    @Override
+    public MethodHandleConstant key(ConstantPool pool) {
+        return this;
+    }
+
+    public String valueString(ConstantPool pool) {
+        if (pool == null) {
+            return "kind=" + referenceKind + ",index=" + referenceIndex;
+        }
+        return "kind=" + referenceKind + ",reference=" + reference(pool).valueString(pool);
+    }
+
+    @Override
+    public void writeOn(DataOutputStream stream, ConstantPoolEditor editor, int index) throws IOException {
+        super.writeOn(stream, editor, index);
+        stream.writeByte(referenceKind);
+        stream.writeShort(referenceIndex);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2007, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.classfile.constant;
+
+import static com.sun.max.vm.classfile.ErrorContext.*;
+
+import java.io.*;
+import java.lang.invoke.*;
+
+import com.sun.max.vm.classfile.constant.ConstantPool.Tag;
+import com.sun.max.vm.reflection.*;
+import com.sun.max.vm.type.*;
+import com.sun.max.vm.value.*;
+
+/**
+ * #4.4.9. A {@code CONSTANT_MethodType} entry. The {@link MethodType} denoted by this entry is created the first time
+ * its {@linkplain #value(ConstantPool, int) value} is requested and is cached thereafter.
+ */
+public final class MethodTypeConstant extends AbstractPoolConstant<MethodTypeConstant> implements PoolConstantKey<MethodTypeConstant>, ValueConstant<MethodTypeConstant> {
+
+    private final Utf8Constant descriptor;
+
+    private SignatureDescriptor signature;
+
+    private volatile MethodType methodType;
+
+    @Override
+    public Tag tag() {
+        return Tag.METHOD_TYPE;
+    }
+
+    MethodTypeConstant(Utf8Constant descriptor) {
+        this.descriptor = descriptor;
+    }
+
+    public Utf8Constant descriptor() {
+        return descriptor;
+    }
+
+    public SignatureDescriptor signature() {
+        if (signature == null) {
+            try {
+                signature = SignatureDescriptor.create(descriptor.toString());
+            } catch (ClassFormatError e) {
+                throw classFormatError(descriptor + " is not a valid method type descriptor");
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Gets the method type denoted by this constant, creating it first if necessary. Creating a method type
+     * loads the classes named in the descriptor.
+     *
+     * @param pool the pool containing this constant
+     */
+    public MethodType resolve(ConstantPool pool) {
+        MethodType type = methodType;
+        if (type == null) {
+            type = InvokeDynamicLinker.methodType(signature(), pool.classLoader());
+            methodType = type;
+        }
+        return type;
+    }
+
+    /**
+     * Determines if the method type denoted by this constant has already been created.
+     */
+    public boolean isResolved() {
+        return methodType != null;
+    }
+
+    public Value value(ConstantPool pool, int index) {
+        return ReferenceValue.from(resolve(pool));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other instanceof MethodTypeConstant) {
+            return descriptor.equals(((MethodTypeConstant) other).descriptor);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return descriptor.hashCode();
+    }
+
+    @Override
+    public MethodTypeConstant key(ConstantPool pool) {
+        return this;
+    }
+
+    public String valueString(ConstantPool pool) {
+        return "descriptor=\"" + descriptor + "\"";
+    }
+
+    @Override
+    public void writeOn(DataOutputStream stream, ConstantPoolEditor editor, int index) throws IOException {
+        super.writeOn(stream, editor, index);
+        stream.writeShort(editor.indexOf(descriptor));
+    }
+}
@@ -23,14 +23,19 @@
 package com.sun.max.vm.classfile.constant;
 
 import java.io.*;
+import java.util.concurrent.atomic.*;
 
-import com.sun.max.collect.*;
-import com.sun.max.collect.ChainedHashMapping.Entry;
 import com.sun.max.vm.*;
 
 /**
  * Implementation of symbol and String interning, the latter of which is a Java language requirement.
- *
+ * <p>
+ * The symbols are stored in an open addressed, linear probing hash table. Lookups do not take any lock
+ * and a new symbol is published with a single compare-and-swap on an empty slot. Only growing the table
+ * is serialized: the thread performing the resize first seals every empty slot of the current table
+ * with {@link #MOVED} so that no insertion can be lost, then copies the entries into a table of twice
+ * the size and publishes it. A thread that encounters a sealed slot waits for the resize to complete
+ * and retries in the new table. Entries are never removed.
  */
 public final class SymbolTable {
 
@@ -39,36 +44,14 @@ public final class SymbolTable {
 
     /**
      * The only concrete subclass of {@link Utf8Constant}.
-     * Using a subclass hides the details of storing Utf8Constants in a {@link ChainedHashMapping}.
+     * Using a subclass hides the details of storing Utf8Constants in the symbol table.
      */
-    static final class Utf8ConstantEntry extends Utf8Constant implements ChainedHashMapping.Entry<String, Utf8ConstantEntry> {
+    static final class Utf8ConstantEntry extends Utf8Constant {
 
         Utf8ConstantEntry(String value) {
             super(value);
         }
 
-        public String key() {
-            return toString();
-        }
-
-        private Entry<String, Utf8ConstantEntry> next;
-
-        public Entry<String, Utf8ConstantEntry> next() {
-            return next;
-        }
-
-        public void setNext(Entry<String, Utf8ConstantEntry> next) {
-            this.next = next;
-        }
-
-        public void setValue(Utf8ConstantEntry value) {
-            assert value == this;
-        }
-
-        public Utf8ConstantEntry value() {
-            return this;
-        }
-
         @Override
         public void writeOn(DataOutputStream stream, ConstantPoolEditor editor, int index) throws IOException {
             super.writeOn(stream, editor, index);
@@ -77,35 +60,184 @@ public final class SymbolTable {
     }
 
     /**
-     * Searching and adding entries to this map is only performed by {@linkplain #makeSymbol(String) one method} which
-     * is synchronized.
+     * A fixed size array of slots. A table is only mutated by CAS'ing an empty slot to a new entry or, when the table
+     * is being replaced, to {@link SymbolTable#MOVED}.
+     */
+    static final class Table {
+        final AtomicReferenceArray<Utf8ConstantEntry> slots;
+        final int mask;
+        final int threshold;
+
+        Table(int capacity) {
+            slots = new AtomicReferenceArray<Utf8ConstantEntry>(capacity);
+            mask = capacity - 1;
+            threshold = capacity - (capacity >> 2);
+        }
+    }
+
+    /**
+     * Seals an empty slot in a table that is being replaced.
      */
-    private static final ChainingValueChainedHashMapping<String, Utf8ConstantEntry> symbolTable = new ChainingValueChainedHashMapping<String, Utf8ConstantEntry>(40000);
+    private static final Utf8ConstantEntry MOVED = new Utf8ConstantEntry("");
+
+    private static final int INITIAL_CAPACITY = 1 << 16;
+
+    private static volatile Table table = new Table(INITIAL_CAPACITY);
+
+    private static final AtomicInteger count = new AtomicInteger();
 
     public static final Utf8Constant INIT = makeSymbol("<init>");
     public static final Utf8Constant CLINIT = makeSymbol("<clinit>");
     public static final Utf8Constant FINALIZE = makeSymbol("finalize");
 
     public static int length() {
-        return symbolTable.length();
+        return count.get();
     }
 
-    public static synchronized Utf8Constant lookupSymbol(String value) {
-        return symbolTable.get(value);
+    public static Utf8Constant lookupSymbol(String value) {
+        final int hash = value.hashCode();
+        Table t = table;
+        while (true) {
+            int index = hash & t.mask;
+            while (true) {
+                final Utf8ConstantEntry entry = t.slots.get(index);
+                if (entry == null) {
+                    return null;
+                }
+                if (entry == MOVED) {
+                    break;
+                }
+                if (entry.string.equals(value)) {
+                    return entry;
+                }
+                index = (index + 1) & t.mask;
+            }
+            t = awaitResize();
+        }
+    }
+
+    public static Utf8Constant makeSymbol(String value) {
+        final Utf8Constant utf8 = lookupSymbol(value);
+        if (utf8 != null) {
+            return utf8;
+        }
+        return insert(value, value.hashCode());
     }
 
-    public static synchronized Utf8Constant makeSymbol(String value) {
-        Utf8ConstantEntry utf8 = symbolTable.get(value);
-        if (utf8 == null) {
-            if (MaxineVM.isHosted()) {
-                // String interning is implemented with another data structure when running hosted
-                utf8 = new Utf8ConstantEntry(value.intern());
-            } else {
-                utf8 = new Utf8ConstantEntry(value);
+    /**
+     * Gets the symbol for the first {@code length} chars in a given array, creating it if necessary. A
+     * {@link String} is only allocated if the symbol does not already exist. This is used by the class file parser to
+     * probe the table directly with the decoded contents of a {@code CONSTANT_Utf8} entry.
+     */
+    public static Utf8Constant makeSymbol(char[] chars, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        Table t = table;
+        while (true) {
+            int index = hash & t.mask;
+            while (true) {
+                final Utf8ConstantEntry entry = t.slots.get(index);
+                if (entry == null) {
+                    return insert(new String(chars, 0, length), hash);
+                }
+                if (entry == MOVED) {
+                    break;
+                }
+                if (matches(entry.string, chars, length)) {
+                    return entry;
+                }
+                index = (index + 1) & t.mask;
+            }
+            t = awaitResize();
+        }
+    }
+
+    private static boolean matches(String string, char[] chars, int length) {
+        if (string.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (string.charAt(i) != chars[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a symbol for a given value unless another thread has already done so.
+     */
+    private static Utf8ConstantEntry insert(String value, int hash) {
+        Utf8ConstantEntry utf8 = null;
+        Table t = table;
+        while (true) {
+            int index = hash & t.mask;
+            while (true) {
+                final Utf8ConstantEntry entry = t.slots.get(index);
+                if (entry == null) {
+                    if (utf8 == null) {
+                        if (MaxineVM.isHosted()) {
+                            // String interning is implemented with another data structure when running hosted
+                            utf8 = new Utf8ConstantEntry(value.intern());
+                        } else {
+                            utf8 = new Utf8ConstantEntry(value);
+                        }
+                    }
+                    if (t.slots.compareAndSet(index, null, utf8)) {
+                        if (count.incrementAndGet() > t.threshold) {
+                            resize(t);
+                        }
+                        return utf8;
+                    }
+                    // Lost the race for this slot: re-examine it
+                    continue;
+                }
+                if (entry == MOVED) {
+                    break;
+                }
+                if (entry.string.equals(value)) {
+                    return entry;
+                }
+                index = (index + 1) & t.mask;
+            }
+            t = awaitResize();
+        }
+    }
+
+    /**
+     * Waits for a resize in progress to complete.
+     *
+     * @return the new table
+     */
+    private static synchronized Table awaitResize() {
+        return table;
+    }
+
+    /**
+     * Replaces a given full table with one twice its size. Nothing is done if the table has already been replaced.
+     */
+    private static synchronized void resize(Table old) {
+        if (table != old) {
+            return;
+        }
+        final Table t = new Table(old.slots.length() << 1);
+        for (int i = 0; i < old.slots.length(); i++) {
+            Utf8ConstantEntry entry = old.slots.get(i);
+            if (entry == null) {
+                if (old.slots.compareAndSet(i, null, MOVED)) {
+                    continue;
+                }
+                entry = old.slots.get(i);
+            }
+            int index = entry.string.hashCode() & t.mask;
+            while (t.slots.get(index) != null) {
+                index = (index + 1) & t.mask;
             }
-            symbolTable.put(value, utf8);
+            t.slots.set(index, entry);
         }
-        return utf8;
+        table = t;
     }
 
     public static String intern(String value) {
@@ -338,6 +338,7 @@ public class CompilationBroker {
                     }
                 });
             }
+            MethodProfileCache.initialize();
         }
     }
 
@@ -596,6 +597,7 @@ public class CompilationBroker {
      * @param receiver the receiver object of the profiled method. This will be {@code null} if the profiled method is static.
      */
     public static void instrumentationCounterOverflow(MethodProfile mpo, Object receiver) {
+        VmThread.current().typeProfileBuffer.flush();
         if (mpo.compilationDisabled) {
             mpo.entryBackedgeCount = Integer.MAX_VALUE;
             return;
@@ -266,12 +266,9 @@ public class ConcreteMethodDependencyProcessor extends DependencyProcessor {
     public static MethodActor getUniqueConcreteMethod(ClassActor declaredType, MethodActor method) {
         // Default is to return null. See sub-classes of ClassActor for specific details.
         assert declaredType.isSubtypeOf(method.holder());
-        classHierarchyLock.readLock().lock();
-        try {
-            return new ConcreteMethodDependencyProcessor.UniqueConcreteMethodSearch().doIt(declaredType, method);
-        } finally {
-            classHierarchyLock.readLock().unlock();
-        }
+        // No need for the class hierarchy lock: the answer is only an assumption that is
+        // validated against the class hierarchy when the compiled code is installed.
+        return new ConcreteMethodDependencyProcessor.UniqueConcreteMethodSearch().doIt(declaredType, method);
     }
 
 
@@ -281,14 +281,22 @@ public class ConcreteTypeDependencyProcessor extends DependencyProcessor {
         ArrayList<TargetMethod> methods = new ArrayList<TargetMethod>(invalidated.size());
         for (Dependencies deps : invalidated) {
             if (deps.invalidate() && deps.targetMethod != null) {
-                if (MaxineVM.isHosted()) {
-                    CompiledPrototype.invalidateTargetMethod(deps.targetMethod);
-                }
                 methods.add(deps.targetMethod);
             }
         }
+        deoptimize(methods);
+    }
+
+    /**
+     * Deoptimizes a list of target methods whose dependencies have been invalidated.
+     *
+     * @param methods the target methods to deoptimize (must not contain duplicates)
+     */
+    static void deoptimize(ArrayList<TargetMethod> methods) {
         if (MaxineVM.isHosted()) {
-            return;
+            for (TargetMethod targetMethod : methods) {
+                CompiledPrototype.invalidateTargetMethod(targetMethod);
+            }
         } else if (!methods.isEmpty()) {
             new Deoptimization(methods).go();
         }
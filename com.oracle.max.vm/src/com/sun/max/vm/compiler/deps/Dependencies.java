@@ -300,94 +300,156 @@ public final class Dependencies {
         return (short) mindex;
     }
 
+    /**
+     * Number of times the validation of a set of assumptions is retried because of concurrent
+     * class definition before it is performed with the class hierarchy lock held.
+     */
+    private static final int MAX_OPTIMISTIC_VALIDATIONS = 3;
+
     /**
      * Validates a given set of assumptions and returns them encoded in a {@link Dependencies} object
      * if validation succeeds. If validation fails, {@link Dependencies#INVALID} is returned instead.
      * If {@code assumptions == null}, then {@code null} is returned.
+     * <p>
+     * Validation is performed without holding the {@linkplain DependenciesManager#classHierarchyLock class hierarchy lock}
+     * and is repeated if the class hierarchy changed while it was in progress. The lock is only taken in
+     * read mode to install validated dependencies in {@link DependenciesManager#contextDependents}, or for
+     * the whole validation if it keeps racing with class definition.
      */
     public static Dependencies validateDependencies(CiAssumptions assumptions) {
         if (assumptions == null) {
             return null;
         }
+        FatalError.check(ClassIDManager.largestClassId() <= Short.MAX_VALUE, "Support for 1 << 16 number of classes not supported yet");
+        for (int attempt = 0; attempt < MAX_OPTIMISTIC_VALIDATIONS; attempt++) {
+            long epoch = stableHierarchyEpoch();
+            HashMap<ClassActor, ClassDeps> packedDeps = new HashMap<ClassActor, ClassDeps>(10);
+            short[] packed = validate(assumptions, packedDeps);
+            if (packed == null) {
+                if (isHierarchyUnchangedSince(epoch)) {
+                    return Dependencies.INVALID;
+                }
+                continue;
+            }
+            classHierarchyLock.readLock().lock();
+            try {
+                if (isHierarchyUnchangedSince(epoch)) {
+                    return install(packed, packedDeps.keySet());
+                }
+            } finally {
+                classHierarchyLock.readLock().unlock();
+            }
+        }
         classHierarchyLock.readLock().lock();
         try {
-            FatalError.check(ClassIDManager.largestClassId() <= Short.MAX_VALUE, "Support for 1 << 16 number of classes not supported yet");
             HashMap<ClassActor, ClassDeps> packedDeps = new HashMap<ClassActor, ClassDeps>(10);
-            for (Assumption a : assumptions) {
-                ClassActor contextClassActor = (ClassActor) ((ContextAssumption) a).context;
-                ClassDeps classDeps = get(packedDeps, contextClassActor);
-                DependencyProcessor dependencyProcessor = DependenciesManager.dependencyProcessors.get(a.getClass());
-                if (dependencyProcessor != null) {
-                    classDeps.flags |= dependencyProcessor.bitMask;
-                    if (!dependencyProcessor.validate(a, classDeps)) {
-                        return Dependencies.INVALID;
-                    }
-                } else {
-                    assert false : "unhandled subtype of CiAssumptions: " + a.getClass().getName();
-                }
-
+            short[] packed = validate(assumptions, packedDeps);
+            if (packed == null) {
+                return Dependencies.INVALID;
             }
+            return install(packed, packedDeps.keySet());
+        } finally {
+            classHierarchyLock.readLock().unlock();
+        }
+    }
 
-            // Calculate the size of the array needed for all the dependencies
-            int size = 0;
-            for (Map.Entry<ClassActor, ClassDeps> e : packedDeps.entrySet()) {
-                ClassDeps classDeps = e.getValue();
-                size += 2; // context type and flags
-
-                for (int d = 0; d < dependencyProcessorsArray.length; d++) {
-                    DependencyProcessor dp = dependencyProcessorsArray[d];
-                    ClassDeps.Records records = classDeps.records[dp.id];
-                    if (records != null && records.count > 0) {
-                        size += 1 + records.count;
-                    }
+    /**
+     * Creates a {@link Dependencies} object for a validated set of dependencies and records it in
+     * {@link DependenciesManager#contextDependents}.
+     */
+    private static Dependencies install(short[] packed, Set<ClassActor> typesInDeps) {
+        assert classHierarchyLock.getReadHoldCount() > 0 : "must hold the class hierarchy lock in read mode";
+        Dependencies deps = new Dependencies(packed);
+        contextDependents.addDependencies(deps, typesInDeps);
+        return deps;
+    }
+
+    /**
+     * Validates a given set of assumptions against the current class hierarchy and encodes them.
+     *
+     * @param assumptions the assumptions to validate
+     * @param packedDeps the map in which the dependencies are accumulated per context class
+     * @return the encoded dependencies or {@code null} if validation failed
+     */
+    private static short[] validate(CiAssumptions assumptions, HashMap<ClassActor, ClassDeps> packedDeps) {
+        for (Assumption a : assumptions) {
+            ClassActor contextClassActor = (ClassActor) ((ContextAssumption) a).context;
+            ClassDeps classDeps = get(packedDeps, contextClassActor);
+            DependencyProcessor dependencyProcessor = DependenciesManager.dependencyProcessors.get(a.getClass());
+            if (dependencyProcessor != null) {
+                classDeps.flags |= dependencyProcessor.bitMask;
+                if (!dependencyProcessor.validate(a, classDeps)) {
+                    return null;
                 }
+            } else {
+                assert false : "unhandled subtype of CiAssumptions: " + a.getClass().getName();
             }
 
-            short[] packed = new short[size];
-            int i = 0;
-            for (Map.Entry<ClassActor, ClassDeps> e : packedDeps.entrySet()) {
-                ClassActor classActor = e.getKey();
-                ClassDeps classDeps = e.getValue();
-                packed[i++] = (short) classActor.id;
-                packed[i++] = classDeps.flags;
-                for (int d = 0; d < dependencyProcessorsArray.length; d++) {
-                    DependencyProcessor dp = dependencyProcessorsArray[d];
-                    ClassDeps.Records records = classDeps.records[dp.id];
-                    if (records != null && records.count > 0) {
-                        assert i < packed.length;
-                        packed[i++] = records.count;
-                        assert i + records.count <= packed.length;
-                        System.arraycopy(records.buf, 0, packed, i, records.count);
-                        i += records.count;
-                    }
+        }
+
+        // Calculate the size of the array needed for all the dependencies
+        int size = 0;
+        for (Map.Entry<ClassActor, ClassDeps> e : packedDeps.entrySet()) {
+            ClassDeps classDeps = e.getValue();
+            size += 2; // context type and flags
+
+            for (int d = 0; d < dependencyProcessorsArray.length; d++) {
+                DependencyProcessor dp = dependencyProcessorsArray[d];
+                ClassDeps.Records records = classDeps.records[dp.id];
+                if (records != null && records.count > 0) {
+                    size += 1 + records.count;
                 }
             }
-            assert i == packed.length;
+        }
 
-            Dependencies deps = new Dependencies(packed);
-            contextDependents.addDependencies(deps, packedDeps.keySet());
-            return deps;
-        } finally {
-            classHierarchyLock.readLock().unlock();
+        short[] packed = new short[size];
+        int i = 0;
+        for (Map.Entry<ClassActor, ClassDeps> e : packedDeps.entrySet()) {
+            ClassActor classActor = e.getKey();
+            ClassDeps classDeps = e.getValue();
+            packed[i++] = (short) classActor.id;
+            packed[i++] = classDeps.flags;
+            for (int d = 0; d < dependencyProcessorsArray.length; d++) {
+                DependencyProcessor dp = dependencyProcessorsArray[d];
+                ClassDeps.Records records = classDeps.records[dp.id];
+                if (records != null && records.count > 0) {
+                    assert i < packed.length;
+                    packed[i++] = records.count;
+                    assert i + records.count <= packed.length;
+                    System.arraycopy(records.buf, 0, packed, i, records.count);
+                    i += records.count;
+                }
+            }
         }
+        assert i == packed.length;
+        return packed;
     }
 
     /**
      * Register the target method produced with a set of validated dependencies.
+     * <p>
+     * A class definition may invalidate the dependencies between their validation and this registration, when the
+     * target method cannot yet be found from them. The target method has not been installed at this point, so it is
+     * not deoptimized; instead the caller must discard it and recompile.
      *
      * @param deps a set of validated dependencies
      * @param targetMethod the target method to associate with the dependencies
+     * @return {@code false} if the dependencies were invalidated before {@code targetMethod} was registered with them,
+     *         in which case {@code targetMethod} must not be installed
      */
-    public static void registerValidatedTarget(final Dependencies deps, final TargetMethod targetMethod) {
+    public static boolean registerValidatedTarget(final Dependencies deps, final TargetMethod targetMethod) {
+        boolean invalidated;
         classHierarchyLock.readLock().lock();
         try {
             deps.setTargetMethod(targetMethod);
+            invalidated = deps.packed == INVALIDATED;
         } finally {
             classHierarchyLock.readLock().unlock();
         }
         if (dependenciesLogger.enabled()) {
             deps.logRegister();
         }
+        return !invalidated;
     }
 
     /**
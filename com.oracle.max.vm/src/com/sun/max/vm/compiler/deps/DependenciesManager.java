@@ -77,16 +77,24 @@ public final class DependenciesManager {
     private static int nextDependencyProcessorId;
 
     /**
-     * Read-write lock used to synchronize modifications to the class hierarchy with validation of dependencies.
+     * Read-write lock used to synchronize modifications to the class hierarchy with installation of dependencies.
      * New class definition must acquire the lock in write mode to exclude all concurrent updates to the class hierarchy,
-     * and, more importantly, to exclude all concurrent validations or installations of validated dependencies.
-     * Validation and installation of dependencies acquire the lock in read mode to exclude all modifications to
-     * class hierarchy information by concurrent class definition. This allows
-     * multiple validation to be performed concurrently. Installation of dependencies in the dependency table
+     * and, more importantly, to exclude all concurrent installations of validated dependencies.
+     * Validation of dependencies does not acquire the lock: it is performed optimistically against a
+     * {@linkplain #hierarchyEpoch hierarchy epoch}. Only the installation of the validated dependencies
+     * in the dependency table acquires the lock in read mode, and only long enough to check that the epoch
+     * has not moved since validation started. Installation of dependencies in the dependency table
      * requires additional synchronization as it updates both the table and per class type dependency information.
      */
     public static final ReentrantReadWriteLock classHierarchyLock = new ReentrantReadWriteLock();
 
+    /**
+     * Version number of the class hierarchy. It is incremented (to an odd value) by {@link #addToHierarchy(ClassActor)}
+     * before the hierarchy is modified and incremented again (to an even value) once all the dependencies invalidated by
+     * the modification have been flushed. It is only updated with {@link #classHierarchyLock} held in write mode.
+     */
+    private static volatile long hierarchyEpoch;
+
     /**
      * Used during registration to accumulate {@linkplain DependencyProcessor} instances.
      */
@@ -142,10 +150,15 @@ public final class DependenciesManager {
         boolean refreshTables = false;
         classHierarchyLock.writeLock().lock();
         try {
-            classActor.prependToSiblingList();
-            ArrayList<Dependencies> invalidated = ConcreteTypeDependencyProcessor.recordUniqueConcreteSubtype(classActor);
-            ConcreteTypeDependencyProcessor.invalidateDependencies(invalidated, classActor);
-            refreshTables = true;
+            hierarchyEpoch++;
+            try {
+                classActor.prependToSiblingList();
+                ArrayList<Dependencies> invalidated = ConcreteTypeDependencyProcessor.recordUniqueConcreteSubtype(classActor);
+                ConcreteTypeDependencyProcessor.invalidateDependencies(invalidated, classActor);
+                refreshTables = true;
+            } finally {
+                hierarchyEpoch++;
+            }
         } finally {
             classHierarchyLock.writeLock().unlock();
             if (!MaxineVM.isHosted() && refreshTables) {
@@ -156,6 +169,28 @@ public final class DependenciesManager {
         }
     }
 
+    /**
+     * Gets the current {@linkplain #hierarchyEpoch epoch} of the class hierarchy, waiting for any
+     * modification in progress to complete.
+     */
+    static long stableHierarchyEpoch() {
+        long epoch = hierarchyEpoch;
+        while ((epoch & 1) != 0) {
+            Thread.yield();
+            epoch = hierarchyEpoch;
+        }
+        return epoch;
+    }
+
+    /**
+     * Determines if the class hierarchy has not been modified since a given epoch was read.
+     *
+     * @param epoch a value previously returned by {@link #stableHierarchyEpoch()}
+     */
+    static boolean isHierarchyUnchangedSince(long epoch) {
+        return hierarchyEpoch == epoch;
+    }
+
     // Logging
 
     @HOSTED_ONLY
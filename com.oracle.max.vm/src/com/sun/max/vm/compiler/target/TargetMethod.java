@@ -1204,6 +1204,18 @@ public abstract class TargetMethod extends MemoryRegion {
      */
     public abstract Pointer returnAddressPointer(StackFrameCursor frame);
 
+    /**
+     * Determines if an activation of this target method stopped at a given instruction has a completely set up frame,
+     * so that the frame can be {@linkplain #advance(StackFrameCursor) advanced} from. This is always the case at a
+     * safepoint, but not necessarily in the prologue or epilogue, where an asynchronous sample may stop the top frame.
+     *
+     * @param ip an instruction in this target method
+     * @return {@code false} if the frame is not set up at {@code ip} or if this cannot be determined
+     */
+    public boolean isFrameComplete(CodePointer ip) {
+        return false;
+    }
+
     /**
      * Finalize reference maps if necessary.
      */
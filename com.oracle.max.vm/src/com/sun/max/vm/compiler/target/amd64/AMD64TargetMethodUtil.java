@@ -256,6 +256,24 @@ public final class AMD64TargetMethodUtil {
         return entryPoint.equals(current.vmIP()) || current.stackFrameWalker().readByte(current.vmIP().toAddress(), 0) == RET;
     }
 
+    /**
+     * Determines if the frame of a given target method is set up at a given instruction, which need not be a safepoint.
+     * This is not the case at the first instruction or at a return (where the stack pointer has not been adjusted yet,
+     * or has already been adjusted back), nor in an adapter prologue.
+     *
+     * @see TargetMethod#isFrameComplete(CodePointer)
+     */
+    public static boolean isFrameComplete(TargetMethod tm, CodePointer ip) {
+        CodePointer entryPoint = tm.callEntryPoint.equals(CallEntryPoint.C_ENTRY_POINT) ?
+            CallEntryPoint.C_ENTRY_POINT.in(tm) :
+            CallEntryPoint.OPTIMIZED_ENTRY_POINT.in(tm);
+        if (entryPoint.equals(ip) || (ip.toPointer().readByte(0) & 0xff) == RET) {
+            return false;
+        }
+        AdapterGenerator generator = AdapterGenerator.forCallee(tm);
+        return generator == null || !generator.inPrologue(ip, tm);
+    }
+
     @HOSTED_ONLY
     public static boolean acceptStackFrameVisitor(StackFrameCursor current, StackFrameVisitor visitor) {
         AdapterGenerator generator = AdapterGenerator.forCallee(current.targetMethod());
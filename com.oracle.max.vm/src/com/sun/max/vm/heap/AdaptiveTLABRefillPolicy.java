@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.heap;
+
+import static com.sun.max.vm.VMOptions.*;
+
+import static com.sun.max.vm.thread.VmThreadLocal.*;
+
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * A per-thread TLAB refill policy that sizes TLABs according to the allocation rate of its thread.
+ * The policy keeps an exponentially weighted average of the bytes its thread allocates in TLABs between two
+ * garbage collections (an <em>epoch</em>), and sizes the next TLABs so that the thread refills about
+ * {@link #TLABTargetRefills} times per epoch. Allocation-heavy threads thus get larger TLABs and go less often through
+ * the refill slow path, whereas mostly idle threads get small TLABs and waste less of the young space.
+ *
+ * The refill threshold (i.e., the waste limit) is derived from the TLAB size and raised each time a request is
+ * satisfied outside of the TLAB, so that a thread repeatedly failing to allocate in its TLAB eventually retires it.
+ * The threshold returns to its base value on every refill.
+ */
+public class AdaptiveTLABRefillPolicy extends TLABRefillPolicy {
+
+    /**
+     * Number of TLAB refills per epoch the sizing aims at.
+     */
+    static int TLABTargetRefills = 50;
+
+    /**
+     * Weight, in percent, of the last epoch in the average of bytes allocated per epoch.
+     */
+    static int TLABAllocationWeight = 35;
+
+    /**
+     * Fraction of the TLAB size used as the base refill threshold.
+     */
+    static int TLABRefillWasteFraction = 64;
+
+    static {
+        VMOptions.addFieldOption("-XX:", "TLABTargetRefills", AdaptiveTLABRefillPolicy.class,
+            "Number of TLAB refills per GC a thread should perform with adaptive TLAB sizing.", MaxineVM.Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "TLABAllocationWeight", AdaptiveTLABRefillPolicy.class,
+            "Weight (in percent) of the last GC interval in the average allocation of a thread.", MaxineVM.Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "TLABRefillWasteFraction", AdaptiveTLABRefillPolicy.class,
+            "Fraction of the TLAB size a thread may leave unused when refilling.", MaxineVM.Phase.PRISTINE);
+    }
+
+    private static final VMSizeOption minTlabSizeOption = register(new VMSizeOption("-XX:MinTLABSize=", Size.K.times(2),
+        "The smallest size of an adaptively sized thread-local allocation buffer."), MaxineVM.Phase.PRISTINE);
+
+    private static final VMSizeOption maxTlabSizeOption = register(new VMSizeOption("-XX:MaxTLABSize=", Size.M.times(4),
+        "The largest size of an adaptively sized thread-local allocation buffer."), MaxineVM.Phase.PRISTINE);
+
+    /**
+     * Checks that the bounds of adaptively sized TLABs are consistent, exiting the VM if they are not.
+     */
+    static void checkSizeOptions() {
+        if (minTlabSizeOption.getValue().greaterThan(maxTlabSizeOption.getValue())) {
+            Log.println("Incompatible minimum and maximum TLAB sizes specified: MinTLABSize must not exceed MaxTLABSize");
+            MaxineVM.native_exit(1);
+        }
+    }
+
+    /**
+     * Size the TLAB should have on next refill.
+     */
+    private Size nextSize;
+
+    /**
+     * Refill threshold the {@link #refillThreshold} returns to on every refill.
+     */
+    private Size baseRefillThreshold;
+
+    /**
+     * Threshold for refilling the TLAB on allocation failure.
+     * Requests smaller than this threshold cause a refill, larger ones are allocated outside of the TLAB.
+     */
+    private Size refillThreshold;
+
+    /**
+     * Amount the refill threshold is raised by on each request allocated outside of the TLAB.
+     */
+    private Size refillThresholdIncrement;
+
+    /**
+     * Average number of bytes allocated in TLABs per epoch.
+     */
+    private long averageEpochBytes;
+
+    /**
+     * Value of the thread's cumulative TLAB allocation at the end of the last epoch.
+     */
+    private long lastAllocatedBytes;
+
+    /**
+     * Number of requests allocated outside of the TLAB during the current epoch.
+     */
+    private int slowAllocations;
+
+    /**
+     * Number of TLAB refills during the current epoch.
+     */
+    private long refills;
+
+    public AdaptiveTLABRefillPolicy(Size initialTLABSize) {
+        setNextSize(initialTLABSize);
+        averageEpochBytes = initialTLABSize.toLong() * TLABTargetRefills;
+    }
+
+    private void setNextSize(Size size) {
+        nextSize = size;
+        baseRefillThreshold = size.dividedBy(TLABRefillWasteFraction);
+        refillThreshold = baseRefillThreshold;
+        refillThresholdIncrement = baseRefillThreshold.dividedBy(4).alignUp(Word.size());
+    }
+
+    @Override
+    public boolean shouldRefill(Size size, Pointer allocationMark) {
+        if (allocationMark.isZero() || size.lessThan(refillThreshold)) {
+            refillThreshold = baseRefillThreshold;
+            return true;
+        }
+        // Keep the TLAB for now, but tolerate more waste next time so that a thread repeatedly
+        // failing to allocate in its TLAB eventually refills it.
+        refillThreshold = refillThreshold.plus(refillThresholdIncrement);
+        slowAllocations++;
+        return false;
+    }
+
+    @Override
+    public Size nextTlabSize() {
+        return nextSize;
+    }
+
+    @Override
+    public void notifyRefill() {
+        refills++;
+    }
+
+    /**
+     * Gets the number of TLAB refills since the end of the last epoch.
+     */
+    public long refills() {
+        return refills;
+    }
+
+    @Override
+    public void endEpoch(Pointer etla, long allocatedBytes) {
+        final long epochBytes = allocatedBytes - lastAllocatedBytes;
+        lastAllocatedBytes = allocatedBytes;
+        averageEpochBytes += (epochBytes - averageEpochBytes) * TLABAllocationWeight / 100;
+
+        long size = averageEpochBytes / TLABTargetRefills;
+        final Size minSize = minTlabSizeOption.getValue();
+        final Size maxSize = maxTlabSizeOption.getValue();
+        if (size < minSize.toLong()) {
+            size = minSize.toLong();
+        } else if (size > maxSize.toLong()) {
+            size = maxSize.toLong();
+        }
+        setNextSize(Size.fromLong(size).alignUp(Word.size()));
+
+        if (HeapSchemeWithTLAB.logTLAB()) {
+            final VmThread vmThread = UnsafeCast.asVmThread(VM_THREAD.loadRef(etla).toJava());
+            HeapSchemeWithTLAB.logger.logResize(vmThread, epochBytes, refills, slowAllocations, nextSize.toLong(), baseRefillThreshold.toLong());
+        }
+        slowAllocations = 0;
+        refills = 0;
+    }
+}
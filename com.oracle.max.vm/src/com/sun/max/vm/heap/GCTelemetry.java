@@ -0,0 +1,447 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.heap;
+
+import java.lang.management.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.log.VMLog.Record;
+import com.sun.max.vm.log.hosted.*;
+import com.sun.max.vm.management.*;
+
+/**
+ * Aggregates garbage collection telemetry for consumption at runtime, as opposed to the trace output
+ * of the {@link HeapScheme.PhaseLogger} and {@link HeapScheme.TimeLogger}.
+ * <p>
+ * Every collection records its pause time, the time spent in each {@link Phase}, the bytes freed and promoted,
+ * the bytes allocated since the previous collection (as an allocation rate) and the number of TLAB refills
+ * since the previous collection into {@link Histogram}s. Recording happens on the VM operation thread while
+ * mutators are stopped, so there is a single writer and no locks are taken; readers (the
+ * {@link GCTelemetryMXBean}) read the histograms racily.
+ * <p>
+ * The index, start and end time of the last collection and the usage of every memory pool before and after it
+ * are also recorded, for the {@code GetLastGCStat} JMM entry point. The pools are sampled without allocating;
+ * {@link #lastGCStat(MemoryUsage[], MemoryUsage[])} builds the {@link MemoryUsage} objects for a reader and
+ * retries if a collection completes while it copies the samples.
+ * <p>
+ * Pause and phase times are in microseconds. When the {@linkplain #logger logger} is enabled, a summary
+ * is logged every {@link #GCTelemetryLogInterval} collections.
+ */
+public final class GCTelemetry {
+
+    /**
+     * The phases accounted separately. Heap schemes map their own phases onto these.
+     */
+    public enum Phase {
+        ROOTS,
+        MARK,
+        SWEEP,
+        EVACUATE,
+        REFERENCES;
+
+        public static final Phase[] VALUES = values();
+    }
+
+    /**
+     * A histogram with buckets of logarithmically increasing width, each subdivided into
+     * {@code 2^SUB_BUCKET_BITS} linear sub-buckets, in the style of HdrHistogram. The relative error of a
+     * reported value is bounded by {@code 2^-SUB_BUCKET_BITS}. Values are non-negative longs.
+     */
+    public static final class Histogram {
+        private static final int SUB_BUCKET_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+        private final long[] counts = new long[BUCKETS];
+        private volatile long totalCount;
+        private long sum;
+        private long max;
+
+        @HOSTED_ONLY
+        public Histogram() {
+        }
+
+        /**
+         * Gets the index of the bucket that counts a given non-negative value.
+         */
+        public static int indexOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            final int exponent = 63 - Long.numberOfLeadingZeros(value);
+            final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        /**
+         * The highest value that maps to the bucket at a given index.
+         */
+        public static long highestValueAt(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            final int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            final long subBucket = index & (SUB_BUCKETS - 1);
+            final long lowest = (1L << exponent) | (subBucket << (exponent - SUB_BUCKET_BITS));
+            return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+        }
+
+        public void record(long value) {
+            final long v = value < 0 ? 0 : value;
+            counts[indexOf(v)]++;
+            sum += v;
+            if (v > max) {
+                max = v;
+            }
+            totalCount++;
+        }
+
+        public long count() {
+            return totalCount;
+        }
+
+        public long max() {
+            return max;
+        }
+
+        public long sum() {
+            return sum;
+        }
+
+        public long mean() {
+            final long n = totalCount;
+            return n == 0 ? 0 : sum / n;
+        }
+
+        /**
+         * Gets the value below which a given percentage of the recorded values fall.
+         *
+         * @param percentile a value between 0 and 100 (e.g. 99.9)
+         * @return the highest value equivalent to the percentile, or 0 if nothing was recorded
+         */
+        public long valueAtPercentile(double percentile) {
+            final long n = totalCount;
+            if (n == 0) {
+                return 0;
+            }
+            final double p = percentile < 0 ? 0 : percentile > 100 ? 100 : percentile;
+            final long target = Math.max(1L, (long) Math.ceil(p / 100.0 * n));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return Math.min(highestValueAt(i), max);
+                }
+            }
+            return max;
+        }
+    }
+
+    /**
+     * Number of collections between two summaries logged by {@link #logger}.
+     */
+    public static int GCTelemetryLogInterval = 16;
+    static {
+        VMOptions.addFieldOption("-XX:", "GCTelemetryLogInterval", GCTelemetry.class,
+            "Number of garbage collections between two GC telemetry summaries when LogGCTelemetry or TraceGCTelemetry is enabled.");
+    }
+
+    public static final Histogram pauseTimes = new Histogram();
+    private static final Histogram[] phaseTimes = new Histogram[Phase.VALUES.length];
+    public static final Histogram freedBytes = new Histogram();
+    public static final Histogram promotedBytes = new Histogram();
+
+    /**
+     * Allocation rate between consecutive collections, in KB per second.
+     */
+    public static final Histogram allocationRates = new Histogram();
+    public static final Histogram tlabRefills = new Histogram();
+
+    static {
+        for (Phase phase : Phase.VALUES) {
+            phaseTimes[phase.ordinal()] = new Histogram();
+        }
+    }
+
+    public static Histogram phaseTimes(Phase phase) {
+        return phaseTimes[phase.ordinal()];
+    }
+
+    /*
+     * State of the collection in progress. Only accessed by the VM operation thread.
+     */
+    private static int nesting;
+    private static long gcStartNanos;
+    private static long usedBeforeGC;
+    private static long promotedInGC;
+    private static final long[] phaseStartNanos = new long[Phase.VALUES.length];
+    private static final long[] phaseNanos = new long[Phase.VALUES.length];
+
+    private static long lastGCEndNanos;
+    private static long usedAfterLastGC;
+
+    /**
+     * The memory pools sampled around each collection, in the order of {@link MemoryManagement#getMemoryPools()}.
+     */
+    private static MemoryPoolMXBeanAdaptor[] memoryPools = {};
+    private static long[] usageBeforeGC = {};
+
+    /*
+     * The last completed collection, as reported to GetLastGCStat. The version is odd while these fields are
+     * being updated.
+     */
+    private static long lastGCIndex;
+    private static long lastGCStartMillis;
+    private static long lastGCEndMillis;
+    private static long[] lastUsageBeforeGC = {};
+    private static long[] lastUsageAfterGC = {};
+    private static volatile long lastGCVersion;
+
+    private GCTelemetry() {
+    }
+
+    /**
+     * Sets the memory pools whose usage is sampled before and after each collection. Called once the VM
+     * has started, when the pools can be allocated.
+     */
+    public static void initializeMemoryPools() {
+        final MemoryPoolMXBean[] pools = MemoryManagement.getMemoryPools();
+        final MemoryPoolMXBeanAdaptor[] adaptors = new MemoryPoolMXBeanAdaptor[pools.length];
+        for (int i = 0; i < pools.length; i++) {
+            adaptors[i] = (MemoryPoolMXBeanAdaptor) pools[i];
+        }
+        final int length = adaptors.length * MemoryPoolMXBeanAdaptor.USAGE_VALUES;
+        usageBeforeGC = new long[length];
+        lastUsageBeforeGC = new long[length];
+        lastUsageAfterGC = new long[length];
+        memoryPools = adaptors;
+    }
+
+    private static void sampleMemoryPools(long[] usage) {
+        final MemoryPoolMXBeanAdaptor[] pools = memoryPools;
+        for (int i = 0; i < pools.length; i++) {
+            pools[i].sampleUsage(usage, i * MemoryPoolMXBeanAdaptor.USAGE_VALUES);
+        }
+    }
+
+    /**
+     * Notifies the start of a collection. Called by the VM operation thread once mutators are stopped.
+     */
+    public static void gcStarted() {
+        if (nesting++ != 0) {
+            // nested collections are accounted for by the outer one
+            return;
+        }
+        gcStartNanos = System.nanoTime();
+        usedBeforeGC = Heap.reportUsedSpace();
+        sampleMemoryPools(usageBeforeGC);
+        promotedInGC = 0;
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = 0;
+        }
+        if (lastGCEndNanos != 0) {
+            final long allocated = usedBeforeGC - usedAfterLastGC;
+            final long mutatorMicros = (gcStartNanos - lastGCEndNanos) / 1000;
+            if (allocated > 0 && mutatorMicros > 0) {
+                allocationRates.record(allocated * 1000 / mutatorMicros * 1000 / 1024);
+            }
+        }
+        tlabRefills.record(HeapSchemeWithTLAB.drainTLABRefillCounts());
+    }
+
+    /**
+     * Notifies the end of a collection started by {@link #gcStarted()}.
+     */
+    public static void gcFinished() {
+        if (--nesting != 0) {
+            return;
+        }
+        final long endNanos = System.nanoTime();
+        final long usedAfterGC = Heap.reportUsedSpace();
+        pauseTimes.record((endNanos - gcStartNanos) / 1000);
+        for (Phase phase : Phase.VALUES) {
+            final long nanos = phaseNanos[phase.ordinal()];
+            if (nanos != 0) {
+                phaseTimes[phase.ordinal()].record(nanos / 1000);
+            }
+        }
+        freedBytes.record(usedBeforeGC - usedAfterGC);
+        if (promotedInGC != 0) {
+            promotedBytes.record(promotedInGC);
+        }
+        lastGCEndNanos = endNanos;
+        usedAfterLastGC = usedAfterGC;
+
+        final long gcIndex = pauseTimes.count();
+        final long vmStartNanos = MaxineVM.getStartupTimeNano();
+        lastGCVersion++;
+        lastGCIndex = gcIndex;
+        lastGCStartMillis = (gcStartNanos - vmStartNanos) / 1000000;
+        lastGCEndMillis = (endNanos - vmStartNanos) / 1000000;
+        System.arraycopy(usageBeforeGC, 0, lastUsageBeforeGC, 0, usageBeforeGC.length);
+        sampleMemoryPools(lastUsageAfterGC);
+        lastGCVersion++;
+
+        if (logger.enabled() && GCTelemetryLogInterval > 0 && gcIndex % GCTelemetryLogInterval == 0) {
+            logger.logSummary(gcIndex, pauseTimes.valueAtPercentile(50), pauseTimes.valueAtPercentile(99),
+                pauseTimes.valueAtPercentile(99.9), pauseTimes.max(), allocationRates.mean());
+        }
+    }
+
+    /**
+     * Gets the statistics of the last completed collection.
+     *
+     * @param usageBeforeGC if non-null, the usage of each memory pool before the collection is stored into this array.
+     *            Elements for which no pool was sampled are set to an undefined usage.
+     * @param usageAfterGC the same as {@code usageBeforeGC}, for the usage after the collection
+     * @return the index, start time and end time of the collection, in milliseconds since the VM started,
+     *         or {@code null} if no collection has completed
+     */
+    public static long[] lastGCStat(MemoryUsage[] usageBeforeGC, MemoryUsage[] usageAfterGC) {
+        final long[] stat = new long[3];
+        final long[] before = new long[lastUsageBeforeGC.length];
+        final long[] after = new long[lastUsageAfterGC.length];
+        long version;
+        do {
+            version = lastGCVersion;
+            stat[0] = lastGCIndex;
+            stat[1] = lastGCStartMillis;
+            stat[2] = lastGCEndMillis;
+            System.arraycopy(lastUsageBeforeGC, 0, before, 0, Math.min(before.length, lastUsageBeforeGC.length));
+            System.arraycopy(lastUsageAfterGC, 0, after, 0, Math.min(after.length, lastUsageAfterGC.length));
+        } while ((version & 1) != 0 || version != lastGCVersion);
+        if (stat[0] == 0) {
+            return null;
+        }
+        toMemoryUsages(before, usageBeforeGC);
+        toMemoryUsages(after, usageAfterGC);
+        return stat;
+    }
+
+    private static void toMemoryUsages(long[] usage, MemoryUsage[] result) {
+        if (result == null) {
+            return;
+        }
+        final int n = MemoryPoolMXBeanAdaptor.USAGE_VALUES;
+        for (int i = 0; i < result.length; i++) {
+            final int offset = i * n;
+            if (offset + n <= usage.length) {
+                result[i] = new MemoryUsage(usage[offset], usage[offset + 1], usage[offset + 2], usage[offset + 3]);
+            } else {
+                result[i] = new MemoryUsage(-1, 0, 0, -1);
+            }
+        }
+    }
+
+    public static void phaseStarted(Phase phase) {
+        phaseStartNanos[phase.ordinal()] = System.nanoTime();
+    }
+
+    public static void phaseFinished(Phase phase) {
+        phaseNanos[phase.ordinal()] += System.nanoTime() - phaseStartNanos[phase.ordinal()];
+    }
+
+    /**
+     * Records the number of bytes promoted to an older generation by the collection in progress.
+     */
+    public static void recordPromotedBytes(long bytes) {
+        promotedInGC += bytes;
+    }
+
+    public static final TelemetryLogger logger = new TelemetryLogger();
+
+    @HOSTED_ONLY
+    @VMLoggerInterface
+    private interface TelemetryLoggerInterface {
+        void summary(
+            @VMLogParam(name = "collections") long collections,
+            @VMLogParam(name = "pauseP50") long pauseP50,
+            @VMLogParam(name = "pauseP99") long pauseP99,
+            @VMLogParam(name = "pauseP999") long pauseP999,
+            @VMLogParam(name = "pauseMax") long pauseMax,
+            @VMLogParam(name = "allocationRate") long allocationRate);
+    }
+
+    public static final class TelemetryLogger extends TelemetryLoggerAuto {
+        TelemetryLogger() {
+            super("GCTelemetry", "periodic summaries of GC pause times.");
+        }
+
+        @Override
+        protected void traceSummary(long collections, long pauseP50, long pauseP99, long pauseP999, long pauseMax, long allocationRate) {
+            Log.print("GC telemetry after ");
+            Log.print(collections);
+            Log.print(" collections: pause us p50=");
+            Log.print(pauseP50);
+            Log.print(" p99=");
+            Log.print(pauseP99);
+            Log.print(" p999=");
+            Log.print(pauseP999);
+            Log.print(" max=");
+            Log.print(pauseMax);
+            Log.print(", mean allocation rate=");
+            Log.print(allocationRate);
+            Log.println(" KB/s");
+        }
+    }
+
+// START GENERATED CODE
+    private static abstract class TelemetryLoggerAuto extends com.sun.max.vm.log.VMLogger {
+        public enum Operation {
+            Summary;
+
+            @SuppressWarnings("hiding")
+            public static final Operation[] VALUES = values();
+        }
+
+        private static final int[] REFMAPS = null;
+
+        protected TelemetryLoggerAuto(String name, String optionDescription) {
+            super(name, Operation.VALUES.length, optionDescription, REFMAPS);
+        }
+
+        @Override
+        public String operationName(int opCode) {
+            return Operation.VALUES[opCode].name();
+        }
+
+        @INLINE
+        public final void logSummary(long collections, long pauseP50, long pauseP99, long pauseP999, long pauseMax, long allocationRate) {
+            log(Operation.Summary.ordinal(), longArg(collections), longArg(pauseP50), longArg(pauseP99), longArg(pauseP999), longArg(pauseMax), longArg(allocationRate));
+        }
+        protected abstract void traceSummary(long collections, long pauseP50, long pauseP99, long pauseP999, long pauseMax, long allocationRate);
+
+        @Override
+        protected void trace(Record r) {
+            switch (r.getOperation()) {
+                case 0: { //Summary
+                    traceSummary(toLong(r, 1), toLong(r, 2), toLong(r, 3), toLong(r, 4), toLong(r, 5), toLong(r, 6));
+                    break;
+                }
+            }
+        }
+    }
+
+// END GENERATED CODE
+}
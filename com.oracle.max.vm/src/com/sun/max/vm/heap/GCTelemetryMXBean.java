@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.heap;
+
+import com.sun.management.*;
+
+/**
+ * Extends {@link GarbageCollectorMXBean} with the distributions aggregated by {@link GCTelemetry}.
+ * Percentiles are given as values between 0 and 100, e.g. 99.9.
+ */
+public interface GCTelemetryMXBean extends GarbageCollectorMXBean {
+
+    /**
+     * Gets a percentile of the pause times, in microseconds.
+     */
+    long getPauseTimePercentile(double percentile);
+
+    /**
+     * Gets the longest pause time, in microseconds.
+     */
+    long getMaxPauseTime();
+
+    /**
+     * Gets a percentile of the time spent in a phase of a collection, in microseconds.
+     *
+     * @param phase the name of a {@link GCTelemetry.Phase}
+     */
+    long getPhaseTimePercentile(String phase, double percentile);
+
+    /**
+     * Gets a percentile of the bytes freed per collection.
+     */
+    long getFreedBytesPercentile(double percentile);
+
+    /**
+     * Gets the total number of bytes promoted to an older generation.
+     */
+    long getPromotedBytes();
+
+    /**
+     * Gets a percentile of the allocation rate between collections, in KB per second.
+     */
+    long getAllocationRatePercentile(double percentile);
+
+    /**
+     * Gets the total number of TLAB refills observed by the collections so far.
+     */
+    long getTLABRefillCount();
+}
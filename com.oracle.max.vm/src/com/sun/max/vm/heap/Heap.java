@@ -302,6 +302,11 @@ public final class Heap {
         return heapScheme().getAllocationCounterForCurrentThread();
     }
 
+    @INLINE
+    public static long getAllocatedBytes(Pointer tla) {
+        return heapScheme().getAllocatedBytes(tla);
+    }
+
     /**
      * @see HeapScheme#isGcThread(Thread)
      */
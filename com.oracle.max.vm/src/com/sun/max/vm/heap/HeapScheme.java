@@ -313,6 +313,16 @@ public interface HeapScheme extends VMScheme {
      */
     long getAllocationCounterForCurrentThread();
 
+    /**
+     * Returns the approximate number of bytes allocated on the heap by a thread during its lifetime.
+     * Unlike {@link #getAllocationCounterForCurrentThread()}, this is always maintained and may be queried for
+     * any live thread.
+     *
+     * @param tla the thread locals of the thread
+     * @return the number of bytes allocated by the thread, or -1 if this heap scheme does not track it
+     */
+    long getAllocatedBytes(Pointer tla);
+
     boolean needsBarrier(IntBitSet<WriteBarrierSpecification.WriteBarrierSpec> writeBarrierSpec);
 
     void preWriteBarrier(Reference ref, Offset offset, Reference value);
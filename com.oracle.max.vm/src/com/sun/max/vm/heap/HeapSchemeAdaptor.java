@@ -58,7 +58,7 @@ public abstract class HeapSchemeAdaptor extends AbstractVMScheme implements Heap
         VMOptions.addFieldOption("-XX:", "DisableExplicitGC", HeapSchemeAdaptor.class, "Tells whether System.gc() forces a full GC", MaxineVM.Phase.PRISTINE);
     }
 
-    public class GarbageCollectorMXBeanAdaptor extends MemoryManagerMXBeanAdaptor implements GarbageCollectorMXBean  {
+    public class GarbageCollectorMXBeanAdaptor extends MemoryManagerMXBeanAdaptor implements GCTelemetryMXBean  {
         public GarbageCollectorMXBeanAdaptor(String name) {
             super(name);
         }
@@ -75,6 +75,34 @@ public abstract class HeapSchemeAdaptor extends AbstractVMScheme implements Heap
             return accumulatedGCTime;
         }
 
+        public long getPauseTimePercentile(double percentile) {
+            return GCTelemetry.pauseTimes.valueAtPercentile(percentile);
+        }
+
+        public long getMaxPauseTime() {
+            return GCTelemetry.pauseTimes.max();
+        }
+
+        public long getPhaseTimePercentile(String phase, double percentile) {
+            return GCTelemetry.phaseTimes(GCTelemetry.Phase.valueOf(phase)).valueAtPercentile(percentile);
+        }
+
+        public long getFreedBytesPercentile(double percentile) {
+            return GCTelemetry.freedBytes.valueAtPercentile(percentile);
+        }
+
+        public long getPromotedBytes() {
+            return GCTelemetry.promotedBytes.sum();
+        }
+
+        public long getAllocationRatePercentile(double percentile) {
+            return GCTelemetry.allocationRates.valueAtPercentile(percentile);
+        }
+
+        public long getTLABRefillCount() {
+            return GCTelemetry.tlabRefills.sum();
+        }
+
         @Override
         public ObjectName getObjectName() {
             try {
@@ -207,6 +235,8 @@ public abstract class HeapSchemeAdaptor extends AbstractVMScheme implements Heap
         super.initialize(phase);
         if (phase == MaxineVM.Phase.PRISTINE) {
             releaseUnusedReservedVirtualSpace();
+        } else if (phase == MaxineVM.Phase.STARTING) {
+            GCTelemetry.initializeMemoryPools();
         }
     }
 
@@ -263,6 +293,10 @@ public abstract class HeapSchemeAdaptor extends AbstractVMScheme implements Heap
         throw FatalError.unimplemented();
     }
 
+    public long getAllocatedBytes(Pointer tla) {
+        return -1L;
+    }
+
     public void notifyCurrentThreadDetach() {
         // nothing by default
     }
@@ -99,6 +99,15 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
         VMOptions.addFieldOption("-XX:", "UseTLAB", HeapSchemeWithTLAB.class, "Use thread-local object allocation", MaxineVM.Phase.PRISTINE);
     }
 
+    /**
+     * A VM option for sizing TLABs per thread according to the thread's allocation rate.
+     */
+    public static boolean UseAdaptiveTLAB = true;
+    static {
+        VMOptions.addFieldOption("-XX:", "UseAdaptiveTLAB", HeapSchemeWithTLAB.class,
+            "Size each thread's TLABs according to its allocation rate", MaxineVM.Phase.PRISTINE);
+    }
+
     /**
      * A VM option for specifying the size of a TLAB. Default is 64 K.
      */
@@ -139,12 +148,51 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
     private static final VmThreadLocal ALLOCATION_COUNTER
         = new VmThreadLocal("ALLOCATION_COUNTER", false, "Amount of memory allocated by thread", Nature.Single);
 
+    /**
+     * Thread-local accumulating the size of all TLABs handed to a thread, less the leftover space of the
+     * TLABs it has retired. Subtracting the unused part of the current TLAB yields the number of bytes the
+     * thread has allocated.
+     */
+    private static final VmThreadLocal TLAB_ALLOCATED_BYTES
+        = new VmThreadLocal("TLAB_ALLOCATED_BYTES", false, "HeapSchemeWithTLAB: bytes of TLAB space consumed by thread", Nature.Single);
+
+    /**
+     * Thread-local counting the TLAB refills of a thread since the last GC.
+     */
+    private static final VmThreadLocal TLAB_REFILL_COUNT
+        = new VmThreadLocal("TLAB_REFILL_COUNT", false, "HeapSchemeWithTLAB: TLAB refills since the last GC", Nature.Single);
+
     /**
      * Thread-local used to disable allocation per thread.
      */
     private static final VmThreadLocal ALLOCATION_DISABLED
         = new VmThreadLocal(TLAB_DISABLED_THREAD_LOCAL_NAME, false, "HeapSchemeWithTLAB: disables per thread allocation if non-zero");
 
+    /**
+     * A procedure summing and clearing the {@link #TLAB_REFILL_COUNT} of threads.
+     */
+    private static final class DrainTLABRefillCount implements Pointer.Procedure {
+        long total;
+
+        public void run(Pointer tla) {
+            final Pointer etla = VmThreadLocal.ETLA.load(tla);
+            total += TLAB_REFILL_COUNT.load(etla).asAddress().toLong();
+            TLAB_REFILL_COUNT.store(etla, Address.zero());
+        }
+    }
+
+    private static final DrainTLABRefillCount drainTLABRefillCount = new DrainTLABRefillCount();
+
+    /**
+     * Gets the number of TLAB refills performed by all threads since the last call, for {@link GCTelemetry}.
+     * Must be called at a safepoint.
+     */
+    static long drainTLABRefillCounts() {
+        drainTLABRefillCount.total = 0;
+        VmThreadMap.ACTIVE.forAllThreadLocals(null, drainTLABRefillCount);
+        return drainTLABRefillCount.total;
+    }
+
     /**
      * A procedure for resetting the TLAB of a thread.
      */
@@ -179,11 +227,37 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
                 }
             }
             doBeforeReset(etla, tlabMark, tlabTop);
+            if (!tlabTop.isZero()) {
+                retireTLABSpace(etla, tlabTop.minus(tlabMark).asSize());
+            }
             TLAB_TOP.store(etla, Address.zero());
             TLAB_MARK.store(etla, Address.zero());
         }
     }
 
+    /**
+     * A procedure notifying the refill policy of a thread that a garbage collection reset its TLAB.
+     */
+    private static final class EndTLABEpoch implements Pointer.Procedure {
+        public void run(Pointer tla) {
+            final Pointer etla = VmThreadLocal.ETLA.load(tla);
+            final TLABRefillPolicy refillPolicy = TLABRefillPolicy.getForCurrentThread(etla);
+            if (refillPolicy != null) {
+                refillPolicy.endEpoch(etla, TLAB_ALLOCATED_BYTES.load(etla).toLong());
+            }
+        }
+    }
+
+    private static final EndTLABEpoch endTLABEpoch = new EndTLABEpoch();
+
+    /**
+     * Ends the {@linkplain TLABRefillPolicy#endEpoch TLAB sizing epoch} of all threads. Must be called by the garbage
+     * collector, once per collection, after it has reset the TLABs of all threads.
+     */
+    protected static void endTLABEpochs() {
+        VmThreadMap.ACTIVE.forAllThreadLocals(null, endTLABEpoch);
+    }
+
     protected abstract void tlabReset(Pointer tla);
 
     /**
@@ -279,6 +353,9 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
             if (initialTlabSize.lessThan(0)) {
                 FatalError.unexpected("Specified TLAB size is too small");
             }
+            if (useTLAB && UseAdaptiveTLAB) {
+                AdaptiveTLABRefillPolicy.checkSizeOptions();
+            }
         } else if (phase == MaxineVM.Phase.TERMINATING) {
             if (PrintTLABStats) {
                 globalTlabStats.printTLABStats();
@@ -342,6 +419,23 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
         return apt.asSize().toLong();
     }
 
+    @Override
+    public long getAllocatedBytes(Pointer tla) {
+        final Pointer etla = ETLA.load(tla);
+        final Pointer tlabTop = TLAB_TOP.load(etla);
+        long allocated = TLAB_ALLOCATED_BYTES.load(etla).toLong();
+        if (!tlabTop.isZero()) {
+            // Don't count the free space of the current TLAB
+            allocated -= tlabTop.minus(TLAB_MARK.load(etla)).toLong();
+        }
+        return allocated;
+    }
+
+    @INLINE
+    private static void retireTLABSpace(Pointer etla, Size leftover) {
+        TLAB_ALLOCATED_BYTES.store(etla, TLAB_ALLOCATED_BYTES.load(etla).asAddress().minus(leftover));
+    }
+
     @INLINE
     @Override
     public final boolean usesTLAB() {
@@ -352,6 +446,19 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
         return initialTlabSize;
     }
 
+    /**
+     * Creates the refill policy of a thread getting its first TLAB.
+     * Must be called once the thread's first TLAB is refilled, as the policy is allocated from it.
+     *
+     * @param tlabSize the size of the thread's first TLAB
+     */
+    protected TLABRefillPolicy createTLABRefillPolicy(Size tlabSize) {
+        if (UseAdaptiveTLAB) {
+            return new AdaptiveTLABRefillPolicy(tlabSize);
+        }
+        return new SimpleTLABRefillPolicy(tlabSize);
+    }
+
     protected void setInitialTlabSize(Size size) {
         initialTlabSize = size;
     }
@@ -377,6 +484,7 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
         if (!allocationMark.isZero()) {
             final Pointer oldTop = TLAB_TOP.load(etla);
             globalTlabStats.leftover += oldTop.minus(allocationMark).toLong();
+            retireTLABSpace(etla, oldTop.minus(allocationMark).asSize());
             // It is a refill, not an initial fill. So invoke handler.
             doBeforeTLABRefill(allocationMark, oldTop);
         } else {
@@ -386,6 +494,9 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
 
         TLAB_TOP.store(etla, tlabTop);
         TLAB_MARK.store(etla, tlab);
+        TLAB_ALLOCATED_BYTES.store(etla, TLAB_ALLOCATED_BYTES.load(etla).asAddress().plus(size));
+        TLAB_REFILL_COUNT.store(etla, TLAB_REFILL_COUNT.load(etla).asAddress().plus(1));
+        notifyRefill(etla);
         if (logTLAB()) {
             VmThread vmThread = UnsafeCast.asVmThread(VM_THREAD.loadRef(etla).toJava());
             logger.logRefill(vmThread, tlabTop, tlabTop, tlab.plus(initialTlabSize), initialTlabSize.toInt());
@@ -396,6 +507,17 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
     protected final void fastRefillTLAB(Pointer etla, Pointer tlab, Size size) {
         TLAB_TOP.store(etla, tlab.plus(size));
         TLAB_MARK.store(etla, tlab);
+        TLAB_ALLOCATED_BYTES.store(etla, TLAB_ALLOCATED_BYTES.load(etla).asAddress().plus(size));
+        TLAB_REFILL_COUNT.store(etla, TLAB_REFILL_COUNT.load(etla).asAddress().plus(1));
+        notifyRefill(etla);
+    }
+
+    @INLINE
+    private static void notifyRefill(Pointer etla) {
+        final TLABRefillPolicy refillPolicy = TLABRefillPolicy.getForCurrentThread(etla);
+        if (refillPolicy != null) {
+            refillPolicy.notifyRefill();
+        }
     }
 
     /**
@@ -619,6 +741,14 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
             @VMLogParam(name = "vmThread") VmThread vmThread,
             @VMLogParam(name = "tlabMark") Pointer tlabMark,
             @VMLogParam(name = "padWords") int padWords);
+
+        void resize(
+            @VMLogParam(name = "vmThread") VmThread vmThread,
+            @VMLogParam(name = "epochBytes") long epochBytes,
+            @VMLogParam(name = "refills") long refills,
+            @VMLogParam(name = "slowAllocations") int slowAllocations,
+            @VMLogParam(name = "nextTlabSize") long nextTlabSize,
+            @VMLogParam(name = "refillThreshold") long refillThreshold);
     }
 
     public static final class TLABLogger extends TLabLoggerAuto {
@@ -669,12 +799,28 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
             Log.println("]");
         }
 
+        @Override
+        protected void traceResize(VmThread vmThread, long epochBytes, long refills, int slowAllocations, long nextTlabSize, long refillThreshold) {
+            Log.printThread(vmThread, false);
+            Log.print(": Resizing TLAB [allocated=");
+            Log.print(epochBytes);
+            Log.print(", refills=");
+            Log.print(refills);
+            Log.print(", slow allocations=");
+            Log.print(slowAllocations);
+            Log.print(", next size=");
+            Log.print(nextTlabSize);
+            Log.print(", refill threshold=");
+            Log.print(refillThreshold);
+            Log.println("]");
+        }
+
     }
 
 // START GENERATED CODE
     private static abstract class TLabLoggerAuto extends com.sun.max.vm.log.VMLogger {
         public enum Operation {
-            Pad, Refill, Reset;
+            Pad, Refill, Reset, Resize;
 
             @SuppressWarnings("hiding")
             public static final Operation[] VALUES = values();
@@ -712,6 +858,13 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
         }
         protected abstract void traceReset(VmThread vmThread, Pointer tlabTop, Pointer tlabMark);
 
+        @INLINE
+        public final void logResize(VmThread vmThread, long epochBytes, long refills, int slowAllocations, long nextTlabSize, long refillThreshold) {
+            log(Operation.Resize.ordinal(), vmThreadArg(vmThread), longArg(epochBytes), longArg(refills), intArg(slowAllocations), longArg(nextTlabSize),
+                longArg(refillThreshold));
+        }
+        protected abstract void traceResize(VmThread vmThread, long epochBytes, long refills, int slowAllocations, long nextTlabSize, long refillThreshold);
+
         @Override
         protected void trace(Record r) {
             switch (r.getOperation()) {
@@ -727,6 +880,10 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
                     traceReset(toVmThread(r, 1), toPointer(r, 2), toPointer(r, 3));
                     break;
                 }
+                case 3: { //Resize
+                    traceResize(toVmThread(r, 1), toLong(r, 2), toLong(r, 3), toInt(r, 4), toLong(r, 5), toLong(r, 6));
+                    break;
+                }
             }
         }
     }
@@ -65,6 +65,24 @@ public abstract class TLABRefillPolicy {
      */
     public abstract Size nextTlabSize();
 
+    /**
+     * Notifies the policy that its thread's TLAB has been refilled. The default does nothing.
+     */
+    public void notifyRefill() {
+    }
+
+    /**
+     * Notifies the policy that a garbage collection has reset its thread's TLAB. This is called exactly once per
+     * collection for every thread, but not when a TLAB is reset for other reasons (e.g., to walk the heap or because
+     * the thread detaches). Policies that adapt TLAB sizing to the allocation rate of their thread do so here; the
+     * default does nothing. Called at a safepoint; must not allocate.
+     *
+     * @param etla the thread's enabled thread locals
+     * @param allocatedBytes the cumulative number of bytes the thread allocated in TLABs
+     */
+    public void endEpoch(Pointer etla, long allocatedBytes) {
+    }
+
     @INTRINSIC(UNSAFE_CAST)
     private static native TLABRefillPolicy asTLABRefillPolicy(Object object);
 
@@ -29,17 +29,26 @@ import com.sun.max.vm.heap.*;
 
 public final class EvacuationTimers {
     public enum TIMED_OPERATION {
-        TOTAL,
-        PROLOGUE,
-        ROOT_SCAN,
-        BOOT_HEAP_SCAN,
-        CODE_SCAN,
-        IMMORTAL_SCAN,
-        RSET_SCAN,
-        COPY,
-        WEAK_REF,
-        EPILOGUE;
+        TOTAL(null),
+        PROLOGUE(null),
+        ROOT_SCAN(GCTelemetry.Phase.ROOTS),
+        BOOT_HEAP_SCAN(GCTelemetry.Phase.ROOTS),
+        CODE_SCAN(GCTelemetry.Phase.ROOTS),
+        IMMORTAL_SCAN(GCTelemetry.Phase.ROOTS),
+        RSET_SCAN(GCTelemetry.Phase.ROOTS),
+        COPY(GCTelemetry.Phase.EVACUATE),
+        WEAK_REF(GCTelemetry.Phase.REFERENCES),
+        EPILOGUE(null);
         public final TimerMetric timer = new TimerMetric(new SingleUseTimer(HeapScheme.GC_TIMING_CLOCK));
+
+        /**
+         * The {@link GCTelemetry} phase this operation is accounted to, if any.
+         */
+        final GCTelemetry.Phase telemetryPhase;
+
+        private TIMED_OPERATION(GCTelemetry.Phase telemetryPhase) {
+            this.telemetryPhase = telemetryPhase;
+        }
     }
 
     private boolean trackTime = false;
@@ -57,6 +66,9 @@ public final class EvacuationTimers {
     }
 
     public void start(TIMED_OPERATION timedOp) {
+        if (timedOp.telemetryPhase != null) {
+            GCTelemetry.phaseStarted(timedOp.telemetryPhase);
+        }
         if (trackTime) {
             timedOp.timer.start();
         }
@@ -66,5 +78,8 @@ public final class EvacuationTimers {
         if (trackTime) {
             timedOp.timer.stop();
         }
+        if (timedOp.telemetryPhase != null) {
+            GCTelemetry.phaseFinished(timedOp.telemetryPhase);
+        }
     }
 }
@@ -51,6 +51,12 @@ public final class FirstFitMarkSweepSpace<T extends HeapAccountOwner> extends He
         VMOptions.addFieldOption("-XX:", "TraceLargeObjectAllocations", FirstFitMarkSweepSpace.class, "Trace allocation of large multi-regions objects", Phase.PRISTINE);
     }
 
+    /**
+     * Number of regions per NUMA node examined when looking for a TLAB allocation region local to the allocating thread.
+     * Regions are assigned to nodes round-robin, so a local region is typically found among the first few.
+     */
+    private static final int NUMA_REGION_SEARCH_LIMIT = 4;
+
     /**
      * Heap account regions from this space are allocated from.
      */
@@ -734,7 +740,9 @@ public final class FirstFitMarkSweepSpace<T extends HeapAccountOwner> extends He
     }
 
     public int getAllocatingRegion() {
-        final int regionID = tlabAllocationRegionList().removeHead();
+        final int regionID = NUMATopology.isEnabled() ?
+            tlabAllocationRegionList().removeHead(NUMATopology.currentNode(), NUMA_REGION_SEARCH_LIMIT * NUMATopology.numNodes()) :
+            tlabAllocationRegionList().removeHead();
         if (regionID != INVALID_REGION_ID) {
             final HeapRegionInfo regionInfo = fromRegionID(regionID);
             final int numFreeBytes = regionInfo.isEmpty() ?  regionSizeInBytes : regionInfo.freeBytesInChunks();
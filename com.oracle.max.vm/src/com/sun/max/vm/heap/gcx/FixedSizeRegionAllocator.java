@@ -415,7 +415,11 @@ class FixedSizeRegionAllocator {
         // TODO (ld) should we try to avoid calling commitMemmory if the range is already committed ?
         // Should we try to commit only uncommitted sub-range ?
         final Size size = Size.fromInt(numRegions).shiftedLeft(log2RegionSizeInBytes);
-        if (VirtualMemory.commitMemory(regionStart(firstRegionId), size, VirtualMemory.Type.HEAP)) {
+        // Regions are committed and uncommitted one by one, so explicit huge pages
+        // can only back regions whose size is a multiple of the huge page size.
+        if (VirtualMemory.commitMemory(regionStart(firstRegionId), size, VirtualMemory.Type.HEAP, true, Size.fromInt(regionSizeInBytes))) {
+            // Committing remaps the range, which resets its memory policy.
+            NUMATopology.placeRegions(firstRegionId, numRegions, regionStart(firstRegionId), Size.fromInt(regionSizeInBytes));
             committed.set(firstRegionId, firstRegionId + numRegions);
             committedSize += numRegions;
             return true;
@@ -27,6 +27,7 @@ import static com.sun.max.vm.heap.gcx.HeapRegionConstants.*;
 import java.util.*;
 
 import com.sun.max.annotate.*;
+import com.sun.max.memory.*;
 import com.sun.max.unsafe.*;
 import com.sun.max.vm.*;
 import com.sun.max.vm.layout.*;
@@ -288,6 +289,30 @@ public class HeapRegionList {
         return elem;
     }
 
+    /**
+     * Remove the first region of the list whose home NUMA node is the specified node, looking only at the first regions of the list.
+     * If none is found, the head of the list is removed.
+     *
+     * @param node a NUMA node
+     * @param maxSearched maximum number of regions examined from the head of the list
+     * @return the removed region, or the null element if the list is empty
+     * @see NUMATopology#homeNode(int)
+     */
+    int removeHead(int node, int maxSearched) {
+        int elem = head;
+        for (int i = 0; i < maxSearched && elem != nullElement; i++) {
+            if (NUMATopology.homeNode(elem) == node) {
+                if (elem != head) {
+                    remove(elem);
+                    return elem;
+                }
+                break;
+            }
+            elem = next(elem);
+        }
+        return removeHead();
+    }
+
     int removeTail() {
         if (isEmpty()) {
             return nullElement;
@@ -191,20 +191,22 @@ public class TricolorHeapMarker implements MarkingStack.OverflowHandler, HeapMan
     }
 
     private static enum MARK_PHASE {
-        SCAN_THREADS("T", "Marking roots from threads and monitors"),
-        SCAN_BOOT_HEAP("B", "Marking roots from boot heap"),
-        SCAN_CODE("C", "Marking roots from code"),
-        SCAN_IMMORTAL("I", "Marking roots from immortal heap"),
-        VISIT_GREY_FORWARD("V", "Tracing grey objects"),
-        SPECIAL_REF("W", "Processing special references"),
-        DONE("D", "");
+        SCAN_THREADS("T", "Marking roots from threads and monitors", GCTelemetry.Phase.ROOTS),
+        SCAN_BOOT_HEAP("B", "Marking roots from boot heap", GCTelemetry.Phase.ROOTS),
+        SCAN_CODE("C", "Marking roots from code", GCTelemetry.Phase.ROOTS),
+        SCAN_IMMORTAL("I", "Marking roots from immortal heap", GCTelemetry.Phase.ROOTS),
+        VISIT_GREY_FORWARD("V", "Tracing grey objects", GCTelemetry.Phase.MARK),
+        SPECIAL_REF("W", "Processing special references", GCTelemetry.Phase.REFERENCES),
+        DONE("D", "", null);
 
         final String tag;
         final String traceMessage;
+        final GCTelemetry.Phase telemetryPhase;
 
-        private MARK_PHASE(String tag, String traceMessage) {
+        private MARK_PHASE(String tag, String traceMessage, GCTelemetry.Phase telemetryPhase) {
             this.tag = tag;
             this.traceMessage = traceMessage;
+            this.telemetryPhase = telemetryPhase;
         }
 
         @Override
@@ -220,6 +222,7 @@ public class TricolorHeapMarker implements MarkingStack.OverflowHandler, HeapMan
             Log.print("END: "); Log.println(traceMessage);
         }
         final void traceBegin(boolean traceOn) {
+            GCTelemetry.phaseStarted(telemetryPhase);
             if (traceOn) {
                 traceBegin();
             }
@@ -228,6 +231,7 @@ public class TricolorHeapMarker implements MarkingStack.OverflowHandler, HeapMan
             if (traceOn) {
                 traceEnd();
             }
+            GCTelemetry.phaseFinished(telemetryPhase);
         }
     }
 
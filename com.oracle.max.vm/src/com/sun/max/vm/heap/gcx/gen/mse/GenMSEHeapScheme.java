@@ -164,7 +164,7 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
         // cards to find references to young objects (i.e., it may be cheaper to use the reference maps for the boot image).
         final Size cardTableDataSize = cardTableRSet.memoryRequirement(cardTableCoveredAreaSize);
         if (!Heap.AvoidsAnonOperations) {
-            if (!VirtualMemory.commitMemory(cardTableDataStart, cardTableDataSize,  VirtualMemory.Type.DATA)) {
+            if (!VirtualMemory.commitMemory(cardTableDataStart, cardTableDataSize,  VirtualMemory.Type.DATA, true)) {
                 MaxineVM.reportPristineMemoryFailure("card table space", "commit", cardTableDataSize);
             }
         }
@@ -213,7 +213,7 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
                 MaxineVM.reportPristineMemoryFailure("Can't allocate heap marker", "reserve", heapMarkerDatasize);
             }
             if (!Heap.AvoidsAnonOperations) {
-                if (!VirtualMemory.commitMemory(heapMarkerDataStart, heapMarkerDatasize,  VirtualMemory.Type.DATA)) {
+                if (!VirtualMemory.commitMemory(heapMarkerDataStart, heapMarkerDatasize,  VirtualMemory.Type.DATA, true)) {
                     MaxineVM.reportPristineMemoryFailure("heap marker space", "commit", heapMarkerDatasize);
                 }
             }
@@ -305,7 +305,9 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
             HeapScheme.Inspect.notifyHeapPhaseChange(HeapPhase.ANALYZING);
             heapMarker.markAll(regionsRangeIterable);
             HeapScheme.Inspect.notifyHeapPhaseChange(HeapPhase.RECLAIMING);
+            GCTelemetry.phaseStarted(GCTelemetry.Phase.SWEEP);
             oldSpace.sweep(heapMarker, false);
+            GCTelemetry.phaseFinished(GCTelemetry.Phase.SWEEP);
             oldSpace.doAfterGC();
             youngSpaceEvacuator.doAfterGC();
             fullCollectionCount++;
@@ -325,13 +327,16 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
             // the old and young gen and somehow reclaim enough regions for a fresh nursery, we just perform a nursery evacuation.
             // The full GC is thereafter just a old gen GC with an empty young gen.
             VmThreadMap.ACTIVE.forAllThreadLocals(null, tlabFiller);
+            endTLABEpochs();
             vmConfig().monitorScheme().beforeGarbageCollection();
             if (Heap.verbose()) {
                 Log.println("--Begin nursery evacuation");
             }
             youngSpaceEvacuator.setGCOperation(this);
             HeapScheme.Inspect.notifyHeapPhaseChange(HeapPhase.ANALYZING);
+            final Size oldSpaceUsedBeforeEvacuation = oldSpace.usedSpace();
             youngSpaceEvacuator.evacuate(Heap.logGCPhases());
+            GCTelemetry.recordPromotedBytes(oldSpace.usedSpace().minus(oldSpaceUsedBeforeEvacuation).toLong());
             HeapScheme.Inspect.notifyHeapPhaseChange(HeapPhase.RECLAIMING);
             youngSpaceEvacuator.setGCOperation(null);
             if (Heap.verbose()) {
@@ -444,7 +449,7 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
             allocateAndRefillTLAB(etla, tlabSize);
             // Let's do a bit of meta-circularity. The TLAB is refilled, and no-one except the current thread can use it.
             // So the TLAB allocation is going to succeed here
-            TLABRefillPolicy.setForCurrentThread(etla, new SimpleTLABRefillPolicy(tlabSize));
+            TLABRefillPolicy.setForCurrentThread(etla, createTLABRefillPolicy(tlabSize));
             // Now, address the initial request. Note that we may recurse down to handleTLABOverflow again here if the
             // request is larger than the TLAB size. However, this second call will succeed and allocate outside of the TLAB.
             return tlabAllocate(size);
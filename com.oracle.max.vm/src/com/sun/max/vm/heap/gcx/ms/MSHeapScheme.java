@@ -123,7 +123,7 @@ public final class MSHeapScheme extends HeapSchemeWithTLABAdaptor {
 
             // Initialize the heap marker's data structures. Needs to make sure it is outside of the heap reserved space.
             if (!Heap.AvoidsAnonOperations) {
-                if (!VirtualMemory.commitMemory(heapMarkerDataStart, heapMarkerDatasize,  VirtualMemory.Type.DATA)) {
+                if (!VirtualMemory.commitMemory(heapMarkerDataStart, heapMarkerDatasize,  VirtualMemory.Type.DATA, true)) {
                     MaxineVM.reportPristineMemoryFailure("heapMarkerDataStart", "commit", heapMarkerDatasize);
                 }
             }
@@ -264,11 +264,13 @@ public final class MSHeapScheme extends HeapSchemeWithTLABAdaptor {
         }
 
         private Size reclaim() {
+            GCTelemetry.phaseStarted(GCTelemetry.Phase.SWEEP);
             startTimer(reclaimTimer);
             objectSpace.beginSweep();
             heapMarker.impreciseSweep(objectSpace);
             objectSpace.endSweep();
             stopTimer(reclaimTimer);
+            GCTelemetry.phaseFinished(GCTelemetry.Phase.SWEEP);
             return objectSpace.freeSpaceAfterSweep();
         }
 
@@ -279,6 +281,7 @@ public final class MSHeapScheme extends HeapSchemeWithTLABAdaptor {
             traceGCTimes = Heap.logGCTime();
             startTimer(totalPauseTime);
             VmThreadMap.ACTIVE.forAllThreadLocals(null, tlabFiller);
+            endTLABEpochs();
 
             HeapScheme.Inspect.notifyHeapPhaseChange(HeapPhase.ANALYZING);
 
@@ -400,7 +403,7 @@ public final class MSHeapScheme extends HeapSchemeWithTLABAdaptor {
             allocateAndRefillTLAB(etla, tlabSize);
             // Let's do a bit of dirty meta-circularity. The TLAB is refilled, and no-one except the current thread can use it.
             // So the tlab allocation is going to succeed here
-            TLABRefillPolicy.setForCurrentThread(etla, new SimpleTLABRefillPolicy(tlabSize));
+            TLABRefillPolicy.setForCurrentThread(etla, createTLABRefillPolicy(tlabSize));
             // Now, address the initial request. Note that we may recurse down to handleTLABOverflow again here if the
             // request is larger than the TLAB size. However, this second call will succeed and allocate outside of the tlab.
             return tlabAllocate(size);
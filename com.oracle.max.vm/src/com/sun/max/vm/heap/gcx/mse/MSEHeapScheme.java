@@ -150,7 +150,7 @@ public final class MSEHeapScheme extends HeapSchemeWithTLABAdaptor implements He
             }
 
             markSweepSpace.initialize(initSize, applicationHeapMaxSize);
-            if (!VirtualMemory.commitMemory(heapMarkerDataStart, heapMarkerDatasize,  VirtualMemory.Type.DATA)) {
+            if (!VirtualMemory.commitMemory(heapMarkerDataStart, heapMarkerDatasize,  VirtualMemory.Type.DATA, true)) {
                 MaxineVM.reportPristineMemoryFailure("heapMarkerDataStart", "commit", heapMarkerDatasize);
             }
             heapMarker.initialize(heapBounds.start(), heapBounds.end(), heapMarkerDataStart, heapMarkerDatasize);
@@ -314,6 +314,7 @@ public final class MSEHeapScheme extends HeapSchemeWithTLABAdaptor implements He
             traceGCTimes = Heap.logGCTime();
             startTimer(totalPauseTime);
             VmThreadMap.ACTIVE.forAllThreadLocals(null, tlabFiller);
+            endTLABEpochs();
 
             HeapScheme.Inspect.notifyHeapPhaseChange(HeapPhase.ANALYZING);
 
@@ -330,10 +331,12 @@ public final class MSEHeapScheme extends HeapSchemeWithTLABAdaptor implements He
             if (traceGCPhases) {
                 Log.println("BEGIN: Sweeping");
             }
+            GCTelemetry.phaseStarted(GCTelemetry.Phase.SWEEP);
             startTimer(reclaimTimer);
             markSweepSpace.sweep(heapMarker, DoImpreciseSweep);
             Size freeSpaceAfterGC = markSweepSpace.freeSpace();
             stopTimer(reclaimTimer);
+            GCTelemetry.phaseFinished(GCTelemetry.Phase.SWEEP);
             if (traceGCPhases) {
                 Log.println("END: Sweeping");
             }
@@ -449,7 +452,7 @@ public final class MSEHeapScheme extends HeapSchemeWithTLABAdaptor implements He
             allocateAndRefillTLAB(etla, tlabSize);
             // Let's do a bit of dirty meta-circularity. The TLAB is refilled, and no-one except the current thread can use it.
             // So the tlab allocation is going to succeed here
-            TLABRefillPolicy.setForCurrentThread(etla, new SimpleTLABRefillPolicy(tlabSize));
+            TLABRefillPolicy.setForCurrentThread(etla, createTLABRefillPolicy(tlabSize));
             // Now, address the initial request. Note that we may recurse down to handleTLABOverflow again here if the
             // request is larger than the TLAB size. However, this second call will succeed and allocate outside of the tlab.
             return tlabAllocate(size);
@@ -733,6 +733,7 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
             countOldSpaceDirtyCards("before minor collection");
         }
         VmThreadMap.ACTIVE.forAllThreadLocals(null, tlabFiller);
+        endTLABEpochs();
         Heap.invokeGCCallbacks(GCCallbackPhase.BEFORE);
         if (MaxineVM.isDebug() && Heap.verbose()) {
             Log.println("--Begin nursery evacuation");
@@ -741,7 +742,9 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
         evacTimers.start(TOTAL);
         youngSpaceEvacuator.setGCOperation(genCollection);
         HeapScheme.Inspect.notifyHeapPhaseChange(HeapPhase.ANALYZING);
+        final Size oldSpaceUsedBeforeEvacuation = oldSpace.usedSpace();
         youngSpaceEvacuator.evacuate(Heap.logGCPhases());
+        GCTelemetry.recordPromotedBytes(oldSpace.usedSpace().minus(oldSpaceUsedBeforeEvacuation).toLong());
         if (resizingPolicy.minorEvacuationOverflow()) {
             overflowedArea.setStart(oldSpace.allocator.start());
             overflowedArea.setEnd(oldSpace.allocator.unsafeTop());
@@ -1023,7 +1026,7 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
             allocateAndRefillTLAB(etla, tlabSize);
             // Let's do a bit of meta-circularity. The TLAB is refilled, and no-one except the current thread can use it.
             // So the TLAB allocation is going to succeed here
-            TLABRefillPolicy.setForCurrentThread(etla, new SimpleTLABRefillPolicy(tlabSize));
+            TLABRefillPolicy.setForCurrentThread(etla, createTLABRefillPolicy(tlabSize));
             // Now, address the initial request. Note that we may recurse down to handleTLABOverflow again here if the
             // request is larger than the TLAB size. However, this second call will succeed and allocate outside of the TLAB.
             return tlabAllocate(size);
@@ -1068,7 +1071,7 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
         // cards to find references to young objects (i.e., it may be cheaper to use the reference maps for the boot image).
         final Size cardTableDataSize = cardTableRSet.memoryRequirement(cardTableCoveredAreaSize);
         if (!Heap.AvoidsAnonOperations) {
-            if (!VirtualMemory.commitMemory(cardTableDataStart, cardTableDataSize,  VirtualMemory.Type.DATA)) {
+            if (!VirtualMemory.commitMemory(cardTableDataStart, cardTableDataSize,  VirtualMemory.Type.DATA, true)) {
                 MaxineVM.reportPristineMemoryFailure("card table space", "commit", cardTableDataSize);
             }
         }
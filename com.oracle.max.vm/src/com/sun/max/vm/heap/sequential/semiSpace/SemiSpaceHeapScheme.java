@@ -339,6 +339,7 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
         public void collect(int invocationCount) {
             try {
                 VmThreadMap.ACTIVE.forAllThreadLocals(null, resetTLAB);
+                endTLABEpochs();
 
                 Heap.invokeGCCallbacks(GCCallbackPhase.BEFORE);
                 // Pre-verification of the heap.
@@ -356,6 +357,7 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
                 if (Heap.logGCPhases()) {
                     phaseLogger.logScanningRoots(VMLogger.Interval.BEGIN);
                 }
+                GCTelemetry.phaseStarted(GCTelemetry.Phase.ROOTS);
                 startTimer(rootScanTimer);
                 heapRootsScanner.run(); // Start scanning the reachable objects from my roots.
                 stopTimer(rootScanTimer);
@@ -389,6 +391,7 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
                 startTimer(immortalSpaceScanTimer);
                 scanImmortalHeap();
                 stopTimer(immortalSpaceScanTimer);
+                GCTelemetry.phaseFinished(GCTelemetry.Phase.ROOTS);
                 if (Heap.logGCPhases()) {
                     phaseLogger.logScanningImmortalHeap(VMLogger.Interval.END);
                 }
@@ -396,9 +399,11 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
                 if (Heap.logGCPhases()) {
                     phaseLogger.logMovingReachable(VMLogger.Interval.BEGIN);
                 }
+                GCTelemetry.phaseStarted(GCTelemetry.Phase.EVACUATE);
                 startTimer(copyTimer);
                 moveReachableObjects(toSpace.start().asPointer());
                 stopTimer(copyTimer);
+                GCTelemetry.phaseFinished(GCTelemetry.Phase.EVACUATE);
                 if (Heap.logGCPhases()) {
                     phaseLogger.logMovingReachable(VMLogger.Interval.END);
                 }
@@ -406,9 +411,11 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
                 if (Heap.logGCPhases()) {
                     phaseLogger.logProcessingSpecialReferences(VMLogger.Interval.BEGIN);
                 }
+                GCTelemetry.phaseStarted(GCTelemetry.Phase.REFERENCES);
                 startTimer(weakRefTimer);
                 SpecialReferenceManager.processDiscoveredSpecialReferences(refForwarder);
                 stopTimer(weakRefTimer);
+                GCTelemetry.phaseFinished(GCTelemetry.Phase.REFERENCES);
                 stopTimer(gcTimer);
                 if (Heap.logGCPhases()) {
                     phaseLogger.logProcessingSpecialReferences(VMLogger.Interval.END);
@@ -871,7 +878,7 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
             allocateAndRefillTLAB(etla, tlabSize);
             // Let's do a bit of meta-circularity. The TLAB is refilled, and no-one except the current thread can use it.
             // So the TLAB allocation is going to succeed here
-            TLABRefillPolicy.setForCurrentThread(etla, new SimpleTLABRefillPolicy(tlabSize));
+            TLABRefillPolicy.setForCurrentThread(etla, createTLABRefillPolicy(tlabSize));
             // Now, address the initial request. Note that we may recurse down to handleTLABOverflow again here if the
             // request is larger than the TLAB size. However, this second call will succeed and allocate outside of the TLAB.
             return tlabAllocate(size);
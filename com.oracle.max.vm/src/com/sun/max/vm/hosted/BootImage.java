@@ -84,7 +84,7 @@ public class BootImage {
     /**
      * A version number of the boot image file layout, checked against IMAGE_FORMAT_VERSION in Native/substrate/image.c .
      */
-    public static final int BOOT_IMAGE_FORMAT_VERSION = 2;
+    public static final int BOOT_IMAGE_FORMAT_VERSION = 3;
 
     /**
      * A field section in a boot image is described by the {@code public final} and {@code final}
@@ -270,6 +270,7 @@ public class BootImage {
         public final int TRAP_LATCH_REGISTER;
         public final int STACK_REFERENCE_MAP;
         public final int STACK_REFERENCE_MAP_SIZE;
+        public final int PROFILER_NATIVE_TICKS;
 
         public WordWidth wordWidth() {
             return WordWidth.fromInt(wordSize * 8);
@@ -329,6 +330,7 @@ public class BootImage {
             TRAP_LATCH_REGISTER = endian.readInt(dataInputStream);
             STACK_REFERENCE_MAP = endian.readInt(dataInputStream);
             STACK_REFERENCE_MAP_SIZE = endian.readInt(dataInputStream);
+            PROFILER_NATIVE_TICKS = endian.readInt(dataInputStream);
         }
 
         private int staticFieldPointerOffset(DataPrototype dataPrototype, Class javaClass, String staticFieldName) {
@@ -386,6 +388,7 @@ public class BootImage {
             TRAP_LATCH_REGISTER = VmThreadLocal.TRAP_LATCH_REGISTER.index;
             STACK_REFERENCE_MAP = VmThreadLocal.STACK_REFERENCE_MAP.index;
             STACK_REFERENCE_MAP_SIZE = VmThreadLocal.STACK_REFERENCE_MAP_SIZE.index;
+            PROFILER_NATIVE_TICKS = VmThreadLocal.PROFILER_NATIVE_TICKS.index;
         }
 
         public void check() throws BootImageException {
@@ -23,6 +23,7 @@
 package com.sun.max.vm.jdk;
 
 import com.sun.max.annotate.*;
+import com.sun.max.vm.management.*;
 
 /**
  * Method substitutions for sun.management.ThreadImpl.
@@ -34,4 +35,23 @@ final class JDK_sun_management_ThreadImpl {
     public boolean isCurrentThreadCpuTimeSupported() {
         return false; //TODO
     }
+
+    /**
+     * Backs {@code com.sun.management.ThreadMXBean.getThreadAllocatedBytes(long)} on JDKs that query a single thread.
+     */
+    @SUBSTITUTE(optional = true)
+    private static long getThreadAllocatedMemory0(long id) {
+        return ThreadManagement.getThreadAllocatedBytes(id);
+    }
+
+    /**
+     * Backs {@code com.sun.management.ThreadMXBean.getThreadAllocatedBytes(long[])}. The JMM function table in
+     * this VM has no {@code GetThreadAllocatedMemory} slot, so the native method is replaced instead.
+     */
+    @SUBSTITUTE(optional = true)
+    private static void getThreadAllocatedMemory1(long[] ids, long[] result) {
+        for (int i = 0; i < ids.length; i++) {
+            result[i] = ThreadManagement.getThreadAllocatedBytes(ids[i]);
+        }
+    }
 }
@@ -24,10 +24,12 @@ package com.sun.max.vm.jni;
 
 import static com.sun.max.vm.jni.JmmFunctions.*;
 
+import java.io.*;
 import java.lang.management.*;
 
 import com.sun.max.annotate.*;
 import com.sun.max.unsafe.*;
+import com.sun.max.vm.heap.*;
 import com.sun.max.vm.management.*;
 import com.sun.max.vm.runtime.*;
 
@@ -118,6 +120,18 @@ public final class JmmFunctionsSource {
 
     @VM_ENTRY_POINT
     private static boolean GetBoolAttribute(Pointer env, int att) {
+        switch (att) {
+            case JMM_VERBOSE_GC:
+                return MemoryManagement.isVerboseGC();
+            case JMM_VERBOSE_CLASS:
+                return ClassLoadingManagement.isVerboseClass();
+            case JMM_THREAD_CONTENTION_MONITORING:
+                return ThreadManagement.isThreadContentionMonitoringEnabled();
+            case JMM_THREAD_CPU_TIME:
+                return ThreadManagement.isThreadCpuTimeEnabled();
+            case JMM_THREAD_ALLOCATED_MEMORY:
+                return ThreadManagement.isThreadAllocatedMemoryEnabled();
+        }
         return false;
     }
 
@@ -129,9 +143,11 @@ public final class JmmFunctionsSource {
             case JMM_VERBOSE_CLASS:
                 return ClassLoadingManagement.setVerboseClass(flag);
             case JMM_THREAD_CONTENTION_MONITORING:
-                return ThreadManagement.setThreadCpuTimeEnabled(flag);
+                return ThreadManagement.setThreadContentionMonitoringEnabled(flag);
             case JMM_THREAD_CPU_TIME:
                 return ThreadManagement.setThreadCpuTimeEnabled(flag);
+            case JMM_THREAD_ALLOCATED_MEMORY:
+                return ThreadManagement.setThreadAllocatedMemoryEnabled(flag);
             default:
                     FatalError.unexpected("unknown attribute value " + att +  "to JmmFunctions.SetBoolAttribute");
         }
@@ -150,7 +166,7 @@ public final class JmmFunctionsSource {
 
     @VM_ENTRY_POINT
     private static long GetThreadCpuTime(Pointer env, long thread_id) {
-        return 0;
+        return ThreadManagement.getThreadCpuTime(thread_id, true);
     }
 
     @VM_ENTRY_POINT
@@ -179,7 +195,14 @@ public final class JmmFunctionsSource {
 
     @VM_ENTRY_POINT
     private static long SetPoolThreshold(Pointer env, JniHandle pool, int type, long threshold) {
-        return 0;
+        final MemoryPoolMXBean memoryPool = (MemoryPoolMXBean) pool.unhand();
+        if (type == JMM_USAGE_THRESHOLD_HIGH && memoryPool.isUsageThresholdSupported()) {
+            final long previous = memoryPool.getUsageThreshold();
+            memoryPool.setUsageThreshold(threshold);
+            return previous;
+        }
+        // Low (sensor) thresholds and collection usage thresholds are not supported
+        return -1;
     }
 
     @VM_ENTRY_POINT
@@ -194,18 +217,34 @@ public final class JmmFunctionsSource {
 
     @VM_ENTRY_POINT
     private static void GetLastGCStat(Pointer env, JniHandle mgr, Pointer gc_stat) {
+        final int usageBeforeOffset = 24;
+        final int usageAfterOffset = usageBeforeOffset + Word.size();
+        final MemoryUsage[] usageBeforeGC = (MemoryUsage[]) gc_stat.readWord(usageBeforeOffset).asJniHandle().unhand();
+        final MemoryUsage[] usageAfterGC = (MemoryUsage[]) gc_stat.readWord(usageAfterOffset).asJniHandle().unhand();
+        final long[] stat = GCTelemetry.lastGCStat(usageBeforeGC, usageAfterGC);
+        if (stat == null) {
+            // A gc_index of 0 tells the caller that no GC statistics are available
+            gc_stat.writeLong(0, 0L);
+        } else {
+            gc_stat.writeLong(0, stat[0]);
+            gc_stat.writeLong(8, stat[1]);
+            gc_stat.writeLong(16, stat[2]);
+            // No extension attributes are reported (num_gc_ext_attributes = 0)
+            gc_stat.writeInt(24 + 4 * Word.size(), 0);
+        }
     }
 
     @VM_ENTRY_POINT
     private static long GetThreadCpuTimeWithKind(Pointer env, long thread_id, boolean user_sys_cpu_time) {
-        return 0;
+        return ThreadManagement.getThreadCpuTime(thread_id, user_sys_cpu_time);
     }
 
     @VM_ENTRY_POINT
     private static native Pointer reserved5();
 
     @VM_ENTRY_POINT
-    private static int DumpHeap0(Pointer env, JniHandle outputfile, boolean live) {
+    private static int DumpHeap0(Pointer env, JniHandle outputfile, boolean live) throws IOException {
+        HeapDumper.dumpHeap((String) outputfile.unhand(), live);
         return 0;
     }
 
@@ -300,6 +300,41 @@ public final class JniFunctions {
         }
     }
 
+    /**
+     * Gives access to the character array holding the contents of a {@link String}.
+     */
+    static class StringAlias {
+        @ALIAS(declaringClass = String.class)
+        char[] value;
+        @ALIAS(declaringClass = String.class, optional = true)
+        int offset;
+    }
+
+    @INTRINSIC(UNSAFE_CAST)
+    static native StringAlias asStringAlias(String s);
+
+    /**
+     * Starting with JDK 7 update 6, the String class no longer has the offset and count fields.
+     */
+    @FOLD
+    static boolean stringHasOffset() {
+        try {
+            String.class.getDeclaredField("offset");
+        } catch (NoSuchFieldException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the address of the first character of a string whose {@linkplain StringAlias#value character array}
+     * has been pinned by {@link Heap#useDirectPointer(Object)}.
+     */
+    static Pointer stringCharsPointer(StringAlias s) {
+        int offset = stringHasOffset() ? s.offset : 0;
+        return Reference.fromJava(s.value).toOrigin().plus(Layout.charArrayLayout().getElementOffsetFromOrigin(offset));
+    }
+
 
     /*
      * DO NOT EDIT CODE BETWEEN "START GENERATED CODE" AND "END GENERATED CODE" IN THIS FILE.
@@ -4624,7 +4659,11 @@ public final class JniFunctions {
         }
 
         try {
-            // TODO(cwi): Implement optimized version for OptimizeJNICritical if a benchmark uses it frequently
+            final StringAlias s = asStringAlias((String) string.unhand());
+            if (Heap.useDirectPointer(s.value)) {
+                setCopyPointer(isCopy, false);
+                return stringCharsPointer(s);
+            }
             setCopyPointer(isCopy, true);
             return copyString((String) string.unhand());
         } catch (Throwable t) {
@@ -4649,13 +4688,16 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static void ReleaseStringCritical(Pointer env, JniHandle string, Pointer chars) {
-        // Source: JniFunctionsSource.java:1725
+        // Source: JniFunctionsSource.java:1729
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.ReleaseStringCritical.ordinal(), UPCALL_ENTRY, anchor, env, string, chars);
         }
 
         try {
+            if (Heap.releasedDirectPointer(asStringAlias((String) string.unhand()).value)) {
+                return;
+            }
             Memory.deallocate(chars);
         } catch (Throwable t) {
             VmThread.fromJniEnv(env).setJniException(t);
@@ -4670,7 +4712,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static JniHandle NewWeakGlobalRef(Pointer env, JniHandle handle) {
-        // Source: JniFunctionsSource.java:1730
+        // Source: JniFunctionsSource.java:1737
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.NewWeakGlobalRef.ordinal(), UPCALL_ENTRY, anchor, env, handle);
@@ -4692,7 +4734,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static void DeleteWeakGlobalRef(Pointer env, JniHandle handle) {
-        // Source: JniFunctionsSource.java:1735
+        // Source: JniFunctionsSource.java:1742
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.DeleteWeakGlobalRef.ordinal(), UPCALL_ENTRY, anchor, env, handle);
@@ -4713,7 +4755,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static boolean ExceptionCheck(Pointer env) {
-        // Source: JniFunctionsSource.java:1740
+        // Source: JniFunctionsSource.java:1747
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.ExceptionCheck.ordinal(), UPCALL_ENTRY, anchor, env);
@@ -4737,7 +4779,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static JniHandle NewDirectByteBuffer(Pointer env, Pointer address, long capacity) throws Exception {
-        // Source: JniFunctionsSource.java:1747
+        // Source: JniFunctionsSource.java:1754
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.NewDirectByteBuffer.ordinal(), UPCALL_ENTRY, anchor, env, address, Address.fromLong(capacity));
@@ -4760,7 +4802,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static Pointer GetDirectBufferAddress(Pointer env, JniHandle buffer) throws Exception {
-        // Source: JniFunctionsSource.java:1753
+        // Source: JniFunctionsSource.java:1760
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetDirectBufferAddress.ordinal(), UPCALL_ENTRY, anchor, env, buffer);
@@ -4787,7 +4829,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static long GetDirectBufferCapacity(Pointer env, JniHandle buffer) {
-        // Source: JniFunctionsSource.java:1763
+        // Source: JniFunctionsSource.java:1770
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetDirectBufferCapacity.ordinal(), UPCALL_ENTRY, anchor, env, buffer);
@@ -4813,7 +4855,7 @@ public final class JniFunctions {
 
     @VM_ENTRY_POINT
     private static int GetObjectRefType(Pointer env, JniHandle obj) {
-        // Source: JniFunctionsSource.java:1772
+        // Source: JniFunctionsSource.java:1779
         Pointer anchor = prologue(env);
         if (logger.enabled()) {
             logger.log(LogOperations.GetObjectRefType.ordinal(), UPCALL_ENTRY, anchor, env, obj);
@@ -1708,7 +1708,11 @@ public final class JniFunctionsSource {
 
     @VM_ENTRY_POINT
     private static Pointer GetStringCritical(Pointer env, JniHandle string, Pointer isCopy) {
-        // TODO(cwi): Implement optimized version for OptimizeJNICritical if a benchmark uses it frequently
+        final StringAlias s = asStringAlias((String) string.unhand());
+        if (Heap.useDirectPointer(s.value)) {
+            setCopyPointer(isCopy, false);
+            return stringCharsPointer(s);
+        }
         setCopyPointer(isCopy, true);
         return copyString((String) string.unhand());
     }
@@ -1723,6 +1727,9 @@ public final class JniFunctionsSource {
 
     @VM_ENTRY_POINT
     private static void ReleaseStringCritical(Pointer env, JniHandle string, Pointer chars) {
+        if (Heap.releasedDirectPointer(asStringAlias((String) string.unhand()).value)) {
+            return;
+        }
         Memory.deallocate(chars);
     }
 
@@ -30,6 +30,10 @@ import com.sun.max.vm.type.*;
  */
 
 public class ClassLoadingManagement {
+    public static boolean isVerboseClass() {
+        return VMOptions.verboseOption.verboseClass;
+    }
+
     public static boolean setVerboseClass(boolean enable) {
         final boolean previous = VMOptions.verboseOption.verboseClass;
         VMOptions.verboseOption.verboseClass = enable;
@@ -0,0 +1,633 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.management;
+
+import static com.sun.max.vm.VMConfiguration.*;
+import static com.sun.max.vm.type.ClassRegistry.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.code.*;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.layout.*;
+import com.sun.max.vm.object.*;
+import com.sun.max.vm.reference.*;
+import com.sun.max.vm.runtime.*;
+import com.sun.max.vm.thread.*;
+import com.sun.max.vm.type.*;
+
+/**
+ * Writes a snapshot of the heap in the HPROF binary format, as expected by
+ * {@code HotSpotDiagnosticMXBean.dumpHeap}, jmap and heap analysis tools.
+ * <p>
+ * The heap, boot heap, immortal heap and code regions are walked in a single {@link VmOperation}. Records are
+ * streamed through an {@link HprofWriter}, so the walk itself allocates no objects per cell. Object and class
+ * identifiers are the addresses of the objects and of the {@link Class} mirrors. Objects in the boot heap, immortal
+ * heap and code regions are reported as roots, as are the {@link Thread} objects of all live threads.
+ */
+public final class HeapDumper extends CallbackCellVisitor implements Pointer.Procedure {
+
+    private static final int HPROF_LOAD_CLASS = 0x02;
+    private static final int HPROF_TRACE = 0x05;
+    private static final int HPROF_HEAP_DUMP_END = 0x2C;
+
+    private static final int HPROF_GC_ROOT_UNKNOWN = 0xFF;
+    private static final int HPROF_GC_ROOT_THREAD_OBJ = 0x08;
+    private static final int HPROF_GC_CLASS_DUMP = 0x20;
+    private static final int HPROF_GC_INSTANCE_DUMP = 0x21;
+    private static final int HPROF_GC_OBJ_ARRAY_DUMP = 0x22;
+    private static final int HPROF_GC_PRIM_ARRAY_DUMP = 0x23;
+
+    private static final int HPROF_NORMAL_OBJECT = 2;
+    private static final int HPROF_BOOLEAN = 4;
+    private static final int HPROF_CHAR = 5;
+    private static final int HPROF_FLOAT = 6;
+    private static final int HPROF_DOUBLE = 7;
+    private static final int HPROF_BYTE = 8;
+    private static final int HPROF_SHORT = 9;
+    private static final int HPROF_INT = 10;
+    private static final int HPROF_LONG = 11;
+
+    /**
+     * The single (empty) stack trace all objects are attributed to.
+     */
+    private static final int STACK_TRACE_SERIAL = 1;
+
+    private static final int BUFFER_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * Segments are closed once they grow beyond this size, well below the 4GB limit of the u4 record length.
+     */
+    private static final long SEGMENT_LIMIT = 1L << 30;
+
+    /**
+     * Number of class IDs beyond the snapshot taken before the dump for which dumped classes are tracked.
+     */
+    private static final int CLASS_ID_SLACK = 1024;
+
+    private final HprofWriter out;
+    private final ByteBuffer buffer;
+    private final int idSize = Word.size();
+
+    /**
+     * The classes loaded when the dump was requested.
+     */
+    private final ClassActor[] classes;
+
+    /**
+     * Indexed by class ID, the size of the instance field values of a class plus one, or 0 if the class
+     * has not been dumped yet.
+     */
+    private final int[] instanceDataSizes;
+
+    /**
+     * Open addressed set of the IDs of the strings for which a UTF8 record has been written.
+     */
+    private final long[] utf8IDs;
+    private int utf8Count;
+
+    /**
+     * Specifies if the cells currently being visited are roots.
+     */
+    private boolean visitingRoots;
+
+    /**
+     * Number of objects visited by the heap walk that are not in the boot heap, immortal heap or code regions.
+     */
+    private long heapObjectCount;
+
+    private IOException failure;
+
+    private HeapDumper(FileChannel channel) {
+        this.out = new HprofWriter(channel, BUFFER_SIZE, idSize);
+        this.buffer = out.buffer();
+        int classCount = 0;
+        int nameCount = 0;
+        final int largestClassID = ClassIDManager.largestClassId();
+        for (int id = 0; id <= largestClassID; id++) {
+            final ClassActor classActor = ClassIDManager.toClassActor(id);
+            if (classActor != null && !classActor.isPrimitiveClassActor()) {
+                // Create the mirrors now; they are used as class IDs and cannot be allocated during the dump.
+                classActor.javaClass();
+                classCount++;
+                nameCount += 1 + classActor.localInstanceFieldActors().length + classActor.localStaticFieldActors().length;
+            }
+        }
+        classes = new ClassActor[classCount];
+        int index = 0;
+        for (int id = 0; id <= largestClassID && index < classCount; id++) {
+            final ClassActor classActor = ClassIDManager.toClassActor(id);
+            if (classActor != null && !classActor.isPrimitiveClassActor()) {
+                classes[index++] = classActor;
+            }
+        }
+        instanceDataSizes = new int[largestClassID + 1 + CLASS_ID_SLACK];
+        utf8IDs = new long[Integer.highestOneBit(nameCount) << 2];
+    }
+
+    /**
+     * Dumps the heap to a given file.
+     *
+     * @param path the file to create
+     * @param live if {@code true}, a full garbage collection is performed first so that only reachable objects are dumped
+     * @throws IOException if the file cannot be written or if the heap scheme does not support
+     *             {@linkplain HeapScheme#walkHeap(CallbackCellVisitor) walking} its heap. The file is deleted in either case.
+     */
+    public static void dumpHeap(String path, boolean live) throws IOException {
+        if (live) {
+            System.gc();
+        }
+        final FileOutputStream out = new FileOutputStream(path);
+        boolean complete = false;
+        try {
+            final HeapDumper dumper = new HeapDumper(out.getChannel());
+            dumper.writeHeader();
+            new DumpOperation(dumper).submit();
+            if (dumper.failure != null) {
+                throw dumper.failure;
+            }
+            complete = true;
+        } finally {
+            out.close();
+            if (!complete) {
+                new File(path).delete();
+            }
+        }
+    }
+
+    private static final class DumpOperation extends VmOperation {
+        private final HeapDumper dumper;
+
+        DumpOperation(HeapDumper dumper) {
+            super("HeapDump", null, Mode.Safepoint);
+            this.dumper = dumper;
+        }
+
+        @Override
+        protected void doIt() {
+            // The file channel may allocate internally; keep such allocation out of the heap being walked.
+            try {
+                Heap.enableImmortalMemoryAllocation();
+                dumper.dump();
+            } catch (IOException e) {
+                dumper.failure = e;
+            } finally {
+                Heap.disableImmortalMemoryAllocation();
+            }
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        out.writeHeader(System.currentTimeMillis());
+
+        // An empty stack trace for all objects
+        out.startRecord(HPROF_TRACE, 12);
+        buffer.putInt(STACK_TRACE_SERIAL);
+        buffer.putInt(0);
+        buffer.putInt(0);
+    }
+
+    private void dump() throws IOException {
+        for (ClassActor classActor : classes) {
+            writeClassNames(classActor);
+        }
+        out.startSegment();
+        for (ClassActor classActor : classes) {
+            writeClassDump(classActor);
+        }
+        VmThreadMap.ACTIVE.forAllThreadLocals(null, this);
+
+        vmConfig().heapScheme().walkHeap(this);
+        if (failure == null && heapObjectCount == 0) {
+            // At least this dumper is in the heap, so nothing was visited
+            failure = new IOException("heap scheme " + vmConfig().heapScheme().name() + " does not support heap walking");
+        }
+        if (failure == null) {
+            visitingRoots = true;
+            Code.visitCells(this, true);
+            visitingRoots = false;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        out.endSegment();
+        out.startRecord(HPROF_HEAP_DUMP_END, 0);
+        out.flush();
+    }
+
+    /**
+     * Writes a thread object root.
+     */
+    public void run(Pointer tla) {
+        final VmThread vmThread = VmThread.fromTLA(tla);
+        final Thread thread = vmThread.javaThread();
+        if (thread != null) {
+            try {
+                ensure(1 + idSize + 8);
+                buffer.put((byte) HPROF_GC_ROOT_THREAD_OBJ);
+                putID(thread);
+                buffer.putInt(vmThread.id());
+                buffer.putInt(STACK_TRACE_SERIAL);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+    }
+
+    @Override
+    protected boolean callback(Object object) {
+        final Hub hub = ObjectAccess.readHub(object);
+        if (hub instanceof StaticHub) {
+            // static field values are part of the class dump
+            return true;
+        }
+        try {
+            if (out.segmentSize() > SEGMENT_LIMIT) {
+                out.endSegment();
+                out.startSegment();
+            }
+            final Pointer origin = Reference.fromJava(object).toOrigin();
+            if (visitingRoots || Heap.bootHeapRegion.contains(origin) || ImmortalHeap.contains(origin)) {
+                ensure(1 + idSize);
+                buffer.put((byte) HPROF_GC_ROOT_UNKNOWN);
+                putID(origin);
+            } else {
+                heapObjectCount++;
+            }
+            final ClassActor classActor = hub.classActor;
+            if (classActor.isArrayClass()) {
+                writeArrayDump(object, origin, classActor);
+            } else {
+                writeInstanceDump(object, origin, classActor);
+            }
+            return true;
+        } catch (IOException e) {
+            failure = e;
+            return false;
+        }
+    }
+
+    private void writeInstanceDump(Object object, Pointer origin, ClassActor classActor) throws IOException {
+        final int size = instanceDataSize(classActor);
+        ensure(1 + idSize + 4 + idSize + 4);
+        buffer.put((byte) HPROF_GC_INSTANCE_DUMP);
+        putID(origin);
+        buffer.putInt(STACK_TRACE_SERIAL);
+        putID(classID(classActor));
+        buffer.putInt(size);
+        final Reference reference = Reference.fromJava(object);
+        for (ClassActor holder = classActor; holder != null; holder = holder.superClassActor) {
+            for (FieldActor fieldActor : holder.localInstanceFieldActors()) {
+                ensure(8);
+                putValue(reference, fieldActor);
+            }
+        }
+    }
+
+    private void writeArrayDump(Object object, Pointer origin, ClassActor classActor) throws IOException {
+        final Reference reference = Reference.fromJava(object);
+        final int length = Layout.readArrayLength(reference);
+        final KindEnum kind = classActor.componentClassActor().kind.asEnum;
+        if (kind == KindEnum.REFERENCE) {
+            ensureClassDumped(classActor);
+            ensure(1 + idSize + 4 + 4 + idSize);
+            buffer.put((byte) HPROF_GC_OBJ_ARRAY_DUMP);
+            putID(origin);
+            buffer.putInt(STACK_TRACE_SERIAL);
+            buffer.putInt(length);
+            putID(classID(classActor));
+            for (int i = 0; i < length; i++) {
+                ensure(idSize);
+                putID(Layout.getReference(reference, i).toOrigin());
+            }
+            return;
+        }
+        ensure(1 + idSize + 4 + 4 + 1);
+        buffer.put((byte) HPROF_GC_PRIM_ARRAY_DUMP);
+        putID(origin);
+        buffer.putInt(STACK_TRACE_SERIAL);
+        buffer.putInt(length);
+        buffer.put((byte) basicType(kind));
+        switch (kind) {
+            case BOOLEAN: {
+                final boolean[] array = (boolean[]) object;
+                for (int i = 0; i < length; i++) {
+                    ensure(1);
+                    buffer.put(array[i] ? (byte) 1 : (byte) 0);
+                }
+                break;
+            }
+            case BYTE: {
+                final byte[] array = (byte[]) object;
+                int i = 0;
+                while (i < length) {
+                    ensure(1);
+                    final int n = Math.min(buffer.remaining(), length - i);
+                    buffer.put(array, i, n);
+                    i += n;
+                }
+                break;
+            }
+            case CHAR: {
+                final char[] array = (char[]) object;
+                for (int i = 0; i < length; i++) {
+                    ensure(2);
+                    buffer.putChar(array[i]);
+                }
+                break;
+            }
+            case SHORT: {
+                final short[] array = (short[]) object;
+                for (int i = 0; i < length; i++) {
+                    ensure(2);
+                    buffer.putShort(array[i]);
+                }
+                break;
+            }
+            case INT: {
+                final int[] array = (int[]) object;
+                for (int i = 0; i < length; i++) {
+                    ensure(4);
+                    buffer.putInt(array[i]);
+                }
+                break;
+            }
+            case FLOAT: {
+                final float[] array = (float[]) object;
+                for (int i = 0; i < length; i++) {
+                    ensure(4);
+                    buffer.putFloat(array[i]);
+                }
+                break;
+            }
+            case LONG: {
+                final long[] array = (long[]) object;
+                for (int i = 0; i < length; i++) {
+                    ensure(8);
+                    buffer.putLong(array[i]);
+                }
+                break;
+            }
+            case DOUBLE: {
+                final double[] array = (double[]) object;
+                for (int i = 0; i < length; i++) {
+                    ensure(8);
+                    buffer.putDouble(array[i]);
+                }
+                break;
+            }
+            case WORD: {
+                for (int i = 0; i < length; i++) {
+                    ensure(8);
+                    putWord(Layout.getWord(reference, i));
+                }
+                break;
+            }
+            default:
+                throw FatalError.unexpected("unexpected array kind");
+        }
+    }
+
+    /**
+     * Writes a class dump for a class loaded after the class snapshot was taken. UTF8 and LOAD_CLASS records
+     * are not allowed in a heap dump segment, so the current segment is closed and a new one started.
+     */
+    private void ensureClassDumped(ClassActor classActor) throws IOException {
+        if (classActor.id < instanceDataSizes.length && instanceDataSizes[classActor.id] != 0) {
+            return;
+        }
+        for (ClassActor holder = classActor; holder != null; holder = holder.superClassActor) {
+            if (holder.id >= instanceDataSizes.length || instanceDataSizes[holder.id] == 0) {
+                out.endSegment();
+                writeClassNames(holder);
+                out.startSegment();
+                writeClassDump(holder);
+            }
+        }
+    }
+
+    private int instanceDataSize(ClassActor classActor) throws IOException {
+        ensureClassDumped(classActor);
+        if (classActor.id < instanceDataSizes.length) {
+            return instanceDataSizes[classActor.id] - 1;
+        }
+        return computeInstanceDataSize(classActor);
+    }
+
+    private int computeInstanceDataSize(ClassActor classActor) {
+        int size = 0;
+        for (ClassActor holder = classActor; holder != null; holder = holder.superClassActor) {
+            for (FieldActor fieldActor : holder.localInstanceFieldActors()) {
+                size += valueSize(fieldActor.kind.asEnum);
+            }
+        }
+        return size;
+    }
+
+    private void writeClassNames(ClassActor classActor) throws IOException {
+        final String descriptor = classActor.typeDescriptor.toString();
+        if (classActor.isArrayClass()) {
+            writeUTF8(classActor.typeDescriptor, descriptor, 0, descriptor.length());
+        } else {
+            // "Ljava/lang/Object;" -> "java/lang/Object"
+            writeUTF8(classActor.typeDescriptor, descriptor, 1, descriptor.length() - 1);
+        }
+        for (FieldActor fieldActor : classActor.localStaticFieldActors()) {
+            writeUTF8(fieldActor.name, fieldActor.name.toString(), 0, fieldActor.name.toString().length());
+        }
+        for (FieldActor fieldActor : classActor.localInstanceFieldActors()) {
+            writeUTF8(fieldActor.name, fieldActor.name.toString(), 0, fieldActor.name.toString().length());
+        }
+        out.startRecord(HPROF_LOAD_CLASS, 4 + idSize + 4 + idSize);
+        buffer.putInt(classActor.id + 1);
+        putID(classID(classActor));
+        buffer.putInt(STACK_TRACE_SERIAL);
+        putID(classActor.typeDescriptor);
+    }
+
+    private void writeClassDump(ClassActor classActor) throws IOException {
+        final int instanceSize = classActor.isArrayClass() ? 0 : classActor.dynamicHub().tupleSize.toInt();
+        ensure(1 + idSize + 4 + idSize * 6 + 4 + 2 + 2);
+        buffer.put((byte) HPROF_GC_CLASS_DUMP);
+        putID(classID(classActor));
+        buffer.putInt(STACK_TRACE_SERIAL);
+        putID(classActor.superClassActor == null ? 0L : classID(classActor.superClassActor));
+        putID(classActor.classLoader == BootClassLoader.BOOT_CLASS_LOADER ? Pointer.zero() : Reference.fromJava(classActor.classLoader).toOrigin());
+        putID(0L); // signers
+        putID(0L); // protection domain
+        putID(0L); // reserved
+        putID(0L); // reserved
+        buffer.putInt(instanceSize);
+        buffer.putShort((short) 0); // constant pool
+
+        final FieldActor[] staticFields = classActor.localStaticFieldActors();
+        buffer.putShort((short) staticFields.length);
+        final Object staticTuple = classActor.staticTuple();
+        for (FieldActor fieldActor : staticFields) {
+            ensure(idSize + 1 + 8);
+            putID(fieldActor.name);
+            buffer.put((byte) basicType(fieldActor.kind.asEnum));
+            if (staticTuple == null) {
+                for (int i = valueSize(fieldActor.kind.asEnum); i > 0; i--) {
+                    buffer.put((byte) 0);
+                }
+            } else {
+                putValue(Reference.fromJava(staticTuple), fieldActor);
+            }
+        }
+
+        final FieldActor[] instanceFields = classActor.localInstanceFieldActors();
+        ensure(2);
+        buffer.putShort((short) instanceFields.length);
+        for (FieldActor fieldActor : instanceFields) {
+            ensure(idSize + 1);
+            putID(fieldActor.name);
+            buffer.put((byte) basicType(fieldActor.kind.asEnum));
+        }
+        if (classActor.id < instanceDataSizes.length) {
+            instanceDataSizes[classActor.id] = computeInstanceDataSize(classActor) + 1;
+        }
+    }
+
+    private void putValue(Reference reference, FieldActor fieldActor) {
+        final int offset = fieldActor.offset();
+        switch (fieldActor.kind.asEnum) {
+            case BOOLEAN:   buffer.put(reference.readBoolean(offset) ? (byte) 1 : (byte) 0); break;
+            case BYTE:      buffer.put(reference.readByte(offset)); break;
+            case CHAR:      buffer.putChar(reference.readChar(offset)); break;
+            case SHORT:     buffer.putShort(reference.readShort(offset)); break;
+            case INT:       buffer.putInt(reference.readInt(offset)); break;
+            case FLOAT:     buffer.putFloat(reference.readFloat(offset)); break;
+            case LONG:      buffer.putLong(reference.readLong(offset)); break;
+            case DOUBLE:    buffer.putDouble(reference.readDouble(offset)); break;
+            case WORD:      putWord(reference.readWord(offset)); break;
+            case REFERENCE: putID(reference.readReference(offset).toOrigin()); break;
+            default:        throw FatalError.unexpected("unexpected field kind");
+        }
+    }
+
+    private int basicType(KindEnum kind) {
+        switch (kind) {
+            case BOOLEAN:   return HPROF_BOOLEAN;
+            case BYTE:      return HPROF_BYTE;
+            case CHAR:      return HPROF_CHAR;
+            case SHORT:     return HPROF_SHORT;
+            case INT:       return HPROF_INT;
+            case FLOAT:     return HPROF_FLOAT;
+            case LONG:      return HPROF_LONG;
+            case DOUBLE:    return HPROF_DOUBLE;
+            case WORD:      return idSize == 8 ? HPROF_LONG : HPROF_INT;
+            default:        return HPROF_NORMAL_OBJECT;
+        }
+    }
+
+    private int valueSize(KindEnum kind) {
+        switch (kind) {
+            case BOOLEAN:
+            case BYTE:      return 1;
+            case CHAR:
+            case SHORT:     return 2;
+            case INT:
+            case FLOAT:     return 4;
+            case LONG:
+            case DOUBLE:    return 8;
+            default:        return idSize;
+        }
+    }
+
+    /**
+     * Writes a UTF8 record for the characters {@code [start, end)} of {@code s} unless one has already been
+     * written for {@code key}, whose address serves as the string ID.
+     */
+    private void writeUTF8(Object key, String s, int start, int end) throws IOException {
+        final long id = address(key);
+        if (!markUTF8Written(id)) {
+            return;
+        }
+        out.writeUTF8(id, s, start, end);
+    }
+
+    /**
+     * Records that a UTF8 record has been written for a given ID.
+     *
+     * @return {@code false} if a record was already written for {@code id}
+     */
+    private boolean markUTF8Written(long id) {
+        final int mask = utf8IDs.length - 1;
+        if (utf8Count >= (utf8IDs.length >> 1) + (utf8IDs.length >> 2)) {
+            // the set is full; a duplicate record is harmless
+            return true;
+        }
+        int index = (int) (id ^ (id >>> 32)) * 0x9E3779B9 & mask;
+        while (true) {
+            final long existing = utf8IDs[index];
+            if (existing == id) {
+                return false;
+            }
+            if (existing == 0) {
+                utf8IDs[index] = id;
+                utf8Count++;
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private long classID(ClassActor classActor) {
+        final Object mirror = ClassActor_javaClass.getObject(classActor);
+        return address(mirror != null ? mirror : classActor);
+    }
+
+    private static long address(Object object) {
+        return Reference.fromJava(object).toOrigin().toLong();
+    }
+
+    private void putID(Object object) {
+        putID(address(object));
+    }
+
+    private void putID(Pointer pointer) {
+        putID(pointer.toLong());
+    }
+
+    private void putID(long id) {
+        out.putID(id);
+    }
+
+    private void putWord(Word word) {
+        if (idSize == 8) {
+            buffer.putLong(word.asAddress().toLong());
+        } else {
+            buffer.putInt(word.asAddress().toInt());
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        out.ensure(bytes);
+    }
+}
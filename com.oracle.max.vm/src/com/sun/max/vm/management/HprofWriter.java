@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.management;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+/**
+ * The buffered output of an HPROF binary file, as written by {@link HeapDumper}.
+ * <p>
+ * Records are written into a direct buffer that is flushed to a {@link FileChannel} when full. A writer must
+ * {@linkplain #ensure(int) reserve} room for every value before putting it into the {@linkplain #buffer() buffer}.
+ * {@link #startRecord(int, int)} reserves room for the whole record, so a top level record is never split by a flush.
+ * The length of a heap dump segment is not known until the segment is {@linkplain #endSegment() closed}; it is then
+ * patched in the buffer, or in the file if the segment start has already been flushed.
+ */
+public final class HprofWriter {
+
+    /**
+     * Size of the header of a top level record: the tag, the time stamp and the length.
+     */
+    public static final int RECORD_HEADER_SIZE = 9;
+
+    private static final int HPROF_UTF8 = 0x01;
+    private static final int HPROF_HEAP_DUMP_SEGMENT = 0x1C;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final ByteBuffer patchBuffer = ByteBuffer.allocateDirect(4);
+    private final int idSize;
+
+    /**
+     * Number of bytes flushed to {@link #channel}.
+     */
+    private long flushed;
+
+    /**
+     * File position of the length field of the current heap dump segment, or -1 if no segment is open.
+     */
+    private long segmentLengthPosition = -1;
+
+    /**
+     * Creates a writer.
+     *
+     * @param channel the channel to which the file is written, starting at position 0
+     * @param bufferSize the size of the buffer, which bounds the size of a top level record
+     * @param idSize the size of object and string IDs, 4 or 8
+     */
+    public HprofWriter(FileChannel channel, int bufferSize, int idSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.idSize = idSize;
+    }
+
+    /**
+     * Gets the buffer into which values are written after room for them has been {@linkplain #ensure(int) reserved}.
+     */
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    public int idSize() {
+        return idSize;
+    }
+
+    /**
+     * Writes the file header.
+     */
+    public void writeHeader(long timeMillis) throws IOException {
+        final String format = "JAVA PROFILE 1.0.2";
+        ensure(format.length() + 1 + 4 + 8);
+        for (int i = 0; i < format.length(); i++) {
+            buffer.put((byte) format.charAt(i));
+        }
+        buffer.put((byte) 0);
+        buffer.putInt(idSize);
+        buffer.putLong(timeMillis);
+    }
+
+    /**
+     * Starts a top level record, reserving room for its header and its body.
+     *
+     * @param length the length of the record body, which must not exceed the buffer size less {@link #RECORD_HEADER_SIZE}
+     */
+    public void startRecord(int tag, int length) throws IOException {
+        if (length > buffer.capacity() - RECORD_HEADER_SIZE) {
+            throw new IOException("HPROF record of " + length + " bytes does not fit in the " + buffer.capacity() + " byte buffer");
+        }
+        ensure(RECORD_HEADER_SIZE + length);
+        buffer.put((byte) tag);
+        buffer.putInt(0);
+        buffer.putInt(length);
+    }
+
+    /**
+     * Writes a UTF8 record for the characters {@code [start, end)} of {@code s}.
+     */
+    public void writeUTF8(long id, String s, int start, int end) throws IOException {
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            length += c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+        }
+        startRecord(HPROF_UTF8, idSize + length);
+        putID(id);
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    /**
+     * Opens a heap dump segment, whose length is written when it is {@linkplain #endSegment() closed}.
+     */
+    public void startSegment() throws IOException {
+        ensure(RECORD_HEADER_SIZE);
+        buffer.put((byte) HPROF_HEAP_DUMP_SEGMENT);
+        buffer.putInt(0);
+        segmentLengthPosition = position();
+        buffer.putInt(0);
+    }
+
+    /**
+     * Gets the number of bytes written to the current heap dump segment.
+     */
+    public long segmentSize() {
+        return position() - segmentLengthPosition - 4;
+    }
+
+    /**
+     * Closes the current heap dump segment, writing its length.
+     */
+    public void endSegment() throws IOException {
+        final int length = (int) segmentSize();
+        if (segmentLengthPosition >= flushed) {
+            buffer.putInt((int) (segmentLengthPosition - flushed), length);
+        } else {
+            patchBuffer.clear();
+            patchBuffer.putInt(length);
+            patchBuffer.flip();
+            while (patchBuffer.hasRemaining()) {
+                channel.write(patchBuffer, segmentLengthPosition + patchBuffer.position());
+            }
+        }
+        segmentLengthPosition = -1;
+    }
+
+    /**
+     * Puts an ID, for which room must have been reserved.
+     */
+    public void putID(long id) {
+        if (idSize == 8) {
+            buffer.putLong(id);
+        } else {
+            buffer.putInt((int) id);
+        }
+    }
+
+    /**
+     * Gets the file position of the next byte written.
+     */
+    public long position() {
+        return flushed + buffer.position();
+    }
+
+    /**
+     * Reserves room in the buffer for a given number of bytes, flushing it if necessary.
+     */
+    public void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            flushed += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
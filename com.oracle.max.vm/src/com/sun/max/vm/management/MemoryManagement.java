@@ -96,6 +96,10 @@ public class MemoryManagement {
         return new MemoryUsage(init, used, committed, max);
     }
 
+    public static boolean isVerboseGC() {
+        return Heap.verbose();
+    }
+
     public static boolean setVerboseGC(boolean value) {
         final boolean result = Heap.verbose();
         Heap.setVerbose(value);
@@ -27,6 +27,7 @@ package com.sun.max.vm.management;
 import javax.management.*;
 
 import com.sun.max.memory.*;
+import com.sun.max.unsafe.*;
 
 /**
  * Adaptor class for the Maxine implementations of MemoryPoolMXBean.
@@ -35,17 +36,33 @@ import com.sun.max.memory.*;
  *
  */
 
-public class MemoryPoolMXBeanAdaptor implements MemoryPoolMXBean {
+public class MemoryPoolMXBeanAdaptor implements HugePageMemoryPoolMXBean {
     protected MemoryManagerMXBean manager;
     protected MemoryRegion region;
     private MemoryType type;
 
+    /**
+     * The usage threshold, or 0 if usage threshold checking is disabled.
+     */
+    private long usageThreshold;
+
+    /**
+     * Number of times the usage crossed {@link #usageThreshold} since it was last set.
+     */
+    private long usageThresholdCount;
+
+    /**
+     * Determines if the usage exceeded the threshold when last checked.
+     */
+    private boolean usageThresholdExceeded;
+
     private MemoryPoolMXBeanAdaptor() {
     }
 
     public MemoryPoolMXBeanAdaptor(MemoryType type, MemoryRegion region, MemoryManagerMXBean manager) {
         this.type = type;
         this.region = region;
+        this.manager = manager;
     }
 
     public MemoryUsage getCollectionUsage() {
@@ -77,15 +94,66 @@ public class MemoryPoolMXBeanAdaptor implements MemoryPoolMXBean {
     }
 
     public MemoryUsage getUsage() {
-        return region.getUsage();
+        final MemoryUsage usage = region.getUsage();
+        if (usage != null) {
+            checkUsageThreshold(usage.getUsed());
+        }
+        return usage;
+    }
+
+    /**
+     * The number of values written by {@link #sampleUsage(long[], int)}: the init, used, committed and max sizes.
+     */
+    public static final int USAGE_VALUES = 4;
+
+    /**
+     * Writes the usage of this pool into an array without allocating, so that it can be sampled during a
+     * garbage collection. The values are those of {@link #getUsage()}, or -1 for the init and max sizes and 0
+     * for the used and committed sizes if this pool does not report its usage.
+     *
+     * @param usage the array into which the {@link #USAGE_VALUES} values are written
+     * @param offset the index in {@code usage} of the first value
+     */
+    public void sampleUsage(long[] usage, int offset) {
+        if (region instanceof LinearAllocationMemoryRegion) {
+            final long size = region.size().toLong();
+            usage[offset] = size;
+            usage[offset + 1] = ((LinearAllocationMemoryRegion) region).used().toLong();
+            usage[offset + 2] = size;
+            usage[offset + 3] = size;
+        } else {
+            usage[offset] = -1;
+            usage[offset + 1] = 0;
+            usage[offset + 2] = 0;
+            usage[offset + 3] = -1;
+        }
     }
 
-    public long getUsageThreshold() {
-        return 0;
+    /**
+     * Compares the given usage against the threshold, counting each crossing from below to above.
+     * Crossings are detected whenever the usage of this pool is sampled.
+     */
+    private synchronized void checkUsageThreshold(long used) {
+        if (usageThreshold > 0) {
+            final boolean exceeded = used >= usageThreshold;
+            if (exceeded && !usageThresholdExceeded) {
+                usageThresholdCount++;
+            }
+            usageThresholdExceeded = exceeded;
+        }
+    }
+
+    public synchronized long getUsageThreshold() {
+        checkUsageThresholdSupported();
+        return usageThreshold;
     }
 
     public long getUsageThresholdCount() {
-        return 0;
+        checkUsageThresholdSupported();
+        getUsage();
+        synchronized (this) {
+            return usageThresholdCount;
+        }
     }
 
     public boolean isCollectionUsageThresholdExceeded() {
@@ -97,17 +165,41 @@ public class MemoryPoolMXBeanAdaptor implements MemoryPoolMXBean {
     }
 
     public boolean isUsageThresholdExceeded() {
-        return false;
+        checkUsageThresholdSupported();
+        getUsage();
+        synchronized (this) {
+            return usageThresholdExceeded;
+        }
     }
 
     public boolean isUsageThresholdSupported() {
-        return false;
+        return region.getUsage() != null;
+    }
+
+    private void checkUsageThresholdSupported() {
+        if (!isUsageThresholdSupported()) {
+            throw new UnsupportedOperationException("Usage threshold is not supported");
+        }
     }
 
     public boolean isValid() {
         return true;
     }
 
+    public long getHugePageBytes() {
+        final Address start = region.start();
+        final Size size = region.size();
+        if (start.isZero() || size.isZero()) {
+            return 0;
+        }
+        return VirtualMemory.getHugePageBytes(start, size).toLong();
+    }
+
+    public double getHugePageCoverage() {
+        final long size = region.size().toLong();
+        return size == 0 ? 0.0 : 100.0 * getHugePageBytes() / size;
+    }
+
     public void resetPeakUsage() {
     }
 
@@ -115,6 +207,18 @@ public class MemoryPoolMXBeanAdaptor implements MemoryPoolMXBean {
     }
 
     public void setUsageThreshold(long threshold) {
+        checkUsageThresholdSupported();
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Invalid threshold: " + threshold);
+        }
+        synchronized (this) {
+            if (threshold != usageThreshold) {
+                usageThreshold = threshold;
+                usageThresholdCount = 0;
+                usageThresholdExceeded = false;
+            }
+        }
+        getUsage();
     }
 
     public ObjectName getObjectName() {
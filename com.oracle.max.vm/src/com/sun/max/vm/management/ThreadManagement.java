@@ -26,7 +26,9 @@ import java.lang.management.*;
 import java.lang.reflect.*;
 import java.util.*;
 
+import com.sun.max.annotate.*;
 import com.sun.max.unsafe.*;
+import com.sun.max.vm.heap.*;
 import com.sun.max.vm.jdk.*;
 import com.sun.max.vm.runtime.*;
 import com.sun.max.vm.stack.*;
@@ -67,16 +69,177 @@ public class ThreadManagement {
         return VmThreadMap.getLiveTheadCount();
     }
 
+    /**
+     * Determines if CPU time measurement is enabled. As in HotSpot, this is on by default.
+     */
+    private static volatile boolean threadCpuTimeEnabled = true;
+
+    /**
+     * Determines if the time threads spend blocked on and waiting for monitors is measured.
+     * The blocked and waited counts are maintained regardless.
+     */
+    private static volatile boolean threadContentionMonitoringEnabled;
+
+    /**
+     * Incremented each time contention monitoring is enabled. A thread whose {@link VmThread#contentionEpoch} differs
+     * from this value has blocked and waited times that predate the reset and are treated as zero.
+     */
+    private static volatile int contentionEpoch;
+
+    private static volatile boolean threadAllocatedMemoryEnabled = true;
+
+    public static boolean isThreadCpuTimeEnabled() {
+        return threadCpuTimeEnabled;
+    }
+
     public static boolean setThreadCpuTimeEnabled(boolean enable) {
-        // TODO
-        return false;
+        final boolean previous = threadCpuTimeEnabled;
+        threadCpuTimeEnabled = enable;
+        return previous;
+    }
+
+    @INLINE
+    public static boolean isThreadContentionMonitoringEnabled() {
+        return threadContentionMonitoringEnabled;
+    }
+
+    public static synchronized boolean setThreadContentionMonitoringEnabled(boolean enable) {
+        final boolean previous = threadContentionMonitoringEnabled;
+        if (enable && !previous) {
+            // The counters belong to their threads, which clear them on their next update
+            contentionEpoch++;
+        }
+        threadContentionMonitoringEnabled = enable;
+        return previous;
+    }
+
+    /**
+     * Adds to the time the current thread spent blocked on a contended monitor.
+     */
+    public static void addBlockedTime(VmThread current, long nanos) {
+        syncContentionEpoch(current);
+        current.blockedTime += nanos;
+    }
+
+    /**
+     * Adds to the time the current thread spent waiting on a monitor.
+     */
+    public static void addWaitedTime(VmThread current, long nanos) {
+        syncContentionEpoch(current);
+        current.waitedTime += nanos;
+    }
+
+    private static void syncContentionEpoch(VmThread current) {
+        final int epoch = contentionEpoch;
+        if (current.contentionEpoch != epoch) {
+            current.blockedTime = 0;
+            current.waitedTime = 0;
+            current.contentionEpoch = epoch;
+        }
+    }
+
+    /**
+     * Gets the time in nanoseconds a thread has spent blocked since contention monitoring was last enabled.
+     */
+    public static long getBlockedTime(VmThread vmThread) {
+        return vmThread.contentionEpoch == contentionEpoch ? vmThread.blockedTime : 0L;
+    }
+
+    /**
+     * Gets the time in nanoseconds a thread has spent waiting since contention monitoring was last enabled.
+     */
+    public static long getWaitedTime(VmThread vmThread) {
+        return vmThread.contentionEpoch == contentionEpoch ? vmThread.waitedTime : 0L;
+    }
+
+    public static boolean isThreadAllocatedMemoryEnabled() {
+        return threadAllocatedMemoryEnabled;
     }
 
-    public static boolean setThreadContentionMonitoringEnabled(boolean enable) {
-        // TODO
-        return false;
+    public static boolean setThreadAllocatedMemoryEnabled(boolean enable) {
+        final boolean previous = threadAllocatedMemoryEnabled;
+        threadAllocatedMemoryEnabled = enable;
+        return previous;
     }
 
+    /**
+     * Gets the CPU time consumed by a thread.
+     *
+     * @param id the {@linkplain Thread#getId() id} of the thread or 0 for the current thread
+     * @param userAndSystem if {@code true}, the sum of user and system time is returned, otherwise only user time
+     * @return the CPU time in nanoseconds or -1 if the thread is not alive or CPU time measurement is disabled
+     */
+    public static long getThreadCpuTime(long id, boolean userAndSystem) {
+        if (!threadCpuTimeEnabled) {
+            return -1;
+        }
+        if (id == 0 || id == Thread.currentThread().getId()) {
+            return nativeGetThreadCpuTime(VmThread.current().nativeThread(), !userAndSystem);
+        }
+        // Query the native thread with the thread lock held so that it cannot terminate in the meantime
+        final CpuTimeProcedure proc = new CpuTimeProcedure(id, !userAndSystem);
+        synchronized (VmThreadMap.THREAD_LOCK) {
+            VmThreadMap.ACTIVE.forAllThreadLocals(null, proc);
+        }
+        return proc.result;
+    }
+
+    static class CpuTimeProcedure implements Pointer.Procedure {
+        long result = -1;
+        private final long id;
+        private final boolean userOnly;
+        CpuTimeProcedure(long id, boolean userOnly) {
+            this.id = id;
+            this.userOnly = userOnly;
+        }
+        public void run(Pointer tla) {
+            final VmThread vmThread = VmThread.fromTLA(tla);
+            if (vmThread.javaThread().getId() == id) {
+                result = nativeGetThreadCpuTime(vmThread.nativeThread(), userOnly);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of bytes allocated on the heap by a thread. The value is derived from the
+     * thread's TLAB refills and so is only as precise as the heap scheme's accounting.
+     *
+     * @param id the {@linkplain Thread#getId() id} of the thread or 0 for the current thread
+     * @return the number of allocated bytes or -1 if the thread is not alive, allocated memory measurement is
+     *         disabled or the heap scheme does not keep count
+     */
+    public static long getThreadAllocatedBytes(long id) {
+        if (!threadAllocatedMemoryEnabled) {
+            return -1;
+        }
+        if (id == 0 || id == Thread.currentThread().getId()) {
+            return Heap.getAllocatedBytes(VmThread.currentTLA());
+        }
+        // Read the thread's locals with the thread lock held so that they cannot be freed by its termination
+        final AllocatedBytesProcedure proc = new AllocatedBytesProcedure(id);
+        synchronized (VmThreadMap.THREAD_LOCK) {
+            VmThreadMap.ACTIVE.forAllThreadLocals(null, proc);
+        }
+        return proc.result;
+    }
+
+    static class AllocatedBytesProcedure implements Pointer.Procedure {
+        long result = -1;
+        private final long id;
+        AllocatedBytesProcedure(long id) {
+            this.id = id;
+        }
+        public void run(Pointer tla) {
+            final Thread thread = VmThread.fromTLA(tla).javaThread();
+            if (thread != null && thread.getId() == id) {
+                result = Heap.getAllocatedBytes(tla);
+            }
+        }
+    }
+
+    @C_FUNCTION
+    private static native long nativeGetThreadCpuTime(Word nativeThread, boolean userOnly);
+
     public static void getThreadInfo(long[] ids, int maxDepth, ThreadInfo[] result) {
         // The ids are java.lang.Thread ids from getId()
         // maxDepth is -1 when the entire stack is requested, not MAX_VALUE as in API call (see sun.management.ThreadImpl)
@@ -91,11 +254,13 @@ public class ThreadManagement {
                 result[i] = null;
             } else {
                 // we don't handle any of the lock information yet
+                final VmThread vmThread = VmThread.fromJava(thread);
+                final boolean timed = threadContentionMonitoringEnabled;
                 try {
                     final Object obj = threadInfoConstructor.newInstance(new Object[] {
                         thread, thread.getState().ordinal(), null, null,
-                        0, 0,
-                        0, 0,
+                        vmThread.blockedCount, timed ? getBlockedTime(vmThread) / 1000000L : -1L,
+                        vmThread.waitedCount, timed ? getWaitedTime(vmThread) / 1000000L : -1L,
                         maxDepth == 0 ? new StackTraceElement[0] : getStackTrace(thread, maxDepth),
                         null,
                         null,
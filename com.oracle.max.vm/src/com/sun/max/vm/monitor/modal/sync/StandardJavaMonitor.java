@@ -25,6 +25,7 @@ package com.sun.max.vm.monitor.modal.sync;
 import com.sun.cri.bytecode.*;
 import com.sun.max.unsafe.*;
 import com.sun.max.vm.*;
+import com.sun.max.vm.management.*;
 import com.sun.max.vm.runtime.*;
 import com.sun.max.vm.thread.*;
 
@@ -94,9 +95,21 @@ public class StandardJavaMonitor extends AbstractJavaMonitor {
             traceEndMonitorEnter(currentThread);
             return;
         }
+        // An owned monitor means this thread will block; counted for ThreadInfo.getBlockedCount()
+        final boolean contended = ownerThread != null;
+        long start = 0L;
+        if (contended) {
+            currentThread.blockedCount++;
+            if (ThreadManagement.isThreadContentionMonitoringEnabled()) {
+                start = System.nanoTime();
+            }
+        }
         currentThread.setState(Thread.State.BLOCKED);
         mutex.lock();
         currentThread.setState(Thread.State.RUNNABLE);
+        if (start != 0L) {
+            ThreadManagement.addBlockedTime(currentThread, System.nanoTime() - start);
+        }
         ownerThread = currentThread;
         setBindingProtection(BindingProtection.PROTECTED);
         recursionCount = 1;
@@ -148,7 +161,12 @@ public class StandardJavaMonitor extends AbstractJavaMonitor {
             // The wait is prematurely interrupted and never calls native code
             interrupted = true;
         } else {
+            ownerThread.waitedCount++;
+            final long start = ThreadManagement.isThreadContentionMonitoringEnabled() ? System.nanoTime() : 0L;
             waitingCondition.threadWait(mutex, timeoutMilliSeconds);
+            if (start != 0L) {
+                ThreadManagement.addWaitedTime(ownerThread, System.nanoTime() - start);
+            }
             interrupted = ownerThread.isInterrupted(true);
         }
 
@@ -23,12 +23,14 @@
 package com.sun.max.vm.profile;
 
 import com.sun.max.annotate.*;
+import com.sun.max.vm.*;
 import com.sun.max.vm.actor.holder.*;
 import com.sun.max.vm.actor.member.*;
 import com.sun.max.vm.code.*;
 import com.sun.max.vm.compiler.*;
 import com.sun.max.vm.object.ArrayAccess;
 import com.sun.max.vm.object.ObjectAccess;
+import com.sun.max.vm.thread.*;
 
 /**
  * This class contains several utility methods for dealing with method instrumentation.
@@ -48,10 +50,45 @@ public class MethodInstrumentation {
 
     private static boolean enabled;
 
+    /**
+     * Only every n-th execution of a type or receiver profiling site in a thread updates the profile,
+     * with the recorded count scaled by n.
+     */
+    public static int TypeProfileSampling = 1;
+
+    /**
+     * The maximum number of consecutive updates of the same type or receiver profile entry that a thread
+     * accumulates locally before writing them to the shared profile.
+     */
+    public static int TypeProfileCoalescing = 1;
+
+    /**
+     * Denotes if type and receiver profile updates go through the {@linkplain TypeProfileBuffer per-thread buffer}.
+     */
+    private static boolean scalableTypeProfiling;
+
+    static {
+        VMOptions.addFieldOption("-XX:", "TypeProfileSampling", MethodInstrumentation.class,
+            "Record only every n-th receiver type seen at a profiled site (default: 1 = record all).");
+        VMOptions.addFieldOption("-XX:", "TypeProfileCoalescing", MethodInstrumentation.class,
+            "Number of identical receiver type updates a thread accumulates before writing them to the shared profile (default: 1).");
+    }
+
     public static void enable(int initialEntryCount) {
         enabled = true;
         MethodInstrumentation.initialEntryBackedgeCount = initialEntryCount;
         MethodInstrumentation.protectionThreshold = (int) (1 - PROTECTION_PERCENTAGE) * initialEntryCount;
+        if (TypeProfileSampling < 1) {
+            TypeProfileSampling = 1;
+        }
+        if (TypeProfileCoalescing < 1) {
+            TypeProfileCoalescing = 1;
+        }
+        scalableTypeProfiling = TypeProfileSampling > 1 || TypeProfileCoalescing > 1;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
     }
 
     public static MethodProfile.Builder createMethodProfile(ClassMethodActor classMethodActor) {
@@ -63,6 +100,15 @@ public class MethodInstrumentation {
 
     @NEVER_INLINE
     public static void recordType(MethodProfile mpo, Object object, int mpoIndex, int entries) {
+        if (scalableTypeProfiling) {
+            if (object != null) {
+                Hub hub = ObjectAccess.readHub(object);
+                VmThread.current().typeProfileBuffer.record(mpo, mpoIndex, entries, hub.classActor.id, MethodProfile.UNDEFINED_TYPE_ID);
+            } else {
+                VmThread.current().typeProfileBuffer.record(mpo, mpoIndex + entries * 2, TypeProfileBuffer.NULL_SEEN, 0, 0);
+            }
+            return;
+        }
         if (object != null) {
             Hub hub = ObjectAccess.readHub(object);
             findAndIncrement(mpo, mpoIndex, entries, hub.classActor.id, MethodProfile.UNDEFINED_TYPE_ID);
@@ -73,6 +119,10 @@ public class MethodInstrumentation {
 
     @NEVER_INLINE
     public static void recordReceiver(MethodProfile mpo, int methodId, int mpoIndex, int entries) {
+        if (scalableTypeProfiling) {
+            VmThread.current().typeProfileBuffer.record(mpo, mpoIndex, entries, methodId, MethodProfile.UNDEFINED_METHOD_ID);
+            return;
+        }
         findAndIncrement(mpo, mpoIndex, entries, methodId, MethodProfile.UNDEFINED_METHOD_ID);
     }
 
@@ -133,6 +183,39 @@ public class MethodInstrumentation {
         incrementProfileCounterAtIndex(mpo, index + entries * 2 + 1);
     }
 
+    /**
+     * Adds {@code delta} to the counter at a given index, saturating at {@link Integer#MAX_VALUE}.
+     */
+    static void addToProfileCounterAtIndex(MethodProfile mpo, int index, int delta) {
+        int[] data = mpo.rawData();
+        int counter = ArrayAccess.getInt(data, index);
+        if (counter < Integer.MAX_VALUE - delta) {
+            ArrayAccess.setInt(data, index, counter + delta);
+        } else {
+            ArrayAccess.setInt(data, index, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Variant of {@link #findAndIncrement} that adds an arbitrary count to the matching entry.
+     */
+    static void findAndAdd(MethodProfile mpo, int index, int entries, int id, int emptyDataId, int delta) {
+        int[] data = mpo.rawData();
+        int max = index + entries * 2;
+        for (int i = index; i < max; i += 2) {
+            int entryId = ArrayAccess.getInt(data, i);
+            if (entryId == id) {
+                addToProfileCounterAtIndex(mpo, i + 1, delta);
+                return;
+            } else if (entryId == emptyDataId) {
+                ArrayAccess.setInt(data, i, id);
+                ArrayAccess.setInt(data, i + 1, delta);
+                return;
+            }
+        }
+        addToProfileCounterAtIndex(mpo, index + entries * 2 + 1, delta);
+    }
+
     public static Hub computeMostFrequentHub(MethodProfile mpo, int bci, int threshold, float ratio) {
         if (mpo != null) {
             Integer[] typeProfile = mpo.getTypeProfile(bci);
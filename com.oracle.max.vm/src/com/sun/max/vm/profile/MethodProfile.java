@@ -559,6 +559,20 @@ public class MethodProfile {
         return type | (bci << 16);
     }
 
+    /**
+     * Determines if a given raw info entry denotes a slot holding a {@linkplain ClassIDManager class ID}.
+     */
+    static boolean isTypeIdEntry(int info) {
+        return (byte) info == TYPE_ID;
+    }
+
+    /**
+     * Determines if a given raw info entry denotes a slot holding a receiver method ID.
+     */
+    static boolean isMethodIdEntry(int info) {
+        return (byte) info == METHOD_ID;
+    }
+
     private byte typeAt(int index) {
         return (byte) infoAt(index);
     }
@@ -666,6 +680,9 @@ public class MethodProfile {
                 mpo.data = data;
             }
             mpo.deoptimizationCounts = new int [DEOPTIMIZATION_REASONS_NUM];
+            if (MethodProfileCache.isEnabled()) {
+                MethodProfileCache.register(method.classMethodActor, mpo);
+            }
             return mpo;
         }
 
@@ -0,0 +1,402 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.profile;
+
+import static com.sun.max.vm.VMOptions.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.classfile.*;
+import com.sun.max.vm.compiler.RuntimeCompiler.Nature;
+import com.sun.max.vm.compiler.target.*;
+import com.sun.max.vm.type.*;
+
+/**
+ * Persists {@linkplain MethodProfile method profiles} across VM runs so that a new run can replay the
+ * warmup of a previous one. When {@code -XX:ProfileCache=<file>} is given, the raw profile of every
+ * baseline-compiled method is written to the file at VM exit (and optionally at a fixed interval).
+ * At startup the file is read back and each newly created profile whose method is unchanged is seeded
+ * with the saved counters, so that recompilation decisions are made with the knowledge gathered by
+ * the previous run instead of from scratch.
+ * <p>
+ * The current profiles are not tracked by the cache. They are found when saving through the
+ * {@linkplain #currentProfile(ClassMethodActor) baseline compilation} of every method of every loaded class,
+ * so a profile lives exactly as long as the target method that updates it.
+ * <p>
+ * Profiles are keyed by the method's holder, name and signature. A saved record is only applied if the
+ * bytecode of the method and the layout of its profile are identical to those of the saved run.
+ * Class IDs recorded in type profiles are not stable across runs and are therefore saved as type
+ * descriptors and translated back to the IDs of the current run when a profile is seeded. Receiver
+ * method profiles record code addresses and are discarded.
+ * <p>
+ * File format (all integers big endian):
+ * <pre>
+ *     int   magic
+ *     short version
+ *     int   count
+ *     count records:
+ *         UTF   key                  (holder type descriptor, method name and signature)
+ *         int   bytecode hash
+ *         int   entry/backedge counter
+ *         byte  hot                  (1 if the method had been recompiled with the optimizing compiler)
+ *         int   length
+ *         int   info[length]
+ *         data[length]               (UTF type descriptor for type ID slots, int otherwise)
+ * </pre>
+ */
+public final class MethodProfileCache {
+
+    /**
+     * The file the profiles are saved to and loaded from. Profile caching is disabled if {@code null}.
+     */
+    @RESET
+    private static String ProfileCache;
+
+    /**
+     * Recompile methods that were hot in the saved run on their first invocation.
+     */
+    private static boolean ProfileCacheRecompile = true;
+
+    /**
+     * Interval in seconds at which the profile cache is saved while the VM is running, 0 to only save at VM exit.
+     */
+    private static int ProfileCacheSaveInterval;
+
+    static {
+        addFieldOption("-XX:", "ProfileCache", MethodProfileCache.class,
+            "Save method profiles to the given file at VM exit and use them to seed the profiles of the next run.");
+        addFieldOption("-XX:", "ProfileCacheRecompile", MethodProfileCache.class,
+            "Recompile methods that were hot in the saved profile on their first invocation (default: true).");
+        addFieldOption("-XX:", "ProfileCacheSaveInterval", MethodProfileCache.class,
+            "Interval in seconds at which the profile cache is saved while running (default: 0 = only at VM exit).");
+    }
+
+    private static final int MAGIC = 0x4d585043;
+    private static final int VERSION = 1;
+
+    /**
+     * A saved profile of a single method.
+     */
+    private static final class Record {
+        final String key;
+        final int bytecodeHash;
+        final int entryBackedgeCount;
+        final boolean hot;
+        final int[] info;
+        final int[] data;
+        /**
+         * The type descriptors of the type ID slots in {@link #data}, {@code null} for all other slots.
+         */
+        final String[] types;
+
+        Record(String key, int bytecodeHash, int entryBackedgeCount, boolean hot, int[] info, int[] data, String[] types) {
+            this.key = key;
+            this.bytecodeHash = bytecodeHash;
+            this.entryBackedgeCount = entryBackedgeCount;
+            this.hot = hot;
+            this.info = info;
+            this.data = data;
+            this.types = types;
+        }
+    }
+
+    /**
+     * The records loaded from the cache file that have not yet been applied to a profile.
+     */
+    private static final ConcurrentHashMap<String, Record> saved = new ConcurrentHashMap<String, Record>();
+
+    private static volatile boolean initialized;
+
+    private MethodProfileCache() {
+    }
+
+    public static boolean isEnabled() {
+        return initialized;
+    }
+
+    /**
+     * Loads the profile cache file and arranges for it to be saved at VM exit. Called once the VM is
+     * {@linkplain MaxineVM.Phase#RUNNING running}.
+     */
+    public static void initialize() {
+        if (ProfileCache == null || !MethodInstrumentation.isEnabled()) {
+            return;
+        }
+        final File file = new File(ProfileCache);
+        if (file.exists()) {
+            try {
+                load(file);
+            } catch (IOException e) {
+                Log.println("Could not read profile cache " + file + ": " + e);
+                saved.clear();
+            }
+        }
+        initialized = true;
+
+        Runtime.getRuntime().addShutdownHook(new Thread("MethodProfileCacheSaver") {
+            @Override
+            public void run() {
+                save(file);
+            }
+        });
+        if (ProfileCacheSaveInterval > 0) {
+            final Thread saver = new Thread("MethodProfileCacheSaver") {
+                @Override
+                public void run() {
+                    while (true) {
+                        try {
+                            Thread.sleep(ProfileCacheSaveInterval * 1000L);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        save(file);
+                    }
+                }
+            };
+            saver.setDaemon(true);
+            saver.start();
+        }
+    }
+
+    /**
+     * Seeds the profile that has just been created for a baseline compilation of a given method
+     * from the saved profile of the method, if any.
+     */
+    static void register(ClassMethodActor cma, MethodProfile mpo) {
+        Record record = saved.remove(key(cma));
+        if (record != null) {
+            seed(cma, mpo, record);
+        }
+    }
+
+    private static String key(ClassMethodActor cma) {
+        return cma.holder().typeDescriptor.toString() + cma.name.string + cma.descriptor().toString();
+    }
+
+    private static int bytecodeHash(ClassMethodActor cma) {
+        CodeAttribute codeAttribute = cma.codeAttribute();
+        return codeAttribute == null ? 0 : Arrays.hashCode(codeAttribute.code());
+    }
+
+    private static void seed(ClassMethodActor cma, MethodProfile mpo, Record record) {
+        int[] info = mpo.rawInfo();
+        int[] data = mpo.rawData();
+        if (record.bytecodeHash != bytecodeHash(cma) || !Arrays.equals(record.info, info == null ? new int[0] : info)) {
+            // the method has changed since the profile was saved
+            return;
+        }
+        if (data != null) {
+            for (int i = 0; i < data.length; i++) {
+                if (record.types[i] != null) {
+                    ClassActor classActor = record.types[i].isEmpty() ? null : lookupType(cma.holder().classLoader, record.types[i]);
+                    if (classActor != null) {
+                        data[i] = classActor.id;
+                    } else {
+                        // the type has not been loaded (yet): drop the entry and its count
+                        data[i] = MethodProfile.UNDEFINED_TYPE_ID;
+                        data[++i] = 0;
+                    }
+                } else {
+                    data[i] = record.data[i];
+                }
+            }
+        }
+        if (record.hot && ProfileCacheRecompile) {
+            // trigger recompilation on the next invocation
+            mpo.entryBackedgeCount = 1;
+        } else if (record.entryBackedgeCount < mpo.entryBackedgeCount) {
+            mpo.entryBackedgeCount = Math.max(record.entryBackedgeCount, 1);
+        }
+    }
+
+    private static ClassActor lookupType(ClassLoader classLoader, String descriptor) {
+        try {
+            return ClassRegistry.get(classLoader, JavaTypeDescriptor.parseTypeDescriptor(descriptor), true);
+        } catch (RuntimeException e) {
+            return null;
+        } catch (ClassFormatError e) {
+            return null;
+        }
+    }
+
+    private static Record snapshot(ClassMethodActor cma, MethodProfile mpo) {
+        int[] info = mpo.rawInfo();
+        int[] data = mpo.rawData();
+        if (info == null) {
+            info = new int[0];
+            data = new int[0];
+        } else {
+            info = info.clone();
+            data = data.clone();
+        }
+        String[] types = new String[data.length];
+        for (int i = 0; i < data.length; i++) {
+            if (MethodProfile.isTypeIdEntry(info[i])) {
+                ClassActor classActor = data[i] == MethodProfile.UNDEFINED_TYPE_ID ? null : ClassIDManager.toClassActor(data[i]);
+                if (classActor != null) {
+                    types[i] = classActor.typeDescriptor.toString();
+                } else {
+                    types[i] = "";
+                    data[i] = MethodProfile.UNDEFINED_TYPE_ID;
+                    data[i + 1] = 0;
+                }
+            } else if (MethodProfile.isMethodIdEntry(info[i])) {
+                data[i] = MethodProfile.UNDEFINED_METHOD_ID;
+                data[i + 1] = 0;
+            }
+        }
+        Object compiledState = cma.compiledState;
+        boolean hot = compiledState != null && Compilations.currentTargetMethod(compiledState, Nature.OPT) != null;
+        return new Record(key(cma), bytecodeHash(cma), mpo.entryBackedgeCount, hot, info, data, types);
+    }
+
+    /**
+     * Gets the profile of the current baseline compilation of a given method.
+     *
+     * @return {@code null} if the method has no baseline compilation or its compilation is not profiled
+     */
+    public static MethodProfile currentProfile(ClassMethodActor cma) {
+        Object compiledState = cma.compiledState;
+        if (compiledState instanceof Compilation) {
+            // being recompiled: the previous compilations are still current
+            compiledState = ((Compilation) compiledState).prevCompilations;
+        }
+        if (compiledState instanceof Compilations) {
+            TargetMethod baseline = ((Compilations) compiledState).baseline;
+            if (baseline != null) {
+                return baseline.profile();
+            }
+        }
+        return null;
+    }
+
+    private static void snapshot(ClassMethodActor[] methods, List<Record> records) {
+        for (ClassMethodActor cma : methods) {
+            MethodProfile mpo = currentProfile(cma);
+            if (mpo != null) {
+                records.add(snapshot(cma, mpo));
+            }
+        }
+    }
+
+    /**
+     * Writes the current profiles, together with the saved profiles of methods that have not been
+     * compiled in this run, to a given file. The file is replaced atomically.
+     */
+    private static synchronized void save(File file) {
+        List<Record> records = new ArrayList<Record>();
+        int largestClassId = ClassIDManager.largestClassId();
+        for (int id = 0; id <= largestClassId; id++) {
+            ClassActor classActor = ClassIDManager.toClassActor(id);
+            if (classActor != null && classActor.id == id) {
+                snapshot(classActor.localStaticMethodActors(), records);
+                snapshot(classActor.localVirtualMethodActors(), records);
+            }
+        }
+        records.addAll(saved.values());
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeInt(records.size());
+                for (Record record : records) {
+                    out.writeUTF(record.key);
+                    out.writeInt(record.bytecodeHash);
+                    out.writeInt(record.entryBackedgeCount);
+                    out.writeByte(record.hot ? 1 : 0);
+                    out.writeInt(record.info.length);
+                    for (int i : record.info) {
+                        out.writeInt(i);
+                    }
+                    for (int i = 0; i < record.data.length; i++) {
+                        if (record.types[i] != null) {
+                            out.writeUTF(record.types[i]);
+                        } else {
+                            out.writeInt(record.data[i]);
+                        }
+                    }
+                }
+            } finally {
+                out.close();
+            }
+            if (!tmp.renameTo(file)) {
+                file.delete();
+                if (!tmp.renameTo(file)) {
+                    throw new IOException("could not rename " + tmp);
+                }
+            }
+            if (VMOptions.verboseOption.verboseCompilation) {
+                Log.println("Saved " + records.size() + " method profiles to " + file);
+            }
+        } catch (IOException e) {
+            Log.println("Could not write profile cache " + file + ": " + e);
+            tmp.delete();
+        }
+    }
+
+    private static void load(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                throw new IOException("not a profile cache file or unsupported version");
+            }
+            int count = in.readInt();
+            for (int n = 0; n < count; n++) {
+                String key = in.readUTF();
+                int bytecodeHash = in.readInt();
+                int entryBackedgeCount = in.readInt();
+                boolean hot = in.readByte() != 0;
+                int length = in.readInt();
+                int[] info = new int[length];
+                int[] data = new int[length];
+                String[] types = new String[length];
+                for (int i = 0; i < length; i++) {
+                    info[i] = in.readInt();
+                }
+                for (int i = 0; i < length; i++) {
+                    if (MethodProfile.isTypeIdEntry(info[i])) {
+                        types[i] = in.readUTF();
+                        data[i] = MethodProfile.UNDEFINED_TYPE_ID;
+                    } else {
+                        data[i] = in.readInt();
+                    }
+                }
+                saved.put(key, new Record(key, bytecodeHash, entryBackedgeCount, hot, info, data, types));
+            }
+        } finally {
+            in.close();
+        }
+        if (VMOptions.verboseOption.verboseCompilation) {
+            Log.println("Loaded " + saved.size() + " method profiles from " + file);
+        }
+    }
+}
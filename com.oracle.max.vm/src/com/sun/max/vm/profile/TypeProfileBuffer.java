@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.profile;
+
+import static com.sun.max.vm.profile.MethodInstrumentation.*;
+
+/**
+ * A per-thread buffer for type and receiver profile updates, used instead of updating the shared
+ * {@link MethodProfile} directly when {@code -XX:TypeProfileSampling} or {@code -XX:TypeProfileCoalescing}
+ * is enabled. Sampling skips all but every n-th update made by a thread and scales the recorded count
+ * accordingly. Coalescing accumulates consecutive updates of the same profile entry in the buffer and
+ * writes them as a single update, so that threads executing the same hot call site do not contend on the
+ * cache line holding its counters.
+ * <p>
+ * The buffer holds at most one pending update. It is written back when an update for a different entry
+ * is recorded, when the pending count reaches the coalescing limit, when the thread hits a
+ * {@linkplain com.sun.max.vm.compiler.CompilationBroker#instrumentationCounterOverflow recompilation counter overflow}
+ * and when the thread terminates.
+ * Updates still pending in other threads are not seen by the compiler, which is within the tolerance of
+ * the (already unsynchronized) profile.
+ */
+public final class TypeProfileBuffer {
+
+    /**
+     * Value of {@code entries} denoting an update of the null-seen counter at the recorded index.
+     */
+    public static final int NULL_SEEN = -1;
+
+    private int sampleCountdown;
+
+    private MethodProfile mpo;
+    private int index;
+    private int entries;
+    private int id;
+    private int emptyId;
+    private int count;
+
+    /**
+     * Records an update of a type or receiver profile entry.
+     *
+     * @param mpo the profile to update
+     * @param index the index in the profile data of the first entry of the profiled site, or of the null-seen counter
+     * @param entries the number of entries of the profiled site, or {@link #NULL_SEEN}
+     * @param id the type or method id to count
+     * @param emptyId the id denoting an empty entry
+     */
+    public void record(MethodProfile mpo, int index, int entries, int id, int emptyId) {
+        int delta = 1;
+        if (TypeProfileSampling > 1) {
+            if (--sampleCountdown > 0) {
+                return;
+            }
+            sampleCountdown = TypeProfileSampling;
+            delta = TypeProfileSampling;
+        }
+        if (mpo == this.mpo && index == this.index && id == this.id && entries == this.entries) {
+            count += delta;
+            if (count >= TypeProfileCoalescing) {
+                flush();
+            }
+            return;
+        }
+        flush();
+        if (delta >= TypeProfileCoalescing) {
+            write(mpo, index, entries, id, emptyId, delta);
+            return;
+        }
+        this.mpo = mpo;
+        this.index = index;
+        this.entries = entries;
+        this.id = id;
+        this.emptyId = emptyId;
+        this.count = delta;
+    }
+
+    /**
+     * Writes the pending update, if any, to its profile.
+     */
+    public void flush() {
+        MethodProfile mpo = this.mpo;
+        if (mpo != null) {
+            this.mpo = null;
+            write(mpo, index, entries, id, emptyId, count);
+            count = 0;
+        }
+    }
+
+    private static void write(MethodProfile mpo, int index, int entries, int id, int emptyId, int delta) {
+        if (entries == NULL_SEEN) {
+            addToProfileCounterAtIndex(mpo, index, delta);
+        } else {
+            findAndAdd(mpo, index, entries, id, emptyId, delta);
+        }
+    }
+}
@@ -0,0 +1,471 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.profilers.sampling;
+
+import static com.sun.max.vm.MaxineVM.*;
+import static com.sun.max.vm.thread.VmThreadLocal.*;
+
+import java.io.*;
+import java.util.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.code.*;
+import com.sun.max.vm.compiler.target.*;
+import com.sun.max.vm.runtime.*;
+import com.sun.max.vm.stack.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * Asynchronous CPU sampling profiler. Unlike {@link CPUSamplingProfiler}, this profiler never stops the world.
+ * A process-wide {@code ITIMER_PROF} timer delivers {@code SIGPROF} to whichever thread is consuming CPU. When the
+ * thread was interrupted in Java code, the native signal handler redirects it to the trap stub, just like an
+ * asynchronous interrupt, and {@link #sampleAtTrap(Pointer)} walks its stack from the interrupted instruction.
+ * Samples are therefore not biased towards safepoints. The walk records the compiled frames (target method and code
+ * position) in a preallocated, per-thread, single-producer/single-consumer ring buffer without allocating or locking.
+ * A background thread periodically drains all ring buffers, expands the frames of inlined methods and aggregates the
+ * samples into collapsed stacks ({@code root;...;leaf count}), the input format of flame graph tools, which are
+ * written out at VM termination.
+ * <p>
+ * Ticks that interrupt a thread outside Java code are only counted by the signal handler (in
+ * {@link VmThreadLocal#PROFILER_NATIVE_TICKS}) and reported as {@code [native]} samples. Ticks that land in VM code
+ * running with safepoints disabled are ignored. Samples are dropped (and counted) when a ring buffer is full or when
+ * the interrupted frame is in a prologue or epilogue, where it cannot be walked.
+ */
+public final class AsyncSamplingProfiler extends Thread implements TargetMethod.CodePosClosure {
+
+    /**
+     * Asynchronous sampling profiler name.
+     */
+    private static final String ASYNC_SAMPLING_PROFILER_NAME = "Async Sampling Profiler";
+
+    private static final int DEFAULT_PERIOD_MICROS = 10000;
+    private static final int DEFAULT_DEPTH = 64;
+    private static final int DEFAULT_BUFFER_SAMPLES = 256;
+    private static final int DEFAULT_DRAIN_MILLIS = 100;
+
+    /**
+     * The currently running profiler or {@code null}.
+     */
+    private static volatile AsyncSamplingProfiler profiler;
+
+    private String optionPrefix;
+    private int periodMicros = DEFAULT_PERIOD_MICROS;
+    private int maxDepth = DEFAULT_DEPTH;
+    private int bufferSamples = DEFAULT_BUFFER_SAMPLES;
+    private String outputFile;
+    private boolean perThread;
+    private boolean trackSystemThreads;
+
+    private volatile boolean running;
+    private VmThread theProfiler;
+
+    /**
+     * The ring buffers of all threads seen so far. Buffers of terminated threads are removed once drained.
+     */
+    private final ArrayList<SampleBuffer> buffers = new ArrayList<SampleBuffer>();
+
+    /**
+     * Sample counts keyed by collapsed stack.
+     */
+    private final HashMap<String, long[]> collapsedStacks = new HashMap<String, long[]>();
+
+    private final StringBuilder keyBuilder = new StringBuilder(256);
+
+    /**
+     * The source methods of the compiled frame being {@linkplain #record(SampleBuffer, int) recorded}, innermost first.
+     */
+    private final ArrayList<ClassMethodActor> sourceFrames = new ArrayList<ClassMethodActor>();
+
+    private final NativeTicksProcedure nativeTicksProcedure = new NativeTicksProcedure();
+
+    private long sampleCount;
+    private long droppedCount;
+
+    /**
+     * A per-thread ring buffer of stack samples. Only the owning thread writes samples (in the trap handler)
+     * and only the profiler thread reads them, so publication is done with the volatile {@link #head} and
+     * {@link #tail} indexes alone.
+     */
+    public static final class SampleBuffer extends RawStackFrameVisitor {
+        final Thread javaThread;
+        final VmStackFrameWalker walker;
+
+        /**
+         * Number of frame slots per sample.
+         */
+        final int stride;
+        final int mask;
+
+        /**
+         * The compiled frames of the samples, top frame first.
+         */
+        final TargetMethod[] methods;
+
+        /**
+         * The code positions in {@link #methods}. These are relative to the start of the code so that they remain
+         * valid if baseline code is moved by code eviction before the sample is drained.
+         */
+        final int[] positions;
+        final int[] depths;
+
+        volatile int head;
+        volatile int tail;
+        volatile int dropped;
+        int droppedSeen;
+
+        /**
+         * The value of {@link VmThreadLocal#PROFILER_NATIVE_TICKS} for the thread, as last read while the thread was alive.
+         */
+        long nativeTicks;
+        long nativeTicksSeen;
+
+        private int base;
+        private int depth;
+
+        SampleBuffer(VmThread vmThread, int capacity, int maxDepth) {
+            this.javaThread = vmThread.javaThread();
+            this.walker = new VmStackFrameWalker(vmThread.tla());
+            this.stride = maxDepth;
+            this.mask = capacity - 1;
+            this.methods = new TargetMethod[capacity * stride];
+            this.positions = new int[capacity * stride];
+            this.depths = new int[capacity];
+        }
+
+        /**
+         * Records the stack of the current thread, which was interrupted at a given instruction. Must not allocate.
+         */
+        void sample(Pointer ip, Pointer sp, Pointer fp) {
+            final int h = head;
+            if (h - tail > mask || walker.isInUse()) {
+                dropped++;
+                return;
+            }
+            final TargetMethod top = Code.codePointerToTargetMethod(ip);
+            if (top == null || top.classMethodActor == null || !top.isFrameComplete(CodePointer.from(ip))) {
+                // a stub, or a prologue or epilogue in which the caller of the frame cannot be found
+                dropped++;
+                return;
+            }
+            final int index = h & mask;
+            base = index * stride;
+            depth = 0;
+            walker.inspect(ip, sp, fp, this);
+            depths[index] = depth;
+            head = h + 1;
+        }
+
+        @Override
+        public boolean visitFrame(StackFrameCursor current, StackFrameCursor callee) {
+            final TargetMethod targetMethod = current.targetMethod();
+            if (targetMethod == null || targetMethod.classMethodActor == null) {
+                // ignore native frames, stubs, trampolines, adapters etc
+                return true;
+            }
+            methods[base + depth] = targetMethod;
+            positions[base + depth] = targetMethod.posFor(current.vmIP());
+            depth++;
+            return depth < stride;
+        }
+    }
+
+    /**
+     * Reads {@link VmThreadLocal#PROFILER_NATIVE_TICKS} of each profiled thread. Must be run with
+     * {@link VmThreadMap#THREAD_LOCK} held, so that no thread terminates while its thread locals are read.
+     */
+    static final class NativeTicksProcedure implements Pointer.Procedure {
+        public void run(Pointer tla) {
+            final SampleBuffer buffer = VmThread.fromTLA(tla).asyncSampleBuffer;
+            if (buffer != null) {
+                buffer.nativeTicks = PROFILER_NATIVE_TICKS.load(tla).asAddress().toLong();
+            }
+        }
+    }
+
+    public AsyncSamplingProfiler(String optionPrefix, String optionValue) {
+        super(VmThread.systemThreadGroup, "AsyncSamplingProfiler");
+        setDaemon(true);
+        this.optionPrefix = optionPrefix;
+        parseOptions(optionValue);
+        running = true;
+        profiler = this;
+        start();
+    }
+
+    /**
+     * Determines if samples are being requested by an asynchronous sampling profiler.
+     */
+    @INLINE
+    public static boolean isActive() {
+        return profiler != null;
+    }
+
+    /**
+     * Called from the trap handler when the {@code SIGPROF} handler interrupted the current thread in Java code.
+     *
+     * @param trapFrame the trap frame, which holds the state of the thread at the interrupted instruction
+     */
+    public static void sampleAtTrap(Pointer trapFrame) {
+        final SampleBuffer buffer = VmThread.current().asyncSampleBuffer;
+        if (buffer != null && profiler != null) {
+            final TrapFrameAccess tfa = vm().trapFrameAccess;
+            buffer.sample(tfa.getPC(trapFrame), tfa.getSP(trapFrame), tfa.getFP(trapFrame));
+        }
+    }
+
+    private void parseOptions(String optionValue) {
+        if (optionValue.length() == 0) {
+            return;
+        }
+        if (optionValue.charAt(0) != ':') {
+            usage();
+        }
+        for (String option : optionValue.substring(1).split(",")) {
+            if (option.startsWith("period")) {
+                periodMicros = getOption(option);
+            } else if (option.startsWith("depth")) {
+                maxDepth = getOption(option);
+            } else if (option.startsWith("buffer")) {
+                bufferSamples = getOption(option);
+            } else if (option.startsWith("file")) {
+                final int index = option.indexOf('=');
+                if (index < 0) {
+                    usage();
+                }
+                outputFile = option.substring(index + 1);
+            } else if (option.equals("threads")) {
+                perThread = true;
+            } else if (option.equals("systhreads")) {
+                trackSystemThreads = true;
+            } else {
+                usage();
+            }
+        }
+        if (periodMicros <= 0 || maxDepth <= 0 || bufferSamples <= 0) {
+            usage();
+        }
+        // round the ring buffer capacity up to a power of two
+        bufferSamples = Integer.highestOneBit(bufferSamples - 1) << 1;
+        if (bufferSamples == 0) {
+            bufferSamples = 1;
+        }
+    }
+
+    private void usage() {
+        System.err.println("usage: " + optionPrefix + ":period=<us>,depth=<d>,buffer=<n>,file=<path>,threads,systhreads");
+        MaxineVM.native_exit(1);
+    }
+
+    private int getOption(String s) {
+        final int index = s.indexOf('=');
+        if (index < 0) {
+            usage();
+        }
+        return Integer.parseInt(s.substring(index + 1));
+    }
+
+    @Override
+    public void run() {
+        theProfiler = VmThread.fromJava(this);
+        attachBuffers();
+        setCodeRange(0, Code.bootCodeRegion());
+        setCodeRange(1, Code.getCodeManager().getRuntimeBaselineCodeRegion());
+        setCodeRange(2, Code.getCodeManager().getRuntimeOptCodeRegion());
+        nativeSetProfilingTimer(periodMicros);
+        while (running) {
+            try {
+                Thread.sleep(DEFAULT_DRAIN_MILLIS);
+            } catch (InterruptedException ex) {
+            }
+            attachBuffers();
+            drain();
+        }
+    }
+
+    /**
+     * Gives every thread started since the last call a ring buffer. This is done on the profiler thread so that
+     * the sampled threads never allocate.
+     */
+    private synchronized void attachBuffers() {
+        if (!running) {
+            return;
+        }
+        for (Thread thread : VmThreadMap.getThreads(false)) {
+            final VmThread vmThread = VmThread.fromJava(thread);
+            if (vmThread == null || vmThread == theProfiler || vmThread.asyncSampleBuffer != null) {
+                continue;
+            }
+            if (!trackSystemThreads && thread.getThreadGroup() == VmThread.systemThreadGroup) {
+                continue;
+            }
+            final SampleBuffer buffer = new SampleBuffer(vmThread, bufferSamples, maxDepth);
+            buffers.add(buffer);
+            vmThread.asyncSampleBuffer = buffer;
+        }
+    }
+
+    private static void setCodeRange(int index, CodeRegion region) {
+        nativeSetProfilingCodeRange(index, region.start(), region.end());
+    }
+
+    private synchronized void drain() {
+        synchronized (VmThreadMap.THREAD_LOCK) {
+            VmThreadMap.ACTIVE.forAllThreadLocals(null, nativeTicksProcedure);
+        }
+        for (Iterator<SampleBuffer> iterator = buffers.iterator(); iterator.hasNext();) {
+            final SampleBuffer buffer = iterator.next();
+            // sample the liveness first so that no sample published before termination is missed
+            final boolean alive = buffer.javaThread.isAlive();
+            final int head = buffer.head;
+            int tail = buffer.tail;
+            while (tail != head) {
+                record(buffer, tail & buffer.mask);
+                tail++;
+            }
+            buffer.tail = tail;
+            final int dropped = buffer.dropped;
+            droppedCount += dropped - buffer.droppedSeen;
+            buffer.droppedSeen = dropped;
+            final long nativeTicks = buffer.nativeTicks;
+            if (nativeTicks != buffer.nativeTicksSeen) {
+                recordNative(buffer, nativeTicks - buffer.nativeTicksSeen);
+                buffer.nativeTicksSeen = nativeTicks;
+            }
+            if (!alive) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void record(SampleBuffer buffer, int index) {
+        final StringBuilder sb = keyBuilder;
+        sb.setLength(0);
+        if (perThread) {
+            sb.append(buffer.javaThread.getName()).append(';');
+        }
+        final int base = index * buffer.stride;
+        final int depth = buffer.depths[index];
+        for (int i = base + depth - 1; i >= base; i--) {
+            final TargetMethod targetMethod = buffer.methods[i];
+            final int pos = buffer.positions[i];
+            buffer.methods[i] = null;
+            sourceFrames.clear();
+            if (pos >= 0 && pos < targetMethod.codeLength()) {
+                targetMethod.forEachCodePos(this, targetMethod.codeAt(pos));
+            }
+            if (sourceFrames.isEmpty()) {
+                sourceFrames.add(targetMethod.classMethodActor.original());
+            }
+            for (int j = sourceFrames.size() - 1; j >= 0; j--) {
+                appendFrame(sb, sourceFrames.get(j));
+                sb.append(';');
+            }
+        }
+        sb.setLength(sb.length() - 1);
+        count(sb.toString(), 1);
+    }
+
+    private void recordNative(SampleBuffer buffer, long ticks) {
+        final StringBuilder sb = keyBuilder;
+        sb.setLength(0);
+        if (perThread) {
+            sb.append(buffer.javaThread.getName()).append(';');
+        }
+        sb.append("[native]");
+        count(sb.toString(), ticks);
+    }
+
+    private void count(String key, long samples) {
+        final long[] count = collapsedStacks.get(key);
+        if (count == null) {
+            collapsedStacks.put(key, new long[] {samples});
+        } else {
+            count[0] += samples;
+        }
+        sampleCount += samples;
+    }
+
+    public boolean doCodePos(ClassMethodActor method, int bci) {
+        sourceFrames.add(method.original());
+        return true;
+    }
+
+    private static void appendFrame(StringBuilder sb, ClassMethodActor method) {
+        sb.append(method.holder().name).append('.').append(method.name);
+    }
+
+    /**
+     * Stops sampling, drains the remaining samples and writes out the collapsed stacks.
+     */
+    public void terminate() {
+        nativeSetProfilingTimer(0);
+        profiler = null;
+        synchronized (this) {
+            running = false;
+            drain();
+        }
+        final String[] keys = collapsedStacks.keySet().toArray(new String[collapsedStacks.size()]);
+        Arrays.sort(keys);
+        PrintStream out = System.out;
+        if (outputFile != null) {
+            try {
+                out = new PrintStream(new BufferedOutputStream(new FileOutputStream(outputFile)));
+            } catch (IOException ex) {
+                Log.println(ASYNC_SAMPLING_PROFILER_NAME + ": could not open " + outputFile + ": " + ex);
+            }
+        }
+        for (String key : keys) {
+            out.print(key);
+            out.print(' ');
+            out.println(collapsedStacks.get(key)[0]);
+        }
+        out.flush();
+        if (out != System.out) {
+            out.close();
+        }
+        boolean state = Log.lock();
+        Log.print(ASYNC_SAMPLING_PROFILER_NAME + ", #samples: ");
+        Log.print(sampleCount);
+        Log.print(", #dropped: ");
+        Log.println(droppedCount);
+        Log.unlock(state);
+    }
+
+    /**
+     * Tells the {@code SIGPROF} handler about a range of Java code.
+     *
+     * @param index the index of the range, which must be less than 3
+     */
+    @C_FUNCTION
+    private static native void nativeSetProfilingCodeRange(int index, Address start, Address end);
+
+    /**
+     * Arms ({@code periodMicros > 0}) or disarms ({@code periodMicros == 0}) the {@code ITIMER_PROF} timer.
+     * The {@code SIGPROF} handler is installed when the timer is first armed.
+     */
+    @C_FUNCTION
+    private static native void nativeSetProfilingTimer(int periodMicros);
+}
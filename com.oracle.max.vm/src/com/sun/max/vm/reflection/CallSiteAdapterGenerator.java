@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2007, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.reflection;
+
+import static com.sun.max.vm.MaxineVM.*;
+import static com.sun.max.vm.classfile.constant.MethodHandleConstant.*;
+import static com.sun.max.vm.classfile.constant.PoolConstantFactory.*;
+import static com.sun.max.vm.reflection.InvocationStubGenerator.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+
+import com.sun.max.vm.actor.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.bytecode.graft.*;
+import com.sun.max.vm.classfile.*;
+import com.sun.max.vm.classfile.ClassfileWriter.ClassInfo;
+import com.sun.max.vm.classfile.constant.*;
+import com.sun.max.vm.reflection.InvocationStubGenerator.PoolConstantArrayAppender;
+import com.sun.max.vm.type.*;
+
+/**
+ * Generates the static methods that {@code invokedynamic} call sites are linked to by {@link InvokeDynamicLinker}.
+ * Each adapter is the single method of a new class whose name starts with
+ * {@link InvocationStubGenerator#STUB_PACKAGE_PREFIX} so that, like reflection stubs, it is exempt from
+ * verification and access checks and is omitted from stack traces.
+ */
+final class CallSiteAdapterGenerator {
+
+    private CallSiteAdapterGenerator() {
+    }
+
+    private static int nextSerial;
+
+    private static synchronized Utf8Constant generateName(ClassActor caller, Utf8Constant name) {
+        final int serial = ++nextSerial;
+        return SymbolTable.makeSymbol(STUB_PACKAGE_PREFIX + caller.name.string.replace('.', '_') + "$indy$" + name + "$" + serial);
+    }
+
+    private static final Utf8Constant invokeTarget = SymbolTable.makeSymbol("invokeTarget");
+
+    /**
+     * Determines if an adapter that calls {@code target} directly can be generated for a call site whose target
+     * is a direct handle to {@code target} of a given reference kind. The adapter is not verified, so this requires
+     * the call site signature to be exactly the type of the handle: the receiver (or, for a constructor, the result)
+     * is the holder of {@code target} and the remaining parameters and the result match its descriptor. Comparing
+     * descriptors by name is sufficient as the target of a call site always has the type of the call site, whose
+     * classes are resolved by the caller's class loader.
+     */
+    static boolean canCallDirectly(MethodActor target, int referenceKind, SignatureDescriptor signature) {
+        if (hasWordKind(signature)) {
+            return false;
+        }
+        final SignatureDescriptor descriptor = target.descriptor();
+        final TypeDescriptor holder = target.holder().typeDescriptor;
+        switch (referenceKind) {
+            case REF_invokeVirtual:
+            case REF_invokeInterface:
+            case REF_invokeSpecial:
+                return !target.isStatic() && !target.isInstanceInitializer() &&
+                       signature.numberOfParameters() == descriptor.numberOfParameters() + 1 &&
+                       signature.parameterDescriptorAt(0).equals(holder) &&
+                       parametersMatch(signature, 1, descriptor) &&
+                       signature.resultDescriptor().equals(descriptor.resultDescriptor());
+            case REF_newInvokeSpecial:
+                return target.isInstanceInitializer() &&
+                       signature.numberOfParameters() == descriptor.numberOfParameters() &&
+                       parametersMatch(signature, 0, descriptor) &&
+                       signature.resultDescriptor().equals(holder);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Determines if the parameters of {@code signature} starting at {@code offset} are those of {@code descriptor}.
+     */
+    private static boolean parametersMatch(SignatureDescriptor signature, int offset, SignatureDescriptor descriptor) {
+        for (int i = 0; i < descriptor.numberOfParameters(); i++) {
+            if (!signature.parameterDescriptorAt(offset + i).equals(descriptor.parameterDescriptorAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasWordKind(SignatureDescriptor signature) {
+        if (signature.resultKind().isWord) {
+            return true;
+        }
+        for (int i = 0; i < signature.numberOfParameters(); i++) {
+            if (signature.parameterDescriptorAt(i).toKind().isWord) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void load(BytecodeAssembler asm, Kind kind, int local) {
+        switch (kind.asEnum) {
+            case BYTE:
+            case BOOLEAN:
+            case SHORT:
+            case CHAR:
+            case INT:
+                asm.iload(local);
+                break;
+            case FLOAT:
+                asm.fload(local);
+                break;
+            case LONG:
+                asm.lload(local);
+                break;
+            case DOUBLE:
+                asm.dload(local);
+                break;
+            default:
+                asm.aload(local);
+                break;
+        }
+    }
+
+    /**
+     * Generates an adapter whose body invokes {@code target} with the adapter's parameters and returns the result.
+     */
+    static StaticMethodActor generateDirect(ClassActor caller, Utf8Constant name, SignatureDescriptor signature, MethodActor target, int referenceKind) {
+        final ClassActor holder = target.holder();
+        final PoolConstant[] constants = new PoolConstant[PROTOTYPE_CONSTANTS.length + 2];
+        System.arraycopy(PROTOTYPE_CONSTANTS, 0, constants, 0, PROTOTYPE_CONSTANTS.length);
+        final PoolConstantArrayAppender appender = new PoolConstantArrayAppender(constants, PROTOTYPE_CONSTANTS.length);
+        final int holderCPI = appender.append(createClassConstant(holder));
+        final int targetCPI;
+        if (holder.isInterface()) {
+            targetCPI = appender.append(createInterfaceMethodConstant(holder, target.name, target.descriptor()));
+        } else {
+            targetCPI = appender.append(createClassMethodConstant(holder, target.name, target.descriptor()));
+        }
+        final ConstantPool constantPool = new ConstantPool(caller.classLoader, constants, appender.index());
+        final ConstantPoolEditor constantPoolEditor = constantPool.edit();
+        try {
+            final ByteArrayBytecodeAssembler asm = new ByteArrayBytecodeAssembler(constantPoolEditor);
+            asm.allocateParameters(true, signature);
+
+            int argSlots = 0;
+            if (referenceKind == REF_newInvokeSpecial) {
+                asm.new_(holderCPI);
+                asm.dup();
+                argSlots++;
+            }
+            int local = 0;
+            for (int i = 0; i < signature.numberOfParameters(); i++) {
+                final Kind kind = signature.parameterDescriptorAt(i).toKind();
+                load(asm, kind, local);
+                local += kind.stackSlots;
+                argSlots += kind.stackSlots;
+            }
+
+            final Kind resultKind = signature.resultKind();
+            switch (referenceKind) {
+                case REF_newInvokeSpecial:
+                    asm.invokespecial(targetCPI, argSlots, 0);
+                    break;
+                case REF_invokeSpecial:
+                    asm.invokespecial(targetCPI, argSlots, resultKind.stackSlots);
+                    break;
+                default:
+                    if (holder.isInterface()) {
+                        asm.invokeinterface(targetCPI, argSlots, argSlots, resultKind.stackSlots);
+                    } else {
+                        asm.invokevirtual(targetCPI, argSlots, resultKind.stackSlots);
+                    }
+                    break;
+            }
+            asm.return_(resultKind);
+            return define(caller, name, signature, constantPoolEditor, asm);
+        } finally {
+            constantPoolEditor.release();
+        }
+    }
+
+    /**
+     * Generates an adapter that boxes its parameters, passes them to {@link InvokeDynamicLinker#invokeTarget(int, Object[])}
+     * and unboxes the result.
+     */
+    static StaticMethodActor generateGeneric(ClassActor caller, Utf8Constant name, SignatureDescriptor signature, int site) {
+        if (hasWordKind(signature)) {
+            throw new BootstrapMethodError("Word types are not supported in invokedynamic signature " + signature);
+        }
+        final Kind resultKind = signature.resultKind();
+        final PoolConstant[] constants = new PoolConstant[PROTOTYPE_CONSTANTS.length + 3];
+        System.arraycopy(PROTOTYPE_CONSTANTS, 0, constants, 0, PROTOTYPE_CONSTANTS.length);
+        final PoolConstantArrayAppender appender = new PoolConstantArrayAppender(constants, PROTOTYPE_CONSTANTS.length);
+        final int objectCPI = appender.append(createClassConstant(Object.class));
+        final int invokeTargetCPI = appender.append(createClassMethodConstant(InvokeDynamicLinker.class, invokeTarget, int.class, Object[].class));
+        final int resultTypeCPI = resultKind.isReference ? appender.append(createClassConstant(signature.resultDescriptor())) : -1;
+        final ConstantPool constantPool = new ConstantPool(caller.classLoader, constants, appender.index());
+        final ConstantPoolEditor constantPoolEditor = constantPool.edit();
+        try {
+            final ByteArrayBytecodeAssembler asm = new ByteArrayBytecodeAssembler(constantPoolEditor);
+            asm.allocateParameters(true, signature);
+
+            // invokeTarget(site, new Object[] {box(p0), box(p1), ...})
+            asm.iconst(site);
+            asm.iconst(signature.numberOfParameters());
+            asm.anewarray(objectCPI);
+            int local = 0;
+            for (int i = 0; i < signature.numberOfParameters(); i++) {
+                final Kind kind = signature.parameterDescriptorAt(i).toKind();
+                asm.dup();
+                asm.iconst(i);
+                load(asm, kind, local);
+                if (kind.isPrimitiveValue()) {
+                    asm.invokestatic(JAVA_BOX_PRIMITIVE.get(kind.asEnum), kind.stackSlots, 1);
+                }
+                asm.aastore();
+                local += kind.stackSlots;
+            }
+            asm.invokestatic(invokeTargetCPI, 2, 1);
+
+            if (resultKind == Kind.VOID) {
+                asm.pop();
+            } else if (resultKind.isReference) {
+                asm.checkcast(resultTypeCPI);
+            } else {
+                asm.invokestatic(JAVA_UNBOX_PRIMITIVE.get(resultKind.asEnum), 1, resultKind.stackSlots);
+            }
+            asm.return_(resultKind);
+            return define(caller, name, signature, constantPoolEditor, asm);
+        } finally {
+            constantPoolEditor.release();
+        }
+    }
+
+    private static StaticMethodActor define(ClassActor caller, Utf8Constant name, SignatureDescriptor signature, ConstantPoolEditor constantPoolEditor, ByteArrayBytecodeAssembler asm) {
+        final CodeAttribute codeAttribute = new CodeAttribute(
+                        constantPoolEditor.pool(),
+                        asm.code(),
+                        (char) asm.maxStack(),
+                        (char) asm.maxLocals(),
+                        CodeAttribute.NO_EXCEPTION_HANDLER_TABLE,
+                        LineNumberTable.EMPTY,
+                        LocalVariableTable.EMPTY,
+                        null);
+        final StaticMethodActor adapter = new StaticMethodActor(
+                        name,
+                        signature,
+                        Actor.ACC_PUBLIC | Actor.ACC_STATIC | Actor.ACC_SYNTHETIC,
+                        codeAttribute, null);
+
+        final ClassActor adapterClassActor =
+            ClassRegistry.define(ClassActorFactory.createTupleOrHybridClassActor(
+                constantPoolEditor.pool(),
+                caller.classLoader,
+                generateName(caller, name),
+                ClassfileReader.JAVA_1_5_VERSION,
+                (char) 0,
+                Modifier.PUBLIC | Modifier.FINAL | Actor.REFLECTION_STUB,
+                ClassRegistry.OBJECT,
+                new InterfaceActor[0],
+                new FieldActor[0],
+                new ClassMethodActor[] {adapter},
+                Actor.NO_GENERIC_SIGNATURE,
+                Actor.NO_RUNTIME_VISIBLE_ANNOTATION_BYTES,
+                ClassActor.NO_SOURCE_FILE_NAME,
+                ClassActor.NO_INNER_CLASSES,
+                ClassActor.NO_OUTER_CLASS,
+                ClassActor.NO_ENCLOSING_METHOD_INFO));
+
+        try {
+            if (isHosted() || ClassfileReader.saveClassDir.getValue() != null) {
+                ClassfileWriter.saveGeneratedClass(new ClassInfo(adapterClassActor), constantPoolEditor.copy());
+            }
+        } catch (IOException ioException) {
+            ioException.printStackTrace();
+        }
+        return adapter;
+    }
+}
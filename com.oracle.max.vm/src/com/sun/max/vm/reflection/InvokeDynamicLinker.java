@@ -0,0 +1,523 @@
+/*
+ * Copyright (c) 2007, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.reflection;
+
+import static com.sun.max.vm.classfile.constant.MethodHandleConstant.*;
+import static com.sun.max.vm.intrinsics.MaxineIntrinsicIDs.*;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.*;
+import java.util.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.lang.*;
+import com.sun.max.vm.actor.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.classfile.constant.*;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.object.*;
+import com.sun.max.vm.type.*;
+import com.sun.max.vm.value.*;
+
+/**
+ * Links {@code invokedynamic} call sites (#6.5.invokedynamic) and creates the method handles and method types denoted by
+ * {@link MethodHandleConstant} and {@link MethodTypeConstant} entries.
+ * <p>
+ * Maxine does not implement the JDK's method handle runtime ({@code MethodHandleNatives}, lambda forms and the
+ * signature polymorphic invokers), so nothing in this class invokes a {@link MethodHandle}. Instead:
+ * <ul>
+ * <li>The method handles denoted by constant pool entries are <i>direct handles</i> that are built here rather than by
+ * {@link MethodHandles.Lookup}: instances of the JDK's {@code DirectMethodHandle} whose {@code MemberName} records the
+ * referenced member. They can be passed to bootstrap methods and wrapped in call sites but cannot be invoked from
+ * Java code.</li>
+ * <li>Bootstrap methods, and the targets of call sites linked through the generic path described below, are invoked
+ * through their reflection {@linkplain InvocationStubGenerator invocation stubs}.</li>
+ * <li>Any other method handle, such as one created by {@link MethodHandles#insertArguments} or
+ * {@link MethodHandle#bindTo}, is invoked by interpreting its lambda form: the members it calls are invoked through
+ * their invocation stubs and the method handles it calls are interpreted in turn.</li>
+ * </ul>
+ * An {@code invokedynamic} instruction is linked to a {@link StaticMethodActor} whose signature is that of the call
+ * site. The compilers then treat the instruction as an {@code invokestatic} of that method. How the method is chosen
+ * depends on the {@link CallSite} returned by the bootstrap method:
+ * <ul>
+ * <li>A {@link ConstantCallSite} whose target is a direct handle to a static method is linked to that method. No
+ * adapter is generated and the call is a plain static call that the optimizing compiler can inline.</li>
+ * <li>A {@link ConstantCallSite} whose target is a direct handle to a virtual, interface, private or constructor
+ * member is linked to a {@linkplain CallSiteAdapterGenerator generated} adapter whose body is a single call of the
+ * target. The adapter is trivially inlinable.</li>
+ * <li>Any other call site is linked to an adapter that boxes the arguments and calls
+ * {@link #invokeTarget(int, Object[])}, which in turn invokes the current target of the call site.</li>
+ * </ul>
+ * Linkage is per constant pool entry rather than per instruction: all {@code invokedynamic} instructions in a class
+ * that share an entry share a call site.
+ */
+public final class InvokeDynamicLinker {
+
+    private InvokeDynamicLinker() {
+    }
+
+    /**
+     * The call sites linked through the generic path, indexed by the site number embedded in their adapters.
+     */
+    private static volatile CallSite[] callSites = new CallSite[16];
+
+    private static int callSiteCount;
+
+    private static synchronized int register(CallSite callSite) {
+        CallSite[] sites = callSites;
+        if (callSiteCount == sites.length) {
+            final CallSite[] newSites = new CallSite[sites.length * 2];
+            System.arraycopy(sites, 0, newSites, 0, sites.length);
+            sites = newSites;
+        }
+        final int site = callSiteCount++;
+        sites[site] = callSite;
+        callSites = sites;
+        return site;
+    }
+
+    /**
+     * Invokes the current target of a call site linked through the generic path. Called from generated adapters.
+     *
+     * @param site the number of the call site
+     * @param arguments the boxed arguments of the call
+     * @return the boxed result of the call or {@code null} if the call site's return type is {@code void}
+     */
+    public static Object invokeTarget(int site, Object[] arguments) throws Throwable {
+        return invoke(callSites[site].getTarget(), arguments);
+    }
+
+    /**
+     * Invokes a method handle, directly if it is a direct handle to a method and otherwise by interpreting its lambda
+     * form.
+     *
+     * @param arguments the boxed arguments of the call
+     * @return the boxed result of the call or {@code null} if the handle's return type is {@code void}
+     * @throws UnsupportedOperationException if the handle calls a member that is not a method or the JDK does not
+     *             represent method handles with lambda forms
+     */
+    static Object invoke(MethodHandle handle, Object[] arguments) throws Throwable {
+        final DirectTarget target = directTarget(handle);
+        if (target != null) {
+            return target.invoke(arguments);
+        }
+        final Object form = methodHandleForm == null ? null : methodHandleForm.getObject(handle);
+        if (form == null) {
+            throw new UnsupportedOperationException("cannot invoke " + handle + ": it has no lambda form");
+        }
+        final Object[] names = (Object[]) lambdaFormNames.getObject(form);
+        final int arity = lambdaFormArity.getInt(form);
+        if (arity != arguments.length + 1) {
+            throw new WrongMethodTypeException("expected " + (arity - 1) + " arguments for " + handle + ", not " + arguments.length);
+        }
+        // names[0] is the handle itself, the parameters follow and each remaining name is a call of earlier names
+        final Object[] values = new Object[names.length];
+        values[0] = handle;
+        System.arraycopy(arguments, 0, values, 1, arguments.length);
+        for (int i = arity; i < names.length; i++) {
+            values[i] = evaluate(names[i], values);
+        }
+        final int result = lambdaFormResult.getInt(form);
+        return result < 0 ? null : values[result];
+    }
+
+    /**
+     * Evaluates a {@code LambdaForm.Name} that is not a parameter of its form.
+     *
+     * @param values the values of the names preceding {@code name} in its form
+     */
+    private static Object evaluate(Object name, Object[] values) throws Throwable {
+        final Object[] nameArguments = (Object[]) lambdaFormNameArguments.getObject(name);
+        final Object[] arguments = new Object[nameArguments.length];
+        for (int i = 0; i < nameArguments.length; i++) {
+            final Object argument = nameArguments[i];
+            if (argument != null && LAMBDA_FORM_NAME.isAssignableFrom(ObjectAccess.readClassActor(argument))) {
+                arguments[i] = values[lambdaFormNameIndex.getShort(argument)];
+            } else {
+                arguments[i] = argument;
+            }
+        }
+        final Object function = lambdaFormNameFunction.getObject(name);
+        final Object member = namedFunctionMember.getObject(function);
+        if (member == null) {
+            return invoke((MethodHandle) namedFunctionResolvedHandle.getObject(function), arguments);
+        }
+        if (memberNameClazz.getObject(member) == MethodHandle.class) {
+            // the signature polymorphic methods that lambda forms use to call other handles and members
+            final String memberName = (String) memberNameName.getObject(member);
+            if (memberName.equals("invokeBasic")) {
+                return invoke((MethodHandle) arguments[0], Arrays.copyOfRange(arguments, 1, arguments.length));
+            }
+            if (memberName.startsWith("linkTo")) {
+                final Object linkedMember = arguments[arguments.length - 1];
+                return memberTarget(linkedMember, member).invoke(Arrays.copyOf(arguments, arguments.length - 1));
+            }
+        }
+        return memberTarget(member, member).invoke(arguments);
+    }
+
+    private static DirectTarget memberTarget(Object member, Object context) {
+        final DirectTarget target = member == null ? null : memberTarget(member);
+        if (target == null) {
+            throw new UnsupportedOperationException("cannot invoke " + member + " in lambda form call of " + context);
+        }
+        return target;
+    }
+
+    /**
+     * Links the call site denoted by a {@link InvokeDynamicConstant}.
+     *
+     * @return the method that an {@code invokedynamic} instruction referring to {@code constant} invokes
+     * @throws BootstrapMethodError if the bootstrap method fails or does not return a suitable {@link CallSite}
+     */
+    public static StaticMethodActor link(ConstantPool pool, int index, InvokeDynamicConstant constant) {
+        final ClassActor caller = pool.holder();
+        final Utf8Constant name = constant.name(pool);
+        final SignatureDescriptor signature = constant.signature(pool);
+        final MethodType type = methodType(signature, pool.classLoader());
+        final CallSite callSite = bootstrap(pool, constant.bootstrapMethodAttrIndex, caller, name.string, type);
+
+        if (callSite instanceof ConstantCallSite) {
+            final DirectTarget target = directTarget(callSite.getTarget());
+            if (target != null) {
+                if (target.method.isStatic() && target.method.descriptor().equals(signature)) {
+                    return (StaticMethodActor) target.method;
+                }
+                if (CallSiteAdapterGenerator.canCallDirectly(target.method, target.referenceKind, signature)) {
+                    return CallSiteAdapterGenerator.generateDirect(caller, name, signature, target.method, target.referenceKind);
+                }
+            }
+        }
+        return CallSiteAdapterGenerator.generateGeneric(caller, name, signature, register(callSite));
+    }
+
+    private static CallSite bootstrap(ConstantPool pool, int bootstrapMethodAttrIndex, ClassActor caller, String name, MethodType type) {
+        final int[] specifier = pool.bootstrapMethodAt(bootstrapMethodAttrIndex);
+        final Object result;
+        try {
+            final MethodHandleConstant bootstrapConstant = pool.methodHandleAt(specifier[0]);
+            final DirectTarget bootstrapMethod = directTarget(bootstrapConstant.resolve(pool));
+            if (bootstrapMethod == null) {
+                throw new BootstrapMethodError("bootstrap method " + bootstrapConstant.valueString(pool) + " is not a method");
+            }
+            final Object[] arguments = new Object[3 + specifier.length - 1];
+            arguments[0] = lookup(caller);
+            arguments[1] = name;
+            arguments[2] = type;
+            for (int i = 1; i < specifier.length; i++) {
+                arguments[2 + i] = staticArgument(pool, specifier[i]);
+            }
+            result = bootstrapMethod.invoke(collectVarArgs(bootstrapMethod.method, arguments));
+        } catch (Throwable throwable) {
+            if (throwable instanceof BootstrapMethodError) {
+                throw (BootstrapMethodError) throwable;
+            }
+            throw new BootstrapMethodError("call site initialization exception", throwable);
+        }
+        if (!(result instanceof CallSite)) {
+            throw new BootstrapMethodError("bootstrap method returned " + result + " instead of a call site");
+        }
+        final CallSite callSite = (CallSite) result;
+        if (!callSite.type().equals(type)) {
+            throw new BootstrapMethodError("call site type " + callSite.type() + " does not match " + type);
+        }
+        return callSite;
+    }
+
+    /**
+     * Adapts the arguments of a bootstrap method call to the parameters of the bootstrap method, collecting the
+     * trailing static arguments into an array if the method is a variable arity method.
+     */
+    private static Object[] collectVarArgs(MethodActor method, Object[] arguments) {
+        final SignatureDescriptor descriptor = method.descriptor();
+        final int parameters = descriptor.numberOfParameters();
+        if (Actor.isVarArgs(method.flags()) && parameters > 0) {
+            final int fixed = parameters - 1;
+            final Class lastType = descriptor.parameterDescriptorAt(fixed).resolveType(method.holder().classLoader);
+            if (arguments.length != parameters || (arguments[fixed] != null && !lastType.isInstance(arguments[fixed]))) {
+                if (arguments.length < fixed) {
+                    throw new BootstrapMethodError("too few arguments for " + method);
+                }
+                final Object array = java.lang.reflect.Array.newInstance(lastType.getComponentType(), arguments.length - fixed);
+                for (int i = fixed; i < arguments.length; i++) {
+                    java.lang.reflect.Array.set(array, i - fixed, arguments[i]);
+                }
+                final Object[] collected = new Object[parameters];
+                System.arraycopy(arguments, 0, collected, 0, fixed);
+                collected[fixed] = array;
+                return collected;
+            }
+        }
+        if (arguments.length != parameters) {
+            throw new BootstrapMethodError("bootstrap method " + method + " takes " + parameters + " arguments, not " + arguments.length);
+        }
+        return arguments;
+    }
+
+    private static Object staticArgument(ConstantPool pool, int index) {
+        switch (pool.tagAt(index)) {
+            case STRING:
+                return pool.stringAt(index);
+            case CLASS:
+                return pool.classAt(index).resolve(pool, index).toJava();
+            case METHOD_HANDLE:
+                return pool.methodHandleAt(index).resolve(pool);
+            case METHOD_TYPE:
+                return pool.methodTypeAt(index).resolve(pool);
+            default:
+                return pool.valueAt(index).asBoxedJavaValue();
+        }
+    }
+
+    /**
+     * Creates the method type corresponding to a signature.
+     */
+    public static MethodType methodType(SignatureDescriptor signature, ClassLoader classLoader) {
+        return MethodType.methodType(signature.resolveReturnType(classLoader), signature.resolveParameterTypes(classLoader));
+    }
+
+    private static final int MN_IS_METHOD = 0x00010000;
+    private static final int MN_IS_CONSTRUCTOR = 0x00020000;
+    private static final int MN_IS_FIELD = 0x00040000;
+    private static final int MN_REFERENCE_KIND_SHIFT = 24;
+    private static final int MN_REFERENCE_KIND_MASK = 0x0F;
+
+    /**
+     * The classes and fields of the JDK's representation of direct method handles. These are looked up while building
+     * the boot image so that the classes are part of it.
+     */
+    private static final ClassActor DIRECT_METHOD_HANDLE = ClassActor.fromJava(Classes.forName("java.lang.invoke.DirectMethodHandle"));
+    private static final FieldActor methodHandleType = findInstanceField(DIRECT_METHOD_HANDLE, "type");
+    private static final FieldActor directMethodHandleMember = findInstanceField(DIRECT_METHOD_HANDLE, "member");
+    private static final ClassActor MEMBER_NAME = directMethodHandleMember.type();
+    private static final FieldActor memberNameClazz = findInstanceField(MEMBER_NAME, "clazz");
+    private static final FieldActor memberNameName = findInstanceField(MEMBER_NAME, "name");
+    private static final FieldActor memberNameType = findInstanceField(MEMBER_NAME, "type");
+    private static final FieldActor memberNameFlags = findInstanceField(MEMBER_NAME, "flags");
+
+    /**
+     * The classes and fields of the JDK's lambda forms, through which all other method handles are invoked. These are
+     * {@code null} if the JDK does not represent method handles with lambda forms.
+     */
+    private static final ClassActor LAMBDA_FORM = optionalClass("java.lang.invoke.LambdaForm");
+    private static final ClassActor LAMBDA_FORM_NAME = optionalClass("java.lang.invoke.LambdaForm$Name");
+    private static final ClassActor NAMED_FUNCTION = optionalClass("java.lang.invoke.LambdaForm$NamedFunction");
+    private static final FieldActor methodHandleForm = LAMBDA_FORM == null ? null : findInstanceField(ClassActor.fromJava(MethodHandle.class), "form");
+    private static final FieldActor lambdaFormArity = LAMBDA_FORM == null ? null : findInstanceField(LAMBDA_FORM, "arity");
+    private static final FieldActor lambdaFormResult = LAMBDA_FORM == null ? null : findInstanceField(LAMBDA_FORM, "result");
+    private static final FieldActor lambdaFormNames = LAMBDA_FORM == null ? null : findInstanceField(LAMBDA_FORM, "names");
+    private static final FieldActor lambdaFormNameIndex = LAMBDA_FORM == null ? null : findInstanceField(LAMBDA_FORM_NAME, "index");
+    private static final FieldActor lambdaFormNameFunction = LAMBDA_FORM == null ? null : findInstanceField(LAMBDA_FORM_NAME, "function");
+    private static final FieldActor lambdaFormNameArguments = LAMBDA_FORM == null ? null : findInstanceField(LAMBDA_FORM_NAME, "arguments");
+    private static final FieldActor namedFunctionMember = LAMBDA_FORM == null ? null : findInstanceField(NAMED_FUNCTION, "member");
+    private static final FieldActor namedFunctionResolvedHandle = LAMBDA_FORM == null ? null : findInstanceField(NAMED_FUNCTION, "resolvedHandle");
+
+    private static ClassActor optionalClass(String name) {
+        try {
+            return ClassActor.fromJava(Class.forName(name));
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static FieldActor findInstanceField(ClassActor classActor, String name) {
+        for (ClassActor holder = classActor; holder != null; holder = holder.superClassActor) {
+            final FieldActor fieldActor = holder.findLocalInstanceFieldActor(name);
+            if (fieldActor != null) {
+                return fieldActor;
+            }
+        }
+        throw new InternalError("no field " + name + " in " + classActor + " or its super classes");
+    }
+
+    /**
+     * Creates the direct method handle denoted by a {@link MethodHandleConstant}. Resolving {@code reference} checks
+     * access against the holder of {@code pool}.
+     *
+     * @throws IncompatibleClassChangeError if the resolved member does not match {@code referenceKind}
+     */
+    public static MethodHandle methodHandle(ConstantPool pool, int referenceKind, int referenceIndex, MemberRefConstant reference) {
+        final MemberActor member = (MemberActor) reference.resolve(pool, referenceIndex);
+        final ClassActor holder = member.holder();
+        final Class<?> holderClass = holder.toJava();
+        final MethodType handleType;
+        final Object memberType;
+        int flags = member.flags() & (member instanceof FieldActor ? Actor.JAVA_FIELD_FLAGS : Actor.JAVA_METHOD_FLAGS);
+        if (member instanceof FieldActor) {
+            final Class<?> fieldType = ((FieldActor) member).type().toJava();
+            checkKind(member, referenceKind == REF_getStatic || referenceKind == REF_putStatic);
+            switch (referenceKind) {
+                case REF_getField:
+                    handleType = MethodType.methodType(fieldType, holderClass);
+                    break;
+                case REF_getStatic:
+                    handleType = MethodType.methodType(fieldType);
+                    break;
+                case REF_putField:
+                    handleType = MethodType.methodType(void.class, holderClass, fieldType);
+                    break;
+                default:
+                    handleType = MethodType.methodType(void.class, fieldType);
+                    break;
+            }
+            memberType = fieldType;
+            flags |= MN_IS_FIELD;
+        } else {
+            final MethodActor method = (MethodActor) member;
+            final MethodType type = methodType(method.descriptor(), holder.classLoader);
+            if (referenceKind == REF_newInvokeSpecial) {
+                if (!method.isInstanceInitializer()) {
+                    throw new IncompatibleClassChangeError(method + " is not a constructor");
+                }
+                handleType = type.changeReturnType(holderClass);
+                flags |= MN_IS_CONSTRUCTOR;
+            } else {
+                if (method.isInstanceInitializer() || method.isClassInitializer()) {
+                    throw new IncompatibleClassChangeError(method + " cannot be the target of a method handle of kind " + referenceKind);
+                }
+                checkKind(member, referenceKind == REF_invokeStatic);
+                handleType = method.isStatic() ? type : type.insertParameterTypes(0, holderClass);
+                flags |= MN_IS_METHOD;
+            }
+            memberType = type;
+        }
+
+        final Object memberName = Heap.createTuple(MEMBER_NAME.dynamicHub());
+        memberNameClazz.setObject(memberName, holderClass);
+        memberNameName.setObject(memberName, member.name.string);
+        memberNameType.setObject(memberName, memberType);
+        memberNameFlags.setInt(memberName, flags | (referenceKind << MN_REFERENCE_KIND_SHIFT));
+
+        final Object handle = Heap.createTuple(DIRECT_METHOD_HANDLE.dynamicHub());
+        methodHandleType.setObject(handle, handleType);
+        directMethodHandleMember.setObject(handle, memberName);
+        return (MethodHandle) handle;
+    }
+
+    private static void checkKind(MemberActor member, boolean expectStatic) {
+        if (member.isStatic() != expectStatic) {
+            throw new IncompatibleClassChangeError(member + (expectStatic ? " is not static" : " is static"));
+        }
+    }
+
+    /**
+     * Creates a lookup object with full access to a given class, as passed to bootstrap methods.
+     */
+    private static MethodHandles.Lookup lookup(ClassActor caller) {
+        final MethodHandles.Lookup lookup = (MethodHandles.Lookup) Heap.createTuple(ClassActor.fromJava(MethodHandles.Lookup.class).dynamicHub());
+        asThis(lookup).init(caller.toJava());
+        return lookup;
+    }
+
+    @INTRINSIC(UNSAFE_CAST)
+    private static native InvokeDynamicLinker asThis(MethodHandles.Lookup lookup);
+
+    @ALIAS(declaringClass = MethodHandles.Lookup.class, name = "<init>")
+    private native void init(Class<?> lookupClass);
+
+    /**
+     * The method invoked by a direct method handle.
+     */
+    static final class DirectTarget {
+        final MethodActor method;
+
+        /**
+         * One of the {@code REF_*} constants in {@link MethodHandleConstant}.
+         */
+        final int referenceKind;
+
+        DirectTarget(MethodActor method, int referenceKind) {
+            this.method = method;
+            this.referenceKind = referenceKind;
+        }
+
+        /**
+         * Invokes the method through its invocation stub. For a non-static method, the receiver is the first
+         * argument.
+         *
+         * @return the boxed result or {@code null} if the method returns {@code void}
+         */
+        Object invoke(Object[] arguments) throws Throwable {
+            final Value[] values = Value.fromBoxedJavaValues(arguments);
+            final Value result;
+            try {
+                if (referenceKind == REF_newInvokeSpecial) {
+                    result = method.invokeConstructor(values);
+                } else {
+                    result = method.invoke(values);
+                }
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            return result.kind() == Kind.VOID ? null : result.asBoxedJavaValue();
+        }
+    }
+
+    /**
+     * Gets the method invoked by a direct method handle, or {@code null} if {@code handle} is not a direct handle to a
+     * method. This relies on the internal representation of method handles in the JDK
+     * ({@code java.lang.invoke.DirectMethodHandle} and {@code java.lang.invoke.MemberName}), which is also how the
+     * handles created by {@link #methodHandle} are represented.
+     */
+    static DirectTarget directTarget(MethodHandle handle) {
+        if (handle == null || !DIRECT_METHOD_HANDLE.isAssignableFrom(ObjectAccess.readClassActor(handle))) {
+            return null;
+        }
+        final Object member = directMethodHandleMember.getObject(handle);
+        if (member == null) {
+            return null;
+        }
+        return memberTarget(member);
+    }
+
+    /**
+     * Gets the method denoted by a {@code java.lang.invoke.MemberName}, or {@code null} if {@code member} does not
+     * denote a method.
+     */
+    private static DirectTarget memberTarget(Object member) {
+        final Object type = memberNameType.getObject(member);
+        if (!(type instanceof MethodType)) {
+            // a field accessor
+            return null;
+        }
+        final MethodType methodType = (MethodType) type;
+        final ClassActor holder = ClassActor.fromJava((Class) memberNameClazz.getObject(member));
+        final Utf8Constant name = SymbolTable.lookupSymbol((String) memberNameName.getObject(member));
+        if (name == null) {
+            return null;
+        }
+        final int referenceKind = (memberNameFlags.getInt(member) >>> MN_REFERENCE_KIND_SHIFT) & MN_REFERENCE_KIND_MASK;
+        final SignatureDescriptor signature = SignatureDescriptor.fromJava(methodType.returnType(), methodType.parameterArray());
+        final MethodActor methodActor = holder.findLocalMethodActor(name, signature);
+        if (methodActor == null) {
+            return null;
+        }
+        return new DirectTarget(methodActor, referenceKind);
+    }
+}
@@ -55,6 +55,7 @@ import com.sun.max.vm.runtime.*;
 import com.sun.max.vm.thread.*;
 import com.sun.max.vm.ti.*;
 import com.sun.max.vm.type.*;
+import com.sun.max.vm.verifier.*;
 
 /**
  * The normal Java run scheme that starts up the standard JDK services, loads a user
@@ -80,6 +81,8 @@ public class JavaRunScheme extends AbstractVMScheme implements RunScheme {
         "-Xprof", false, null, "run CPU sampling profiler"), MaxineVM.Phase.STARTING);
     private static final VMStringOption hprofOption = register(new VMStringOption(
         "-Xhprof", false, null, "run heap sampling profiler"), MaxineVM.Phase.STARTING);
+    private static final VMStringOption aprofOption = register(new VMStringOption(
+        "-Xaprof", false, null, "run asynchronous (SIGPROF based) CPU sampling profiler"), MaxineVM.Phase.STARTING);
 
     /**
      * List of classes to explicitly reinitialise in the {@link Phase#STARTING} phase.
@@ -88,6 +91,7 @@ public class JavaRunScheme extends AbstractVMScheme implements RunScheme {
     private static List<String> reinitClasses = new LinkedList<String>();
     private static CPUSamplingProfiler cpuSamplingProfiler;
     private static HeapSamplingProfiler heapSamplingProfiler;
+    private static AsyncSamplingProfiler asyncSamplingProfiler;
     private static String mainClassName;
 
     @HOSTED_ONLY
@@ -166,6 +170,10 @@ public class JavaRunScheme extends AbstractVMScheme implements RunScheme {
         if (heapSamplingProfiler != null) {
             heapSamplingProfiler.terminate();
         }
+        if (asyncSamplingProfiler != null) {
+            asyncSamplingProfiler.terminate();
+            asyncSamplingProfiler = null;
+        }
     }
 
     public static void restartProfilers() {
@@ -220,6 +228,8 @@ public class JavaRunScheme extends AbstractVMScheme implements RunScheme {
             }
 
             case RUNNING: {
+                ClassVerificationCache.initialize();
+
                 // This is always the last scheme to be initialized, so now is the right time
                 // to start the profiler if requested.
                 final String cpuProfOptionValue = cprofOption.getValue();
@@ -232,6 +242,10 @@ public class JavaRunScheme extends AbstractVMScheme implements RunScheme {
                     final String heapProfOptionPrefix = hprofOption.toString();
                     heapSamplingProfiler = new HeapSamplingProfiler(heapProfOptionPrefix, heapProfOptionValue);
                 }
+                final String asyncProfOptionValue = aprofOption.getValue();
+                if (asyncProfOptionValue != null) {
+                    asyncSamplingProfiler = new AsyncSamplingProfiler(aprofOption.toString(), asyncProfOptionValue);
+                }
                 break;
             }
 
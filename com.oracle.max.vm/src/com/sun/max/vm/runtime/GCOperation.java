@@ -156,10 +156,12 @@ public abstract class GCOperation extends VmOperation {
 
     @Override
     public void doIt() {
+        GCTelemetry.gcStarted();
         // The next 2 statements *must* be adjacent as the reference map for this frame must
         // be the same at both calls.
         stackReferenceMapPreparationTime = VmThreadLocal.prepareCurrentStackReferenceMap();
         collect();
+        GCTelemetry.gcFinished();
     }
 
     private int invocationCount;
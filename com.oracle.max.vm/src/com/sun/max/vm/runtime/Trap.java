@@ -36,6 +36,7 @@ import com.sun.max.vm.*;
 import com.sun.max.vm.code.*;
 import com.sun.max.vm.compiler.*;
 import com.sun.max.vm.compiler.target.*;
+import com.sun.max.vm.profilers.sampling.*;
 import com.sun.max.vm.reference.*;
 import com.sun.max.vm.thread.*;
 
@@ -81,6 +82,7 @@ public abstract class Trap {
         public static final int ASYNC_INTERRUPT = 4;
         public static final int NULL_POINTER_EXCEPTION = 5;
         public static final int SAFEPOINT = 6;
+        public static final int PROFILER_TICK = 7;
 
         public static String toExceptionName(int trapNumber) {
             switch (trapNumber) {
@@ -96,6 +98,8 @@ public abstract class Trap {
                     return "NULL_POINTER_EXCEPTION";
                 case SAFEPOINT:
                     return "SAFEPOINT";
+                case PROFILER_TICK:
+                    return "PROFILER_TICK";
                 default:
                     return "unknown";
             }
@@ -203,6 +207,11 @@ public abstract class Trap {
             return;
         }
 
+        if (trapNumber == PROFILER_TICK) {
+            AsyncSamplingProfiler.sampleAtTrap(trapFrame);
+            return;
+        }
+
         final TrapFrameAccess tfa = vm().trapFrameAccess;
         final Pointer pc = tfa.getPC(trapFrame);
         final Object origin = checkTrapOrigin(trapNumber, trapFrame, faultAddress, pc);
@@ -25,6 +25,7 @@ package com.sun.max.vm.runtime;
 import java.lang.Thread.UncaughtExceptionHandler;
 
 import com.sun.max.annotate.*;
+import com.sun.max.memory.*;
 import com.sun.max.program.*;
 import com.sun.max.vm.*;
 import com.sun.max.vm.heap.*;
@@ -127,6 +128,8 @@ public class VmOperationThread extends Thread implements UncaughtExceptionHandle
         if (TraceVmOperations) {
             Log.println("Started VM operation thread");
         }
+        // Garbage collection runs on this thread.
+        NUMATopology.pinGCThread();
 
         synchronized (QUEUE_LOCK) {
             // Let the thread that started the VM operation thread now continue
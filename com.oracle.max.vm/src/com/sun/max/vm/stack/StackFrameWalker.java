@@ -247,6 +247,8 @@ public abstract class StackFrameWalker {
                 Pointer limit = preparer.completingReferenceMapLimit();
                 if (!limit.isZero() && current.sp().greaterEqual(limit)) {
                     proceed = false;
+                } else if (preparer.reachedWatermark(current, callee, targetMethod)) {
+                    proceed = false;
                 }
             }
         } else if (purpose == Purpose.EXCEPTION_HANDLING) {
@@ -22,6 +22,7 @@
  */
 package com.sun.max.vm.stack;
 
+import static com.sun.max.platform.Platform.*;
 import static com.sun.max.vm.MaxineVM.*;
 import static com.sun.max.vm.intrinsics.Infopoints.*;
 import static com.sun.max.vm.runtime.VMRegister.*;
@@ -102,8 +103,21 @@ public final class StackReferenceMapPreparer extends FrameReferenceMapVisitor {
         VMOptions.addFieldOption("-XX:", "VerifyRefMaps", StackReferenceMapPreparer.class,
             "Verify reference maps by performing a stack walk and checking plausibility of reference roots in " +
             "the stack--as often as possible.", MaxineVM.Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "StackWatermarkFrames", StackReferenceMapPreparer.class,
+            "Maximum number of frames at the bottom of a thread's stack whose reference maps are reused " +
+            "by the next GC if they are unchanged (default: 0 = disabled).", MaxineVM.Phase.PRISTINE);
     }
 
+    /**
+     * The maximum number of frames below a {@linkplain #watermark stack watermark}.
+     */
+    public static int StackWatermarkFrames;
+
+    /**
+     * The initial number of frames between the top of a stack and its watermark.
+     */
+    private static final int INITIAL_WATERMARK_MARGIN = 8;
+
     private final Timer timer = new SingleUseTimer(HeapScheme.GC_TIMING_CLOCK);
     private Pointer ttla;
     private Pointer referenceMap;
@@ -122,6 +136,53 @@ public final class StackReferenceMapPreparer extends FrameReferenceMapVisitor {
      */
     private boolean ignoreCurrentFrame;
 
+    /**
+     * The stack pointer of the frame at the stack watermark or zero if there is no watermark. The reference maps of the
+     * frames older than the watermark frame are saved in {@link #watermarkRefMap} when the watermark is set. If the
+     * next reference map preparation finds the same frame at the same stack address, and the return addresses of all
+     * older frames are unchanged, then these frames have not been returned into since and their reference maps are
+     * restored from the saved copy instead of walking and preparing each of these frames again.
+     * <p>
+     * Returns into older frames are detected by comparing the return address slots recorded in
+     * {@link #watermarkSlots} with their recorded values instead of by patching a return barrier into the
+     * watermark frame.
+     */
+    private Pointer watermark = Pointer.zero();
+    private long watermarkIP;
+
+    /**
+     * The stack pointer of the caller of the watermark frame. This is the lowest slot covered by {@link #watermarkRefMap}.
+     */
+    private Pointer watermarkLimit = Pointer.zero();
+    private Pointer watermarkHighestSlot = Pointer.zero();
+
+    /**
+     * The reference map bytes covering the slots from {@link #watermarkLimit} to the highest stack slot.
+     */
+    private byte[] watermarkRefMap;
+    private int[] watermarkSlots;
+    private long[] watermarkSlotValues;
+    private int watermarkSlotCount;
+    private int watermarkMargin = INITIAL_WATERMARK_MARGIN;
+    private int watermarkReuseCount;
+
+    /**
+     * Ring buffer of the oldest frames seen by the current reference map preparation. A watermark is chosen
+     * from these frames once the stack walk completes.
+     */
+    private int[] frameSPs;
+    private int[] frameSlots;
+    private long[] frameIPs;
+    private boolean[] frameIsWatermarkCandidate;
+    private int frameCount;
+    private int frameChainStart;
+    private Pointer lastFrameSP = Pointer.zero();
+
+    /**
+     * Denotes if the current stack walk is a full reference map preparation that can use and update the watermark.
+     */
+    private boolean watermarkWalk;
+
     public StackReferenceMapPreparer(boolean verify, boolean prepare) {
         this.verify = verify;
         this.prepare = prepare;
@@ -301,7 +362,16 @@ public final class StackReferenceMapPreparer extends FrameReferenceMapVisitor {
 
         // walk the stack and prepare references for each stack frame
         StackFrameWalker sfw = vmThread.referenceMapPreparingStackFrameWalker();
+        watermarkWalk = watermarkRefMap != null;
+        frameCount = 0;
+        frameChainStart = 0;
+        lastFrameSP = Pointer.zero();
         sfw.prepareReferenceMap(instructionPointer.toPointer(), stackPointer, framePointer, this);
+        if (watermarkWalk) {
+            // the walk did not stop at the watermark
+            setWatermark(highestStackSlot);
+            watermarkWalk = false;
+        }
 
         logStackRootScanEnd(lockDisabledSafepoints);
 
@@ -310,6 +380,157 @@ public final class StackReferenceMapPreparer extends FrameReferenceMapVisitor {
         return preparationTime;
     }
 
+    /**
+     * Allocates the buffers for the {@linkplain #watermark stack watermark} of a thread if
+     * {@code -XX:StackWatermarkFrames} is enabled. This must be called by the thread itself before
+     * it runs any Java code that may be on its stack when a GC occurs.
+     * <p>
+     * The VM exits with an error if the option is enabled on a platform that does not implement
+     * {@link TargetMethod#returnAddressPointer(StackFrameCursor)}, which is needed to detect that frames
+     * below the watermark have changed.
+     *
+     * @param tla the VM thread locals of the thread owning this preparer
+     */
+    public void initializeStackWatermark(Pointer tla) {
+        if (StackWatermarkFrames <= 0 || watermarkRefMap != null) {
+            return;
+        }
+        if (platform().isa != ISA.AMD64) {
+            Log.println("-XX:StackWatermarkFrames is not supported on " + platform().isa);
+            MaxineVM.native_exit(1);
+        }
+        int n = StackWatermarkFrames;
+        frameSPs = new int[n];
+        frameSlots = new int[n];
+        frameIPs = new long[n];
+        frameIsWatermarkCandidate = new boolean[n];
+        watermarkSlots = new int[n];
+        watermarkSlotValues = new long[n];
+        Pointer lowest = LOWEST_STACK_SLOT_ADDRESS.load(tla);
+        Pointer highest = HIGHEST_STACK_SLOT_ADDRESS.load(tla);
+        watermarkRefMap = new byte[referenceMapByteIndex(lowest, highest) + 1];
+    }
+
+    /**
+     * Gets the number of reference map preparations that stopped at the {@linkplain #watermark stack watermark}
+     * and reused the saved reference maps of the frames below it.
+     */
+    public int watermarkReuseCount() {
+        return watermarkReuseCount;
+    }
+
+    /**
+     * Called by the stack walker after the reference map for a frame has been prepared.
+     *
+     * @return {@code true} if {@code current} is the watermark frame and the reference maps of all older frames
+     *         have been restored, i.e. the stack walk can stop
+     */
+    public boolean reachedWatermark(StackFrameCursor current, StackFrameCursor callee, TargetMethod targetMethod) {
+        if (!watermarkWalk) {
+            return false;
+        }
+        Pointer sp = current.sp();
+        if (!watermark.isZero()) {
+            if (sp.equals(watermark)) {
+                if (current.ipAsPointer().toLong() == watermarkIP && watermarkIsValid()) {
+                    restoreWatermarkRefMap();
+                    watermarkWalk = false;
+                    watermarkReuseCount++;
+                    return true;
+                }
+                invalidateWatermark();
+            } else if (sp.greaterThan(watermark)) {
+                invalidateWatermark();
+            }
+        }
+        recordFrame(current, callee, targetMethod);
+        return false;
+    }
+
+    private boolean watermarkIsValid() {
+        for (int i = 0; i < watermarkSlotCount; i++) {
+            if (slotAddress(watermarkSlots[i]).readWord(0).asAddress().toLong() != watermarkSlotValues[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void invalidateWatermark() {
+        watermark = Pointer.zero();
+        watermarkSlotCount = 0;
+        // the frames near the top of this stack change more than expected: keep the next watermark further down
+        watermarkMargin = Math.min(watermarkMargin * 2, StackWatermarkFrames);
+    }
+
+    private void recordFrame(StackFrameCursor current, StackFrameCursor callee, TargetMethod targetMethod) {
+        int slot = -1;
+        TargetMethod calleeTM = callee.targetMethod();
+        if (calleeTM != null && !lastFrameSP.isZero() && callee.sp().equals(lastFrameSP) && callee.csa().isZero()) {
+            Pointer returnAddressPointer = calleeTM.returnAddressPointer(callee);
+            if (returnAddressPointer.readWord(0).asPointer().equals(current.ipAsPointer())) {
+                slot = referenceMapBitIndex(returnAddressPointer);
+            }
+        }
+        if (slot < 0) {
+            // the caller/callee relationship to the previous frame cannot be verified by a return address
+            frameChainStart = frameCount;
+        }
+        int index = frameCount % frameSPs.length;
+        frameSPs[index] = referenceMapBitIndex(current.sp());
+        frameSlots[index] = slot;
+        frameIPs[index] = current.ipAsPointer().toLong();
+        // the caller of the watermark frame must not contribute to the reference map of the watermark frame
+        frameIsWatermarkCandidate[index] = targetMethod.classMethodActor() != null && targetMethod.stubType() == null && !(targetMethod instanceof Adapter);
+        frameCount++;
+        lastFrameSP = current.sp();
+    }
+
+    /**
+     * Chooses a new watermark from the frames recorded by a complete stack walk and saves the
+     * reference map of the frames older than it.
+     */
+    private void setWatermark(Pointer highestStackSlot) {
+        int capacity = frameSPs.length;
+        int oldest = frameCount - 1;
+        int depth = Math.max(Math.max(frameChainStart, frameCount - capacity), watermarkMargin);
+        while (depth < oldest && !frameIsWatermarkCandidate[depth % capacity]) {
+            depth++;
+        }
+        if (depth >= oldest) {
+            watermark = Pointer.zero();
+            watermarkSlotCount = 0;
+            return;
+        }
+        watermark = slotAddress(frameSPs[depth % capacity]);
+        watermarkIP = frameIPs[depth % capacity];
+        watermarkLimit = slotAddress(frameSPs[(depth + 1) % capacity]);
+        watermarkHighestSlot = highestStackSlot;
+        watermarkSlotCount = 0;
+        for (int d = depth + 1; d <= oldest; d++) {
+            watermarkSlots[watermarkSlotCount] = frameSlots[d % capacity];
+            watermarkSlotValues[watermarkSlotCount] = frameIPs[d % capacity];
+            watermarkSlotCount++;
+        }
+
+        int lowestByteIndex = referenceMapByteIndex(lowestStackSlot, watermarkLimit);
+        int highestByteIndex = referenceMapByteIndex(lowestStackSlot, highestStackSlot);
+        for (int i = lowestByteIndex; i <= highestByteIndex; i++) {
+            watermarkRefMap[i - lowestByteIndex] = referenceMap.readByte(i);
+        }
+        // drop the bits of the slots below the limit that share the lowest byte
+        int lowestBitIndex = referenceMapBitIndex(watermarkLimit);
+        watermarkRefMap[0] = (byte) (watermarkRefMap[0] & Ints.highBitsSet(lowestBitIndex % Bytes.WIDTH));
+    }
+
+    private void restoreWatermarkRefMap() {
+        int lowestByteIndex = referenceMapByteIndex(lowestStackSlot, watermarkLimit);
+        int highestByteIndex = referenceMapByteIndex(lowestStackSlot, watermarkHighestSlot);
+        for (int i = lowestByteIndex; i <= highestByteIndex; i++) {
+            referenceMap.writeByte(i, (byte) (referenceMap.readByte(i) | watermarkRefMap[i - lowestByteIndex]));
+        }
+    }
+
     private void logStackRootScanEnd(boolean lockDisabledSafepoints) {
         if (logStackRootScanning()) {
             stackRootScanLogger.unlock(lockDisabledSafepoints);
@@ -50,8 +50,11 @@ import com.sun.max.vm.hosted.*;
 import com.sun.max.vm.jdk.*;
 import com.sun.max.vm.jni.*;
 import com.sun.max.vm.log.*;
+import com.sun.max.vm.management.*;
 import com.sun.max.vm.monitor.modal.sync.*;
 import com.sun.max.vm.object.*;
+import com.sun.max.vm.profile.*;
+import com.sun.max.vm.profilers.sampling.*;
 import com.sun.max.vm.reference.*;
 import com.sun.max.vm.runtime.*;
 import com.sun.max.vm.stack.*;
@@ -233,7 +236,6 @@ public class VmThread {
     private volatile boolean interrupted = false;
     private Throwable terminationCause;
     private int id;
-    private int parkState;
     /**
      * Guaranteed unique for the lifetime of the VM.
      */
@@ -266,6 +268,23 @@ public class VmThread {
     @CONSTANT
     protected Word nativeThread = Word.zero();
 
+    /**
+     * The native parker implementing {@link #park(boolean, long)} and {@link #unpark()} for this thread.
+     * It is allocated when the thread is started or attached, before it runs any Java code, and released
+     * when it detaches. The first word of a parker is its permit, one of the {@code PARKER_*} values.
+     * While there is no parker, parking falls back to waiting on {@link #parkLock}.
+     */
+    private volatile Pointer parker = Pointer.zero();
+
+    /**
+     * The lock and permit used to park this thread when it has no {@link #parker}.
+     */
+    private final Object parkLock = new Object();
+    private boolean parkPermit;
+
+    private static final int PARKER_EMPTY = 0;
+    private static final int PARKER_PERMIT = 1;
+
     private final VmStackFrameWalker stackFrameWalker = new VmStackFrameWalker(Pointer.zero());
 
     private final VmStackFrameWalker stackDumpStackFrameWalker = new VmStackFrameWalker(Pointer.zero());
@@ -285,6 +304,38 @@ public class VmThread {
 
     public final HeapScheme.GCRequest gcRequest = VMConfiguration.vmConfig().heapScheme().createThreadLocalGCRequest(this);
 
+    /**
+     * Pending type and receiver profile updates of this thread.
+     */
+    public final TypeProfileBuffer typeProfileBuffer = new TypeProfileBuffer();
+
+    /**
+     * Stack samples of this thread pending aggregation by the {@link AsyncSamplingProfiler}, or {@code null}
+     * if this thread is not being profiled.
+     */
+    public AsyncSamplingProfiler.SampleBuffer asyncSampleBuffer;
+
+    /**
+     * Number of times this thread blocked to enter a contended monitor, and the total time (in nanoseconds) it
+     * spent blocked. The time is only accumulated while {@link ThreadManagement#isThreadContentionMonitoringEnabled()
+     * contention monitoring} is enabled.
+     */
+    public long blockedCount;
+    public long blockedTime;
+
+    /**
+     * Number of times this thread waited on a monitor, and the total time (in nanoseconds) it spent waiting.
+     * The time is only accumulated while contention monitoring is enabled.
+     */
+    public long waitedCount;
+    public long waitedTime;
+
+    /**
+     * The {@linkplain ThreadManagement#setThreadContentionMonitoringEnabled(boolean) contention monitoring} epoch
+     * of {@link #blockedTime} and {@link #waitedTime}. Only ever updated by this thread.
+     */
+    public int contentionEpoch;
+
     /**
      * A "monitor" used to suspend the thread by {@link VmOperation}.
      */
@@ -502,6 +553,7 @@ public class VmThread {
     }
 
     private static void executeRunnable(VmThread vmThread) throws Throwable {
+        vmThread.stackReferenceMapPreparer.initializeStackWatermark(vmThread.tla());
         try {
             if (vmThread == mainThread) {
                 // JVMTIEvent.THREAD_START is dispatched in JavaRunScheme
@@ -605,6 +657,9 @@ public class VmThread {
         LOWEST_STACK_SLOT_ADDRESS.store3(etla, yellowZone.plus(platform().pageSize));
 
         thread.nativeThread = nativeThread;
+        if (thread.parker.isZero()) {
+            thread.parker = nativeParkerAllocate();
+        }
         thread.tla = etla;
         thread.stackFrameWalker.setTLA(etla);
         thread.stackDumpStackFrameWalker.setTLA(etla);
@@ -795,6 +850,9 @@ public class VmThread {
             jniException.printStackTrace();
         }
 
+        // Write back the profile update this thread still holds
+        thread.typeProfileBuffer.flush();
+
         thread.terminationPending();
 
         synchronized (thread.javaThread) {
@@ -822,6 +880,7 @@ public class VmThread {
         thread.id = -1;
         thread.waitingCondition = null;
         thread.suspendMonitor.destroy();
+        thread.releaseParker();
 
         JniFunctions.epilogue(anchor);
     }
@@ -1371,7 +1430,30 @@ public class VmThread {
         state = Thread.State.RUNNABLE;
         Thread_vmThread.setObject(javaThread, this);
         suspendMonitor.init();
-        VmThreadMap.ACTIVE.startThread(this, STACK_SIZE_OPTION.getValue().alignUp(platform().pageSize).asSize(), javaThread.getPriority());
+        // Allocated here rather than in add() so that an unpark issued before the new thread runs is not lost
+        parker = nativeParkerAllocate();
+        boolean started = false;
+        try {
+            VmThreadMap.ACTIVE.startThread(this, STACK_SIZE_OPTION.getValue().alignUp(platform().pageSize).asSize(), javaThread.getPriority());
+            started = true;
+        } finally {
+            if (!started) {
+                // No native thread will ever detach and release the parker
+                releaseParker();
+            }
+        }
+    }
+
+    /**
+     * Releases the native parker of this thread.
+     * A racing unpark may still use the released parker; that only causes a spurious wakeup of its next owner.
+     */
+    private void releaseParker() {
+        final Pointer parker = this.parker;
+        this.parker = Pointer.zero();
+        if (!parker.isZero()) {
+            nativeParkerRelease(parker);
+        }
     }
 
     public final boolean isInterrupted(boolean clearInterrupted) {
@@ -1427,6 +1509,8 @@ public class VmThread {
             // interruption.
             nativeInterrupt(nativeThread);
         }
+        // The signal alone does not reliably end a futex wait, which the kernel may restart
+        unpark();
     }
 
     @Override
@@ -1487,45 +1571,86 @@ public class VmThread {
     }
 
     /**
-     * This method parks the current thread according to the semantics of {@link Unsafe#park(boolean, long)}.
-     * @throws InterruptedException
-     */
-    public final void park() throws InterruptedException {
-        synchronized (this) {
-            if (parkState == 1) {
-                parkState = 0;
-            } else {
-                parkState = 2;
-                wait();
-            }
+     * Parks the current thread according to the semantics of {@link Unsafe#park(boolean, long)}.
+     * An available permit is consumed without leaving Java code; otherwise the thread blocks
+     * in native code until it is unparked or interrupted, or the timeout expires.
+     *
+     * @param isAbsolute specifies if {@code time} is a deadline in milliseconds since the epoch
+     *            rather than a timeout in nanoseconds
+     * @param time the deadline or timeout, where a relative timeout of 0 means wait indefinitely
+     */
+    public final void park(boolean isAbsolute, long time) {
+        final Pointer parker = this.parker;
+        if (parker.isZero()) {
+            parkOnMonitor(isAbsolute, time);
+            return;
+        }
+        if (parker.compareAndSwapInt(0, PARKER_PERMIT, PARKER_EMPTY) == PARKER_PERMIT) {
+            return;
+        }
+        if (interrupted || time < 0 || (isAbsolute && time == 0)) {
+            return;
         }
+        final State oldState = state;
+        state = isAbsolute || time > 0 ? State.TIMED_WAITING : State.WAITING;
+        nativeParkerPark(parker, isAbsolute, time);
+        state = oldState;
     }
 
     /**
-     * This method parks the current thread according to the semantics of {@link Unsafe#park(boolean, long)}.
-     * @throws InterruptedException
+     * Parks the current thread by waiting on {@link #parkLock}, for use while it has no native parker.
      */
-    public final void park(long wait) throws InterruptedException {
-        synchronized (this) {
-            if (parkState == 1) {
-                parkState = 0;
-            } else {
-                parkState = 2;
-                wait(wait / 1000000, (int) (wait % 1000000));
+    private void parkOnMonitor(boolean isAbsolute, long time) {
+        synchronized (parkLock) {
+            if (!parkPermit && !interrupted && time >= 0 && !(isAbsolute && time == 0)) {
+                long millis = 0;
+                int nanos = 0;
+                if (isAbsolute) {
+                    millis = time - System.currentTimeMillis();
+                } else if (time > 0) {
+                    millis = time / 1000000;
+                    nanos = (int) (time % 1000000);
+                }
+                if (!isAbsolute || millis > 0) {
+                    try {
+                        parkLock.wait(millis, nanos);
+                    } catch (InterruptedException e) {
+                        // park does not throw and leaves the interrupted status set
+                        interrupted = true;
+                    }
+                }
             }
+            parkPermit = false;
         }
     }
 
     /**
-     * This method unparks the current thread according to the semantics of {@link Unsafe#unpark(Object)}.
+     * Unparks this thread according to the semantics of {@link Unsafe#unpark(Object)}.
      */
     public final void unpark() {
-        synchronized (this) {
-            parkState = 1;
-            notifyAll();
+        final Pointer parker = this.parker;
+        if (parker.isZero()) {
+            synchronized (parkLock) {
+                parkPermit = true;
+                parkLock.notifyAll();
+            }
+        } else if (parker.readInt(0) != PARKER_PERMIT) {
+            nativeParkerUnpark(parker);
         }
     }
 
+    @C_FUNCTION
+    private static native Pointer nativeParkerAllocate();
+
+    @C_FUNCTION
+    private static native void nativeParkerRelease(Pointer parker);
+
+    @C_FUNCTION
+    private static native void nativeParkerUnpark(Pointer parker);
+
+    // May block so JNI
+    private static native void nativeParkerPark(Pointer parker, boolean isAbsolute, long time);
+
     public final void pushPrivilegedElement(ClassActor classActor, long frameId, AccessControlContext context) {
         privilegedStackTop = new PrivilegedElement(classActor, frameId, context, privilegedStackTop);
     }
@@ -287,6 +287,14 @@ public class VmThreadLocal implements FormatWithToString {
     public static final VmThreadLocal STACK_REFERENCE_MAP_SIZE
         = new VmThreadLocal("STACK_REFERENCE_SIZE", false, "size of stack reference map");
 
+    /**
+     * The number of {@code SIGPROF} ticks of the {@linkplain com.sun.max.vm.profilers.sampling.AsyncSamplingProfiler asynchronous sampling profiler}
+     * that interrupted this thread outside Java code. These are counted by the native signal handler, as the stack
+     * can only be sampled when the thread is interrupted in Java code.
+     */
+    public static final VmThreadLocal PROFILER_NATIVE_TICKS
+        = new VmThreadLocal("PROFILER_NATIVE_TICKS", false, "number of profiler ticks in native code");
+
     /**
      * Threads allocate primarily via a TLAB, which is refilled by default from a default heap.
      * Occasionally, a thread may need to allocate outside of this allocator.
@@ -29,6 +29,7 @@ import static com.sun.max.vm.intrinsics.MaxineIntrinsicIDs.*;
 import java.io.*;
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import com.sun.max.annotate.*;
 import com.sun.max.platform.*;
@@ -56,22 +57,42 @@ public final class BootClassLoader extends ClassLoader {
      */
     public static final BootClassLoader BOOT_CLASS_LOADER = new BootClassLoader();
 
-    private Classpath classpath;
+    /**
+     * The boot class path, created on first use. Boot classes are loaded without holding the lock on this loader,
+     * so the field is volatile and is only assigned while holding that lock.
+     */
+    private volatile Classpath classpath;
 
     /**
      * Map from a package name (in "/" separated format) to the file system path from it was loaded.
      */
     private final HashMap<String, String> packages = new HashMap<String, String>();
 
+    /**
+     * Map from a class name to the lock held while {@link #findBootstrapClass(String)} loads the class. Locking per
+     * name instead of on this loader lets boot classes with different names be parsed and defined concurrently.
+     * An entry only exists while the class is being looked up; if a thread then misses the lock of an earlier
+     * loader of the same class, it will either find the class already loaded or lose the race to define it in
+     * {@link ClassRegistry#define(ClassActor)}.
+     */
+    private final ConcurrentHashMap<String, Object> loadingLocks = new ConcurrentHashMap<String, Object>();
+
     public Classpath classpath() {
-        if (classpath == null) {
-            String extraPath = null;
-            if (!MaxineVM.isHosted()) {
-                extraPath = VMTI.handler().bootclassPathExtension();
+        Classpath result = classpath;
+        if (result == null) {
+            synchronized (this) {
+                result = classpath;
+                if (result == null) {
+                    String extraPath = null;
+                    if (!MaxineVM.isHosted()) {
+                        extraPath = VMTI.handler().bootclassPathExtension();
+                    }
+                    result = Classpath.bootClassPath(extraPath);
+                    classpath = result;
+                }
             }
-            classpath = Classpath.bootClassPath(extraPath);
         }
-        return classpath;
+        return result;
     }
 
     /**
@@ -116,12 +137,26 @@ public final class BootClassLoader extends ClassLoader {
         return classActor.toJava();
     }
 
-    public synchronized Class<?> findBootstrapClass(String name) {
-        final Class c = findLoadedClass(name);
+    public Class<?> findBootstrapClass(String name) {
+        Class c = findLoadedClass(name);
         if (c != null) {
             return c;
         }
-        return resolveClassOrNull(classpath(), name);
+        final Object lock = new Object();
+        final Object existingLock = loadingLocks.putIfAbsent(name, lock);
+        try {
+            synchronized (existingLock == null ? lock : existingLock) {
+                c = findLoadedClass(name);
+                if (c != null) {
+                    return c;
+                }
+                return resolveClassOrNull(classpath(), name);
+            }
+        } finally {
+            if (existingLock == null) {
+                loadingLocks.remove(name, lock);
+            }
+        }
     }
 
     private static class VMResolveState extends ThreadLocal<Boolean> {
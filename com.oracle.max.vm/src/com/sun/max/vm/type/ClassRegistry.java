@@ -31,6 +31,7 @@ import java.lang.reflect.*;
 import java.nio.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import com.sun.max.*;
 import com.sun.max.annotate.*;
@@ -135,8 +136,8 @@ public final class ClassRegistry {
     public static final ClassMethodActor VmThread_detach = (ClassMethodActor) findMethod("detach", VmThread.class);
     public static final ClassMethodActor ClassLoader_findBootstrapClass = (ClassMethodActor) findMethod("findBootstrapClass", ClassLoader.class);
 
-    private static int loadCount;        // total loaded
-    private static int unloadCount;    // total unloaded
+    private static final AtomicInteger loadCount = new AtomicInteger();      // total loaded
+    private static final AtomicInteger unloadCount = new AtomicInteger();    // total unloaded
 
     static {
         new CriticalNativeMethod(Log.class, "log_lock");
@@ -276,7 +277,7 @@ public final class ClassRegistry {
             }
             return existingClassActor;
         }
-        loadCount++;
+        loadCount.incrementAndGet();
 
         // Add to class hierarchy, initialize vtables, and do possible deoptimizations.
         DependenciesManager.addToHierarchy(classActor);
@@ -471,16 +472,16 @@ public final class ClassRegistry {
         return Utils.cast(type, property.get(propertyMaps[property.ordinal()], object));
     }
 
-    public static synchronized int getLoadedClassCount() {
-        return loadCount - unloadCount;
+    public static int getLoadedClassCount() {
+        return loadCount.get() - unloadCount.get();
     }
 
-    public static synchronized int getTotalLoadedClassCount() {
-        return loadCount;
+    public static int getTotalLoadedClassCount() {
+        return loadCount.get();
     }
 
-    public static synchronized int getUnloadedClassCount() {
-        return unloadCount;
+    public static int getUnloadedClassCount() {
+        return unloadCount.get();
     }
 
     /**
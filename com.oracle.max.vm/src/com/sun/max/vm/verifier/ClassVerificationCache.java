@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.verifier;
+
+import static com.sun.max.vm.VMOptions.*;
+
+import java.io.*;
+import java.security.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.program.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.type.*;
+
+/**
+ * Remembers across VM runs which classes have passed bytecode verification so that an unchanged class file
+ * is not verified again. When {@code -XX:VerificationCache=<file>} is given, the digest of every class file
+ * defined once the VM is {@linkplain MaxineVM.Phase#RUNNING running} is recorded, and the keys of the classes
+ * that verified successfully are written to the file at VM exit. A class whose key is found in the file
+ * loaded at startup is marked verified without running the verifier.
+ * <p>
+ * A key is made up of the name of the defining loader's class, the class name and the SHA-256 digest of the
+ * class file bytes. Only classes for which verification did not rewrite any code (i.e. that do not use
+ * {@code jsr}/{@code ret} subroutines) are recorded, as the rewritten code is not persisted.
+ * <p>
+ * Verifying a class also depends on the classes it references, for example through the assignability checks
+ * made on method arguments. The file therefore also records a {@linkplain #fingerprint(List) fingerprint} of
+ * the boot and application class paths (the path, size and modification time of every entry), and the cache
+ * is discarded if the fingerprint no longer matches. Classes defined by other loaders from other sources are
+ * keyed by their own bytes only; a change to the classes they reference is not detected.
+ * <p>
+ * Independently of the cache, {@code -XX:+LazyVerification} defers the verification of a method from class
+ * linking to the first time the method's code is needed, which is normally its first compilation. With lazy
+ * verification, a {@link VerifyError} is thrown when a bad method is first invoked instead of when its class
+ * is initialized, and methods that are never invoked are never verified.
+ * <p>
+ * File format (all integers big endian):
+ * <pre>
+ *     int   magic
+ *     short version
+ *     UTF   fingerprint
+ *     int   count
+ *     UTF   key[count]
+ * </pre>
+ */
+public final class ClassVerificationCache {
+
+    /**
+     * The file the verified class keys are saved to and loaded from. Caching is disabled if {@code null}.
+     */
+    @RESET
+    public static String VerificationCache;
+
+    /**
+     * Verify methods when their code is first needed instead of when their class is linked.
+     */
+    public static boolean LazyVerification;
+
+    static {
+        addFieldOption("-XX:", "VerificationCache", ClassVerificationCache.class,
+            "Remember classes that passed bytecode verification in the given file and do not verify them again if unchanged.");
+        addFieldOption("-XX:", "LazyVerification", ClassVerificationCache.class,
+            "Verify a method on its first invocation instead of when its class is linked.");
+    }
+
+    private static final int MAGIC = 0x4d585643;
+    private static final int VERSION = 2;
+
+    /**
+     * The keys of the classes loaded from the cache file and of the classes verified in this run.
+     */
+    private static final ConcurrentHashMap<String, Boolean> verifiedClasses = new ConcurrentHashMap<String, Boolean>();
+
+    /**
+     * The keys of the classes defined in this run that have not been linked yet. The map is weak so that a class
+     * that is never linked, for example because linking failed, does not stay reachable from here.
+     */
+    private static final Map<ClassActor, String> pendingKeys = Collections.synchronizedMap(new WeakHashMap<ClassActor, String>());
+
+    /**
+     * The fingerprint of the class path of this run, computed when the cache is initialized.
+     */
+    private static String classPathFingerprint;
+
+    private static volatile boolean initialized;
+
+    private ClassVerificationCache() {
+    }
+
+    public static boolean isEnabled() {
+        return initialized;
+    }
+
+    /**
+     * Determines if the methods of a given class are verified on first use instead of when the class is linked.
+     */
+    public static boolean isLazy(ClassActor classActor) {
+        return LazyVerification && !MaxineVM.isHosted() && !classActor.isReflectionStub() &&
+               ClassVerifier.shouldBeVerified(classActor.classLoader, classActor.isRemote());
+    }
+
+    /**
+     * Loads the cache file and arranges for it to be saved at VM exit. Called once the VM is
+     * {@linkplain MaxineVM.Phase#RUNNING running}.
+     */
+    public static void initialize() {
+        if (VerificationCache == null) {
+            return;
+        }
+        final File file = new File(VerificationCache);
+        final List<File> classPath = new ArrayList<File>();
+        for (Classpath.Entry entry : BootClassLoader.BOOT_CLASS_LOADER.classpath().entries()) {
+            classPath.add(entry.file());
+        }
+        for (Classpath.Entry entry : Classpath.fromSystem().entries()) {
+            classPath.add(entry.file());
+        }
+        classPathFingerprint = fingerprint(classPath);
+        if (file.exists()) {
+            try {
+                final Set<String> keys = read(file, classPathFingerprint);
+                for (String key : keys) {
+                    verifiedClasses.put(key, Boolean.TRUE);
+                }
+                if (Verifier.TraceVerifierLevel >= Verifier.TRACE_CLASS) {
+                    Log.println("Loaded " + keys.size() + " verified classes from " + file);
+                }
+            } catch (IOException e) {
+                Log.println("Could not read verification cache " + file + ": " + e);
+            }
+        }
+        initialized = true;
+
+        Runtime.getRuntime().addShutdownHook(new Thread("VerificationCacheSaver") {
+            @Override
+            public void run() {
+                save(file);
+            }
+        });
+    }
+
+    /**
+     * Records the digest of the class file from which a given class was defined.
+     */
+    public static void recordClassfile(ClassActor classActor, byte[] bytes, int offset, int length) {
+        if (ClassVerifier.shouldBeVerified(classActor.classLoader, classActor.isRemote())) {
+            pendingKeys.put(classActor, key(classActor, bytes, offset, length));
+        }
+    }
+
+    private static String key(ClassActor classActor, byte[] bytes, int offset, int length) {
+        final ClassLoader classLoader = classActor.classLoader;
+        final String loader = classLoader == null || classLoader == BootClassLoader.BOOT_CLASS_LOADER ? "boot" : classLoader.getClass().getName();
+        return loader + ' ' + classActor.name + ' ' + digest(bytes, offset, length);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new InternalError(e.toString());
+        }
+    }
+
+    private static String toHexString(byte[] bytes) {
+        final StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Gets the SHA-256 digest of a range of bytes as a hexadecimal string.
+     */
+    public static String digest(byte[] bytes, int offset, int length) {
+        final MessageDigest md = sha256();
+        md.update(bytes, offset, length);
+        return toHexString(md.digest());
+    }
+
+    /**
+     * Computes a fingerprint of a class path from the path, size and modification time of each of its entries.
+     * The fingerprint changes if an entry is added, removed, reordered or modified.
+     */
+    public static String fingerprint(List<File> classPath) {
+        final MessageDigest md = sha256();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            for (File entry : classPath) {
+                out.writeUTF(entry.getPath());
+                out.writeLong(entry.length());
+                out.writeLong(entry.lastModified());
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new InternalError(e.toString());
+        }
+        md.update(bytes.toByteArray());
+        return toHexString(md.digest());
+    }
+
+    /**
+     * Determines if a class is known to have passed verification in a previous run, in which case all its
+     * methods are marked as verified.
+     *
+     * @return {@code true} if {@code classActor} need not be verified
+     */
+    public static boolean lookup(ClassActor classActor) {
+        // a lazily verified class is never recorded as it is not verified as a whole
+        final String key = LazyVerification ? pendingKeys.remove(classActor) : pendingKeys.get(classActor);
+        if (key == null || !verifiedClasses.containsKey(key)) {
+            return false;
+        }
+        pendingKeys.remove(classActor);
+        markVerified(classActor.localVirtualMethodActors());
+        markVerified(classActor.localStaticMethodActors());
+        markVerified(classActor.localInterfaceMethodActors());
+        if (Verifier.TraceVerifierLevel >= Verifier.TRACE_CLASS) {
+            Log.println("[Verification of class " + classActor.name + " skipped: found in verification cache]");
+        }
+        return true;
+    }
+
+    private static void markVerified(MethodActor[] methodActors) {
+        for (MethodActor methodActor : methodActors) {
+            methodActor.beVerified();
+        }
+    }
+
+    /**
+     * Records that a class has been verified.
+     *
+     * @param codeRewritten specifies if verification rewrote the code of any method in the class
+     */
+    public static void verified(ClassActor classActor, boolean codeRewritten) {
+        final String key = pendingKeys.remove(classActor);
+        if (key != null && !codeRewritten) {
+            verifiedClasses.put(key, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Writes the keys of all verified classes to a given file. The file is replaced atomically.
+     */
+    private static synchronized void save(File file) {
+        final List<String> keys = new ArrayList<String>(verifiedClasses.keySet());
+        try {
+            write(file, classPathFingerprint, keys);
+            if (Verifier.TraceVerifierLevel >= Verifier.TRACE_CLASS) {
+                Log.println("Saved " + keys.size() + " verified classes to " + file);
+            }
+        } catch (IOException e) {
+            Log.println("Could not write verification cache " + file + ": " + e);
+        }
+    }
+
+    /**
+     * Writes a verification cache file. The file is replaced atomically.
+     *
+     * @param fingerprint the {@linkplain #fingerprint(List) fingerprint} of the class path the keys are valid for
+     */
+    public static void write(File file, String fingerprint, Collection<String> keys) throws IOException {
+        final File tmp = new File(file.getPath() + ".tmp");
+        try {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeUTF(fingerprint);
+                out.writeInt(keys.size());
+                for (String key : keys) {
+                    out.writeUTF(key);
+                }
+            } finally {
+                out.close();
+            }
+            if (!tmp.renameTo(file)) {
+                file.delete();
+                if (!tmp.renameTo(file)) {
+                    throw new IOException("could not rename " + tmp);
+                }
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the keys from a verification cache file.
+     *
+     * @param fingerprint the {@linkplain #fingerprint(List) fingerprint} of the current class path
+     * @return the keys in {@code file}, or an empty set if they were recorded for a different class path
+     * @throws IOException if {@code file} cannot be read or is not a verification cache file
+     */
+    public static Set<String> read(File file, String fingerprint) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                throw new IOException("not a verification cache file or unsupported version");
+            }
+            final Set<String> keys = new HashSet<String>();
+            if (!in.readUTF().equals(fingerprint)) {
+                if (Verifier.TraceVerifierLevel >= Verifier.TRACE_CLASS) {
+                    Log.println("Discarding verification cache " + file + ": the class path has changed");
+                }
+                return keys;
+            }
+            final int count = in.readInt();
+            for (int n = 0; n < count; n++) {
+                keys.add(in.readUTF());
+            }
+            return keys;
+        } finally {
+            in.close();
+        }
+    }
+}
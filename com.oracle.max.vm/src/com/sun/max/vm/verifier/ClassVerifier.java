@@ -33,6 +33,12 @@ import com.sun.max.vm.classfile.*;
 public abstract class ClassVerifier extends Verifier {
 
     public final ClassActor classActor;
+
+    /**
+     * Records if verification replaced the code of any method, e.g. to inline subroutines.
+     */
+    public boolean codeRewritten;
+
     protected ClassVerifier(ClassActor classActor) {
         super(classActor.constantPool());
         this.classActor = classActor;
@@ -68,7 +74,11 @@ public abstract class ClassVerifier extends Verifier {
     }
 
     protected void verifyMethod(final ClassMethodActor classMethodActor) {
+        final CodeAttribute codeAttribute = classMethodActor.codeAttribute();
         classMethodActor.verify(this);
+        if (classMethodActor.codeAttribute() != codeAttribute) {
+            codeRewritten = true;
+        }
     }
 
     /**
@@ -1362,6 +1362,17 @@ public class TypeCheckingMethodVerifier extends MethodVerifier {
             pushMethodResult(methodSignature);
         }
 
+        @Override
+        public void invokedynamic(int index) {
+            final InvokeDynamicConstant callSite = constantPool().invokeDynamicAt(index);
+            if (callSite.name(constantPool()).toString().startsWith("<")) {
+                verifyError("Invalid INVOKEDYNAMIC on initialization method");
+            }
+            final SignatureDescriptor methodSignature = callSite.signature(constantPool());
+            popMethodParameters(methodSignature);
+            pushMethodResult(methodSignature);
+        }
+
         @Override
         public void invokevirtual(int index) {
             final MethodRefConstant methodConstant = constantPool().methodAt(index);
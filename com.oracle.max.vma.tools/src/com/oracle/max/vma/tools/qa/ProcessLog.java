@@ -49,6 +49,12 @@ import com.sun.max.program.*;
  *
  * The log must be time ordered for the main body of the code to work properly.
  * An unordered log is detected automatically and converted using {@link ConvertLog}.
+ * A store written by {@link com.oracle.max.vm.ext.vma.store.bin.VMABinaryStore} is detected by its magic number
+ * and read with {@link VMABinaryStoreReader}, which does the equivalent conversion as it decodes.
+ *
+ * {@link #processTrace} builds a {@link TraceRun}, including the {@link #objects} map, for the queries.
+ * {@link #visitTrace} instead hands each record to a {@link RecordVisitor} as it is read and retains nothing,
+ * for analyses that can be computed incrementally over traces too large to hold in memory.
  *
  *
  */
@@ -63,6 +69,19 @@ public class ProcessLog {
         }
     }
 
+    /**
+     * Receives the records of a trace one at a time from {@link ProcessLog#visitTrace}.
+     */
+    public interface RecordVisitor {
+        /**
+         * Visits one record.
+         *
+         * @param key the kind of the record
+         * @param recordParts the fields of the record, in the time ordered, absolute time form of a global store
+         */
+        void visit(Key key, String[] recordParts);
+    }
+
     public static abstract class RecordReader {
         public abstract String[] readLine() throws IOException;
         public abstract void close() throws IOException;
@@ -381,6 +400,11 @@ public class ProcessLog {
     private String[] recordParts;
     private int lineNumber;
 
+    /**
+     * Estimate of the number of records in the trace, from the size of its files.
+     */
+    private int recordCountEstimate;
+
     private static boolean textKeyMode;
 
     private ProcessLog(boolean verbose, int maxLines) throws IOException {
@@ -393,18 +417,32 @@ public class ProcessLog {
         return pt.doProcessTrace(dataDir);
     }
 
+    /**
+     * Reads a trace and hands each record to {@code visitor} as soon as it is read, without building a {@link TraceRun}.
+     *
+     * @return the number of records visited
+     */
+    public static int visitTrace(String dataDir, RecordVisitor visitor, boolean verbose, int maxLines) throws IOException {
+        ProcessLog pt = new ProcessLog(verbose, maxLines);
+        return pt.doVisitTrace(dataDir, visitor);
+    }
+
     private int estimateRecordCount(File[] files) {
+        return estimateRecordCount(files, AVG_LINE_LENGTH);
+    }
+
+    private int estimateRecordCount(File[] files, int avgRecordLength) {
         int length = 0;
         for (File file : files) {
             length += file.length();
         }
-        return length / AVG_LINE_LENGTH;
+        return length / avgRecordLength;
     }
 
-    private TraceRun doProcessTrace(String dataDirName) throws IOException {
-        long chunkStartTime = System.currentTimeMillis();
-        long processStartTime = chunkStartTime;
-
+    /**
+     * Opens the reader appropriate to the form of the store in {@code dataDirName}, setting {@link #recordCountEstimate}.
+     */
+    private RecordReader openTrace(String dataDirName) throws IOException {
         File dataDir = new File(dataDirName);
         File dataFile =  null;
         if (dataDir.isDirectory()) {
@@ -413,16 +451,21 @@ public class ProcessLog {
             dataFile = dataDir;
         }
 
-        int adviceRecordListCountEstimate = 0;
         RecordReader reader = null;
-
-        if (dataFile.exists()) {
-            adviceRecordListCountEstimate = estimateRecordCount(new File[] {dataFile});
+        File[] binaryFiles = VMABinaryStoreReader.binaryStoreFiles(dataDir);
+
+        if (binaryFiles != null) {
+            recordCountEstimate = estimateRecordCount(binaryFiles, VMABinaryStoreReader.AVG_RECORD_LENGTH);
+            VMABinaryStoreReader binaryReader = new VMABinaryStoreReader(binaryFiles);
+            textKeyMode = binaryReader.isTextKeyMode();
+            reader = binaryReader;
+        } else if (dataFile.exists()) {
+            recordCountEstimate = estimateRecordCount(new File[] {dataFile});
             reader = checkTimeOrdered(dataFile);
         } else {
             // either a per-thread store or an error
             if (dataDir.isDirectory()) {
-                adviceRecordListCountEstimate = estimateRecordCount(dataDir.listFiles());
+                recordCountEstimate = estimateRecordCount(dataDir.listFiles());
                 PushReader pushReader = new PushReader();
                 reader = pushReader;
                 new PushReaderThread(dataDir.listFiles(), pushReader).start();
@@ -430,13 +473,52 @@ public class ProcessLog {
                 throw new FileNotFoundException(dataDirName);
             }
         }
+        return reader;
+    }
+
+    private int doVisitTrace(String dataDirName, RecordVisitor visitor) throws IOException {
+        RecordReader reader = openTrace(dataDirName);
+        lineNumber = 1;
+        try {
+            while (true) {
+                recordParts = reader.readLine();
+                if (recordParts == null) {
+                    break;
+                }
+                if (recordParts.length == 0 || recordParts[0].charAt(0) == '#') {
+                    continue;
+                }
+                Key key = VMATextStoreFormat.getCommand(textKeyMode, recordParts[0]);
+                if (key == Key.INITIALIZE_STORE) {
+                    checkStoreHeader();
+                }
+                visitor.visit(key, recordParts);
+                lineNumber++;
+                if (lineNumber >= maxLines) {
+                    System.out.println("reached max line count - terminating processing");
+                    break;
+                }
+                if (verbose && ((lineNumber % 100000) == 0)) {
+                    System.out.printf("visited %d traces%n", lineNumber);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return lineNumber - 1;
+    }
+
+    private TraceRun doProcessTrace(String dataDirName) throws IOException {
+        long chunkStartTime = System.currentTimeMillis();
+        long processStartTime = chunkStartTime;
 
+        RecordReader reader = openTrace(dataDirName);
 
         if (verbose) {
             System.out.println("processing trace file " + dataDirName + " starting");
         }
 
-        adviceRecordList = new ArrayList<AdviceRecord>(adviceRecordListCountEstimate);
+        adviceRecordList = new ArrayList<AdviceRecord>(recordCountEstimate);
 
         lineNumber = 1;
         boolean checked = false;
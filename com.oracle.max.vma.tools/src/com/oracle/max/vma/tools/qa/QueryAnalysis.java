@@ -24,9 +24,10 @@
 package com.oracle.max.vma.tools.qa;
 
 import java.io.*;
-import java.util.ArrayList;
+import java.util.*;
 
 import com.oracle.max.vm.ext.vma.store.*;
+import com.oracle.max.vm.ext.vma.store.txt.VMATextStoreFormat.Key;
 
 /**
  * Main class of the object analysis query application.
@@ -42,6 +43,7 @@ public class QueryAnalysis {
         ArrayList<String> queryClassDirs = new ArrayList<String>();
         String commandFile = null;
         String initialQuery = null;
+        boolean countOnly = false;
 
         // Add the default query directory
         final String classpath = System.getProperty("java.class.path");
@@ -81,6 +83,8 @@ public class QueryAnalysis {
                 }
             } else if (arg.equals("-v") || arg.equals("-verbose")) {
                 verbose = true;
+            } else if (arg.equals("-c")) {
+                countOnly = true;
             } else if (arg.equals("-l")) {
                 maxLines = Integer.parseInt(args[++i]);
             } else {
@@ -94,6 +98,17 @@ public class QueryAnalysis {
             dataDirs.add(VMAStoreFile.DEFAULT_STOREDIR);
         }
 
+        if (countOnly) {
+            for (String dataDir : dataDirs) {
+                try {
+                    countRecords(dataDir);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            return;
+        }
+
         for (String queryClassDir : queryClassDirs) {
             try {
                 String queryClassDirCanon = new File(queryClassDir).getCanonicalPath();
@@ -118,10 +133,34 @@ public class QueryAnalysis {
     }
 
     private static void usage() {
-        System.err.println("usage: -f datafile1 datafile2 ... [-i commandfile] [-v]");
+        System.err.println("usage: -f datafile1 datafile2 ... [-i commandfile] [-c] [-v]");
         System.exit(1);
     }
 
+    /**
+     * Counts the records of each kind in a trace, visiting them incrementally so that no object map is built.
+     */
+    private static void countRecords(String dataDir) throws IOException {
+        final EnumMap<Key, long[]> counts = new EnumMap<Key, long[]>(Key.class);
+        int total = ProcessLog.visitTrace(dataDir, new ProcessLog.RecordVisitor() {
+            public void visit(Key key, String[] recordParts) {
+                if (key == null) {
+                    return;
+                }
+                long[] count = counts.get(key);
+                if (count == null) {
+                    count = new long[1];
+                    counts.put(key, count);
+                }
+                count[0]++;
+            }
+        }, verbose, maxLines);
+        System.out.println(dataDir + ": " + total + " records");
+        for (Map.Entry<Key, long[]> entry : counts.entrySet()) {
+            System.out.println("  " + entry.getKey() + " " + entry.getValue()[0]);
+        }
+    }
+
     private static void interact(Reader in, ArrayList<TraceRun> traceRuns) throws IOException {
         BufferedReader reader = new BufferedReader(in);
         PrintStream ps = System.out;
@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2009, 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.max.vma.tools.qa;
+
+import static com.oracle.max.vm.ext.vma.store.bin.VMABinaryStoreFormat.*;
+import static com.oracle.max.vm.ext.vma.store.txt.VMATextStoreFormat.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.util.*;
+
+import com.oracle.max.vm.ext.vma.store.bin.*;
+import com.oracle.max.vm.ext.vma.store.txt.*;
+import com.oracle.max.vm.ext.vma.store.txt.VMATextStoreFormat.Key;
+
+/**
+ * Reads the files written by {@link VMABinaryStore} and delivers the records to {@link ProcessLog}
+ * in the form of a time ordered, absolute time, global store, i.e., the same records that
+ * {@link com.oracle.max.vma.tools.log.ConvertLog} would produce from the equivalent text store.
+ *
+ * Each file is read through a read-only memory-mapped window, which is unmapped when it moves on, and the
+ * fields are decoded straight into the record components, so there is no intermediate text to format, split
+ * or convert. Per-thread files are merged on the fly by absolute time, inserting the thread short form; a
+ * batched global file is sorted in memory.
+ */
+class VMABinaryStoreReader extends ProcessLog.RecordReader {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Experimentally determined average size of an encoded record.
+     */
+    static final int AVG_RECORD_LENGTH = 6;
+
+    private static class TimedRecord {
+        final long time;
+        final String[] parts;
+
+        TimedRecord(long time, String[] parts) {
+            this.time = time;
+            this.parts = parts;
+        }
+    }
+
+    /**
+     * A source of time ordered records.
+     */
+    private abstract static class Source implements Comparable<Source> {
+        final int index;
+        TimedRecord next;
+
+        Source(int index) {
+            this.index = index;
+        }
+
+        abstract TimedRecord read() throws IOException;
+
+        void advance() throws IOException {
+            next = read();
+        }
+
+        public int compareTo(Source other) {
+            if (next.time != other.next.time) {
+                return next.time < other.next.time ? -1 : 1;
+            }
+            return index - other.index;
+        }
+    }
+
+    private static class BinaryFile extends Source {
+        final File file;
+        final FileChannel channel;
+        final long length;
+        long windowBase;
+        MappedByteBuffer buf;
+        final ArrayList<String> strings = new ArrayList<String>();
+        final ArrayList<String> fields = new ArrayList<String>();
+
+        long startTime;
+        boolean absTime;
+        int mode;
+        boolean textKeyMode;
+        String threadShortForm;
+        long lastAbsTime;
+
+        BinaryFile(int index, File file) throws IOException {
+            super(index);
+            this.file = file;
+            FileInputStream in = new FileInputStream(file);
+            channel = in.getChannel();
+            length = channel.size();
+            map(0);
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                throw new IOException("not a binary VMA store: " + file);
+            }
+            String[] header = readRecord();
+            if (header == null || header.length != 4) {
+                throw new IOException("corrupt VMA store header: " + file);
+            }
+            startTime = Long.parseLong(header[1]);
+            absTime = Boolean.parseBoolean(header[2]);
+            mode = Integer.parseInt(header[3]);
+            textKeyMode = (mode & TEXT_KEY) != 0;
+            lastAbsTime = startTime;
+        }
+
+        private void map(long position) throws IOException {
+            if (buf != null) {
+                unmap(buf);
+            }
+            windowBase = position;
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, length - position));
+        }
+
+        /**
+         * Ensures that {@code n} bytes, or the rest of the file if less, are available in the window.
+         */
+        private void ensure(int n) throws IOException {
+            if (buf.remaining() < n) {
+                long position = windowBase + buf.position();
+                if (position < length) {
+                    if (n > WINDOW_SIZE) {
+                        throw new IOException("field too large in " + file);
+                    }
+                    map(position);
+                }
+            }
+        }
+
+        /**
+         * Decodes the next record into its fields.
+         * @return the fields or {@code null} at the end of the file
+         */
+        private String[] readRecord() throws IOException {
+            fields.clear();
+            while (true) {
+                ensure(MAX_SCALAR_SIZE);
+                if (!buf.hasRemaining()) {
+                    break;
+                }
+                int tag = buf.get() & 0xFF;
+                if (tag >= SMALL_BASE) {
+                    fields.add(Integer.toString(tag - SMALL_BASE));
+                    continue;
+                }
+                switch (tag) {
+                    case END_RECORD:
+                        if (fields.isEmpty()) {
+                            return null;
+                        }
+                        return fields.toArray(new String[fields.size()]);
+                    case LONG:
+                        fields.add(Long.toString(getVarLong(buf)));
+                        break;
+                    case FLOAT:
+                        fields.add(Float.toString(Float.intBitsToFloat(buf.getInt())));
+                        break;
+                    case DOUBLE:
+                        fields.add(Double.toString(Double.longBitsToDouble(buf.getLong())));
+                        break;
+                    case STRING: {
+                        int n = (int) getVarLong(buf);
+                        ensure(n);
+                        byte[] bytes = new byte[n];
+                        buf.get(bytes);
+                        String s = new String(bytes, UTF8);
+                        strings.add(s);
+                        fields.add(s);
+                        break;
+                    }
+                    case STRING_REF:
+                        fields.add(strings.get((int) getVarLong(buf)));
+                        break;
+                    case EMPTY:
+                        fields.add("");
+                        break;
+                    case RESET_STRINGS:
+                        strings.clear();
+                        break;
+                    default:
+                        throw new IOException("corrupt VMA store " + file + " at " + (windowBase + buf.position()));
+                }
+            }
+            return null;
+        }
+
+        @Override
+        TimedRecord read() throws IOException {
+            boolean perThread = (mode & PER_THREAD) != 0;
+            while (true) {
+                String[] parts = readRecord();
+                if (parts == null) {
+                    return null;
+                }
+                Key key = VMATextStoreFormat.getCommand(textKeyMode, parts[0]);
+                if (VMATextStoreFormat.hasTime(key)) {
+                    long time = Long.parseLong(parts[1]);
+                    lastAbsTime = absTime ? time : lastAbsTime + time;
+                    parts[1] = Long.toString(lastAbsTime);
+                    if (perThread && VMATextStoreFormat.hasTimeAndThread(key)) {
+                        String[] threadParts = new String[parts.length + 1];
+                        threadParts[0] = parts[0];
+                        threadParts[1] = parts[1];
+                        threadParts[2] = threadShortForm;
+                        System.arraycopy(parts, 2, threadParts, 3, parts.length - 2);
+                        parts = threadParts;
+                    }
+                } else if (key == Key.THREAD_SWITCH) {
+                    lastAbsTime = Long.parseLong(parts[1]);
+                    continue;
+                } else if (key == Key.FINALIZE_STORE) {
+                    // a single FINALIZE_STORE is generated for the merged records
+                    continue;
+                } else if (key == Key.THREAD_DEFINITION) {
+                    parts = threadDefinition(parts);
+                    if (perThread) {
+                        threadShortForm = parts[2];
+                    }
+                }
+                return new TimedRecord(lastAbsTime, parts);
+            }
+        }
+
+        /**
+         * The thread name is written quoted and may contain spaces, so join the fields back together.
+         */
+        private static String[] threadDefinition(String[] parts) {
+            StringBuilder name = new StringBuilder();
+            for (int i = 1; i < parts.length - 1; i++) {
+                if (i > 1) {
+                    name.append(' ');
+                }
+                name.append(parts[i]);
+            }
+            return new String[] {parts[0], name.substring(1, name.length() - 1), parts[parts.length - 1]};
+        }
+
+        void close() throws IOException {
+            if (buf != null) {
+                unmap(buf);
+            }
+            buf = null;
+            channel.close();
+        }
+    }
+
+    /**
+     * The records of a batched file, which are only time ordered within a batch.
+     */
+    private static class SortedSource extends Source {
+        final TimedRecord[] records;
+        int position;
+
+        SortedSource(BinaryFile file) throws IOException {
+            super(file.index);
+            ArrayList<TimedRecord> list = new ArrayList<TimedRecord>();
+            TimedRecord record;
+            while ((record = file.read()) != null) {
+                list.add(record);
+            }
+            records = list.toArray(new TimedRecord[list.size()]);
+            // stable, so definitions stay ahead of their uses
+            Arrays.sort(records, new Comparator<TimedRecord>() {
+                public int compare(TimedRecord a, TimedRecord b) {
+                    return a.time < b.time ? -1 : (a.time > b.time ? 1 : 0);
+                }
+            });
+        }
+
+        @Override
+        TimedRecord read() {
+            return position < records.length ? records[position++] : null;
+        }
+    }
+
+    private final BinaryFile[] files;
+    private final PriorityQueue<Source> queue = new PriorityQueue<Source>();
+    private final boolean textKeyMode;
+    private final long startTime;
+    private long lastTime;
+    private boolean headerDone;
+    private boolean finalizeDone;
+
+    /**
+     * Returns the binary store files in {@code dataDir} (or {@code dataDir} itself if it is a binary store file),
+     * or {@code null} if the store is not in binary format.
+     */
+    static File[] binaryStoreFiles(File dataDir) {
+        File[] files = dataDir.isDirectory() ? dataDir.listFiles() : new File[] {dataDir};
+        if (files == null) {
+            return null;
+        }
+        ArrayList<File> result = new ArrayList<File>();
+        for (File file : files) {
+            if (VMABinaryStoreFormat.isBinaryStore(file)) {
+                result.add(file);
+            }
+        }
+        return result.isEmpty() ? null : result.toArray(new File[result.size()]);
+    }
+
+    VMABinaryStoreReader(File[] files) throws IOException {
+        this.files = new BinaryFile[files.length];
+        long start = Long.MAX_VALUE;
+        for (int i = 0; i < files.length; i++) {
+            BinaryFile file = new BinaryFile(i, files[i]);
+            this.files[i] = file;
+            start = Math.min(start, file.startTime);
+            Source source = file;
+            if ((file.mode & BATCHED) != 0 && (file.mode & PER_THREAD) == 0) {
+                source = new SortedSource(file);
+            }
+            source.advance();
+            if (source.next != null) {
+                queue.add(source);
+            }
+        }
+        textKeyMode = this.files[0].textKeyMode;
+        startTime = start;
+        lastTime = start;
+    }
+
+    boolean isTextKeyMode() {
+        return textKeyMode;
+    }
+
+    @Override
+    public String[] readLine() throws IOException {
+        if (!headerDone) {
+            headerDone = true;
+            return new String[] {getString(textKeyMode, Key.INITIALIZE_STORE), Long.toString(startTime), "true", textKeyMode ? "4" : "0"};
+        }
+        Source source = queue.poll();
+        if (source == null) {
+            if (finalizeDone) {
+                return null;
+            }
+            finalizeDone = true;
+            for (BinaryFile file : files) {
+                lastTime = Math.max(lastTime, file.lastAbsTime);
+            }
+            return new String[] {getString(textKeyMode, Key.FINALIZE_STORE), Long.toString(lastTime)};
+        }
+        TimedRecord record = source.next;
+        lastTime = Math.max(lastTime, record.time);
+        source.advance();
+        if (source.next != null) {
+            queue.add(source);
+        }
+        return record.parts;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (BinaryFile file : files) {
+            file.close();
+        }
+    }
+
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.max.vma.tools.qa;
+
+import static com.oracle.max.vm.ext.vma.store.bin.VMABinaryStoreFormat.*;
+import static com.oracle.max.vm.ext.vma.store.txt.VMATextStoreFormat.*;
+
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+
+import junit.framework.*;
+
+import com.oracle.max.vm.ext.vma.store.bin.*;
+import com.oracle.max.vm.ext.vma.store.txt.sbps.*;
+
+/**
+ * Round trip tests for {@link VMABinaryRecordBuffer} and {@link VMABinaryStoreReader}. The records are written
+ * field by field, the way {@link SBPSVMAIdTextStore} writes them, and must come back as the fields the text store
+ * would have produced.
+ */
+public class VMABinaryStoreTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(VMABinaryStoreTest.class);
+    }
+
+    public VMABinaryStoreTest(String name) {
+        super(name);
+    }
+
+    private final List<File> files = new ArrayList<File>();
+
+    @Override
+    protected void tearDown() {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    private File newFile() throws IOException {
+        File file = File.createTempFile("vmab", null);
+        files.add(file);
+        return file;
+    }
+
+    /**
+     * Writes a record whose fields are given as objects, appending each with the matching {@code append} method.
+     */
+    private static void record(SBPSRecordBuffer sb, Object... fields) {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            Object field = fields[i];
+            if (field instanceof Long) {
+                sb.append(((Long) field).longValue());
+            } else if (field instanceof Integer) {
+                sb.append(((Integer) field).intValue());
+            } else if (field instanceof Float) {
+                sb.append(((Float) field).floatValue());
+            } else if (field instanceof Double) {
+                sb.append(((Double) field).doubleValue());
+            } else if (field instanceof Boolean) {
+                sb.append(((Boolean) field).booleanValue());
+            } else {
+                sb.append((String) field);
+            }
+        }
+        sb.endRecord(0);
+    }
+
+    private static String code(Key key) {
+        return getString(false, key);
+    }
+
+    /**
+     * Writes the store header and thread definition of a per-thread store.
+     */
+    private static VMABinaryRecordBuffer perThreadStore(File file, long startTime, String thread, String shortForm) throws IOException {
+        VMABinaryRecordBuffer sb = new VMABinaryRecordBuffer(file, 4096);
+        record(sb, code(Key.INITIALIZE_STORE), startTime, false, BATCHED | PER_THREAD);
+        sb.append(code(Key.THREAD_DEFINITION)).append(' ').append('"').append(thread).append('"').append(' ').append(shortForm);
+        sb.endRecord(0);
+        return sb;
+    }
+
+    private static List<String> readAll(File... storeFiles) throws IOException {
+        VMABinaryStoreReader reader = new VMABinaryStoreReader(storeFiles);
+        List<String> lines = new ArrayList<String>();
+        try {
+            String[] parts;
+            while ((parts = reader.readLine()) != null) {
+                StringBuilder line = new StringBuilder();
+                for (String part : parts) {
+                    if (line.length() > 0) {
+                        line.append(' ');
+                    }
+                    line.append(part);
+                }
+                lines.add(line.toString());
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+
+    public void test_varLong() {
+        ByteBuffer buf = ByteBuffer.allocate(MAX_SCALAR_SIZE);
+        long[] values = {0, 1, -1, 63, 64, -64, -65, 127, 128, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long value : values) {
+            buf.clear();
+            putVarLong(buf, value);
+            assertTrue(buf.position() <= MAX_SCALAR_SIZE - 1);
+            buf.flip();
+            assertEquals(value, getVarLong(buf));
+            assertFalse(buf.hasRemaining());
+        }
+    }
+
+    public void test_fields() throws IOException {
+        File file = newFile();
+        VMABinaryRecordBuffer sb = perThreadStore(file, 1000, "main", "0");
+        String gc = code(Key.ADVISE_BEFORE_GC);
+        String op = code(Key.ADVISE_BEFORE_OPERATION);
+        // relative time, then scalars that must keep the text the text store would have produced
+        record(sb, op, 1, 3, 96, 0L, -5L, 1L << 40, 1.5f, -2.25d, true);
+        // text that looks numeric but is not the canonical form of a long stays a string
+        record(sb, op, 2, 3, 96, "007", "-0", "12345678901234567890", "");
+        // a field built from several appends is concatenated
+        sb.append(op).append(' ').append(3).append(' ').append(4).append(' ').append(96).append(' ').append('J').append(42L).append(' ').append(7).append('x');
+        sb.endRecord(0);
+        record(sb, gc, 4);
+        sb.close();
+
+        List<String> lines = readAll(file);
+        assertEquals(Arrays.asList(
+            code(Key.INITIALIZE_STORE) + " 1000 true 0",
+            code(Key.THREAD_DEFINITION) + " main 0",
+            op + " 1001 0 3 96 0 -5 1099511627776 1.5 -2.25 true",
+            op + " 1003 0 3 96 007 -0 12345678901234567890 ",
+            op + " 1006 0 4 96 J42 7x",
+            gc + " 1010 0",
+            code(Key.FINALIZE_STORE) + " 1010"), lines);
+    }
+
+    public void test_stringTable() throws IOException {
+        File file = newFile();
+        VMABinaryRecordBuffer sb = perThreadStore(file, 0, "main", "0");
+        String an = code(Key.ADVISE_AFTER_NEW);
+        // enough records to need several segments of the 4096 byte minimum
+        int count = 5000;
+        for (int i = 0; i < count; i++) {
+            record(sb, an, 1, 2, i, "java.lang.String" + (i % 3));
+        }
+        sb.close();
+        // each distinct string is written once, every other occurrence is a short reference
+        assertTrue(file.length() < count * 12);
+
+        List<String> lines = readAll(file);
+        assertEquals(count + 3, lines.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(an + " " + (i + 1) + " 0 2 " + i + " java.lang.String" + (i % 3), lines.get(i + 2));
+        }
+    }
+
+    public void test_perThreadMerge() throws IOException {
+        File main = newFile();
+        File worker = newFile();
+        String gc = code(Key.ADVISE_BEFORE_GC);
+
+        VMABinaryRecordBuffer a = perThreadStore(main, 100, "main", "0");
+        VMABinaryRecordBuffer b = perThreadStore(worker, 105, "worker thread", "1");
+        // times are relative to the previous record of the same thread
+        record(a, gc, 10);
+        record(b, gc, 10);
+        record(a, gc, 20);
+        record(b, gc, 30);
+        // a thread switch resets the time base of its store
+        record(a, code(Key.THREAD_SWITCH), 200);
+        record(a, gc, 1);
+        a.close();
+        b.close();
+
+        List<String> lines = readAll(main, worker);
+        assertEquals(Arrays.asList(
+            code(Key.INITIALIZE_STORE) + " 100 true 0",
+            code(Key.THREAD_DEFINITION) + " main 0",
+            code(Key.THREAD_DEFINITION) + " worker thread 1",
+            gc + " 110 0",
+            gc + " 115 1",
+            gc + " 130 0",
+            gc + " 145 1",
+            gc + " 201 0",
+            code(Key.FINALIZE_STORE) + " 201"), lines);
+    }
+}